@@ -121,6 +121,7 @@ class BenchmarkWorker implements Runnable {
 
             try {
                 resetHeader(request);
+                final long requestStart = System.nanoTime();
                 if (!conn.isOpen()) {
                     
                     Socket socket;
@@ -135,13 +136,16 @@ class BenchmarkWorker implements Runnable {
                     socket.connect(new InetSocketAddress(hostname, port), timeout);
                     
                     conn.bind(socket);
+                    stats.recordConnect(System.nanoTime() - requestStart);
                 }
 
+                long firstByteTime;
                 try {
                     // Prepare request
                     this.httpexecutor.preProcess(this.request, this.httpProcessor, this.context);
                     // Execute request and get a response
                     response = this.httpexecutor.execute(this.request, conn, this.context);
+                    firstByteTime = System.nanoTime() - requestStart;
                     // Finalize response
                     this.httpexecutor.postProcess(response, this.httpProcessor, this.context);
 
@@ -182,6 +186,7 @@ class BenchmarkWorker implements Runnable {
                     instream.close();
                     stats.setContentLength(contentlen);
                 }
+                stats.recordResponse(firstByteTime, System.nanoTime() - requestStart);
 
                 if (config.getVerbosity() >= 4) {
                     System.out.println();
@@ -248,7 +253,7 @@ class BenchmarkWorker implements Runnable {
         }
     }
 
-    private static void resetHeader(final HttpRequest request) {
+    static void resetHeader(final HttpRequest request) {
         for (HeaderIterator it = request.headerIterator(); it.hasNext();) {
             Header header = it.nextHeader();
             if (!(header instanceof DefaultHeader)) {
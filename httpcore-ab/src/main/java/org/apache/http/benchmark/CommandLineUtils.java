@@ -34,6 +34,7 @@ import org.apache.commons.cli.Options;
 import java.io.File;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.util.Locale;
 
 public class CommandLineUtils {
 
@@ -100,6 +101,16 @@ public class CommandLineUtils {
         vopt.setRequired(false);
         vopt.setArgName("verbosity");
 
+        Option Iopt = new Option("I", true, "Print per-second latency snapshots " +
+            "while running, in the given format (csv or json)");
+        Iopt.setRequired(false);
+        Iopt.setArgName("format");
+
+        Option Nopt = new Option("N", false, "Use the non-blocking I/O engine, " +
+            "which multiplexes all concurrent clients over a few I/O threads. " +
+            "Default is one blocking thread per client");
+        Nopt.setRequired(false);
+
         Option hopt = new Option("h", false, "Display usage information");
         nopt.setRequired(false);
 
@@ -119,6 +130,8 @@ public class CommandLineUtils {
         options.addOption(hopt);
         options.addOption(topt);
         options.addOption(oopt);
+        options.addOption(Iopt);
+        options.addOption(Nopt);
         return options;
     }
 
@@ -206,6 +219,18 @@ public class CommandLineUtils {
             config.setUseAcceptGZip(true);
         }
 
+        if (cmd.hasOption('N')) {
+            config.setUseNIO(true);
+        }
+
+        if (cmd.hasOption('I')) {
+            String format = cmd.getOptionValue('I').toLowerCase(Locale.ENGLISH);
+            if (!format.equals(IntervalReporter.CSV) && !format.equals(IntervalReporter.JSON)) {
+                printError("Invalid interval format: " + format);
+            }
+            config.setIntervalFormat(format);
+        }
+
         String[] cmdargs = cmd.getArgs();
         if (cmdargs.length > 0) {
             try {
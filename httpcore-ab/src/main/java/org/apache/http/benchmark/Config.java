@@ -48,6 +48,9 @@ public class Config {
     private File payloadFile = null;
     private String payloadText = null;
     private String soapAction = null;
+    private String intervalFormat = null;
+    private boolean useNIO = false;
+    private int ioThreads = Runtime.getRuntime().availableProcessors();
 
     private boolean disableSSLVerification = true;
     private String trustStorePath = null;
@@ -247,4 +250,53 @@ public class Config {
     public void setIdentityStorePassword(String identityStorePassword) {
         this.identityStorePassword = identityStorePassword;
     }
+
+    /**
+     * @since 4.3
+     */
+    public String getIntervalFormat() {
+        return intervalFormat;
+    }
+
+    /**
+     * Sets the format of per-second latency snapshots printed while the
+     * benchmark is running: <code>csv</code>, <code>json</code> or
+     * <code>null</code> to disable them.
+     *
+     * @since 4.3
+     */
+    public void setIntervalFormat(String intervalFormat) {
+        this.intervalFormat = intervalFormat;
+    }
+
+    /**
+     * @since 4.3
+     */
+    public boolean isUseNIO() {
+        return useNIO;
+    }
+
+    /**
+     * Selects the non-blocking load generation engine, which multiplexes
+     * all concurrent clients over {@link #getIoThreads()} I/O threads.
+     *
+     * @since 4.3
+     */
+    public void setUseNIO(boolean useNIO) {
+        this.useNIO = useNIO;
+    }
+
+    /**
+     * @since 4.3
+     */
+    public int getIoThreads() {
+        return ioThreads;
+    }
+
+    /**
+     * @since 4.3
+     */
+    public void setIoThreads(int ioThreads) {
+        this.ioThreads = ioThreads;
+    }
 }
@@ -44,6 +44,7 @@ import org.apache.http.message.BasicHttpRequest;
 import org.apache.http.protocol.HTTP;
 
 import java.security.KeyStore;
+import java.util.Arrays;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
@@ -98,7 +99,7 @@ public class HttpBenchmark {
         this.config = config != null ? config : new Config();
     }
 
-    private HttpRequest createRequest() {
+    HttpRequest createRequest() {
         URL url = config.getUrl();
         HttpEntity entity = null;
 
@@ -171,6 +172,10 @@ public class HttpBenchmark {
         URL url = config.getUrl();
         HttpHost host = new HttpHost(url.getHost(), url.getPort(), url.getProtocol());
 
+        if (config.isUseNIO()) {
+            return doExecuteNIO(host);
+        }
+
         ThreadPoolExecutor workerPool = new ThreadPoolExecutor(
                 config.getThreads(), config.getThreads(), 5, TimeUnit.SECONDS,
             new LinkedBlockingQueue<Runnable>(),
@@ -246,7 +251,21 @@ public class HttpBenchmark {
                     host,
                     socketFactory,
                     config);
-            workerPool.execute(workers[i]);
+        }
+
+        IntervalReporter reporter = null;
+        if (config.getIntervalFormat() != null) {
+            Stats[] stats = new Stats[workers.length];
+            for (int i = 0; i < workers.length; i++) {
+                stats[i] = workers[i].getStats();
+            }
+            reporter = new IntervalReporter(
+                    Arrays.asList(stats), config.getIntervalFormat(), System.out);
+            reporter.start();
+        }
+
+        for (BenchmarkWorker worker : workers) {
+            workerPool.execute(worker);
         }
 
         while (workerPool.getCompletedTaskCount() < config.getThreads()) {
@@ -258,7 +277,38 @@ public class HttpBenchmark {
         }
 
         workerPool.shutdown();
+        if (reporter != null) {
+            reporter.stop();
+        }
         return ResultProcessor.collectResults(workers, host, config.getUrl().toString());
     }
 
+    private Results doExecuteNIO(final HttpHost host) throws Exception {
+        if ("https".equals(host.getSchemeName())) {
+            throw new IllegalStateException("HTTPS is not supported by the NIO engine");
+        }
+        NIOBenchmark benchmark = new NIOBenchmark(host, config);
+        HttpRequest[] requests = new HttpRequest[config.getThreads()];
+        for (int i = 0; i < requests.length; i++) {
+            requests[i] = createRequest();
+        }
+
+        IntervalReporter reporter = null;
+        if (config.getIntervalFormat() != null) {
+            reporter = new IntervalReporter(
+                    benchmark.getStats(), config.getIntervalFormat(), System.out);
+            reporter.start();
+        }
+
+        long totalTimeNano = benchmark.execute(requests);
+
+        if (reporter != null) {
+            reporter.stop();
+        }
+        Stats[] stats = benchmark.getStats().toArray(new Stats[0]);
+        // results report the mean execution time per client
+        return ResultProcessor.collectResults(stats, requests.length,
+                totalTimeNano * requests.length, host, config.getUrl().toString());
+    }
+
 }
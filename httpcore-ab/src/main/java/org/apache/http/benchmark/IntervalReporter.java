@@ -0,0 +1,108 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+
+package org.apache.http.benchmark;
+
+import java.io.PrintStream;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Periodically drains interval latencies from all workers and prints
+ * one snapshot per interval as CSV or JSON.
+ *
+ * @since 4.3
+ */
+class IntervalReporter implements Runnable {
+
+    static final String CSV = "csv";
+    static final String JSON = "json";
+
+    private final List<Stats> stats;
+    private final String format;
+    private final PrintStream out;
+    private final LatencyHistogram histogram;
+    private int interval;
+    private ScheduledExecutorService scheduler;
+
+    IntervalReporter(final List<Stats> stats, final String format, final PrintStream out) {
+        super();
+        this.stats = stats;
+        this.format = format;
+        this.out = out;
+        this.histogram = new LatencyHistogram();
+        this.interval = 0;
+    }
+
+    void start() {
+        this.scheduler = Executors.newSingleThreadScheduledExecutor();
+        this.scheduler.scheduleAtFixedRate(this, 1, 1, TimeUnit.SECONDS);
+    }
+
+    void stop() throws InterruptedException {
+        this.scheduler.shutdown();
+        this.scheduler.awaitTermination(5, TimeUnit.SECONDS);
+        // report the remainder of the last interval
+        run();
+    }
+
+    public synchronized void run() {
+        if (this.interval == 0 && CSV.equals(this.format)) {
+            this.out.println("second,count,p50_ms,p90_ms,p99_ms,p99.9_ms,max_ms");
+        }
+        this.interval++;
+        this.histogram.reset();
+        for (Stats s : this.stats) {
+            s.drainIntervalLatency(this.histogram);
+        }
+        this.out.println(format(this.interval, this.histogram));
+    }
+
+    String format(final int second, final LatencyHistogram h) {
+        if (JSON.equals(this.format)) {
+            return String.format(Locale.US,
+                "{\"second\":%d,\"count\":%d,\"p50_ms\":%.3f,\"p90_ms\":%.3f," +
+                "\"p99_ms\":%.3f,\"p99.9_ms\":%.3f,\"max_ms\":%.3f}",
+                second, h.getCount(), ms(h.getValueAtPercentile(50.0)),
+                ms(h.getValueAtPercentile(90.0)), ms(h.getValueAtPercentile(99.0)),
+                ms(h.getValueAtPercentile(99.9)), ms(h.getMax()));
+        } else {
+            return String.format(Locale.US, "%d,%d,%.3f,%.3f,%.3f,%.3f,%.3f",
+                second, h.getCount(), ms(h.getValueAtPercentile(50.0)),
+                ms(h.getValueAtPercentile(90.0)), ms(h.getValueAtPercentile(99.0)),
+                ms(h.getValueAtPercentile(99.9)), ms(h.getMax()));
+        }
+    }
+
+    private static double ms(final long micros) {
+        return micros / 1000.0;
+    }
+
+}
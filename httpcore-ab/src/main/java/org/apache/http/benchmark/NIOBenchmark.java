@@ -0,0 +1,457 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+
+package org.apache.http.benchmark;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+
+import org.apache.http.ConnectionReuseStrategy;
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpException;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.config.ConnectionConfig;
+import org.apache.http.entity.ContentType;
+import org.apache.http.impl.DefaultConnectionReuseStrategy;
+import org.apache.http.impl.nio.DefaultHttpClientIODispatch;
+import org.apache.http.impl.nio.reactor.DefaultConnectingIOReactor;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.apache.http.nio.ContentDecoder;
+import org.apache.http.nio.IOControl;
+import org.apache.http.nio.NHttpClientConnection;
+import org.apache.http.nio.protocol.AbstractAsyncResponseConsumer;
+import org.apache.http.nio.protocol.BasicAsyncRequestProducer;
+import org.apache.http.nio.protocol.HttpAsyncRequestExecutor;
+import org.apache.http.nio.protocol.HttpAsyncRequestProducer;
+import org.apache.http.nio.protocol.HttpAsyncRequester;
+import org.apache.http.nio.reactor.IOEventDispatch;
+import org.apache.http.nio.reactor.SessionRequest;
+import org.apache.http.nio.reactor.SessionRequestCallback;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.protocol.HttpCoreContext;
+import org.apache.http.protocol.HttpProcessor;
+import org.apache.http.protocol.ImmutableHttpProcessor;
+import org.apache.http.protocol.RequestConnControl;
+import org.apache.http.protocol.RequestContent;
+import org.apache.http.protocol.RequestExpectContinue;
+import org.apache.http.protocol.RequestTargetHost;
+import org.apache.http.protocol.RequestUserAgent;
+
+/**
+ * Non-blocking load generation engine for the {@link HttpBenchmark HttpBenchmark}.
+ * <p/>
+ * Every concurrent client is a chain of requests executed over its own
+ * non-blocking connection, so thousands of clients can be multiplexed over
+ * a handful of I/O dispatch threads. Like {@link BenchmarkWorker} each
+ * client executes the configured number of requests, re-using its
+ * connection if keep-alive is enabled. Statistics are kept per I/O dispatch
+ * thread rather than per client in order to keep memory footprint
+ * independent of the concurrency level.
+ *
+ * @since 4.3
+ */
+class NIOBenchmark {
+
+    private final Config config;
+    private final HttpHost targetHost;
+    private final InetSocketAddress address;
+    private final HttpProcessor httpProcessor;
+    private final HttpAsyncRequester requester;
+    private final ConnectionReuseStrategy connstrategy;
+    private final SessionRequestCallback sessionCallback;
+    private final List<Stats> stats;
+    private final ThreadLocal<Stats> localStats;
+
+    private volatile CountDownLatch latch;
+    private volatile Exception reactorException;
+
+    NIOBenchmark(final HttpHost targetHost, final Config config) {
+        super();
+        this.config = config;
+        this.targetHost = targetHost;
+        int port = targetHost.getPort();
+        if (port == -1) {
+            port = 80;
+        }
+        this.address = new InetSocketAddress(targetHost.getHostName(), port);
+        this.httpProcessor = new ImmutableHttpProcessor(
+                new RequestContent(),
+                new RequestTargetHost(),
+                new RequestConnControl(),
+                new RequestUserAgent("HttpCore-AB/1.1"),
+                new RequestExpectContinue());
+        this.requester = new HttpAsyncRequester(this.httpProcessor);
+        this.connstrategy = DefaultConnectionReuseStrategy.INSTANCE;
+        this.sessionCallback = new ConnectCallback();
+        this.stats = new CopyOnWriteArrayList<Stats>();
+        this.localStats = new ThreadLocal<Stats>();
+    }
+
+    /**
+     * Returns statistics of all threads that have processed requests so far.
+     * The list may grow while the benchmark is running.
+     */
+    List<Stats> getStats() {
+        return this.stats;
+    }
+
+    Stats localStats() {
+        Stats s = this.localStats.get();
+        if (s == null) {
+            s = new Stats();
+            this.localStats.set(s);
+            this.stats.add(s);
+        }
+        return s;
+    }
+
+    /**
+     * Executes the benchmark using one client per request.
+     *
+     * @param requests request template for each concurrent client
+     * @return total execution time in nano seconds
+     */
+    long execute(final HttpRequest[] requests) throws Exception {
+        final IOReactorConfig ioReactorConfig = IOReactorConfig.custom()
+            .setIoThreadCount(this.config.getIoThreads())
+            .setSoTimeout(this.config.getSocketTimeout())
+            .setConnectTimeout(this.config.getSocketTimeout())
+            .setTcpNoDelay(true)
+            .build();
+        final DefaultConnectingIOReactor ioReactor = new DefaultConnectingIOReactor(ioReactorConfig);
+        final IOEventDispatch ioEventDispatch = new DefaultHttpClientIODispatch(
+                new BenchmarkRequestExecutor(), ConnectionConfig.DEFAULT);
+        final CountDownLatch latch = new CountDownLatch(requests.length);
+        this.latch = latch;
+        this.reactorException = null;
+        final Thread reactorThread = new Thread(new Runnable() {
+
+            public void run() {
+                try {
+                    ioReactor.execute(ioEventDispatch);
+                } catch (InterruptedIOException ex) {
+                    // shut down
+                } catch (Exception ex) {
+                    reactorException = ex;
+                    if (config.getVerbosity() >= 1) {
+                        System.err.println("I/O reactor error: " + ex.getMessage());
+                    }
+                } finally {
+                    // No request can complete once the I/O reactor has
+                    // terminated, do not keep the benchmark waiting
+                    if (latch.getCount() > 0 && reactorException == null) {
+                        reactorException = new IOException("I/O reactor terminated prematurely");
+                    }
+                    while (latch.getCount() > 0) {
+                        latch.countDown();
+                    }
+                }
+            }
+
+        }, "NIOBenchmark");
+        reactorThread.start();
+
+        final long start = System.nanoTime();
+        try {
+            for (final HttpRequest request : requests) {
+                new Client(ioReactor, request).next();
+            }
+            latch.await();
+            final Exception ex = this.reactorException;
+            if (ex != null) {
+                final IOException ioex = new IOException("Benchmark aborted: " + ex.getMessage());
+                ioex.initCause(ex);
+                throw ioex;
+            }
+            return System.nanoTime() - start;
+        } finally {
+            ioReactor.shutdown(1000);
+            reactorThread.join(1000);
+        }
+    }
+
+    class BenchmarkRequestExecutor extends HttpAsyncRequestExecutor {
+
+        @Override
+        public void connected(
+                final NHttpClientConnection conn,
+                final Object attachment) throws IOException, HttpException {
+            super.connected(conn, attachment);
+            ((Client) attachment).connected(conn);
+        }
+
+    }
+
+    class ConnectCallback implements SessionRequestCallback {
+
+        public void completed(final SessionRequest request) {
+        }
+
+        public void failed(final SessionRequest request) {
+            ((Client) request.getAttachment()).connectFailed(request.getException());
+        }
+
+        public void timeout(final SessionRequest request) {
+            ((Client) request.getAttachment()).connectFailed(null);
+        }
+
+        public void cancelled(final SessionRequest request) {
+            ((Client) request.getAttachment()).connectFailed(null);
+        }
+
+    }
+
+    /**
+     * Executes requests of one concurrent client. Only one request of a client
+     * is in progress at any time, so its state is never accessed concurrently.
+     */
+    class Client implements FutureCallback<HttpResponse> {
+
+        private final DefaultConnectingIOReactor ioReactor;
+        private final HttpRequest request;
+        private final HttpCoreContext context;
+        private final ByteBuffer buffer;
+
+        private volatile int remaining;
+        private volatile NHttpClientConnection conn;
+        private volatile HttpAsyncRequestProducer producer;
+        private volatile ResponseConsumer consumer;
+        private volatile long requestStart;
+
+        Client(final DefaultConnectingIOReactor ioReactor, final HttpRequest request) {
+            super();
+            this.ioReactor = ioReactor;
+            this.request = request;
+            this.context = new HttpCoreContext();
+            this.context.setTargetHost(targetHost);
+            this.buffer = ByteBuffer.allocate(4096);
+            this.remaining = config.getRequests();
+        }
+
+        void next() {
+            if (this.remaining <= 0) {
+                closeConnection();
+                latch.countDown();
+                return;
+            }
+            this.remaining--;
+            BenchmarkWorker.resetHeader(this.request);
+            this.requestStart = System.nanoTime();
+            final NHttpClientConnection current = this.conn;
+            if (current != null && current.isOpen()) {
+                execute(current);
+            } else {
+                this.conn = null;
+                final SessionRequest sessionRequest = this.ioReactor.connect(
+                        address, null, this, sessionCallback);
+                sessionRequest.setConnectTimeout(config.getSocketTimeout());
+            }
+        }
+
+        void connected(final NHttpClientConnection conn) {
+            localStats().recordConnect(System.nanoTime() - this.requestStart);
+            this.conn = conn;
+            execute(conn);
+        }
+
+        void connectFailed(final IOException ex) {
+            localStats().incFailureCount();
+            if (config.getVerbosity() >= 2) {
+                System.err.println("Connect failed: " +
+                        (ex != null ? ex.getMessage() : "timeout or cancelled"));
+            }
+            next();
+        }
+
+        private void execute(final NHttpClientConnection conn) {
+            this.producer = new BasicAsyncRequestProducer(targetHost, this.request);
+            this.consumer = new ResponseConsumer(this.buffer, this.requestStart);
+            requester.execute(this.producer, this.consumer, conn, this.context, this);
+        }
+
+        public void completed(final HttpResponse response) {
+            final Stats stats = localStats();
+            final ResponseConsumer c = this.consumer;
+            releaseResources();
+            if (config.getVerbosity() >= 2) {
+                System.out.println(response.getStatusLine().getStatusCode());
+            }
+            if (response.getStatusLine().getStatusCode() == HttpStatus.SC_OK) {
+                stats.incSuccessCount();
+            } else {
+                stats.incFailureCount();
+            }
+            if (response.getEntity() != null) {
+                stats.setContentLength(c.getContentCount());
+            }
+            stats.incTotalBytesRecv(c.getContentCount());
+            if (this.request instanceof HttpEntityEnclosingRequest) {
+                final HttpEntity entity = ((HttpEntityEnclosingRequest) this.request).getEntity();
+                if (entity != null && entity.getContentLength() > 0) {
+                    stats.incTotalBytesSent(entity.getContentLength());
+                }
+            }
+            stats.recordResponse(c.getFirstByteTime(), System.nanoTime() - this.requestStart);
+            final Header header = response.getFirstHeader("Server");
+            if (header != null) {
+                stats.setServerName(header.getValue());
+            }
+            if (!config.isKeepAlive() || !connstrategy.keepAlive(response, this.context)) {
+                closeConnection();
+            } else {
+                stats.incKeepAliveCount();
+            }
+            next();
+        }
+
+        public void failed(final Exception ex) {
+            releaseResources();
+            if (ex instanceof HttpException) {
+                localStats().incWriteErrors();
+            } else {
+                localStats().incFailureCount();
+            }
+            if (config.getVerbosity() >= 2) {
+                System.err.println("Request failed: " + ex.getMessage());
+            }
+            shutdownConnection();
+            next();
+        }
+
+        public void cancelled() {
+            releaseResources();
+            localStats().incFailureCount();
+            shutdownConnection();
+            next();
+        }
+
+        private void releaseResources() {
+            final HttpAsyncRequestProducer p = this.producer;
+            this.producer = null;
+            if (p != null) {
+                try {
+                    p.close();
+                } catch (IOException ignore) {
+                }
+            }
+        }
+
+        private void closeConnection() {
+            final NHttpClientConnection current = this.conn;
+            this.conn = null;
+            if (current != null) {
+                try {
+                    current.close();
+                } catch (IOException ignore) {
+                }
+            }
+        }
+
+        private void shutdownConnection() {
+            final NHttpClientConnection current = this.conn;
+            this.conn = null;
+            if (current != null) {
+                try {
+                    current.shutdown();
+                } catch (IOException ignore) {
+                }
+            }
+        }
+
+    }
+
+    /**
+     * Discards response content while counting it.
+     */
+    static class ResponseConsumer extends AbstractAsyncResponseConsumer<HttpResponse> {
+
+        private final ByteBuffer buffer;
+        private final long requestStart;
+        private volatile HttpResponse response;
+        private volatile long firstByteTime;
+        private volatile long contentCount;
+
+        ResponseConsumer(final ByteBuffer buffer, final long requestStart) {
+            super();
+            this.buffer = buffer;
+            this.requestStart = requestStart;
+        }
+
+        long getFirstByteTime() {
+            return this.firstByteTime;
+        }
+
+        long getContentCount() {
+            return this.contentCount;
+        }
+
+        @Override
+        protected void onResponseReceived(final HttpResponse response) {
+            this.firstByteTime = System.nanoTime() - this.requestStart;
+            this.response = response;
+        }
+
+        @Override
+        protected void onEntityEnclosed(final HttpEntity entity, final ContentType contentType) {
+        }
+
+        @Override
+        protected void onContentReceived(
+                final ContentDecoder decoder, final IOControl ioctrl) throws IOException {
+            int n;
+            do {
+                this.buffer.clear();
+                n = decoder.read(this.buffer);
+                if (n > 0) {
+                    this.contentCount += n;
+                }
+            } while (n > 0);
+        }
+
+        @Override
+        protected HttpResponse buildResult(final HttpContext context) {
+            return this.response;
+        }
+
+        @Override
+        protected void releaseResources() {
+        }
+
+    }
+
+}
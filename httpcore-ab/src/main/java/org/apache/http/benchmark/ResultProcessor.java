@@ -32,11 +32,16 @@ import java.text.NumberFormat;
 
 public class ResultProcessor {
 
+    static final double[] PERCENTILES = new double[] { 50.0, 90.0, 99.0, 99.9 };
+
+    static NumberFormat nf1 = NumberFormat.getInstance();
     static NumberFormat nf2 = NumberFormat.getInstance();
     static NumberFormat nf3 = NumberFormat.getInstance();
     static NumberFormat nf6 = NumberFormat.getInstance();
 
     static {
+        nf1.setMaximumFractionDigits(1);
+        nf1.setMinimumFractionDigits(0);
         nf2.setMaximumFractionDigits(2);
         nf2.setMinimumFractionDigits(2);
         nf3.setMaximumFractionDigits(3);
@@ -47,6 +52,26 @@ public class ResultProcessor {
 
     static Results collectResults(BenchmarkWorker[] workers, HttpHost host, String uri) {
         long totalTimeNano = 0;
+        Stats[] stats = new Stats[workers.length];
+        for (int i = 0; i < workers.length; i++) {
+            stats[i] = workers[i].getStats();
+            totalTimeNano += stats[i].getDuration();
+        }
+        return collectResults(stats, workers.length, totalTimeNano, host, uri);
+    }
+
+    /**
+     * Aggregates statistics.
+     *
+     * @param stats statistics to aggregate
+     * @param concurrencyLevel number of concurrent clients
+     * @param totalTimeNano execution time of all clients added up
+     */
+    static Results collectResults(
+            final Stats[] stats, int concurrencyLevel, long totalTimeNano,
+            final HttpHost host, final String uri) {
+        String serverName = null;
+        long contentLength = -1;
         long successCount    = 0;
         long failureCount    = 0;
         long writeErrors     = 0;
@@ -54,11 +79,13 @@ public class ResultProcessor {
         long totalBytesRcvd  = 0;
         long totalBytesSent  = 0;
 
-        Stats stats = workers[0].getStats();
-
-        for (BenchmarkWorker worker : workers) {
-            Stats s = worker.getStats();
-            totalTimeNano  += s.getDuration();
+        for (Stats s : stats) {
+            if (serverName == null) {
+                serverName = s.getServerName();
+            }
+            if (contentLength == -1) {
+                contentLength = s.getContentLength();
+            }
             successCount   += s.getSuccessCount();
             failureCount   += s.getFailureCount();
             writeErrors    += s.getWriteErrors();
@@ -68,13 +95,18 @@ public class ResultProcessor {
         }
 
         Results results = new Results();
-        results.serverName = stats.getServerName();
+        for (Stats s : stats) {
+            results.connectLatency.add(s.getConnectLatency());
+            results.firstByteLatency.add(s.getFirstByteLatency());
+            results.totalLatency.add(s.getTotalLatency());
+        }
+        results.serverName = serverName;
         results.hostName = host.getHostName();
         results.hostPort = host.getPort() > 0 ? host.getPort() :
             host.getSchemeName().equalsIgnoreCase("https") ? 443 : 80;
         results.documentPath = uri;
-        results.contentLength = stats.getContentLength();
-        results.concurrencyLevel = workers.length;
+        results.contentLength = contentLength;
+        results.concurrencyLevel = concurrencyLevel;
         results.totalTimeNano = totalTimeNano;
         results.successCount = successCount;
         results.failureCount = failureCount;
@@ -117,6 +149,22 @@ public class ResultProcessor {
                     / 1000 / totalTimeSec) : Integer.valueOf(-1)) + " kb/s sent");
         System.out.println( "\t\t\t\t" +
             nf2.format(results.getTotalBytes() / 1000 / totalTimeSec) + " kb/s total");
+
+        LatencyHistogram connect = results.getConnectLatency();
+        LatencyHistogram firstByte = results.getFirstByteLatency();
+        LatencyHistogram total = results.getTotalLatency();
+        System.out.println("\nPercentage of the requests served within a certain time (ms)");
+        System.out.println("\t\tConnect\t\tFirst byte\tTotal");
+        for (double percentile : PERCENTILES) {
+            System.out.println("  " + nf1.format(percentile) + "%\t\t" +
+                nf3.format(connect.getValueAtPercentile(percentile) / 1000.0) + "\t\t" +
+                nf3.format(firstByte.getValueAtPercentile(percentile) / 1000.0) + "\t\t" +
+                nf3.format(total.getValueAtPercentile(percentile) / 1000.0));
+        }
+        System.out.println("  max\t\t" +
+            nf3.format(connect.getMax() / 1000.0) + "\t\t" +
+            nf3.format(firstByte.getMax() / 1000.0) + "\t\t" +
+            nf3.format(total.getMax() / 1000.0));
     }
 
 }
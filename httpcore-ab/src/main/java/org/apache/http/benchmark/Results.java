@@ -47,10 +47,16 @@ public final class Results {
     long totalBytesRcvd;
     long totalBytesSent;
     long totalBytes;
+    final LatencyHistogram connectLatency;
+    final LatencyHistogram firstByteLatency;
+    final LatencyHistogram totalLatency;
 
     Results() {
         super();
         this.contentLength = -1;
+        this.connectLatency = new LatencyHistogram();
+        this.firstByteLatency = new LatencyHistogram();
+        this.totalLatency = new LatencyHistogram();
     }
 
     public String getServerName() {
@@ -109,6 +115,27 @@ public final class Results {
         return totalBytes;
     }
 
+    /**
+     * Connect times of all new connections in micro seconds.
+     */
+    public LatencyHistogram getConnectLatency() {
+        return connectLatency;
+    }
+
+    /**
+     * Times until the response head was received in micro seconds.
+     */
+    public LatencyHistogram getFirstByteLatency() {
+        return firstByteLatency;
+    }
+
+    /**
+     * Total request times in micro seconds.
+     */
+    public LatencyHistogram getTotalLatency() {
+        return totalLatency;
+    }
+
     @Override
     public String toString() {
         StringBuilder builder = new StringBuilder();
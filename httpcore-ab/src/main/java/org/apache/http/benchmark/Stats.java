@@ -44,6 +44,11 @@ public class Stats {
     private long totalBytesRecv = 0;
     private long totalBytesSent = 0;
     private long contentLength = -1;
+    // latencies in micro seconds
+    private final LatencyHistogram connectLatency = new LatencyHistogram();
+    private final LatencyHistogram firstByteLatency = new LatencyHistogram();
+    private final LatencyHistogram totalLatency = new LatencyHistogram();
+    private final LatencyHistogram intervalLatency = new LatencyHistogram();
 
     public Stats() {
         super();
@@ -132,6 +137,68 @@ public class Stats {
         this.contentLength = contentLength;
     }
 
+    /**
+     * Records the time it took to establish a new connection.
+     *
+     * @param nanos connect time in nano seconds
+     *
+     * @since 4.3
+     */
+    public void recordConnect(long nanos) {
+        this.connectLatency.record(nanos / 1000);
+    }
+
+    /**
+     * Records latencies of a completed request.
+     *
+     * @param firstByteNanos time until the response head was received in nano seconds
+     * @param totalNanos time until the response content was fully consumed in nano seconds
+     *
+     * @since 4.3
+     */
+    public void recordResponse(long firstByteNanos, long totalNanos) {
+        this.firstByteLatency.record(firstByteNanos / 1000);
+        this.totalLatency.record(totalNanos / 1000);
+        synchronized (this.intervalLatency) {
+            this.intervalLatency.record(totalNanos / 1000);
+        }
+    }
+
+    /**
+     * @since 4.3
+     */
+    public LatencyHistogram getConnectLatency() {
+        return this.connectLatency;
+    }
+
+    /**
+     * @since 4.3
+     */
+    public LatencyHistogram getFirstByteLatency() {
+        return this.firstByteLatency;
+    }
+
+    /**
+     * @since 4.3
+     */
+    public LatencyHistogram getTotalLatency() {
+        return this.totalLatency;
+    }
+
+    /**
+     * Adds total latencies recorded since the last call to the given histogram.
+     * Unlike other methods of this class this one may be called by a thread
+     * other than the one recording the statistics.
+     *
+     * @since 4.3
+     */
+    public void drainIntervalLatency(final LatencyHistogram histogram) {
+        synchronized (this.intervalLatency) {
+            histogram.add(this.intervalLatency);
+            this.intervalLatency.reset();
+        }
+    }
+
     public String getServerName() {
         return this.serverName;
     }
@@ -85,6 +85,52 @@ public class SmokeTest {
         Assert.assertEquals(0, results.getWriteErrors());
         Assert.assertEquals(300 * 16, results.getTotalBytes());
         Assert.assertEquals(300 * 16, results.getTotalBytesRcvd());
+        Assert.assertEquals(3, results.getConnectLatency().getCount());
+        Assert.assertEquals(300, results.getFirstByteLatency().getCount());
+        Assert.assertEquals(300, results.getTotalLatency().getCount());
+        Assert.assertTrue(results.getTotalLatency().getValueAtPercentile(50.0)
+                >= results.getFirstByteLatency().getMin());
+    }
+
+    @Test
+    public void testNIOBasics() throws Exception {
+        Config config = new Config();
+        config.setKeepAlive(true);
+        config.setMethod("GET");
+        config.setUrl(new URL("http://localhost:" + server.getPort() + "/"));
+        config.setThreads(3);
+        config.setRequests(100);
+        config.setUseNIO(true);
+        config.setIoThreads(2);
+        HttpBenchmark httpBenchmark = new HttpBenchmark(config);
+        Results results = httpBenchmark.doExecute();
+        Assert.assertNotNull(results);
+        Assert.assertEquals(16, results.getContentLength());
+        Assert.assertEquals(3, results.getConcurrencyLevel());
+        Assert.assertEquals(300, results.getKeepAliveCount());
+        Assert.assertEquals(300, results.getSuccessCount());
+        Assert.assertEquals(0, results.getFailureCount());
+        Assert.assertEquals(0, results.getWriteErrors());
+        Assert.assertEquals(300 * 16, results.getTotalBytesRcvd());
+        Assert.assertEquals(3, results.getConnectLatency().getCount());
+        Assert.assertEquals(300, results.getTotalLatency().getCount());
+    }
+
+    @Test
+    public void testNIONoKeepAlive() throws Exception {
+        Config config = new Config();
+        config.setKeepAlive(false);
+        config.setMethod("GET");
+        config.setUrl(new URL("http://localhost:" + server.getPort() + "/"));
+        config.setThreads(5);
+        config.setRequests(20);
+        config.setUseNIO(true);
+        HttpBenchmark httpBenchmark = new HttpBenchmark(config);
+        Results results = httpBenchmark.doExecute();
+        Assert.assertEquals(0, results.getKeepAliveCount());
+        Assert.assertEquals(100, results.getSuccessCount());
+        Assert.assertEquals(0, results.getFailureCount());
+        Assert.assertEquals(100, results.getConnectLatency().getCount());
     }
 
 }
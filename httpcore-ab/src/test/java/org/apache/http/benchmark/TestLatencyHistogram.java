@@ -0,0 +1,114 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+
+package org.apache.http.benchmark;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestLatencyHistogram {
+
+    @Test
+    public void testEmpty() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        Assert.assertEquals(0, histogram.getCount());
+        Assert.assertEquals(0, histogram.getMin());
+        Assert.assertEquals(0, histogram.getMax());
+        Assert.assertEquals(0, histogram.getValueAtPercentile(99.0));
+    }
+
+    @Test
+    public void testSmallValuesExact() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(i);
+        }
+        Assert.assertEquals(100, histogram.getCount());
+        Assert.assertEquals(1, histogram.getMin());
+        Assert.assertEquals(100, histogram.getMax());
+        Assert.assertEquals(50, histogram.getValueAtPercentile(50.0));
+        Assert.assertEquals(90, histogram.getValueAtPercentile(90.0));
+        Assert.assertEquals(99, histogram.getValueAtPercentile(99.0));
+        Assert.assertEquals(100, histogram.getValueAtPercentile(100.0));
+        Assert.assertEquals(50.5, histogram.getMean(), 0.001);
+    }
+
+    @Test
+    public void testBucketBoundaries() {
+        for (long v = 0; v < 100000; v++) {
+            int index = LatencyHistogram.indexOf(v);
+            Assert.assertTrue(LatencyHistogram.highestEquivalentValue(index) >= v);
+            if (index > 0) {
+                Assert.assertTrue(LatencyHistogram.highestEquivalentValue(index - 1) < v);
+            }
+        }
+        Assert.assertEquals(Long.MAX_VALUE,
+                LatencyHistogram.highestEquivalentValue(LatencyHistogram.indexOf(Long.MAX_VALUE)));
+    }
+
+    @Test
+    public void testPercentileAccuracy() {
+        Random rnd = new Random(42L);
+        long[] values = new long[10000];
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < values.length; i++) {
+            values[i] = (long) (Math.abs(rnd.nextGaussian()) * 50000);
+            histogram.record(values[i]);
+        }
+        Arrays.sort(values);
+        double[] percentiles = new double[] { 50.0, 90.0, 99.0, 99.9 };
+        for (double p : percentiles) {
+            long expected = values[(int) Math.ceil(p / 100.0 * values.length) - 1];
+            long actual = histogram.getValueAtPercentile(p);
+            Assert.assertTrue(p + "%: " + expected + " vs " + actual,
+                    actual >= expected && actual <= expected + expected / 64 + 1);
+        }
+        Assert.assertEquals(values[values.length - 1], histogram.getMax());
+    }
+
+    @Test
+    public void testMerge() {
+        LatencyHistogram h1 = new LatencyHistogram();
+        LatencyHistogram h2 = new LatencyHistogram();
+        for (int i = 0; i < 50; i++) {
+            h1.record(10);
+            h2.record(1000);
+        }
+        h2.record(5);
+        h1.add(h2);
+        Assert.assertEquals(101, h1.getCount());
+        Assert.assertEquals(5, h1.getMin());
+        Assert.assertEquals(1000, h1.getMax());
+        Assert.assertEquals(10, h1.getValueAtPercentile(50.0));
+        h1.reset();
+        Assert.assertEquals(0, h1.getCount());
+    }
+
+}
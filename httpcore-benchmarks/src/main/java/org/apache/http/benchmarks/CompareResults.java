@@ -0,0 +1,174 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+
+package org.apache.http.benchmarks;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compares two JMH result files written with <code>-rf csv</code>, usually
+ * of a baseline and of a candidate build, and prints the relative change
+ * of every score present in both. A change is flagged as significant if
+ * the scores differ by more than the sum of their errors.
+ * <p/>
+ * Usage: <code>CompareResults &lt;baseline.csv&gt; &lt;candidate.csv&gt;</code>
+ */
+public class CompareResults {
+
+    static class Score {
+
+        final String key;
+        final String mode;
+        final double score;
+        final double error;
+        final String unit;
+
+        Score(final String key, final String mode, final double score, final double error,
+                final String unit) {
+            this.key = key;
+            this.mode = mode;
+            this.score = score;
+            this.error = error;
+            this.unit = unit;
+        }
+
+    }
+
+    static List<String> parseLine(final String line) {
+        List<String> fields = new ArrayList<String>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char ch = line.charAt(i);
+            if (quoted) {
+                if (ch == '"') {
+                    if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        field.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    field.append(ch);
+                }
+            } else if (ch == '"') {
+                quoted = true;
+            } else if (ch == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(ch);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    static double parseNumber(final String s) {
+        if (s.length() == 0 || "NaN".equals(s)) {
+            return Double.NaN;
+        }
+        return Double.parseDouble(s);
+    }
+
+    static Map<String, Score> load(final String filename) throws IOException {
+        Map<String, Score> scores = new LinkedHashMap<String, Score>();
+        BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(filename), "UTF-8"));
+        try {
+            String line = reader.readLine();
+            if (line == null) {
+                return scores;
+            }
+            List<String> header = parseLine(line);
+            int benchmarkCol = header.indexOf("Benchmark");
+            int modeCol = header.indexOf("Mode");
+            int threadsCol = header.indexOf("Threads");
+            int scoreCol = header.indexOf("Score");
+            int errorCol = header.indexOf("Score Error (99.9%)");
+            int unitCol = header.indexOf("Unit");
+            if (benchmarkCol < 0 || scoreCol < 0) {
+                throw new IOException("Not a JMH CSV result file: " + filename);
+            }
+            while ((line = reader.readLine()) != null) {
+                if (line.length() == 0) {
+                    continue;
+                }
+                List<String> fields = parseLine(line);
+                StringBuilder key = new StringBuilder(fields.get(benchmarkCol));
+                for (int i = 0; i < header.size() && i < fields.size(); i++) {
+                    String name = header.get(i);
+                    if (name.startsWith("Param: ") && fields.get(i).length() > 0) {
+                        key.append(' ').append(name.substring(7)).append('=').append(fields.get(i));
+                    }
+                }
+                if (threadsCol >= 0) {
+                    key.append(" threads=").append(fields.get(threadsCol));
+                }
+                String mode = modeCol >= 0 ? fields.get(modeCol) : "";
+                double error = errorCol >= 0 ? parseNumber(fields.get(errorCol)) : Double.NaN;
+                String unit = unitCol >= 0 ? fields.get(unitCol) : "";
+                Score score = new Score(key.toString(), mode,
+                        parseNumber(fields.get(scoreCol)), error, unit);
+                scores.put(score.key, score);
+            }
+        } finally {
+            reader.close();
+        }
+        return scores;
+    }
+
+    public static void main(final String[] args) throws Exception {
+        if (args.length != 2) {
+            System.err.println("Usage: CompareResults <baseline.csv> <candidate.csv>");
+            System.exit(1);
+        }
+        Map<String, Score> baseline = load(args[0]);
+        Map<String, Score> candidate = load(args[1]);
+        for (Score base: baseline.values()) {
+            Score cand = candidate.get(base.key);
+            if (cand == null) {
+                continue;
+            }
+            double change = base.score != 0 ? (cand.score - base.score) / base.score * 100 : Double.NaN;
+            double errors = (Double.isNaN(base.error) ? 0 : base.error)
+                + (Double.isNaN(cand.error) ? 0 : cand.error);
+            boolean significant = Math.abs(cand.score - base.score) > errors;
+            System.out.println(String.format("%-100s %14.3f %14.3f %-10s %+8.1f%%%s",
+                    base.key + " (" + base.mode + ")", base.score, cand.score, base.unit,
+                    change, significant ? " *" : ""));
+        }
+    }
+
+}
@@ -0,0 +1,172 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+
+package org.apache.http.benchmarks;
+
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Realistic HTTP message corpora shared by the benchmarks. Message heads
+ * are identified by the names accepted by {@link #head(String)}, which are
+ * meant to be used as JMH parameter values.
+ */
+public final class HttpCorpus {
+
+    /** Minimal request of a command line client. */
+    public static final String SMALL_GET = "small-get";
+    /** Request of a web browser carrying a few kilobytes of cookies. */
+    public static final String BROWSER_GET = "browser-get";
+    /** Request with a single cookie header of 16 KB. */
+    public static final String LARGE_COOKIE_GET = "large-cookie-get";
+    /** Response head of a typical dynamic web page. */
+    public static final String RESPONSE = "response";
+
+    private HttpCorpus() {
+    }
+
+    private static String cookies(final int size) {
+        StringBuilder buffer = new StringBuilder();
+        int n = 0;
+        while (buffer.length() < size) {
+            if (n > 0) {
+                buffer.append("; ");
+            }
+            buffer.append("session").append(n).append("=0123456789abcdef0123456789abcdef");
+            n++;
+        }
+        return buffer.toString();
+    }
+
+    /**
+     * Returns the message head with the given name including the terminating
+     * empty line.
+     */
+    public static String head(final String name) {
+        StringBuilder buffer = new StringBuilder();
+        if (SMALL_GET.equals(name)) {
+            buffer.append("GET /index.html HTTP/1.1\r\n");
+            buffer.append("Host: www.example.com\r\n");
+            buffer.append("User-Agent: curl/7.29.0\r\n");
+            buffer.append("Accept: */*\r\n");
+        } else if (BROWSER_GET.equals(name) || LARGE_COOKIE_GET.equals(name)) {
+            buffer.append("GET /catalog/search?q=http+components&page=2 HTTP/1.1\r\n");
+            buffer.append("Host: www.example.com\r\n");
+            buffer.append("Connection: keep-alive\r\n");
+            buffer.append("Accept: text/html,application/xhtml+xml,application/xml;q=0.9,*/*;q=0.8\r\n");
+            buffer.append("User-Agent: Mozilla/5.0 (X11; Linux x86_64) AppleWebKit/537.17 "
+                    + "(KHTML, like Gecko) Chrome/24.0.1312.57 Safari/537.17\r\n");
+            buffer.append("Referer: http://www.example.com/catalog/search?q=http+components\r\n");
+            buffer.append("Accept-Encoding: gzip,deflate,sdch\r\n");
+            buffer.append("Accept-Language: en-US,en;q=0.8\r\n");
+            buffer.append("Accept-Charset: ISO-8859-1,utf-8;q=0.7,*;q=0.3\r\n");
+            buffer.append("Cookie: ");
+            buffer.append(cookies(LARGE_COOKIE_GET.equals(name) ? 16 * 1024 : 2 * 1024));
+            buffer.append("\r\n");
+        } else if (RESPONSE.equals(name)) {
+            buffer.append("HTTP/1.1 200 OK\r\n");
+            buffer.append("Date: Tue, 05 Feb 2013 10:15:30 GMT\r\n");
+            buffer.append("Server: Apache/2.2.22 (Ubuntu)\r\n");
+            buffer.append("Cache-Control: private, max-age=0\r\n");
+            buffer.append("Expires: -1\r\n");
+            buffer.append("Content-Type: text/html; charset=UTF-8\r\n");
+            buffer.append("Set-Cookie: JSESSIONID=0123456789ABCDEF0123456789ABCDEF; Path=/; HttpOnly\r\n");
+            buffer.append("Set-Cookie: pref=lang%3Den; Expires=Thu, 05-Feb-2015 10:15:30 GMT; "
+                    + "Path=/; Domain=.example.com\r\n");
+            buffer.append("Vary: Accept-Encoding\r\n");
+            buffer.append("Content-Encoding: gzip\r\n");
+            buffer.append("ETag: \"2d0b4-5f2e-4d4a7f1c3b540\"\r\n");
+            buffer.append("Last-Modified: Mon, 04 Feb 2013 18:00:00 GMT\r\n");
+            buffer.append("Transfer-Encoding: chunked\r\n");
+        } else {
+            throw new IllegalArgumentException("Unknown corpus: " + name);
+        }
+        buffer.append("\r\n");
+        return buffer.toString();
+    }
+
+    /**
+     * Returns the lines of the message head with the given name without
+     * line delimiters and without the terminating empty line.
+     */
+    public static List<String> lines(final String name) {
+        List<String> lines = new ArrayList<String>();
+        String head = head(name);
+        int start = 0;
+        for (;;) {
+            int end = head.indexOf("\r\n", start);
+            if (end <= start) {
+                break;
+            }
+            lines.add(head.substring(start, end));
+            start = end + 2;
+        }
+        return lines;
+    }
+
+    /**
+     * Returns the ASCII encoding of the given text.
+     */
+    public static byte[] ascii(final String s) {
+        try {
+            return s.getBytes("US-ASCII");
+        } catch (UnsupportedEncodingException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    /**
+     * Returns text-like content of the given size.
+     */
+    public static byte[] content(final int size) {
+        byte[] content = new byte[size];
+        for (int i = 0; i < size; i++) {
+            content[i] = (byte) ('a' + (i % 26));
+        }
+        return content;
+    }
+
+    /**
+     * Returns the given content in the chunked transfer coding using chunks
+     * of the given size.
+     */
+    public static byte[] chunked(final byte[] content, final int chunkSize) {
+        StringBuilder buffer = new StringBuilder(content.length + content.length / chunkSize * 8 + 16);
+        for (int pos = 0; pos < content.length; pos += chunkSize) {
+            int len = Math.min(chunkSize, content.length - pos);
+            buffer.append(Integer.toHexString(len)).append("\r\n");
+            for (int i = 0; i < len; i++) {
+                buffer.append((char) content[pos + i]);
+            }
+            buffer.append("\r\n");
+        }
+        buffer.append("0\r\n\r\n");
+        return ascii(buffer.toString());
+    }
+
+}
@@ -0,0 +1,76 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+
+package org.apache.http.benchmarks;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * Readable channel replaying a fixed content in segments of limited size,
+ * as when a message spans several TCP packets. The content can be
+ * replayed any number of times.
+ */
+public class ReplayChannel implements ReadableByteChannel {
+
+    private final byte[] content;
+    private final int segmentSize;
+    private int pos;
+
+    public ReplayChannel(final byte[] content, final int segmentSize) {
+        super();
+        this.content = content;
+        this.segmentSize = segmentSize > 0 ? segmentSize : Integer.MAX_VALUE;
+    }
+
+    public ReplayChannel(final byte[] content) {
+        this(content, 0);
+    }
+
+    public void rewind() {
+        this.pos = 0;
+    }
+
+    public int read(final ByteBuffer dst) {
+        if (this.pos >= this.content.length) {
+            return -1;
+        }
+        int len = Math.min(this.content.length - this.pos,
+                Math.min(this.segmentSize, dst.remaining()));
+        dst.put(this.content, this.pos, len);
+        this.pos += len;
+        return len;
+    }
+
+    public boolean isOpen() {
+        return true;
+    }
+
+    public void close() {
+    }
+
+}
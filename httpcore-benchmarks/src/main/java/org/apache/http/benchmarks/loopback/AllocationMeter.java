@@ -0,0 +1,84 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+
+package org.apache.http.benchmarks.loopback;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Reads the number of bytes allocated so far by all live threads of the JVM,
+ * if the platform supports per-thread allocation accounting.
+ */
+class AllocationMeter {
+
+    private final com.sun.management.ThreadMXBean threadBean;
+
+    AllocationMeter() {
+        super();
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        com.sun.management.ThreadMXBean extBean = null;
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            extBean = (com.sun.management.ThreadMXBean) bean;
+            try {
+                if (!extBean.isThreadAllocatedMemorySupported()) {
+                    extBean = null;
+                } else if (!extBean.isThreadAllocatedMemoryEnabled()) {
+                    extBean.setThreadAllocatedMemoryEnabled(true);
+                }
+            } catch (UnsupportedOperationException ex) {
+                extBean = null;
+            }
+        }
+        this.threadBean = extBean;
+    }
+
+    boolean isSupported() {
+        return this.threadBean != null;
+    }
+
+    /**
+     * Returns the total number of bytes allocated by the live threads or
+     * <code>-1</code> if allocation accounting is not supported. Allocations
+     * of threads that have terminated in the meantime are not included.
+     */
+    long getAllocatedBytes() {
+        if (this.threadBean == null) {
+            return -1;
+        }
+        long[] ids = this.threadBean.getAllThreadIds();
+        long[] allocated = this.threadBean.getThreadAllocatedBytes(ids);
+        long total = 0;
+        for (long bytes: allocated) {
+            if (bytes > 0) {
+                total += bytes;
+            }
+        }
+        return total;
+    }
+
+}
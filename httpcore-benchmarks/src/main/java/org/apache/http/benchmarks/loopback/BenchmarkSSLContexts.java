@@ -0,0 +1,81 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+
+package org.apache.http.benchmarks.loopback;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.TrustManagerFactory;
+
+/**
+ * Creates SSL contexts from the self-signed RSA key pair bundled with
+ * the benchmarks. The server context presents the key, the client context
+ * trusts it.
+ */
+class BenchmarkSSLContexts {
+
+    private static final String KEYSTORE = "loopback.keystore";
+    private static final char[] PASSWORD = "nopassword".toCharArray();
+
+    private static KeyStore loadKeyStore() throws IOException, GeneralSecurityException {
+        InputStream instream = BenchmarkSSLContexts.class.getClassLoader().getResourceAsStream(KEYSTORE);
+        if (instream == null) {
+            throw new IOException("Keystore " + KEYSTORE + " not found");
+        }
+        try {
+            KeyStore keystore = KeyStore.getInstance("jks");
+            keystore.load(instream, PASSWORD);
+            return keystore;
+        } finally {
+            instream.close();
+        }
+    }
+
+    static SSLContext createServerSSLContext() throws IOException, GeneralSecurityException {
+        KeyManagerFactory kmfactory = KeyManagerFactory.getInstance(
+                KeyManagerFactory.getDefaultAlgorithm());
+        kmfactory.init(loadKeyStore(), PASSWORD);
+        SSLContext sslcontext = SSLContext.getInstance("TLS");
+        sslcontext.init(kmfactory.getKeyManagers(), null, null);
+        return sslcontext;
+    }
+
+    static SSLContext createClientSSLContext() throws IOException, GeneralSecurityException {
+        TrustManagerFactory tmfactory = TrustManagerFactory.getInstance(
+                TrustManagerFactory.getDefaultAlgorithm());
+        tmfactory.init(loadKeyStore());
+        SSLContext sslcontext = SSLContext.getInstance("TLS");
+        sslcontext.init(null, tmfactory.getTrustManagers(), null);
+        return sslcontext;
+    }
+
+}
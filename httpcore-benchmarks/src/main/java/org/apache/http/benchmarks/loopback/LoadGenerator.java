@@ -0,0 +1,228 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+
+package org.apache.http.benchmarks.loopback;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.entity.ContentType;
+import org.apache.http.impl.nio.reactor.Log2Histogram;
+import org.apache.http.message.BasicHttpRequest;
+import org.apache.http.nio.ContentDecoder;
+import org.apache.http.nio.IOControl;
+import org.apache.http.nio.protocol.AbstractAsyncResponseConsumer;
+import org.apache.http.nio.protocol.BasicAsyncRequestProducer;
+import org.apache.http.protocol.HTTP;
+import org.apache.http.protocol.HttpContext;
+
+/**
+ * Closed-loop load generator: each of the scenario's connections carries
+ * one request at a time and sends the next request as soon as the previous
+ * response has been fully received. Response content is read into a buffer
+ * owned by the worker and discarded.
+ * <p/>
+ * Latencies and errors are only recorded while a measurement window is open.
+ */
+class LoadGenerator {
+
+    static class Window {
+
+        final Log2Histogram latencies;
+        final AtomicLong errors;
+
+        Window() {
+            super();
+            // 32 sub-buckets per power of two keep percentiles within about 3%
+            this.latencies = new Log2Histogram(5);
+            this.errors = new AtomicLong(0);
+        }
+
+    }
+
+    private final LoopbackClient client;
+    private final HttpHost target;
+    private final Scenario scenario;
+    private final String uri;
+    private final CountDownLatch stopped;
+
+    private volatile boolean running;
+    private volatile Window window;
+    private volatile Exception lastFailure;
+
+    LoadGenerator(final LoopbackClient client, final int port, final Scenario scenario) {
+        super();
+        this.client = client;
+        this.target = LoopbackClient.createTarget(port, scenario.tls);
+        this.scenario = scenario;
+        this.uri = "/" + scenario.payload + (scenario.chunked ? "/chunked" : "");
+        this.stopped = new CountDownLatch(scenario.connections);
+    }
+
+    void start() {
+        this.running = true;
+        for (int i = 0; i < this.scenario.connections; i++) {
+            new Worker().next();
+        }
+    }
+
+    void openWindow(final Window window) {
+        this.window = window;
+    }
+
+    void closeWindow() {
+        this.window = null;
+    }
+
+    /**
+     * Stops sending new requests and waits for the outstanding ones
+     * to complete.
+     *
+     * @return <code>true</code> if all workers have stopped in time.
+     */
+    boolean stop(final long timeout, final TimeUnit unit) throws InterruptedException {
+        this.running = false;
+        return this.stopped.await(timeout, unit);
+    }
+
+    Exception getLastFailure() {
+        return this.lastFailure;
+    }
+
+    class Worker implements FutureCallback<Long> {
+
+        private final ByteBuffer buffer;
+        private long startTime;
+
+        Worker() {
+            super();
+            this.buffer = ByteBuffer.allocate(8 * 1024);
+        }
+
+        void next() {
+            if (!running) {
+                stopped.countDown();
+                return;
+            }
+            BasicHttpRequest request = new BasicHttpRequest("GET", uri);
+            if (!scenario.keepAlive) {
+                request.addHeader(HTTP.CONN_DIRECTIVE, HTTP.CONN_CLOSE);
+            }
+            this.startTime = System.nanoTime();
+            client.execute(
+                    new BasicAsyncRequestProducer(target, request),
+                    new DiscardingResponseConsumer(this.buffer),
+                    this);
+        }
+
+        public void completed(final Long length) {
+            long latency = System.nanoTime() - this.startTime;
+            Window current = window;
+            if (current != null) {
+                if (length.longValue() == scenario.payload) {
+                    current.latencies.update(latency);
+                } else {
+                    current.errors.incrementAndGet();
+                }
+            }
+            next();
+        }
+
+        public void failed(final Exception ex) {
+            lastFailure = ex;
+            Window current = window;
+            if (current != null) {
+                current.errors.incrementAndGet();
+            }
+            next();
+        }
+
+        public void cancelled() {
+            Window current = window;
+            if (current != null) {
+                current.errors.incrementAndGet();
+            }
+            next();
+        }
+
+    }
+
+    /**
+     * Counts and discards the response content. The result is the content
+     * length or <code>-1</code> if the response status is not 200.
+     */
+    static class DiscardingResponseConsumer extends AbstractAsyncResponseConsumer<Long> {
+
+        private final ByteBuffer buffer;
+        private int status;
+        private long count;
+
+        DiscardingResponseConsumer(final ByteBuffer buffer) {
+            super();
+            this.buffer = buffer;
+        }
+
+        @Override
+        protected void onResponseReceived(final HttpResponse response) {
+            this.status = response.getStatusLine().getStatusCode();
+        }
+
+        @Override
+        protected void onEntityEnclosed(final HttpEntity entity, final ContentType contentType) {
+        }
+
+        @Override
+        protected void onContentReceived(
+                final ContentDecoder decoder, final IOControl ioctrl) throws IOException {
+            int bytesRead;
+            while ((bytesRead = decoder.read(this.buffer)) > 0) {
+                this.count += bytesRead;
+                this.buffer.clear();
+            }
+            this.buffer.clear();
+        }
+
+        @Override
+        protected Long buildResult(final HttpContext context) {
+            return Long.valueOf(this.status == HttpStatus.SC_OK ? this.count : -1);
+        }
+
+        @Override
+        protected void releaseResources() {
+        }
+
+    }
+
+}
@@ -0,0 +1,401 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+
+package org.apache.http.benchmarks.loopback;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.net.ssl.SSLContext;
+
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+
+/**
+ * End-to-end throughput benchmark of the non-blocking HTTP stack over
+ * the loopback interface. For every combination of the swept parameters
+ * an {@link org.apache.http.nio.protocol.HttpAsyncService} on
+ * a {@link org.apache.http.impl.nio.reactor.DefaultListeningIOReactor} is
+ * driven by an {@link org.apache.http.nio.protocol.HttpAsyncRequester} on
+ * a {@link org.apache.http.impl.nio.reactor.DefaultConnectingIOReactor},
+ * both running in this JVM. Each connection executes GET requests back to
+ * back for the warm-up period followed by the measurement iterations.
+ * <p/>
+ * The benchmark reports requests per second, the median and 99th percentile
+ * latency and the number of bytes allocated per request by all threads of
+ * the JVM, which covers both the client and the server side. Results can be
+ * written in the CSV format of JMH, so that two runs can be compared with
+ * {@link org.apache.http.benchmarks.CompareResults}; the error column then
+ * holds half the spread of the measurement iterations.
+ * <p/>
+ * Run with <code>-h</code> for the list of options.
+ */
+public class LoopbackBenchmark {
+
+    private static final String[][] OPTIONS = {
+        { "connections", "1,16,64", "concurrent connections" },
+        { "payload", "64,4096,65536", "response content length in bytes" },
+        { "keepalive", "true,false", "persistent connections" },
+        { "chunked", "false,true", "chunk coded responses" },
+        { "tls", "false,true", "TLS connections" },
+        { "dispatchers", "0", "I/O dispatch threads of each reactor, 0 for one per CPU" },
+        { "warmup", "1", "warm-up time in seconds" },
+        { "time", "2", "time of each measurement iteration in seconds" },
+        { "iterations", "3", "number of measurement iterations" },
+        { "csv", "", "write results in JMH CSV format to the given file" }
+    };
+
+    /**
+     * Mean and half the spread of the iteration values. Iterations without
+     * a value (<code>NaN</code>) are skipped.
+     */
+    static class Statistic {
+
+        final double mean;
+        final double error;
+
+        Statistic(final double[] values) {
+            super();
+            int n = 0;
+            double sum = 0;
+            double min = Double.MAX_VALUE;
+            double max = -Double.MAX_VALUE;
+            for (double value: values) {
+                if (Double.isNaN(value)) {
+                    continue;
+                }
+                n++;
+                sum += value;
+                min = Math.min(min, value);
+                max = Math.max(max, value);
+            }
+            this.mean = n > 0 ? sum / n : Double.NaN;
+            this.error = n > 1 ? (max - min) / 2 : Double.NaN;
+        }
+
+    }
+
+    static class Result {
+
+        final Scenario scenario;
+        final int iterations;
+        final Statistic throughput;
+        final Statistic p50;
+        final Statistic p99;
+        final Statistic allocation;
+        final long errors;
+
+        Result(
+                final Scenario scenario,
+                final int iterations,
+                final Statistic throughput,
+                final Statistic p50,
+                final Statistic p99,
+                final Statistic allocation,
+                final long errors) {
+            super();
+            this.scenario = scenario;
+            this.iterations = iterations;
+            this.throughput = throughput;
+            this.p50 = p50;
+            this.p99 = p99;
+            this.allocation = allocation;
+            this.errors = errors;
+        }
+
+    }
+
+    private final IOReactorConfig config;
+    private final long warmupMillis;
+    private final long timeMillis;
+    private final int iterations;
+    private final AllocationMeter allocationMeter;
+
+    LoopbackBenchmark(
+            final IOReactorConfig config,
+            final long warmupMillis,
+            final long timeMillis,
+            final int iterations) {
+        super();
+        this.config = config;
+        this.warmupMillis = warmupMillis;
+        this.timeMillis = timeMillis;
+        this.iterations = iterations;
+        this.allocationMeter = new AllocationMeter();
+    }
+
+    Result run(final Scenario scenario) throws Exception {
+        SSLContext serverSSLContext = scenario.tls ? BenchmarkSSLContexts.createServerSSLContext() : null;
+        SSLContext clientSSLContext = scenario.tls ? BenchmarkSSLContexts.createClientSSLContext() : null;
+        LoopbackServer server = new LoopbackServer(this.config, serverSSLContext);
+        LoopbackClient client = new LoopbackClient(this.config, clientSSLContext, scenario.connections);
+        double[] throughput = new double[this.iterations];
+        double[] p50 = new double[this.iterations];
+        double[] p99 = new double[this.iterations];
+        double[] allocation = new double[this.iterations];
+        long errors = 0;
+        long requests = 0;
+        try {
+            int port = server.start();
+            client.start();
+            LoadGenerator generator = new LoadGenerator(client, port, scenario);
+            generator.start();
+            Thread.sleep(this.warmupMillis);
+            for (int i = 0; i < this.iterations; i++) {
+                LoadGenerator.Window window = new LoadGenerator.Window();
+                long allocatedBefore = this.allocationMeter.getAllocatedBytes();
+                long startTime = System.nanoTime();
+                generator.openWindow(window);
+                Thread.sleep(this.timeMillis);
+                generator.closeWindow();
+                long elapsed = System.nanoTime() - startTime;
+                long allocatedAfter = this.allocationMeter.getAllocatedBytes();
+
+                long count = window.latencies.getCount();
+                throughput[i] = count * (double) TimeUnit.SECONDS.toNanos(1) / elapsed;
+                p50[i] = window.latencies.getPercentile(50) / 1000d;
+                p99[i] = window.latencies.getPercentile(99) / 1000d;
+                allocation[i] = allocatedBefore >= 0 && count > 0 ?
+                        (allocatedAfter - allocatedBefore) / (double) count : Double.NaN;
+                errors += window.errors.get();
+                requests += count;
+            }
+            if (!generator.stop(10, TimeUnit.SECONDS)) {
+                System.err.println("Requests still outstanding after 10 seconds: " + scenario);
+            }
+            Exception failure = generator.getLastFailure();
+            if (requests == 0 && failure != null) {
+                System.err.println("No request succeeded (" + scenario + "): " + failure);
+            }
+        } finally {
+            client.shutdown();
+            server.shutdown();
+        }
+        if (server.getException() != null) {
+            System.err.println("Server I/O reactor terminated: " + server.getException());
+        }
+        if (client.getException() != null) {
+            System.err.println("Client I/O reactor terminated: " + client.getException());
+        }
+        return new Result(scenario, this.iterations,
+                new Statistic(throughput), new Statistic(p50), new Statistic(p99),
+                new Statistic(allocation), errors);
+    }
+
+    static String formatHeader() {
+        return String.format("%11s %8s %9s %7s %5s %12s %10s %10s %10s %13s %8s",
+                "connections", "payload", "keepalive", "chunked", "tls",
+                "req/s", "error", "p50 (us)", "p99 (us)", "alloc (B/req)", "errors");
+    }
+
+    static String format(final Result result) {
+        Scenario scenario = result.scenario;
+        return String.format("%11d %8d %9s %7s %5s %12.1f %10.1f %10.1f %10.1f %13.0f %8d",
+                scenario.connections, scenario.payload,
+                scenario.keepAlive, scenario.chunked, scenario.tls,
+                result.throughput.mean, result.throughput.error,
+                result.p50.mean, result.p99.mean, result.allocation.mean, result.errors);
+    }
+
+    static void writeCsv(final String filename, final List<Result> results) throws IOException {
+        PrintWriter writer = new PrintWriter(new OutputStreamWriter(
+                new FileOutputStream(filename), "UTF-8"));
+        try {
+            writer.println("\"Benchmark\",\"Mode\",\"Threads\",\"Samples\",\"Score\","
+                    + "\"Score Error (99.9%)\",\"Unit\",\"Param: connections\",\"Param: payload\","
+                    + "\"Param: keepAlive\",\"Param: chunked\",\"Param: tls\"");
+            for (Result result: results) {
+                writeCsvRow(writer, "loopback.throughput", "thrpt", "ops/s", result.throughput, result);
+                writeCsvRow(writer, "loopback.latency.p50", "sample", "us/op", result.p50, result);
+                writeCsvRow(writer, "loopback.latency.p99", "sample", "us/op", result.p99, result);
+                writeCsvRow(writer, "loopback.alloc", "avgt", "B/op", result.allocation, result);
+            }
+        } finally {
+            writer.close();
+        }
+    }
+
+    private static void writeCsvRow(
+            final PrintWriter writer,
+            final String benchmark,
+            final String mode,
+            final String unit,
+            final Statistic statistic,
+            final Result result) {
+        Scenario scenario = result.scenario;
+        writer.println("\"" + benchmark + "\",\"" + mode + "\",1," + result.iterations + ","
+                + formatNumber(statistic.mean) + "," + formatNumber(statistic.error) + ",\""
+                + unit + "\"," + scenario.connections + "," + scenario.payload + ","
+                + scenario.keepAlive + "," + scenario.chunked + "," + scenario.tls);
+    }
+
+    private static String formatNumber(final double value) {
+        return Double.isNaN(value) ? "NaN" : Double.toString(value);
+    }
+
+    static Map<String, String> parseOptions(final String[] args) {
+        Map<String, String> options = new LinkedHashMap<String, String>();
+        for (String[] option: OPTIONS) {
+            options.put(option[0], option[1]);
+        }
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (!arg.startsWith("-") || !options.containsKey(arg.substring(1))) {
+                throw new IllegalArgumentException("Unknown option: " + arg);
+            }
+            if (i + 1 >= args.length) {
+                throw new IllegalArgumentException("Missing value of option: " + arg);
+            }
+            options.put(arg.substring(1), args[++i]);
+        }
+        return options;
+    }
+
+    static int[] parseInts(final String name, final String value, final int min) {
+        String[] tokens = value.split(",");
+        int[] ints = new int[tokens.length];
+        for (int i = 0; i < tokens.length; i++) {
+            try {
+                ints[i] = Integer.parseInt(tokens[i].trim());
+            } catch (NumberFormatException ex) {
+                throw new IllegalArgumentException("Invalid value of " + name + ": " + tokens[i]);
+            }
+            if (ints[i] < min) {
+                throw new IllegalArgumentException("Value of " + name + " may not be less than "
+                        + min + ": " + ints[i]);
+            }
+        }
+        return ints;
+    }
+
+    static boolean[] parseBooleans(final String name, final String value) {
+        String[] tokens = value.split(",");
+        boolean[] booleans = new boolean[tokens.length];
+        for (int i = 0; i < tokens.length; i++) {
+            String token = tokens[i].trim();
+            if ("true".equalsIgnoreCase(token)) {
+                booleans[i] = true;
+            } else if ("false".equalsIgnoreCase(token)) {
+                booleans[i] = false;
+            } else {
+                throw new IllegalArgumentException("Invalid value of " + name + ": " + token);
+            }
+        }
+        return booleans;
+    }
+
+    static List<Scenario> createScenarios(final Map<String, String> options) {
+        int[] connections = parseInts("connections", options.get("connections"), 1);
+        int[] payloads = parseInts("payload", options.get("payload"), 0);
+        boolean[] keepAlives = parseBooleans("keepalive", options.get("keepalive"));
+        boolean[] chunkeds = parseBooleans("chunked", options.get("chunked"));
+        boolean[] tlss = parseBooleans("tls", options.get("tls"));
+        List<Scenario> scenarios = new ArrayList<Scenario>();
+        for (boolean tls: tlss) {
+            for (boolean keepAlive: keepAlives) {
+                for (boolean chunked: chunkeds) {
+                    for (int payload: payloads) {
+                        for (int connection: connections) {
+                            scenarios.add(new Scenario(connection, payload, keepAlive, chunked, tls));
+                        }
+                    }
+                }
+            }
+        }
+        return scenarios;
+    }
+
+    static void printUsage() {
+        System.err.println("Usage: LoopbackBenchmark [-<option> <value>]...");
+        System.err.println("Options taking lists of values are swept over all combinations.");
+        for (String[] option: OPTIONS) {
+            System.err.println(String.format("  -%-12s %s%s", option[0], option[2],
+                    option[1].length() > 0 ? " (default: " + option[1] + ")" : ""));
+        }
+    }
+
+    public static void main(final String[] args) throws Exception {
+        if (args.length == 1 && ("-h".equals(args[0]) || "-help".equals(args[0]))) {
+            printUsage();
+            return;
+        }
+        Map<String, String> options;
+        List<Scenario> scenarios;
+        int dispatchers;
+        int warmup;
+        int time;
+        int iterations;
+        try {
+            options = parseOptions(args);
+            scenarios = createScenarios(options);
+            dispatchers = parseInts("dispatchers", options.get("dispatchers"), 0)[0];
+            warmup = parseInts("warmup", options.get("warmup"), 0)[0];
+            time = parseInts("time", options.get("time"), 1)[0];
+            iterations = parseInts("iterations", options.get("iterations"), 1)[0];
+        } catch (IllegalArgumentException ex) {
+            System.err.println(ex.getMessage());
+            printUsage();
+            System.exit(1);
+            return;
+        }
+        IOReactorConfig.Builder builder = IOReactorConfig.custom()
+                .setSoTimeout(30000)
+                .setConnectTimeout(30000);
+        if (dispatchers > 0) {
+            builder.setIoThreadCount(dispatchers);
+        }
+        IOReactorConfig config = builder.build();
+        LoopbackBenchmark benchmark = new LoopbackBenchmark(config,
+                TimeUnit.SECONDS.toMillis(warmup), TimeUnit.SECONDS.toMillis(time), iterations);
+
+        System.out.println("# JVM: " + System.getProperty("java.vm.name") + ", "
+                + System.getProperty("java.version"));
+        System.out.println("# I/O dispatchers per reactor: " + config.getIoThreadCount()
+                + ", warm-up: " + warmup + " s, iterations: " + iterations + " x " + time + " s");
+        if (!benchmark.allocationMeter.isSupported()) {
+            System.out.println("# Allocation accounting not supported by this JVM");
+        }
+        System.out.println(formatHeader());
+        List<Result> results = new ArrayList<Result>(scenarios.size());
+        for (Scenario scenario: scenarios) {
+            Result result = benchmark.run(scenario);
+            results.add(result);
+            System.out.println(format(result));
+        }
+        String csv = options.get("csv");
+        if (csv.length() > 0) {
+            writeCsv(csv, results);
+        }
+    }
+
+}
@@ -0,0 +1,137 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+
+package org.apache.http.benchmarks.loopback;
+
+import java.io.IOException;
+import java.util.concurrent.Future;
+
+import javax.net.ssl.SSLContext;
+
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequestInterceptor;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.config.ConnectionConfig;
+import org.apache.http.impl.nio.DefaultHttpClientIODispatch;
+import org.apache.http.impl.nio.DefaultNHttpClientConnection;
+import org.apache.http.impl.nio.DefaultNHttpClientConnectionFactory;
+import org.apache.http.impl.nio.SSLNHttpClientConnectionFactory;
+import org.apache.http.impl.nio.pool.BasicNIOConnFactory;
+import org.apache.http.impl.nio.pool.BasicNIOConnPool;
+import org.apache.http.impl.nio.reactor.DefaultConnectingIOReactor;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.apache.http.nio.NHttpConnectionFactory;
+import org.apache.http.nio.protocol.HttpAsyncRequestExecutor;
+import org.apache.http.nio.protocol.HttpAsyncRequestProducer;
+import org.apache.http.nio.protocol.HttpAsyncRequester;
+import org.apache.http.nio.protocol.HttpAsyncResponseConsumer;
+import org.apache.http.nio.reactor.IOEventDispatch;
+import org.apache.http.protocol.BasicHttpContext;
+import org.apache.http.protocol.HttpProcessor;
+import org.apache.http.protocol.ImmutableHttpProcessor;
+import org.apache.http.protocol.RequestConnControl;
+import org.apache.http.protocol.RequestContent;
+import org.apache.http.protocol.RequestTargetHost;
+import org.apache.http.protocol.RequestUserAgent;
+
+/**
+ * {@link HttpAsyncRequester} running on a {@link DefaultConnectingIOReactor}
+ * with a {@link BasicNIOConnPool} sized to the given number of connections.
+ */
+class LoopbackClient {
+
+    private final DefaultConnectingIOReactor ioReactor;
+    private final NHttpConnectionFactory<DefaultNHttpClientConnection> connFactory;
+    private final BasicNIOConnPool connPool;
+    private final HttpAsyncRequester requester;
+
+    private volatile Thread thread;
+    private volatile Exception exception;
+
+    LoopbackClient(
+            final IOReactorConfig config,
+            final SSLContext sslcontext,
+            final int maxConnections) throws IOException {
+        super();
+        this.ioReactor = new DefaultConnectingIOReactor(config);
+        this.connFactory = new DefaultNHttpClientConnectionFactory(ConnectionConfig.DEFAULT);
+        NHttpConnectionFactory<DefaultNHttpClientConnection> sslConnFactory = sslcontext != null ?
+                new SSLNHttpClientConnectionFactory(sslcontext, null, ConnectionConfig.DEFAULT) : null;
+        this.connPool = new BasicNIOConnPool(this.ioReactor,
+                new BasicNIOConnFactory(this.connFactory, sslConnFactory), config.getConnectTimeout());
+        this.connPool.setMaxTotal(maxConnections);
+        this.connPool.setDefaultMaxPerRoute(maxConnections);
+        HttpProcessor httpproc = new ImmutableHttpProcessor(new HttpRequestInterceptor[] {
+                new RequestContent(),
+                new RequestTargetHost(),
+                new RequestConnControl(),
+                new RequestUserAgent("HttpCore-Benchmark/1.1")
+        });
+        this.requester = new HttpAsyncRequester(httpproc);
+    }
+
+    void start() {
+        final IOEventDispatch ioEventDispatch = new DefaultHttpClientIODispatch(
+                new HttpAsyncRequestExecutor(), this.connFactory);
+        this.thread = new Thread(new Runnable() {
+
+            public void run() {
+                try {
+                    ioReactor.execute(ioEventDispatch);
+                } catch (Exception ex) {
+                    exception = ex;
+                }
+            }
+
+        }, "loopback-client");
+        this.thread.start();
+    }
+
+    <T> Future<T> execute(
+            final HttpAsyncRequestProducer requestProducer,
+            final HttpAsyncResponseConsumer<T> responseConsumer,
+            final FutureCallback<T> callback) {
+        return this.requester.execute(requestProducer, responseConsumer, this.connPool,
+                new BasicHttpContext(), callback);
+    }
+
+    Exception getException() {
+        return this.exception;
+    }
+
+    void shutdown() throws IOException, InterruptedException {
+        this.connPool.shutdown(2000);
+        if (this.thread != null) {
+            this.thread.join(2000);
+        }
+    }
+
+    static HttpHost createTarget(final int port, final boolean tls) {
+        return new HttpHost("127.0.0.1", port, tls ? "https" : "http");
+    }
+
+}
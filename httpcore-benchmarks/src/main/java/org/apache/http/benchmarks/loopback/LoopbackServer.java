@@ -0,0 +1,187 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+
+package org.apache.http.benchmarks.loopback;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.net.ssl.SSLContext;
+
+import org.apache.http.HttpException;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpResponseInterceptor;
+import org.apache.http.HttpStatus;
+import org.apache.http.config.ConnectionConfig;
+import org.apache.http.entity.ContentType;
+import org.apache.http.impl.nio.DefaultHttpServerIODispatch;
+import org.apache.http.impl.nio.DefaultNHttpServerConnection;
+import org.apache.http.impl.nio.DefaultNHttpServerConnectionFactory;
+import org.apache.http.impl.nio.SSLNHttpServerConnectionFactory;
+import org.apache.http.impl.nio.reactor.DefaultListeningIOReactor;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.apache.http.nio.NHttpConnectionFactory;
+import org.apache.http.nio.entity.NByteArrayEntity;
+import org.apache.http.nio.protocol.BasicAsyncRequestHandler;
+import org.apache.http.nio.protocol.HttpAsyncService;
+import org.apache.http.nio.protocol.UriHttpAsyncRequestHandlerMapper;
+import org.apache.http.nio.reactor.IOEventDispatch;
+import org.apache.http.nio.reactor.ListenerEndpoint;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.protocol.HttpProcessor;
+import org.apache.http.protocol.HttpRequestHandler;
+import org.apache.http.protocol.ImmutableHttpProcessor;
+import org.apache.http.protocol.ResponseConnControl;
+import org.apache.http.protocol.ResponseContent;
+import org.apache.http.protocol.ResponseDate;
+import org.apache.http.protocol.ResponseServer;
+
+/**
+ * {@link HttpAsyncService} running on a {@link DefaultListeningIOReactor}
+ * bound to an ephemeral loopback port. Requests for <code>/&lt;size&gt;</code>
+ * are answered with a fixed-length entity of <code>size</code> bytes,
+ * requests for <code>/&lt;size&gt;/chunked</code> with a chunk coded one.
+ */
+class LoopbackServer {
+
+    private final DefaultListeningIOReactor ioReactor;
+    private final NHttpConnectionFactory<DefaultNHttpServerConnection> connFactory;
+    private final HttpAsyncService service;
+
+    private volatile Thread thread;
+    private volatile Exception exception;
+
+    LoopbackServer(final IOReactorConfig config, final SSLContext sslcontext) throws IOException {
+        super();
+        this.ioReactor = new DefaultListeningIOReactor(config);
+        if (sslcontext != null) {
+            this.connFactory = new SSLNHttpServerConnectionFactory(
+                    sslcontext, null, ConnectionConfig.DEFAULT);
+        } else {
+            this.connFactory = new DefaultNHttpServerConnectionFactory(ConnectionConfig.DEFAULT);
+        }
+        HttpProcessor httpproc = new ImmutableHttpProcessor(new HttpResponseInterceptor[] {
+                new ResponseDate(),
+                new ResponseServer("HttpCore-Benchmark/1.1"),
+                new ResponseContent(),
+                new ResponseConnControl()
+        });
+        UriHttpAsyncRequestHandlerMapper mapper = new UriHttpAsyncRequestHandlerMapper();
+        mapper.register("*", new BasicAsyncRequestHandler(new PayloadHandler()));
+        this.service = new HttpAsyncService(httpproc, null, null, mapper, null);
+    }
+
+    /**
+     * Starts the I/O reactor and returns the port the server listens on.
+     */
+    int start() throws IOException, InterruptedException {
+        final IOEventDispatch ioEventDispatch = new DefaultHttpServerIODispatch(
+                this.service, this.connFactory);
+        this.thread = new Thread(new Runnable() {
+
+            public void run() {
+                try {
+                    ioReactor.execute(ioEventDispatch);
+                } catch (Exception ex) {
+                    exception = ex;
+                }
+            }
+
+        }, "loopback-server");
+        this.thread.start();
+        ListenerEndpoint endpoint = this.ioReactor.listen(new InetSocketAddress("127.0.0.1", 0));
+        endpoint.waitFor();
+        if (endpoint.getException() != null) {
+            throw endpoint.getException();
+        }
+        return ((InetSocketAddress) endpoint.getAddress()).getPort();
+    }
+
+    Exception getException() {
+        return this.exception;
+    }
+
+    void shutdown() throws IOException, InterruptedException {
+        this.ioReactor.shutdown(2000);
+        if (this.thread != null) {
+            this.thread.join(2000);
+        }
+    }
+
+    static class PayloadHandler implements HttpRequestHandler {
+
+        private final ConcurrentMap<Integer, byte[]> payloads;
+
+        PayloadHandler() {
+            super();
+            this.payloads = new ConcurrentHashMap<Integer, byte[]>();
+        }
+
+        private byte[] getPayload(final int size) {
+            byte[] payload = this.payloads.get(size);
+            if (payload == null) {
+                payload = new byte[size];
+                Arrays.fill(payload, (byte) 'x');
+                byte[] existing = this.payloads.putIfAbsent(size, payload);
+                if (existing != null) {
+                    payload = existing;
+                }
+            }
+            return payload;
+        }
+
+        public void handle(
+                final HttpRequest request,
+                final HttpResponse response,
+                final HttpContext context) throws HttpException, IOException {
+            String uri = request.getRequestLine().getUri();
+            boolean chunked = uri.endsWith("/chunked");
+            String size = uri.substring(1, chunked ? uri.length() - 8 : uri.length());
+            int len;
+            try {
+                len = Integer.parseInt(size);
+            } catch (NumberFormatException ex) {
+                len = -1;
+            }
+            if (len < 0) {
+                response.setStatusCode(HttpStatus.SC_NOT_FOUND);
+                return;
+            }
+            NByteArrayEntity entity = new NByteArrayEntity(
+                    getPayload(len), ContentType.APPLICATION_OCTET_STREAM);
+            entity.setChunked(chunked);
+            response.setStatusCode(HttpStatus.SC_OK);
+            response.setEntity(entity);
+        }
+
+    }
+
+}
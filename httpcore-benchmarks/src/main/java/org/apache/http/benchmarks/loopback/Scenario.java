@@ -0,0 +1,66 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+
+package org.apache.http.benchmarks.loopback;
+
+/**
+ * A single point of the parameter sweep of {@link LoopbackBenchmark}.
+ */
+class Scenario {
+
+    final int connections;
+    final int payload;
+    final boolean keepAlive;
+    final boolean chunked;
+    final boolean tls;
+
+    Scenario(
+            final int connections,
+            final int payload,
+            final boolean keepAlive,
+            final boolean chunked,
+            final boolean tls) {
+        super();
+        this.connections = connections;
+        this.payload = payload;
+        this.keepAlive = keepAlive;
+        this.chunked = chunked;
+        this.tls = tls;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder buffer = new StringBuilder();
+        buffer.append("connections=").append(this.connections);
+        buffer.append(", payload=").append(this.payload);
+        buffer.append(", keepAlive=").append(this.keepAlive);
+        buffer.append(", chunked=").append(this.chunked);
+        buffer.append(", tls=").append(this.tls);
+        return buffer.toString();
+    }
+
+}
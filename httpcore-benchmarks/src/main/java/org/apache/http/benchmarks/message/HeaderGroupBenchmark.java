@@ -0,0 +1,120 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+
+package org.apache.http.benchmarks.message;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.Header;
+import org.apache.http.HeaderIterator;
+import org.apache.http.benchmarks.HttpCorpus;
+import org.apache.http.message.BasicLineParser;
+import org.apache.http.message.HeaderGroup;
+import org.apache.http.util.CharArrayBuffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks of {@link HeaderGroup} operations performed by protocol
+ * interceptors on every message.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class HeaderGroupBenchmark {
+
+    @Param({
+        HttpCorpus.SMALL_GET,
+        HttpCorpus.BROWSER_GET,
+        HttpCorpus.RESPONSE })
+    public String corpus;
+
+    private Header[] headers;
+    private HeaderGroup group;
+
+    @Setup
+    public void setup() {
+        List<String> lines = HttpCorpus.lines(this.corpus);
+        this.headers = new Header[lines.size() - 1];
+        for (int i = 0; i < this.headers.length; i++) {
+            String line = lines.get(i + 1);
+            CharArrayBuffer buffer = new CharArrayBuffer(line.length());
+            buffer.append(line);
+            this.headers[i] = BasicLineParser.INSTANCE.parseHeader(buffer);
+        }
+        this.group = new HeaderGroup();
+        this.group.setHeaders(this.headers);
+    }
+
+    @Benchmark
+    public HeaderGroup build() {
+        HeaderGroup group = new HeaderGroup();
+        for (Header header: this.headers) {
+            group.addHeader(header);
+        }
+        return group;
+    }
+
+    @Benchmark
+    public void lookup(final Blackhole blackhole) {
+        // typical lookups of the standard protocol interceptors
+        blackhole.consume(this.group.getFirstHeader("Host"));
+        blackhole.consume(this.group.getFirstHeader("Content-Length"));
+        blackhole.consume(this.group.getFirstHeader("Transfer-Encoding"));
+        blackhole.consume(this.group.getFirstHeader("Connection"));
+        blackhole.consume(this.group.containsHeader("Expect"));
+        blackhole.consume(this.group.getHeaders("Cookie"));
+    }
+
+    @Benchmark
+    public void iterate(final Blackhole blackhole) {
+        HeaderIterator it = this.group.iterator();
+        while (it.hasNext()) {
+            blackhole.consume(it.nextHeader());
+        }
+    }
+
+    @Benchmark
+    public HeaderGroup copy() {
+        return this.group.copy();
+    }
+
+}
@@ -0,0 +1,124 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+
+package org.apache.http.benchmarks.message;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.Header;
+import org.apache.http.HeaderElement;
+import org.apache.http.benchmarks.HttpCorpus;
+import org.apache.http.message.BasicLineParser;
+import org.apache.http.message.ParserCursor;
+import org.apache.http.util.CharArrayBuffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks of {@link BasicLineParser} parsing message heads line by line.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class LineParserBenchmark {
+
+    @Param({
+        HttpCorpus.SMALL_GET,
+        HttpCorpus.BROWSER_GET,
+        HttpCorpus.LARGE_COOKIE_GET,
+        HttpCorpus.RESPONSE })
+    public String corpus;
+
+    private BasicLineParser parser;
+    private boolean response;
+    private CharArrayBuffer firstLine;
+    private CharArrayBuffer[] headerLines;
+    private Header[] headers;
+
+    @Setup
+    public void setup() {
+        this.parser = BasicLineParser.INSTANCE;
+        List<String> lines = HttpCorpus.lines(this.corpus);
+        this.response = lines.get(0).startsWith("HTTP/");
+        this.firstLine = toBuffer(lines.get(0));
+        this.headerLines = new CharArrayBuffer[lines.size() - 1];
+        this.headers = new Header[this.headerLines.length];
+        for (int i = 0; i < this.headerLines.length; i++) {
+            this.headerLines[i] = toBuffer(lines.get(i + 1));
+            this.headers[i] = this.parser.parseHeader(this.headerLines[i]);
+        }
+    }
+
+    private static CharArrayBuffer toBuffer(final String s) {
+        CharArrayBuffer buffer = new CharArrayBuffer(s.length());
+        buffer.append(s);
+        return buffer;
+    }
+
+    @Benchmark
+    public Object firstLine() {
+        ParserCursor cursor = new ParserCursor(0, this.firstLine.length());
+        if (this.response) {
+            return this.parser.parseStatusLine(this.firstLine, cursor);
+        } else {
+            return this.parser.parseRequestLine(this.firstLine, cursor);
+        }
+    }
+
+    @Benchmark
+    public void headers(final Blackhole blackhole) {
+        for (CharArrayBuffer line: this.headerLines) {
+            Header header = this.parser.parseHeader(line);
+            blackhole.consume(header.getName());
+            blackhole.consume(header.getValue());
+        }
+    }
+
+    @Benchmark
+    public void headerElements(final Blackhole blackhole) {
+        for (Header header: this.headers) {
+            for (HeaderElement element: header.getElements()) {
+                blackhole.consume(element);
+            }
+        }
+    }
+
+}
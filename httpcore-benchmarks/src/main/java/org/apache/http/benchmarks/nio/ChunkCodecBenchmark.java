@@ -0,0 +1,142 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+
+package org.apache.http.benchmarks.nio;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.benchmarks.HttpCorpus;
+import org.apache.http.benchmarks.NullChannel;
+import org.apache.http.benchmarks.ReplayChannel;
+import org.apache.http.impl.io.HttpTransportMetricsImpl;
+import org.apache.http.impl.nio.codecs.ChunkDecoder;
+import org.apache.http.impl.nio.codecs.ChunkEncoder;
+import org.apache.http.impl.nio.reactor.SessionInputBufferImpl;
+import org.apache.http.impl.nio.reactor.SessionOutputBufferImpl;
+import org.apache.http.nio.util.HeapByteBufferAllocator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of {@link ChunkDecoder} and {@link ChunkEncoder} transferring
+ * a chunk coded body of 64 KB.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ChunkCodecBenchmark {
+
+    private static final int CONTENT_LENGTH = 64 * 1024;
+
+    /**
+     * Size of the chunks to decode and of the slices of content
+     * passed to the encoder.
+     */
+    @Param({ "256", "4096", "32768" })
+    public int chunkSize;
+
+    /**
+     * Minimum chunk size of the encoder; <code>0</code> disables
+     * write coalescing.
+     */
+    @Param({ "0", "8192" })
+    public int minChunkSize;
+
+    private byte[] content;
+    private ReplayChannel source;
+    private NullChannel sink;
+    private SessionInputBufferImpl inbuf;
+    private SessionOutputBufferImpl outbuf;
+    private HttpTransportMetricsImpl metrics;
+    private ByteBuffer dst;
+
+    @Setup
+    public void setup() {
+        this.content = HttpCorpus.content(CONTENT_LENGTH);
+        this.source = new ReplayChannel(HttpCorpus.chunked(this.content, this.chunkSize));
+        this.sink = new NullChannel();
+        this.inbuf = new SessionInputBufferImpl(8 * 1024, 1024, null, HeapByteBufferAllocator.INSTANCE);
+        this.outbuf = new SessionOutputBufferImpl(8 * 1024, 1024, null, HeapByteBufferAllocator.INSTANCE);
+        this.metrics = new HttpTransportMetricsImpl();
+        this.dst = ByteBuffer.allocate(8 * 1024);
+    }
+
+    @Benchmark
+    public long decode() throws IOException {
+        this.source.rewind();
+        ChunkDecoder decoder = new ChunkDecoder(this.source, this.inbuf, this.metrics);
+        long total = 0;
+        while (!decoder.isCompleted()) {
+            this.dst.clear();
+            int bytesRead = decoder.read(this.dst);
+            if (bytesRead == -1) {
+                break;
+            }
+            total += bytesRead;
+        }
+        if (total != CONTENT_LENGTH) {
+            throw new IllegalStateException("Unexpected content length: " + total);
+        }
+        return total;
+    }
+
+    @Benchmark
+    public long encode() throws IOException {
+        ChunkEncoder encoder = new ChunkEncoder(this.sink, this.outbuf, this.metrics, this.minChunkSize);
+        ByteBuffer src = ByteBuffer.wrap(this.content);
+        while (src.hasRemaining()) {
+            int limit = Math.min(src.position() + this.chunkSize, src.capacity());
+            src.limit(limit);
+            while (src.hasRemaining()) {
+                if (encoder.write(src) == 0) {
+                    this.outbuf.flush(this.sink);
+                }
+            }
+            src.limit(src.capacity());
+        }
+        encoder.complete();
+        while (this.outbuf.hasData()) {
+            this.outbuf.flush(this.sink);
+        }
+        return this.sink.getCount();
+    }
+
+}
@@ -0,0 +1,111 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+
+package org.apache.http.benchmarks.nio;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.HttpException;
+import org.apache.http.HttpMessage;
+import org.apache.http.benchmarks.HttpCorpus;
+import org.apache.http.benchmarks.ReplayChannel;
+import org.apache.http.impl.nio.codecs.AbstractMessageParser;
+import org.apache.http.impl.nio.codecs.DefaultHttpRequestParser;
+import org.apache.http.impl.nio.codecs.DefaultHttpResponseParser;
+import org.apache.http.impl.nio.reactor.SessionInputBufferImpl;
+import org.apache.http.nio.util.HeapByteBufferAllocator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of the non-blocking message parsers turning raw message
+ * heads into request and response objects, with and without the shared
+ * header buffer mode.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MessageParserBenchmark {
+
+    @Param({
+        HttpCorpus.SMALL_GET,
+        HttpCorpus.BROWSER_GET,
+        HttpCorpus.LARGE_COOKIE_GET,
+        HttpCorpus.RESPONSE })
+    public String corpus;
+
+    @Param({ "0", "1460" })
+    public int segmentSize;
+
+    @Param({ "false", "true" })
+    public boolean sharedHeaderBuffer;
+
+    private ReplayChannel source;
+    private SessionInputBufferImpl inbuf;
+    private AbstractMessageParser<? extends HttpMessage> parser;
+
+    @Setup
+    public void setup() {
+        String head = HttpCorpus.head(this.corpus);
+        this.source = new ReplayChannel(HttpCorpus.ascii(head), this.segmentSize);
+        this.inbuf = new SessionInputBufferImpl(8 * 1024, 1024, null, HeapByteBufferAllocator.INSTANCE);
+        if (head.startsWith("HTTP/")) {
+            this.parser = new DefaultHttpResponseParser(
+                    this.inbuf, null, null, null, this.sharedHeaderBuffer);
+        } else {
+            this.parser = new DefaultHttpRequestParser(
+                    this.inbuf, null, null, null, this.sharedHeaderBuffer);
+        }
+    }
+
+    @Benchmark
+    public HttpMessage parse() throws IOException, HttpException {
+        this.source.rewind();
+        this.parser.reset();
+        HttpMessage message;
+        while ((message = this.parser.parse()) == null) {
+            if (this.parser.fillBuffer(this.source) == -1) {
+                throw new IllegalStateException("Unexpected end of stream");
+            }
+        }
+        return message;
+    }
+
+}
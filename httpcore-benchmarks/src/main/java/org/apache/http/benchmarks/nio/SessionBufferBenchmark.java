@@ -0,0 +1,147 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+
+package org.apache.http.benchmarks.nio;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.benchmarks.HttpCorpus;
+import org.apache.http.benchmarks.NullChannel;
+import org.apache.http.benchmarks.ReplayChannel;
+import org.apache.http.impl.nio.reactor.SessionInputBufferImpl;
+import org.apache.http.impl.nio.reactor.SessionOutputBufferImpl;
+import org.apache.http.nio.util.ByteBufferAllocator;
+import org.apache.http.nio.util.DirectByteBufferAllocator;
+import org.apache.http.nio.util.HeapByteBufferAllocator;
+import org.apache.http.util.CharArrayBuffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of line-oriented I/O of {@link SessionInputBufferImpl} and
+ * {@link SessionOutputBufferImpl}. Message heads are read in segments
+ * of the given size to simulate heads spanning several TCP packets;
+ * a segment size of <code>0</code> makes the whole head available at once.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SessionBufferBenchmark {
+
+    @Param({
+        HttpCorpus.SMALL_GET,
+        HttpCorpus.BROWSER_GET,
+        HttpCorpus.LARGE_COOKIE_GET,
+        HttpCorpus.RESPONSE })
+    public String corpus;
+
+    @Param({ "0", "64", "1460" })
+    public int segmentSize;
+
+    @Param({ "heap", "direct" })
+    public String allocator;
+
+    private ReplayChannel source;
+    private NullChannel sink;
+    private SessionInputBufferImpl inbuf;
+    private SessionOutputBufferImpl outbuf;
+    private CharArrayBuffer line;
+    private CharArrayBuffer[] lines;
+    private int lineCount;
+
+    @Setup
+    public void setup() {
+        ByteBufferAllocator bufferAllocator = "direct".equals(this.allocator) ?
+                DirectByteBufferAllocator.INSTANCE : HeapByteBufferAllocator.INSTANCE;
+        this.source = new ReplayChannel(HttpCorpus.ascii(HttpCorpus.head(this.corpus)), this.segmentSize);
+        this.sink = new NullChannel();
+        this.inbuf = new SessionInputBufferImpl(8 * 1024, 1024, null, bufferAllocator);
+        this.outbuf = new SessionOutputBufferImpl(8 * 1024, 1024, null, bufferAllocator);
+        this.line = new CharArrayBuffer(1024);
+        List<String> strings = HttpCorpus.lines(this.corpus);
+        this.lines = new CharArrayBuffer[strings.size() + 1];
+        for (int i = 0; i < strings.size(); i++) {
+            String s = strings.get(i);
+            this.lines[i] = new CharArrayBuffer(s.length());
+            this.lines[i].append(s);
+        }
+        // terminating empty line
+        this.lines[strings.size()] = new CharArrayBuffer(0);
+        this.lineCount = strings.size();
+    }
+
+    @Benchmark
+    public int readLines() throws IOException {
+        this.source.rewind();
+        int count = 0;
+        for (;;) {
+            this.line.clear();
+            while (!this.inbuf.readLine(this.line, false)) {
+                if (this.inbuf.fill(this.source) == -1) {
+                    throw new IllegalStateException("Unexpected end of stream");
+                }
+            }
+            if (this.line.length() == 0) {
+                break;
+            }
+            count++;
+        }
+        if (count != this.lineCount) {
+            throw new IllegalStateException("Unexpected number of lines: " + count);
+        }
+        return count;
+    }
+
+    @Benchmark
+    public long writeLines() throws IOException {
+        for (CharArrayBuffer buffer: this.lines) {
+            this.outbuf.writeLine(buffer);
+            if (this.outbuf.length() > 4 * 1024) {
+                this.outbuf.flush(this.sink);
+            }
+        }
+        while (this.outbuf.hasData()) {
+            this.outbuf.flush(this.sink);
+        }
+        return this.sink.getCount();
+    }
+
+}
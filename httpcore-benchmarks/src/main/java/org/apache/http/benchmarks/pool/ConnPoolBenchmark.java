@@ -0,0 +1,173 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+
+package org.apache.http.benchmarks.pool;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.pool.AbstractConnPool;
+import org.apache.http.pool.AbstractStripedConnPool;
+import org.apache.http.pool.ConnFactory;
+import org.apache.http.pool.ConnPool;
+import org.apache.http.pool.PoolEntry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of lease / release cycles of the blocking connection pools
+ * shared by concurrent threads. Connections are fake and the pool never
+ * runs out of capacity, so the benchmark measures the pool bookkeeping and
+ * its lock contention. Use <code>-t</code> to vary the number of threads.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class ConnPoolBenchmark {
+
+    static class Entry extends PoolEntry<String, Object> {
+
+        private volatile boolean closed;
+
+        Entry(final String route, final Object conn) {
+            super(null, route, conn);
+        }
+
+        @Override
+        public void close() {
+            this.closed = true;
+        }
+
+        @Override
+        public boolean isClosed() {
+            return this.closed;
+        }
+
+    }
+
+    static class Factory implements ConnFactory<String, Object> {
+
+        public Object create(final String route) {
+            return new Object();
+        }
+
+    }
+
+    static class BasicPool extends AbstractConnPool<String, Object, Entry> {
+
+        BasicPool(final int maxPerRoute, final int maxTotal) {
+            super(new Factory(), maxPerRoute, maxTotal);
+        }
+
+        @Override
+        protected Entry createEntry(final String route, final Object conn) {
+            return new Entry(route, conn);
+        }
+
+    }
+
+    static class StripedPool extends AbstractStripedConnPool<String, Object, Entry> {
+
+        StripedPool(final int maxPerRoute, final int maxTotal) {
+            super(new Factory(), maxPerRoute, maxTotal);
+        }
+
+        @Override
+        protected Entry createEntry(final String route, final Object conn) {
+            return new Entry(route, conn);
+        }
+
+    }
+
+    @Param({ "basic", "striped" })
+    public String pool;
+
+    @Param({ "1", "16" })
+    public int routeCount;
+
+    private ConnPool<String, Entry> connPool;
+    private String[] routes;
+
+    @Setup
+    public void setup() {
+        if ("striped".equals(this.pool)) {
+            this.connPool = new StripedPool(64, 64 * this.routeCount);
+        } else {
+            this.connPool = new BasicPool(64, 64 * this.routeCount);
+        }
+        this.routes = new String[this.routeCount];
+        for (int i = 0; i < this.routeCount; i++) {
+            this.routes[i] = "route" + i;
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        if (this.connPool instanceof BasicPool) {
+            ((BasicPool) this.connPool).shutdown();
+        } else {
+            ((StripedPool) this.connPool).shutdown();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class RouteSelector {
+
+        private int next;
+
+        String next(final String[] routes) {
+            String route = routes[this.next];
+            this.next = (this.next + 1) % routes.length;
+            return route;
+        }
+
+    }
+
+    @Benchmark
+    public Entry leaseRelease(final RouteSelector selector)
+            throws InterruptedException, ExecutionException {
+        Entry entry = this.connPool.lease(selector.next(this.routes), null, null).get();
+        this.connPool.release(entry, true);
+        return entry;
+    }
+
+}
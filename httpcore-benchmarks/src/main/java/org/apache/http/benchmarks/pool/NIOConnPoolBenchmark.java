@@ -0,0 +1,277 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+
+package org.apache.http.benchmarks.pool;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.nio.pool.AbstractNIOConnPool;
+import org.apache.http.nio.pool.NIOConnFactory;
+import org.apache.http.nio.reactor.ConnectingIOReactor;
+import org.apache.http.nio.reactor.IOEventDispatch;
+import org.apache.http.nio.reactor.IOReactorStatus;
+import org.apache.http.nio.reactor.IOSession;
+import org.apache.http.nio.reactor.SessionRequest;
+import org.apache.http.nio.reactor.SessionRequestCallback;
+import org.apache.http.pool.PoolEntry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of lease / release cycles of {@link AbstractNIOConnPool} shared
+ * by concurrent threads. The pool is filled with fake connections upfront
+ * and is sized so that leases are always served by pooled connections.
+ * Use <code>-t</code> to vary the number of threads; it should not exceed
+ * the number of connections per route.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class NIOConnPoolBenchmark {
+
+    private static final int MAX_PER_ROUTE = 16;
+
+    static class Entry extends PoolEntry<String, Object> {
+
+        private volatile boolean closed;
+
+        Entry(final String route, final Object conn) {
+            super(null, route, conn);
+        }
+
+        @Override
+        public void close() {
+            this.closed = true;
+        }
+
+        @Override
+        public boolean isClosed() {
+            return this.closed;
+        }
+
+    }
+
+    /**
+     * Session request completed on demand by the benchmark setup.
+     */
+    static class FakeSessionRequest implements SessionRequest {
+
+        private final Object attachment;
+        private final SessionRequestCallback callback;
+        private volatile boolean completed;
+
+        FakeSessionRequest(final Object attachment, final SessionRequestCallback callback) {
+            this.attachment = attachment;
+            this.callback = callback;
+        }
+
+        void complete() {
+            this.completed = true;
+            this.callback.completed(this);
+        }
+
+        public SocketAddress getRemoteAddress() {
+            return null;
+        }
+
+        public SocketAddress getLocalAddress() {
+            return null;
+        }
+
+        public Object getAttachment() {
+            return this.attachment;
+        }
+
+        public boolean isCompleted() {
+            return this.completed;
+        }
+
+        public IOSession getSession() {
+            return null;
+        }
+
+        public IOException getException() {
+            return null;
+        }
+
+        public void waitFor() {
+        }
+
+        public void setConnectTimeout(final int timeout) {
+        }
+
+        public int getConnectTimeout() {
+            return 0;
+        }
+
+        public void cancel() {
+        }
+
+    }
+
+    /**
+     * I/O reactor that records connect requests instead of connecting.
+     */
+    static class FakeIOReactor implements ConnectingIOReactor {
+
+        private final List<FakeSessionRequest> requests = new ArrayList<FakeSessionRequest>();
+
+        public IOReactorStatus getStatus() {
+            return IOReactorStatus.ACTIVE;
+        }
+
+        public void execute(final IOEventDispatch eventDispatch) {
+        }
+
+        public void shutdown(final long waitMs) {
+        }
+
+        public void shutdown() {
+        }
+
+        public synchronized SessionRequest connect(
+                final SocketAddress remoteAddress,
+                final SocketAddress localAddress,
+                final Object attachment,
+                final SessionRequestCallback callback) {
+            FakeSessionRequest request = new FakeSessionRequest(attachment, callback);
+            this.requests.add(request);
+            return request;
+        }
+
+        synchronized List<FakeSessionRequest> drain() {
+            List<FakeSessionRequest> drained = new ArrayList<FakeSessionRequest>(this.requests);
+            this.requests.clear();
+            return drained;
+        }
+
+    }
+
+    static class Pool extends AbstractNIOConnPool<String, Object, Entry> {
+
+        Pool(final ConnectingIOReactor ioreactor, final int maxPerRoute, final int maxTotal) {
+            super(ioreactor, new NIOConnFactory<String, Object>() {
+
+                public Object create(final String route, final IOSession session) {
+                    return new Object();
+                }
+
+            }, maxPerRoute, maxTotal);
+        }
+
+        @Override
+        protected SocketAddress resolveRemoteAddress(final String route) {
+            return InetSocketAddress.createUnresolved(route, 80);
+        }
+
+        @Override
+        protected SocketAddress resolveLocalAddress(final String route) {
+            return null;
+        }
+
+        @Override
+        protected Entry createEntry(final String route, final Object conn) {
+            return new Entry(route, conn);
+        }
+
+    }
+
+    @Param({ "1", "16" })
+    public int routeCount;
+
+    private Pool pool;
+    private String[] routes;
+
+    @Setup
+    public void setup() throws Exception {
+        FakeIOReactor ioreactor = new FakeIOReactor();
+        this.pool = new Pool(ioreactor, MAX_PER_ROUTE, MAX_PER_ROUTE * this.routeCount);
+        this.routes = new String[this.routeCount];
+        List<Future<Entry>> futures = new ArrayList<Future<Entry>>();
+        for (int i = 0; i < this.routeCount; i++) {
+            this.routes[i] = "route" + i;
+            for (int n = 0; n < MAX_PER_ROUTE; n++) {
+                futures.add(this.pool.lease(this.routes[i], null));
+            }
+        }
+        for (FakeSessionRequest request: ioreactor.drain()) {
+            request.complete();
+        }
+        for (Future<Entry> future: futures) {
+            this.pool.release(future.get(), true);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        this.pool.shutdown(0);
+    }
+
+    @State(Scope.Thread)
+    public static class RouteSelector {
+
+        private int next;
+
+        String next(final String[] routes) {
+            String route = routes[this.next];
+            this.next = (this.next + 1) % routes.length;
+            return route;
+        }
+
+    }
+
+    @Benchmark
+    public Entry leaseRelease(final RouteSelector selector)
+            throws InterruptedException, ExecutionException {
+        Entry entry = this.pool.lease(selector.next(this.routes), null).get();
+        this.pool.release(entry, true);
+        return entry;
+    }
+
+}
@@ -234,6 +234,7 @@ public class DefaultNHttpClientConnection
             return;
         }
         try {
+            boolean endOfStream = false;
             if (this.response == null) {
                 int bytesRead;
                 do {
@@ -255,9 +256,7 @@ public class DefaultNHttpClientConnection
                         resetInput();
                     }
                 }
-                if (bytesRead == -1) {
-                    handler.endOfInput(this);
-                }
+                endOfStream = bytesRead == -1;
             }
             if (this.contentDecoder != null && (this.session.getEventMask() & SelectionKey.OP_READ) > 0) {
                 handler.inputReady(this, this.contentDecoder);
@@ -267,12 +266,18 @@ public class DefaultNHttpClientConnection
                     resetInput();
                 }
             }
+            if (endOfStream) {
+                // Signal end of input only after content already
+                // buffered along with the response head has been consumed
+                handler.endOfInput(this);
+            }
         } catch (HttpException ex) {
             resetInput();
             handler.exception(this, ex);
         } catch (Exception ex) {
             handler.exception(this, ex);
         } finally {
+            releaseIdleBuffers();
             // Finally set buffered input flag
             this.hasBufferedInput = this.inbuf.hasData();
         }
@@ -280,13 +285,15 @@ public class DefaultNHttpClientConnection
 
     public void produceOutput(final NHttpClientEventHandler handler) {
         try {
-            if (this.outbuf.hasData()) {
+            // Let the content encoder send pending data along with content if it can
+            boolean gathering = isGatheringOutput();
+            if (this.outbuf.hasData() && !gathering) {
                 int bytesWritten = this.outbuf.flush(this.session.channel());
                 if (bytesWritten > 0) {
                     this.outTransportMetrics.incrementBytesTransferred(bytesWritten);
                 }
             }
-            if (!this.outbuf.hasData()) {
+            if (!this.outbuf.hasData() || gathering) {
                 if (this.status == CLOSING) {
                     this.session.close();
                     this.status = CLOSED;
@@ -300,6 +307,12 @@ public class DefaultNHttpClientConnection
                         }
                     }
                 }
+                if (gathering && this.outbuf.hasData()) {
+                    int bytesWritten = this.outbuf.flush(this.session.channel());
+                    if (bytesWritten > 0) {
+                        this.outTransportMetrics.incrementBytesTransferred(bytesWritten);
+                    }
+                }
 
                 if (this.contentEncoder == null && !this.outbuf.hasData()) {
                     if (this.status == CLOSING) {
@@ -315,6 +328,7 @@ public class DefaultNHttpClientConnection
         } catch (Exception ex) {
             handler.exception(this, ex);
         } finally {
+            releaseIdleBuffers();
             // Finally set buffered output flag
             this.hasBufferedOutput = this.outbuf.hasData();
         }
@@ -137,12 +137,15 @@ public class DefaultNHttpClientConnectionFactory
             charencoder.onMalformedInput(malformedInputAction);
             charencoder.onUnmappableCharacter(unmappableInputAction);
         }
-        return new DefaultNHttpClientConnection(
+        DefaultNHttpClientConnection conn = new DefaultNHttpClientConnection(
                 session, 8 * 1024,
                 this.allocator,
                 chardecoder, charencoder, this.config.getMessageConstraints(),
                 null, null, null,
                 this.responseParserFactory);
+        conn.setReleaseIdleBuffers(this.config.isReleaseIdleBuffers());
+        conn.setMinChunkSize(this.config.getMinChunkSize());
+        return conn;
     }
 
 }
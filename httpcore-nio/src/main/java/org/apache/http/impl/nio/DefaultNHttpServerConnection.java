@@ -246,6 +246,7 @@ public class DefaultNHttpServerConnection
             return;
         }
         try {
+            boolean endOfStream = false;
             if (this.request == null) {
                 int bytesRead;
                 do {
@@ -270,9 +271,7 @@ public class DefaultNHttpServerConnection
                         resetInput();
                     }
                 }
-                if (bytesRead == -1) {
-                    handler.endOfInput(this);
-                }
+                endOfStream = bytesRead == -1;
             }
             if (this.contentDecoder != null && (this.session.getEventMask() & SelectionKey.OP_READ) > 0) {
                 handler.inputReady(this, this.contentDecoder);
@@ -282,12 +281,18 @@ public class DefaultNHttpServerConnection
                     resetInput();
                 }
             }
+            if (endOfStream) {
+                // Signal end of input only after content already
+                // buffered along with the request head has been consumed
+                handler.endOfInput(this);
+            }
         } catch (HttpException ex) {
             resetInput();
             handler.exception(this, ex);
         } catch (Exception ex) {
             handler.exception(this, ex);
         } finally {
+            releaseIdleBuffers();
             // Finally set buffered input flag
             this.hasBufferedInput = this.inbuf.hasData();
         }
@@ -295,13 +300,15 @@ public class DefaultNHttpServerConnection
 
     public void produceOutput(final NHttpServerEventHandler handler) {
         try {
-            if (this.outbuf.hasData()) {
+            // Let the content encoder send pending data along with content if it can
+            boolean gathering = isGatheringOutput();
+            if (this.outbuf.hasData() && !gathering) {
                 int bytesWritten = this.outbuf.flush(this.session.channel());
                 if (bytesWritten > 0) {
                     this.outTransportMetrics.incrementBytesTransferred(bytesWritten);
                 }
             }
-            if (!this.outbuf.hasData()) {
+            if (!this.outbuf.hasData() || gathering) {
                 if (this.status == CLOSING) {
                     this.session.close();
                     this.status = CLOSED;
@@ -315,6 +322,12 @@ public class DefaultNHttpServerConnection
                         }
                     }
                 }
+                if (gathering && this.outbuf.hasData()) {
+                    int bytesWritten = this.outbuf.flush(this.session.channel());
+                    if (bytesWritten > 0) {
+                        this.outTransportMetrics.incrementBytesTransferred(bytesWritten);
+                    }
+                }
 
                 if (this.contentEncoder == null && !this.outbuf.hasData()) {
                     if (this.status == CLOSING) {
@@ -330,6 +343,7 @@ public class DefaultNHttpServerConnection
         } catch (Exception ex) {
             handler.exception(this, ex);
         } finally {
+            releaseIdleBuffers();
             // Finally set the buffered output flag
             this.hasBufferedOutput = this.outbuf.hasData();
         }
@@ -137,12 +137,15 @@ public class DefaultNHttpServerConnectionFactory
             charencoder.onMalformedInput(malformedInputAction);
             charencoder.onUnmappableCharacter(unmappableInputAction);
         }
-        return new DefaultNHttpServerConnection(session, 8 * 1024,
+        DefaultNHttpServerConnection conn = new DefaultNHttpServerConnection(session, 8 * 1024,
                 this.allocator,
                 chardecoder, charencoder, this.config.getMessageConstraints(),
                 null, null,
                 this.requestParserFactory,
                 null);
+        conn.setReleaseIdleBuffers(this.config.isReleaseIdleBuffers());
+        conn.setMinChunkSize(this.config.getMinChunkSize());
+        return conn;
     }
 
 }
@@ -57,6 +57,7 @@ import org.apache.http.impl.HttpConnectionMetricsImpl;
 import org.apache.http.impl.entity.LaxContentLengthStrategy;
 import org.apache.http.impl.entity.StrictContentLengthStrategy;
 import org.apache.http.impl.io.HttpTransportMetricsImpl;
+import org.apache.http.impl.nio.codecs.AbstractContentEncoder;
 import org.apache.http.impl.nio.codecs.ChunkDecoder;
 import org.apache.http.impl.nio.codecs.ChunkEncoder;
 import org.apache.http.impl.nio.codecs.IdentityDecoder;
@@ -119,6 +120,9 @@ public class NHttpConnectionBase
 
     protected volatile int status;
 
+    private boolean releaseIdleBuffers;
+    private int minChunkSize;
+
     /**
      * Creates a new instance of this class given the underlying I/O session.
      *
@@ -422,7 +426,7 @@ public class NHttpConnectionBase
             final SessionOutputBuffer buffer,
             final HttpTransportMetricsImpl metrics) {
         if (len == ContentLengthStrategy.CHUNKED) {
-            return new ChunkEncoder(channel, buffer, metrics);
+            return new ChunkEncoder(channel, buffer, metrics, this.minChunkSize);
         } else if (len == ContentLengthStrategy.IDENTITY) {
             return new IdentityEncoder(channel, buffer, metrics);
         } else {
@@ -520,6 +524,53 @@ public class NHttpConnectionBase
         this.session.shutdown();
     }
 
+    /**
+     * Releases session buffers of a closed connection back to their
+     * allocator.
+     */
+    void releaseBuffers() {
+        this.inbuf.release();
+        this.outbuf.release();
+    }
+
+    /**
+     * Determines whether data pending in the session buffer can be left to
+     * the content encoder to write together with message content instead of
+     * being flushed ahead of it.
+     */
+    boolean isGatheringOutput() {
+        return this.status == ACTIVE
+            && this.contentEncoder instanceof AbstractContentEncoder
+            && ((AbstractContentEncoder) this.contentEncoder).isGatheringWrites();
+    }
+
+    void setReleaseIdleBuffers(final boolean releaseIdleBuffers) {
+        this.releaseIdleBuffers = releaseIdleBuffers;
+    }
+
+    void setMinChunkSize(final int minChunkSize) {
+        this.minChunkSize = minChunkSize;
+    }
+
+    /**
+     * Gives empty session buffers back to their allocator while no message
+     * content is being transferred, if idle buffer release is enabled.
+     * The buffers are re-acquired on demand.
+     *
+     * @since 4.3
+     */
+    protected void releaseIdleBuffers() {
+        if (!this.releaseIdleBuffers) {
+            return;
+        }
+        if (this.contentDecoder == null && !this.inbuf.hasData()) {
+            this.inbuf.release();
+        }
+        if (this.contentEncoder == null && !this.outbuf.hasData()) {
+            this.outbuf.release();
+        }
+    }
+
     public HttpConnectionMetrics getMetrics() {
         return this.connMetrics;
     }
@@ -43,11 +43,13 @@ import org.apache.http.nio.NHttpClientConnection;
 import org.apache.http.nio.NHttpConnectionFactory;
 import org.apache.http.nio.NHttpMessageParserFactory;
 import org.apache.http.nio.reactor.IOSession;
+import org.apache.http.nio.reactor.ssl.SSLDelegatedTaskExecutor;
 import org.apache.http.nio.reactor.ssl.SSLIOSession;
 import org.apache.http.nio.reactor.ssl.SSLMode;
 import org.apache.http.nio.reactor.ssl.SSLSetupHandler;
 import org.apache.http.nio.util.ByteBufferAllocator;
 import org.apache.http.nio.util.HeapByteBufferAllocator;
+import org.apache.http.nio.util.RecyclingByteBufferAllocator;
 import org.apache.http.params.HttpParamConfig;
 import org.apache.http.params.HttpParams;
 import org.apache.http.util.Args;
@@ -67,6 +69,7 @@ public class SSLNHttpClientConnectionFactory
     private final SSLContext sslcontext;
     private final SSLSetupHandler sslHandler;
     private final ConnectionConfig config;
+    private final SSLDelegatedTaskExecutor taskExecutor;
 
     /**
      * @deprecated (4.3) use {@link
@@ -89,6 +92,7 @@ public class SSLNHttpClientConnectionFactory
         this.allocator = allocator;
         this.responseParserFactory = new DefaultHttpResponseParserFactory(null, responseFactory);
         this.config = HttpParamConfig.getConnectionConfig(params);
+        this.taskExecutor = null;
     }
 
     /**
@@ -115,6 +119,10 @@ public class SSLNHttpClientConnectionFactory
     }
 
     /**
+     * Creates new instance of the factory. If a task executor is given,
+     * delegated tasks of the SSL engine are run by the executor instead of
+     * the I/O dispatch threads.
+     *
      * @since 4.3
      */
     public SSLNHttpClientConnectionFactory(
@@ -122,6 +130,7 @@ public class SSLNHttpClientConnectionFactory
             final SSLSetupHandler sslHandler,
             final HttpResponseFactory responseFactory,
             final ByteBufferAllocator allocator,
+            final SSLDelegatedTaskExecutor taskExecutor,
             final ConnectionConfig config) {
         super();
         this.sslcontext = sslcontext;
@@ -129,6 +138,19 @@ public class SSLNHttpClientConnectionFactory
         this.allocator = allocator != null ? allocator : HeapByteBufferAllocator.INSTANCE;
         this.responseParserFactory = new DefaultHttpResponseParserFactory(null, responseFactory);
         this.config = config != null ? config : ConnectionConfig.DEFAULT;
+        this.taskExecutor = taskExecutor;
+    }
+
+    /**
+     * @since 4.3
+     */
+    public SSLNHttpClientConnectionFactory(
+            final SSLContext sslcontext,
+            final SSLSetupHandler sslHandler,
+            final HttpResponseFactory responseFactory,
+            final ByteBufferAllocator allocator,
+            final ConnectionConfig config) {
+        this(sslcontext, sslHandler, responseFactory, allocator, null, config);
     }
 
     /**
@@ -178,9 +200,13 @@ public class SSLNHttpClientConnectionFactory
             final IOSession iosession,
             final SSLContext sslcontext,
             final SSLSetupHandler sslHandler) {
+        RecyclingByteBufferAllocator bufferPool = null;
+        if (this.config.isReleaseIdleBuffers() && this.allocator instanceof RecyclingByteBufferAllocator) {
+            bufferPool = (RecyclingByteBufferAllocator) this.allocator;
+        }
         SSLIOSession ssliosession = new SSLIOSession(iosession, SSLMode.CLIENT,
                 (sslcontext != null ? sslcontext : getDefaultSSLContext()),
-                sslHandler);
+                sslHandler, bufferPool, this.taskExecutor);
         iosession.setAttribute(SSLIOSession.SESSION_KEY, ssliosession);
         return ssliosession;
     }
@@ -202,12 +228,15 @@ public class SSLNHttpClientConnectionFactory
             charencoder.onMalformedInput(malformedInputAction);
             charencoder.onUnmappableCharacter(unmappableInputAction);
         }
-        return new DefaultNHttpClientConnection(
+        DefaultNHttpClientConnection conn = new DefaultNHttpClientConnection(
                 ssliosession, 8 * 1024,
                 this.allocator,
                 chardecoder, charencoder, this.config.getMessageConstraints(),
                 null, null, null,
                 this.responseParserFactory);
+        conn.setReleaseIdleBuffers(this.config.isReleaseIdleBuffers());
+        conn.setMinChunkSize(this.config.getMinChunkSize());
+        return conn;
     }
 
 }
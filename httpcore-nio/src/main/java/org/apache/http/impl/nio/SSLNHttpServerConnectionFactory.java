@@ -43,11 +43,13 @@ import org.apache.http.nio.NHttpConnectionFactory;
 import org.apache.http.nio.NHttpMessageParserFactory;
 import org.apache.http.nio.NHttpServerConnection;
 import org.apache.http.nio.reactor.IOSession;
+import org.apache.http.nio.reactor.ssl.SSLDelegatedTaskExecutor;
 import org.apache.http.nio.reactor.ssl.SSLIOSession;
 import org.apache.http.nio.reactor.ssl.SSLMode;
 import org.apache.http.nio.reactor.ssl.SSLSetupHandler;
 import org.apache.http.nio.util.ByteBufferAllocator;
 import org.apache.http.nio.util.HeapByteBufferAllocator;
+import org.apache.http.nio.util.RecyclingByteBufferAllocator;
 import org.apache.http.params.HttpParamConfig;
 import org.apache.http.params.HttpParams;
 import org.apache.http.util.Args;
@@ -67,6 +69,7 @@ public class SSLNHttpServerConnectionFactory
     private final SSLContext sslcontext;
     private final SSLSetupHandler sslHandler;
     private final ConnectionConfig config;
+    private final SSLDelegatedTaskExecutor taskExecutor;
 
     /**
      * @deprecated (4.3) use {@link
@@ -89,6 +92,7 @@ public class SSLNHttpServerConnectionFactory
         this.allocator = allocator;
         this.requestParserFactory = new DefaultHttpRequestParserFactory(null, requestFactory);
         this.config = HttpParamConfig.getConnectionConfig(params);
+        this.taskExecutor = null;
     }
 
     /**
@@ -115,6 +119,10 @@ public class SSLNHttpServerConnectionFactory
     }
 
     /**
+     * Creates new instance of the factory. If a task executor is given,
+     * delegated tasks of the SSL engine are run by the executor instead of
+     * the I/O dispatch threads.
+     *
      * @since 4.3
      */
     public SSLNHttpServerConnectionFactory(
@@ -122,6 +130,7 @@ public class SSLNHttpServerConnectionFactory
             final SSLSetupHandler sslHandler,
             final HttpRequestFactory requestFactory,
             final ByteBufferAllocator allocator,
+            final SSLDelegatedTaskExecutor taskExecutor,
             final ConnectionConfig config) {
         super();
         this.sslcontext = sslcontext;
@@ -129,6 +138,19 @@ public class SSLNHttpServerConnectionFactory
         this.allocator = allocator != null ? allocator : HeapByteBufferAllocator.INSTANCE;
         this.requestParserFactory = new DefaultHttpRequestParserFactory(null, requestFactory);
         this.config = config != null ? config : ConnectionConfig.DEFAULT;
+        this.taskExecutor = taskExecutor;
+    }
+
+    /**
+     * @since 4.3
+     */
+    public SSLNHttpServerConnectionFactory(
+            final SSLContext sslcontext,
+            final SSLSetupHandler sslHandler,
+            final HttpRequestFactory requestFactory,
+            final ByteBufferAllocator allocator,
+            final ConnectionConfig config) {
+        this(sslcontext, sslHandler, requestFactory, allocator, null, config);
     }
 
     /**
@@ -178,9 +200,13 @@ public class SSLNHttpServerConnectionFactory
             final IOSession iosession,
             final SSLContext sslcontext,
             final SSLSetupHandler sslHandler) {
+        RecyclingByteBufferAllocator bufferPool = null;
+        if (this.config.isReleaseIdleBuffers() && this.allocator instanceof RecyclingByteBufferAllocator) {
+            bufferPool = (RecyclingByteBufferAllocator) this.allocator;
+        }
         SSLIOSession ssliosession = new SSLIOSession(iosession, SSLMode.SERVER,
                 (sslcontext != null ? sslcontext : getDefaultSSLContext()),
-                sslHandler);
+                sslHandler, bufferPool, this.taskExecutor);
         iosession.setAttribute(SSLIOSession.SESSION_KEY, ssliosession);
         return ssliosession;
     }
@@ -202,12 +228,15 @@ public class SSLNHttpServerConnectionFactory
             charencoder.onMalformedInput(malformedInputAction);
             charencoder.onUnmappableCharacter(unmappableInputAction);
         }
-        return new DefaultNHttpServerConnection(ssliosession, 8 * 1024,
+        DefaultNHttpServerConnection conn = new DefaultNHttpServerConnection(ssliosession, 8 * 1024,
                 this.allocator,
                 chardecoder, charencoder, this.config.getMessageConstraints(),
                 null, null,
                 this.requestParserFactory,
                 null);
+        conn.setReleaseIdleBuffers(this.config.isReleaseIdleBuffers());
+        conn.setMinChunkSize(this.config.getMinChunkSize());
+        return conn;
     }
 
 }
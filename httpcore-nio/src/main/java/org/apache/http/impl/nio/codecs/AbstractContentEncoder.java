@@ -28,11 +28,18 @@
 package org.apache.http.impl.nio.codecs;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.SelectableChannel;
 import java.nio.channels.WritableByteChannel;
 
 import org.apache.http.annotation.NotThreadSafe;
 import org.apache.http.impl.io.HttpTransportMetricsImpl;
+import org.apache.http.impl.nio.reactor.SessionOutputBufferImpl;
 import org.apache.http.nio.ContentEncoder;
+import org.apache.http.nio.FlushableContentEncoder;
 import org.apache.http.nio.reactor.SessionOutputBuffer;
 import org.apache.http.util.Args;
 
@@ -43,7 +50,10 @@ import org.apache.http.util.Args;
  * @since 4.0
  */
 @NotThreadSafe
-public abstract class AbstractContentEncoder implements ContentEncoder {
+public abstract class AbstractContentEncoder implements FlushableContentEncoder {
+
+    private static final int MAP_MIN_SIZE = 16 * 1024;
+    private static final int MAP_MAX_SIZE = 1024 * 1024;
 
     protected final WritableByteChannel channel;
     protected final SessionOutputBuffer buffer;
@@ -51,6 +61,10 @@ public abstract class AbstractContentEncoder implements ContentEncoder {
 
     protected boolean completed;
 
+    private FileChannel mappedFile;
+    private long mappedPosition;
+    private MappedByteBuffer mappedBuffer;
+
     /**
      * Creates an instance of this class.
      *
@@ -80,6 +94,148 @@ public abstract class AbstractContentEncoder implements ContentEncoder {
         this.completed = true;
     }
 
+    /**
+     * Writes a portion of entity content to the underlying channel. This
+     * implementation does not hold back any content and therefore ignores
+     * the <code>moreData</code> hint.
+     *
+     * @since 4.3
+     */
+    public int write(final ByteBuffer src, final boolean moreData) throws IOException {
+        return write(src);
+    }
+
+    /**
+     * Flushes data pending in the session buffer to the channel.
+     *
+     * @since 4.3
+     */
+    public void flush() throws IOException {
+        flushBuffer();
+    }
+
+    /**
+     * Determines whether this encoder writes data pending in the session
+     * buffer together with content passed to it using gathering writes.
+     * If so, the session buffer need not be flushed before content is
+     * encoded, which allows message head, content framing and content to
+     * be sent with a single write operation.
+     *
+     * @since 4.3
+     */
+    public boolean isGatheringWrites() {
+        return false;
+    }
+
+    /**
+     * Determines whether gathering writes of session buffer content and
+     * content buffers are supported by the channel and the session buffer.
+     *
+     * @since 4.3
+     */
+    protected boolean canGather() {
+        return this.channel instanceof GatheringByteChannel
+            && this.buffer instanceof SessionOutputBufferImpl;
+    }
+
+    /**
+     * Writes data pending in the session buffer followed by the given buffers
+     * to the channel with a single gathering write, without copying content
+     * of the buffers. May only be used if {@link #canGather()} returns
+     * <code>true</code>.
+     *
+     * @return total number of bytes written.
+     *
+     * @since 4.3
+     */
+    protected long writeGathered(final ByteBuffer[] srcs) throws IOException {
+        long bytesWritten = ((SessionOutputBufferImpl) this.buffer).flush(
+                (GatheringByteChannel) this.channel, srcs);
+        if (bytesWritten > 0) {
+            this.metrics.incrementBytesTransferred(bytesWritten);
+        }
+        return bytesWritten;
+    }
+
+    /**
+     * Flushes data pending in the session buffer to the channel.
+     *
+     * @return <code>true</code> if the session buffer has been fully flushed,
+     *   <code>false</code> otherwise.
+     *
+     * @since 4.3
+     */
+    protected boolean flushBuffer() throws IOException {
+        if (this.buffer.hasData()) {
+            int bytesWritten = this.buffer.flush(this.channel);
+            if (bytesWritten > 0) {
+                this.metrics.incrementBytesTransferred(bytesWritten);
+            }
+        }
+        return !this.buffer.hasData();
+    }
+
+    /**
+     * Transfers a portion of file content to the channel. If the channel is
+     * a socket or a file channel the content is transferred with
+     * {@link FileChannel#transferTo(long, long, WritableByteChannel)}.
+     * Otherwise, for instance if the channel is a TLS session, a region of
+     * the file is mapped into memory and written to the channel directly,
+     * as the JRE would otherwise copy the content through a temporary
+     * buffer. The mapped region is retained for subsequent transfers from
+     * the same file.
+     *
+     * @return number of bytes transferred.
+     *
+     * @since 4.3
+     */
+    protected long transferFile(
+            final FileChannel src,
+            final long position,
+            final long count) throws IOException {
+        long bytesWritten;
+        ByteBuffer mapped = null;
+        if (!(this.channel instanceof SelectableChannel) && !(this.channel instanceof FileChannel)) {
+            mapped = map(src, position, count);
+        }
+        if (mapped != null) {
+            bytesWritten = this.channel.write(mapped);
+        } else {
+            bytesWritten = src.transferTo(position, count, this.channel);
+        }
+        if (bytesWritten > 0) {
+            this.metrics.incrementBytesTransferred(bytesWritten);
+        }
+        return bytesWritten;
+    }
+
+    private ByteBuffer map(
+            final FileChannel src,
+            final long position,
+            final long count) throws IOException {
+        if (count <= 0) {
+            return null;
+        }
+        if (src != this.mappedFile
+                || position < this.mappedPosition
+                || position >= this.mappedPosition + this.mappedBuffer.capacity()) {
+            this.mappedFile = null;
+            this.mappedBuffer = null;
+            long len = Math.min(src.size() - position, MAP_MAX_SIZE);
+            if (len < MAP_MIN_SIZE) {
+                return null;
+            }
+            this.mappedBuffer = src.map(FileChannel.MapMode.READ_ONLY, position, len);
+            this.mappedFile = src;
+            this.mappedPosition = position;
+        }
+        ByteBuffer view = this.mappedBuffer.duplicate();
+        int offset = (int) (position - this.mappedPosition);
+        view.limit(offset + (int) Math.min(view.capacity() - offset, count));
+        view.position(offset);
+        return view;
+    }
+
     protected void assertNotCompleted() {
         if (this.completed) {
             throw new IllegalStateException("Encoding process already completed");
@@ -40,6 +40,7 @@ import org.apache.http.ProtocolException;
 import org.apache.http.annotation.NotThreadSafe;
 import org.apache.http.config.MessageConstraints;
 import org.apache.http.message.BasicLineParser;
+import org.apache.http.message.BufferedHeaderView;
 import org.apache.http.message.LineParser;
 import org.apache.http.nio.NHttpMessageParser;
 import org.apache.http.nio.reactor.SessionInputBuffer;
@@ -71,6 +72,11 @@ public abstract class AbstractMessageParser<T extends HttpMessage> implements NH
     private CharArrayBuffer lineBuf;
     private final List<CharArrayBuffer> headerBufs;
 
+    private final boolean sharedHeaderBuffer;
+    private CharArrayBuffer headerBuf;
+    private int[] headerStarts;
+    private int headerCount;
+
     protected final LineParser lineParser;
     private final MessageConstraints constraints;
 
@@ -99,6 +105,7 @@ public abstract class AbstractMessageParser<T extends HttpMessage> implements NH
         this.headerBufs = new ArrayList<CharArrayBuffer>();
         this.constraints = HttpParamConfig.getMessageConstraints(params);
         this.lineParser = (lineParser != null) ? lineParser : BasicLineParser.INSTANCE;
+        this.sharedHeaderBuffer = false;
     }
 
     /**
@@ -116,11 +123,39 @@ public abstract class AbstractMessageParser<T extends HttpMessage> implements NH
             final SessionInputBuffer buffer,
             final LineParser lineParser,
             final MessageConstraints constraints) {
+        this(buffer, lineParser, constraints, false);
+    }
+
+    /**
+     * Creates an instance of AbstractMessageParser.
+     * <p/>
+     * If <code>sharedHeaderBuffer</code> is <code>true</code> all header
+     * lines of a message are read into a single buffer and represented as
+     * {@link BufferedHeaderView}s whose names and values are extracted only
+     * when accessed. In this mode
+     * {@link LineParser#parseHeader(CharArrayBuffer)} is not used.
+     *
+     * @param buffer the session input buffer.
+     * @param lineParser the line parser. If <code>null</code> {@link BasicLineParser#INSTANCE}
+     *   will be used.
+     * @param constraints Message constraints. If <code>null</code>
+     *   {@link MessageConstraints#DEFAULT} will be used.
+     * @param sharedHeaderBuffer whether header lines of a message are to
+     *   share a single buffer.
+     *
+     * @since 4.3
+     */
+    public AbstractMessageParser(
+            final SessionInputBuffer buffer,
+            final LineParser lineParser,
+            final MessageConstraints constraints,
+            boolean sharedHeaderBuffer) {
         super();
         this.sessionBuffer = Args.notNull(buffer, "Session input buffer");
         this.lineParser = lineParser != null ? lineParser : BasicLineParser.INSTANCE;
         this.constraints = constraints != null ? constraints : MessageConstraints.DEFAULT;
         this.headerBufs = new ArrayList<CharArrayBuffer>();
+        this.sharedHeaderBuffer = sharedHeaderBuffer;
         this.state = READ_HEAD_LINE;
         this.endOfStream = false;
     }
@@ -129,6 +164,8 @@ public abstract class AbstractMessageParser<T extends HttpMessage> implements NH
         this.state = READ_HEAD_LINE;
         this.endOfStream = false;
         this.headerBufs.clear();
+        this.headerBuf = null;
+        this.headerCount = 0;
         this.message = null;
     }
 
@@ -182,17 +219,63 @@ public abstract class AbstractMessageParser<T extends HttpMessage> implements NH
         }
     }
 
+    private void parseSharedHeader(int lineStart) throws IOException {
+        CharArrayBuffer buffer = this.headerBuf;
+        int len = buffer.length();
+        char first = buffer.charAt(lineStart);
+        if ((first == ' ' || first == '\t') && this.headerCount > 0) {
+            // Handle folded header line by appending it to the previous one in place
+            int i = lineStart;
+            while (i < len) {
+                char ch = buffer.charAt(i);
+                if (ch != ' ' && ch != '\t') {
+                    break;
+                }
+                i++;
+            }
+            int previousLen = lineStart - this.headerStarts[this.headerCount - 1];
+            int maxLineLen = this.constraints.getMaxLineLength();
+            if (maxLineLen > 0 && previousLen + 1 + len - i > maxLineLen) {
+                throw new MessageConstraintException("Maximum line length limit exceeded");
+            }
+            char[] chars = buffer.buffer();
+            chars[lineStart] = ' ';
+            System.arraycopy(chars, i, chars, lineStart + 1, len - i);
+            buffer.setLength(lineStart + 1 + len - i);
+        } else {
+            if (this.headerStarts == null) {
+                this.headerStarts = new int[16];
+            } else if (this.headerCount == this.headerStarts.length) {
+                int[] newStarts = new int[this.headerStarts.length << 1];
+                System.arraycopy(this.headerStarts, 0, newStarts, 0, this.headerCount);
+                this.headerStarts = newStarts;
+            }
+            this.headerStarts[this.headerCount++] = lineStart;
+        }
+    }
+
     public T parse() throws IOException, HttpException {
         while (this.state != COMPLETED) {
-            if (this.lineBuf == null) {
-                this.lineBuf = new CharArrayBuffer(64);
+            CharArrayBuffer buffer;
+            int lineStart;
+            if (this.headerBuf != null && this.state == READ_HEADERS) {
+                // read header lines straight into the shared buffer
+                buffer = this.headerBuf;
+                lineStart = buffer.length();
             } else {
-                this.lineBuf.clear();
+                if (this.lineBuf == null) {
+                    this.lineBuf = new CharArrayBuffer(64);
+                } else {
+                    this.lineBuf.clear();
+                }
+                buffer = this.lineBuf;
+                lineStart = 0;
             }
-            boolean lineComplete = this.sessionBuffer.readLine(this.lineBuf, this.endOfStream);
+            boolean lineComplete = this.sessionBuffer.readLine(buffer, this.endOfStream);
+            int lineLen = buffer.length() - lineStart;
             int maxLineLen = this.constraints.getMaxLineLength();
             if (maxLineLen > 0 &&
-                    (this.lineBuf.length() > maxLineLen ||
+                    (lineLen > maxLineLen ||
                             (!lineComplete && this.sessionBuffer.length() > maxLineLen))) {
                 throw new MessageConstraintException("Maximum line length limit exceeded");
             }
@@ -207,16 +290,26 @@ public abstract class AbstractMessageParser<T extends HttpMessage> implements NH
                 } catch (ParseException px) {
                     throw new ProtocolException(px.getMessage(), px);
                 }
+                if (this.sharedHeaderBuffer) {
+                    // headers of the message hold on to the buffer: never reuse it
+                    this.headerBuf = new CharArrayBuffer(256);
+                    this.headerCount = 0;
+                }
                 this.state = READ_HEADERS;
                 break;
             case READ_HEADERS:
-                if (this.lineBuf.length() > 0) {
+                if (lineLen > 0) {
                     int maxHeaderCount = this.constraints.getMaxHeaderCount();
-                    if (maxHeaderCount > 0 && headerBufs.size() >= maxHeaderCount) {
+                    int count = this.headerBuf != null ? this.headerCount : this.headerBufs.size();
+                    if (maxHeaderCount > 0 && count >= maxHeaderCount) {
                         throw new MessageConstraintException("Maximum header count exceeded");
                     }
 
-                    parseHeader();
+                    if (this.headerBuf != null) {
+                        parseSharedHeader(lineStart);
+                    } else {
+                        parseHeader();
+                    }
                 } else {
                     this.state = COMPLETED;
                 }
@@ -227,12 +320,25 @@ public abstract class AbstractMessageParser<T extends HttpMessage> implements NH
             }
         }
         if (this.state == COMPLETED) {
-            for (int i = 0; i < this.headerBufs.size(); i++) {
-                CharArrayBuffer buffer = this.headerBufs.get(i);
-                try {
-                    this.message.addHeader(lineParser.parseHeader(buffer));
-                } catch (ParseException ex) {
-                    throw new ProtocolException(ex.getMessage(), ex);
+            if (this.headerBuf != null) {
+                CharArrayBuffer buffer = this.headerBuf;
+                for (int i = 0; i < this.headerCount; i++) {
+                    int end = i + 1 < this.headerCount ? this.headerStarts[i + 1] : buffer.length();
+                    try {
+                        this.message.addHeader(
+                                new BufferedHeaderView(buffer, this.headerStarts[i], end));
+                    } catch (ParseException ex) {
+                        throw new ProtocolException(ex.getMessage(), ex);
+                    }
+                }
+            } else {
+                for (int i = 0; i < this.headerBufs.size(); i++) {
+                    CharArrayBuffer buffer = this.headerBufs.get(i);
+                    try {
+                        this.message.addHeader(lineParser.parseHeader(buffer));
+                    } catch (ParseException ex) {
+                        throw new ProtocolException(ex.getMessage(), ex);
+                    }
                 }
             }
             return this.message;
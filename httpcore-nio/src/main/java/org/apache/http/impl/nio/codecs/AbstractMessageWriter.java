@@ -35,6 +35,7 @@ import org.apache.http.HttpException;
 import org.apache.http.HttpMessage;
 import org.apache.http.annotation.NotThreadSafe;
 import org.apache.http.message.BasicLineFormatter;
+import org.apache.http.message.BufferedAsciiHeader;
 import org.apache.http.message.LineFormatter;
 import org.apache.http.nio.NHttpMessageWriter;
 import org.apache.http.nio.reactor.SessionOutputBuffer;
@@ -111,8 +112,13 @@ public abstract class AbstractMessageWriter<T extends HttpMessage> implements NH
         writeHeadLine(message);
         for (Iterator<?> it = message.headerIterator(); it.hasNext(); ) {
             Header header = (Header) it.next();
-            this.sessionBuffer.writeLine
-                (lineFormatter.formatHeader(this.lineBuf, header));
+            if (header instanceof BufferedAsciiHeader) {
+                // Pre-encoded header line can be copied verbatim
+                this.sessionBuffer.write(((BufferedAsciiHeader) header).getEncodedLine());
+            } else {
+                this.sessionBuffer.writeLine
+                    (lineFormatter.formatHeader(this.lineBuf, header));
+            }
         }
         this.lineBuf.clear();
         this.sessionBuffer.writeLine(this.lineBuf);
@@ -29,6 +29,7 @@ package org.apache.http.impl.nio.codecs;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.channels.ReadableByteChannel;
 import java.util.ArrayList;
 import java.util.List;
@@ -40,6 +41,7 @@ import org.apache.http.TruncatedChunkException;
 import org.apache.http.annotation.NotThreadSafe;
 import org.apache.http.impl.io.HttpTransportMetricsImpl;
 import org.apache.http.message.BufferedHeader;
+import org.apache.http.nio.FileContentDecoder;
 import org.apache.http.nio.reactor.SessionInputBuffer;
 import org.apache.http.protocol.HTTP;
 import org.apache.http.util.Args;
@@ -48,11 +50,15 @@ import org.apache.http.util.CharArrayBuffer;
 /**
  * Implements chunked transfer coding. The content is received in small chunks.
  * Entities transferred using this encoder can be of unlimited length.
+ * <p>
+ * This decoder is optimized to transfer chunk data directly from
+ * the underlying I/O session's channel to a {@link FileChannel}, whenever
+ * possible avoiding intermediate buffering in the session buffer.
  *
  * @since 4.0
  */
 @NotThreadSafe
-public class ChunkDecoder extends AbstractContentDecoder {
+public class ChunkDecoder extends AbstractContentDecoder implements FileContentDecoder {
 
     private static final int READ_CONTENT   = 0;
     private static final int READ_FOOTERS  = 1;
@@ -153,23 +159,81 @@ public class ChunkDecoder extends AbstractContentDecoder {
         this.trailerBufs.clear();
     }
 
+    private void fillBuffer() throws IOException {
+        int bytesRead = this.buffer.fill(this.channel);
+        if (bytesRead > 0) {
+            this.metrics.incrementBytesTransferred(bytesRead);
+        }
+        if (bytesRead == -1) {
+            this.endOfStream = true;
+        }
+    }
+
+    private long transferContent(
+            final FileChannel dst,
+            final long position,
+            final long maxLen) throws IOException {
+        if (!this.buffer.hasData()) {
+            if (!this.channel.isOpen()) {
+                this.endOfStream = true;
+                return 0;
+            }
+            if (position > dst.size()) {
+                throw new IOException("Position past end of file [" + position +
+                        " > " + dst.size() + "]");
+            }
+            long bytesRead = dst.transferFrom(this.channel, position, maxLen);
+            if (bytesRead > 0) {
+                this.metrics.incrementBytesTransferred(bytesRead);
+                return bytesRead;
+            }
+            // Nothing transferred. The channel may have reached the end of stream
+            fillBuffer();
+            if (!this.buffer.hasData()) {
+                return 0;
+            }
+        }
+        dst.position(position);
+        return this.buffer.read(dst, (int) Math.min(maxLen, this.buffer.length()));
+    }
+
     public int read(final ByteBuffer dst) throws IOException {
         Args.notNull(dst, "Byte buffer");
+        return (int) decode(dst, null, 0, 0);
+    }
+
+    /**
+     * Transfers a portion of chunk coded content to the given file channel.
+     * Chunk data that has not been read into the session buffer along with
+     * the chunk framing is transferred from the underlying I/O session's
+     * channel directly to the file.
+     *
+     * @since 4.3
+     */
+    public long transfer(
+            final FileChannel dst,
+            final long position,
+            final long count) throws IOException {
+        if (dst == null) {
+            return 0;
+        }
+        return decode(null, dst, position, count);
+    }
+
+    private long decode(
+            final ByteBuffer dst,
+            final FileChannel file,
+            final long position,
+            final long count) throws IOException {
         if (this.state == COMPLETED) {
             return -1;
         }
 
-        int totalRead = 0;
+        long totalRead = 0;
         while (this.state != COMPLETED) {
 
-            if (!this.buffer.hasData() || this.chunkSize == -1) {
-                int bytesRead = this.buffer.fill(this.channel);
-                if (bytesRead > 0) {
-                    this.metrics.incrementBytesTransferred(bytesRead);
-                }
-                if (bytesRead == -1) {
-                    this.endOfStream = true;
-                }
+            if (this.chunkSize == -1 || (file == null && !this.buffer.hasData())) {
+                fillBuffer();
             }
 
             switch (this.state) {
@@ -193,7 +257,15 @@ public class ChunkDecoder extends AbstractContentDecoder {
                     }
                 }
                 int maxLen = this.chunkSize - this.pos;
-                int len = this.buffer.read(dst, maxLen);
+                long len;
+                if (file != null) {
+                    if (totalRead >= count) {
+                        return totalRead;
+                    }
+                    len = transferContent(file, position + totalRead, Math.min(maxLen, count - totalRead));
+                } else {
+                    len = this.buffer.read(dst, maxLen);
+                }
                 if (len > 0) {
                     this.pos += len;
                     totalRead += len;
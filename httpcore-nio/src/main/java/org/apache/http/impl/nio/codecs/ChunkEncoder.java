@@ -29,31 +29,83 @@ package org.apache.http.impl.nio.codecs;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.channels.WritableByteChannel;
 
 import org.apache.http.annotation.NotThreadSafe;
 import org.apache.http.impl.io.HttpTransportMetricsImpl;
 import org.apache.http.io.BufferInfo;
+import org.apache.http.nio.FileContentEncoder;
 import org.apache.http.nio.reactor.SessionOutputBuffer;
+import org.apache.http.protocol.HTTP;
 import org.apache.http.util.CharArrayBuffer;
 
 /**
  * Implements chunked transfer coding. The content is sent in small chunks.
  * Entities transferred using this decoder can be of unlimited length.
+ * <p>
+ * If the underlying channel supports gathering writes, large chunks are
+ * not copied into the session buffer. Instead, the chunk header, the chunk
+ * data and the trailing line delimiter are written together with data
+ * pending in the session buffer using a single gathering write. If the
+ * channel accepts only part of the chunk data, the rest of the chunk is
+ * taken from content passed to subsequent {@link #write(ByteBuffer)} calls.
+ * <p>
+ * If a minimum chunk size is set, small writes are coalesced into chunks
+ * of at least that size. Content held back by the encoder is sent when
+ * the encoder is flushed, when content is written with the
+ * <code>moreData</code> hint set to <code>false</code> or when the content
+ * is completed.
+ * <p>
+ * Content transferred from a {@link FileChannel} is sent as chunks whose
+ * data is transferred directly to the underlying I/O session's channel.
  *
  * @since 4.0
  */
 @NotThreadSafe
-public class ChunkEncoder extends AbstractContentEncoder {
+public class ChunkEncoder extends AbstractContentEncoder implements FileContentEncoder {
+
+    private static final int DIRECT_WRITE_MIN = 2048;
 
     private final CharArrayBuffer lineBuffer;
 
     private final BufferInfo bufferinfo;
 
+    private final boolean gathering;
+    private final ByteBuffer chunkHeader;
+    private final ByteBuffer chunkTrailer;
+
+    private final int minChunkSize;
+
+    private int chunkRemaining;
+    private ByteBuffer pending;
+
     public ChunkEncoder(
             final WritableByteChannel channel,
             final SessionOutputBuffer buffer,
             final HttpTransportMetricsImpl metrics) {
+        this(channel, buffer, metrics, 0);
+    }
+
+    /**
+     * Creates an instance of this class.
+     *
+     * @param channel the destination channel.
+     * @param buffer the session output buffer that can be used to store
+     *    session data for intermediate processing.
+     * @param metrics Transport metrics of the underlying HTTP transport.
+     * @param minChunkSize minimum chunk size. If positive, content passed to
+     *    {@link #write(ByteBuffer)} is accumulated until at least this many
+     *    bytes can be sent as one chunk, the encoder is flushed or the content
+     *    is completed. Zero or negative value disables write coalescing.
+     *
+     * @since 4.3
+     */
+    public ChunkEncoder(
+            final WritableByteChannel channel,
+            final SessionOutputBuffer buffer,
+            final HttpTransportMetricsImpl metrics,
+            final int minChunkSize) {
         super(channel, buffer, metrics);
         this.lineBuffer = new CharArrayBuffer(16);
         if (buffer instanceof BufferInfo) {
@@ -61,34 +113,99 @@ public class ChunkEncoder extends AbstractContentEncoder {
         } else {
             this.bufferinfo = null;
         }
+        this.gathering = canGather();
+        this.chunkHeader = ByteBuffer.allocate(10);
+        this.chunkTrailer = ByteBuffer.allocate(2);
+        this.minChunkSize = minChunkSize > 0 ? minChunkSize : 0;
+    }
+
+    @Override
+    public boolean isGatheringWrites() {
+        return this.gathering;
+    }
+
+    /**
+     * Returns the minimum chunk size or <code>0</code> if write coalescing
+     * is disabled.
+     *
+     * @since 4.3
+     */
+    public int getMinChunkSize() {
+        return this.minChunkSize;
     }
 
     public int write(final ByteBuffer src) throws IOException {
-        if (src == null) {
-            return 0;
+        return write(src, this.minChunkSize > 0);
+    }
+
+    /**
+     * Writes a portion of entity content to the underlying channel. If write
+     * coalescing is enabled and <code>moreData</code> is <code>true</code>,
+     * content that is too small to form a chunk of the minimum size is held
+     * back until more content is written.
+     *
+     * @since 4.3
+     */
+    @Override
+    public int write(final ByteBuffer src, final boolean moreData) throws IOException {
+        int bytesWritten = 0;
+        if (src != null) {
+            assertNotCompleted();
+            if (this.minChunkSize > 0) {
+                bytesWritten = writeCoalesced(src);
+            } else {
+                bytesWritten = writeChunked(src, 1);
+            }
+        }
+        if (!moreData && !this.completed) {
+            writePending();
+        }
+        return bytesWritten;
+    }
+
+    /**
+     * Sends content held back by the encoder as a chunk of its own and
+     * flushes data pending in the session buffer to the channel.
+     *
+     * @since 4.3
+     */
+    @Override
+    public void flush() throws IOException {
+        if (!this.completed) {
+            writePending();
+        }
+        flushBuffer();
+    }
+
+    private int available() {
+        if (this.bufferinfo != null) {
+            return this.bufferinfo.available();
+        } else {
+            return 4096;
+        }
+    }
+
+    private int writeChunked(final ByteBuffer src, final int minChunk) throws IOException {
+        if (this.chunkRemaining > 0) {
+            return continueChunk(src);
         }
-        assertNotCompleted();
         int chunk = src.remaining();
         if (chunk == 0) {
             return 0;
         }
+        if (this.gathering && chunk >= DIRECT_WRITE_MIN) {
+            return writeChunk(src);
+        }
 
         long bytesWritten = this.buffer.flush(this.channel);
         if (bytesWritten > 0) {
             this.metrics.incrementBytesTransferred(bytesWritten);
         }
-        int avail;
-        if (this.bufferinfo != null) {
-            avail = this.bufferinfo.available();
-        } else {
-            avail = 4096;
-        }
-
         // subtract the length of the longest chunk header
         // 12345678\r\n
         // <chunk-data>\r\n
-        avail -= 12;
-        if (avail <= 0) {
+        int avail = available() - 12;
+        if (avail <= 0 || (avail < minChunk && this.buffer.hasData())) {
             return 0;
         } else if (avail < chunk) {
             // write no more than 'avail' bytes
@@ -112,9 +229,181 @@ public class ChunkEncoder extends AbstractContentEncoder {
         return chunk;
     }
 
+    private int writeCoalesced(final ByteBuffer src) throws IOException {
+        if (this.chunkRemaining > 0) {
+            return continueChunk(src);
+        }
+        int total = 0;
+        while (src.hasRemaining()) {
+            boolean empty = this.pending == null || this.pending.position() == 0;
+            if (empty && src.remaining() >= this.minChunkSize) {
+                // large enough to be sent as a chunk of its own
+                return total + writeChunked(src, this.minChunkSize);
+            }
+            if (this.pending == null) {
+                this.pending = ByteBuffer.allocate(this.minChunkSize);
+            }
+            if (!this.pending.hasRemaining()) {
+                if (!writePending(false)) {
+                    break;
+                }
+                continue;
+            }
+            int chunk = Math.min(src.remaining(), this.pending.remaining());
+            int oldLimit = src.limit();
+            src.limit(src.position() + chunk);
+            this.pending.put(src);
+            src.limit(oldLimit);
+            total += chunk;
+        }
+        if (this.pending != null && !this.pending.hasRemaining()) {
+            writePending(false);
+        }
+        return total;
+    }
+
+    private void writePending() throws IOException {
+        writePending(true);
+    }
+
+    private boolean writePending(final boolean force) throws IOException {
+        if (this.pending == null || this.pending.position() == 0) {
+            return true;
+        }
+        int chunk = this.pending.position();
+        if (!force) {
+            flushBuffer();
+            if (this.buffer.hasData() && available() < chunk + 12) {
+                return false;
+            }
+        }
+        this.pending.flip();
+        this.lineBuffer.clear();
+        this.lineBuffer.append(Integer.toHexString(chunk));
+        this.buffer.writeLine(this.lineBuffer);
+        this.buffer.write(this.pending);
+        this.lineBuffer.clear();
+        this.buffer.writeLine(this.lineBuffer);
+        this.pending.clear();
+        return true;
+    }
+
+    private void prepareTrailer() {
+        this.chunkTrailer.clear();
+        this.chunkTrailer.put((byte) HTTP.CR);
+        this.chunkTrailer.put((byte) HTTP.LF);
+        this.chunkTrailer.flip();
+    }
+
+    private int writeChunk(final ByteBuffer src) throws IOException {
+        int chunk = src.remaining();
+        String hex = Integer.toHexString(chunk);
+        this.chunkHeader.clear();
+        for (int i = 0; i < hex.length(); i++) {
+            this.chunkHeader.put((byte) hex.charAt(i));
+        }
+        this.chunkHeader.put((byte) HTTP.CR);
+        this.chunkHeader.put((byte) HTTP.LF);
+        this.chunkHeader.flip();
+        prepareTrailer();
+
+        int pos = src.position();
+        writeGathered(new ByteBuffer[] { this.chunkHeader, src, this.chunkTrailer });
+        int bytesWritten = src.position() - pos;
+        if (this.chunkHeader.hasRemaining()) {
+            // keep the unwritten part of the chunk header
+            this.buffer.write(this.chunkHeader);
+        }
+        this.chunkRemaining = chunk - bytesWritten;
+        if (this.chunkRemaining == 0 && this.chunkTrailer.hasRemaining()) {
+            this.buffer.write(this.chunkTrailer);
+        }
+        return bytesWritten;
+    }
+
+    private int continueChunk(final ByteBuffer src) throws IOException {
+        int chunk = Math.min(src.remaining(), this.chunkRemaining);
+        if (chunk == 0) {
+            return 0;
+        }
+        boolean last = chunk == this.chunkRemaining;
+        int oldLimit = src.limit();
+        src.limit(src.position() + chunk);
+        int pos = src.position();
+        if (last) {
+            prepareTrailer();
+        }
+        if (!this.gathering) {
+            // chunk header has been written by a file transfer
+            if (flushBuffer()) {
+                int bytesWritten = this.channel.write(src);
+                if (bytesWritten > 0) {
+                    this.metrics.incrementBytesTransferred(bytesWritten);
+                }
+            }
+        } else if (last) {
+            writeGathered(new ByteBuffer[] { src, this.chunkTrailer });
+        } else {
+            writeGathered(new ByteBuffer[] { src });
+        }
+        int bytesWritten = src.position() - pos;
+        src.limit(oldLimit);
+        this.chunkRemaining -= bytesWritten;
+        if (this.chunkRemaining == 0 && this.chunkTrailer.hasRemaining()) {
+            this.buffer.write(this.chunkTrailer);
+        }
+        return bytesWritten;
+    }
+
+    /**
+     * Transfers a portion of file content to the underlying channel as
+     * a chunk of its own. The chunk header and the trailing line delimiter
+     * are written through the session buffer while the chunk data is
+     * transferred directly from the file channel.
+     *
+     * @since 4.3
+     */
+    public long transfer(
+            final FileChannel src,
+            final long position,
+            final long count) throws IOException {
+        if (src == null) {
+            return 0;
+        }
+        assertNotCompleted();
+        writePending();
+        if (this.chunkRemaining == 0) {
+            long chunk = Math.min(Math.min(count, src.size() - position), Integer.MAX_VALUE);
+            if (chunk <= 0) {
+                return 0;
+            }
+            this.lineBuffer.clear();
+            this.lineBuffer.append(Integer.toHexString((int) chunk));
+            this.buffer.writeLine(this.lineBuffer);
+            this.chunkRemaining = (int) chunk;
+        }
+        if (!flushBuffer()) {
+            return 0;
+        }
+        long bytesWritten = transferFile(src, position, Math.min(count, this.chunkRemaining));
+        if (bytesWritten > 0) {
+            this.chunkRemaining -= (int) bytesWritten;
+            if (this.chunkRemaining == 0) {
+                this.lineBuffer.clear();
+                this.buffer.writeLine(this.lineBuffer);
+            }
+        }
+        return bytesWritten;
+    }
+
     @Override
     public void complete() throws IOException {
         assertNotCompleted();
+        if (this.chunkRemaining > 0) {
+            throw new IllegalStateException("Chunk data incomplete: "
+                    + this.chunkRemaining + " byte(s) remaining");
+        }
+        writePending();
         this.lineBuffer.clear();
         this.lineBuffer.append("0");
         this.buffer.writeLine(this.lineBuffer);
@@ -95,8 +95,35 @@ public class DefaultHttpRequestParser extends AbstractMessageParser<HttpRequest>
             final LineParser parser,
             final HttpRequestFactory requestFactory,
             final MessageConstraints constraints) {
-        super(buffer, parser, constraints);
-        this.requestFactory = requestFactory != null ? requestFactory : DefaultHttpRequestFactory.INSTANCE;
+        this(buffer, parser, requestFactory, constraints, false);
+    }
+
+    /**
+     * Creates an instance of DefaultHttpRequestParser.
+     *
+     * @param buffer the session input buffer.
+     * @param parser the line parser. If <code>null</code> {@link BasicLineParser#INSTANCE} will
+     *   be used.
+     * @param requestFactory the request factory. If <code>null</code>
+     *   {@link DefaultHttpRequestFactory#INSTANCE} will be used.
+     * @param constraints Message constraints. If <code>null</code>
+     *   {@link MessageConstraints#DEFAULT} will be used.
+     * @param sharedHeaderBuffer whether header lines of a message are to share
+     *   a single buffer. See
+     *   {@link AbstractMessageParser#AbstractMessageParser(SessionInputBuffer, LineParser,
+     *     MessageConstraints, boolean)}.
+     *
+     * @since 4.3
+     */
+    public DefaultHttpRequestParser(
+            final SessionInputBuffer buffer,
+            final LineParser parser,
+            final HttpRequestFactory requestFactory,
+            final MessageConstraints constraints,
+            boolean sharedHeaderBuffer) {
+        super(buffer, parser, constraints, sharedHeaderBuffer);
+        this.requestFactory = requestFactory != null ? requestFactory :
+            DefaultHttpRequestFactory.INSTANCE;
     }
 
     /**
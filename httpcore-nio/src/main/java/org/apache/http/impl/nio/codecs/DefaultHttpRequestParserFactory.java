@@ -50,13 +50,28 @@ public class DefaultHttpRequestParserFactory implements NHttpMessageParserFactor
 
     private final LineParser lineParser;
     private final HttpRequestFactory requestFactory;
+    private final boolean sharedHeaderBuffer;
 
+    /**
+     * @param sharedHeaderBuffer whether header lines of a message are to share
+     *   a single buffer. See
+     *   {@link AbstractMessageParser#AbstractMessageParser(SessionInputBuffer, LineParser,
+     *     MessageConstraints, boolean)}.
+     *
+     * @since 4.3
+     */
     public DefaultHttpRequestParserFactory(final LineParser lineParser,
-            final HttpRequestFactory requestFactory) {
+            final HttpRequestFactory requestFactory, boolean sharedHeaderBuffer) {
         super();
         this.lineParser = lineParser != null ? lineParser : BasicLineParser.INSTANCE;
         this.requestFactory = requestFactory != null ? requestFactory
                 : DefaultHttpRequestFactory.INSTANCE;
+        this.sharedHeaderBuffer = sharedHeaderBuffer;
+    }
+
+    public DefaultHttpRequestParserFactory(final LineParser lineParser,
+            final HttpRequestFactory requestFactory) {
+        this(lineParser, requestFactory, false);
     }
 
     public DefaultHttpRequestParserFactory() {
@@ -65,7 +80,8 @@ public class DefaultHttpRequestParserFactory implements NHttpMessageParserFactor
 
     public NHttpMessageParser<HttpRequest> create(final SessionInputBuffer buffer,
             final MessageConstraints constraints) {
-        return new DefaultHttpRequestParser(buffer, lineParser, requestFactory, constraints);
+        return new DefaultHttpRequestParser(buffer, lineParser, requestFactory, constraints,
+                sharedHeaderBuffer);
     }
 
 }
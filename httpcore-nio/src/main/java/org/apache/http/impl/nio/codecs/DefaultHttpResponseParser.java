@@ -89,7 +89,33 @@ public class DefaultHttpResponseParser extends AbstractMessageParser<HttpRespons
             final LineParser parser,
             final HttpResponseFactory responseFactory,
             final MessageConstraints constraints) {
-        super(buffer, parser, constraints);
+        this(buffer, parser, responseFactory, constraints, false);
+    }
+
+    /**
+     * Creates an instance of DefaultHttpResponseParser.
+     *
+     * @param buffer the session input buffer.
+     * @param parser the line parser. If <code>null</code> {@link BasicLineParser#INSTANCE} will
+     *   be used.
+     * @param responseFactory the response factory. If <code>null</code>
+     *   {@link DefaultHttpResponseFactory#INSTANCE} will be used.
+     * @param constraints Message constraints. If <code>null</code>
+     *   {@link MessageConstraints#DEFAULT} will be used.
+     * @param sharedHeaderBuffer whether header lines of a message are to share
+     *   a single buffer. See
+     *   {@link AbstractMessageParser#AbstractMessageParser(SessionInputBuffer, LineParser,
+     *     MessageConstraints, boolean)}.
+     *
+     * @since 4.3
+     */
+    public DefaultHttpResponseParser(
+            final SessionInputBuffer buffer,
+            final LineParser parser,
+            final HttpResponseFactory responseFactory,
+            final MessageConstraints constraints,
+            boolean sharedHeaderBuffer) {
+        super(buffer, parser, constraints, sharedHeaderBuffer);
         this.responseFactory = responseFactory != null ? responseFactory :
             DefaultHttpResponseFactory.INSTANCE;
     }
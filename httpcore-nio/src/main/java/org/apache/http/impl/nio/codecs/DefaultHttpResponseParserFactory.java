@@ -50,13 +50,28 @@ public class DefaultHttpResponseParserFactory implements NHttpMessageParserFacto
 
     private final LineParser lineParser;
     private final HttpResponseFactory responseFactory;
+    private final boolean sharedHeaderBuffer;
 
+    /**
+     * @param sharedHeaderBuffer whether header lines of a message are to share
+     *   a single buffer. See
+     *   {@link AbstractMessageParser#AbstractMessageParser(SessionInputBuffer, LineParser,
+     *     MessageConstraints, boolean)}.
+     *
+     * @since 4.3
+     */
     public DefaultHttpResponseParserFactory(final LineParser lineParser,
-            final HttpResponseFactory responseFactory) {
+            final HttpResponseFactory responseFactory, boolean sharedHeaderBuffer) {
         super();
         this.lineParser = lineParser != null ? lineParser : BasicLineParser.INSTANCE;
         this.responseFactory = responseFactory != null ? responseFactory
                 : DefaultHttpResponseFactory.INSTANCE;
+        this.sharedHeaderBuffer = sharedHeaderBuffer;
+    }
+
+    public DefaultHttpResponseParserFactory(final LineParser lineParser,
+            final HttpResponseFactory responseFactory) {
+        this(lineParser, responseFactory, false);
     }
 
     public DefaultHttpResponseParserFactory() {
@@ -65,7 +80,8 @@ public class DefaultHttpResponseParserFactory implements NHttpMessageParserFacto
 
     public NHttpMessageParser<HttpResponse> create(final SessionInputBuffer buffer,
             final MessageConstraints constraints) {
-        return new DefaultHttpResponseParser(buffer, lineParser, responseFactory, constraints);
+        return new DefaultHttpResponseParser(buffer, lineParser, responseFactory, constraints,
+                sharedHeaderBuffer);
     }
 
 }
@@ -53,11 +53,19 @@ import org.apache.http.nio.reactor.SessionOutputBuffer;
 public class IdentityEncoder extends AbstractContentEncoder
         implements FileContentEncoder {
 
+    private final boolean gathering;
+
     public IdentityEncoder(
             final WritableByteChannel channel,
             final SessionOutputBuffer buffer,
             final HttpTransportMetricsImpl metrics) {
         super(channel, buffer, metrics);
+        this.gathering = canGather();
+    }
+
+    @Override
+    public boolean isGatheringWrites() {
+        return this.gathering;
     }
 
     public int write(final ByteBuffer src) throws IOException {
@@ -65,6 +73,11 @@ public class IdentityEncoder extends AbstractContentEncoder
             return 0;
         }
         assertNotCompleted();
+        if (this.gathering && this.buffer.hasData()) {
+            int pos = src.position();
+            writeGathered(new ByteBuffer[] { src });
+            return src.position() - pos;
+        }
         int bytesWritten = this.channel.write(src);
         if (bytesWritten > 0) {
             this.metrics.incrementBytesTransferred(bytesWritten);
@@ -81,11 +94,10 @@ public class IdentityEncoder extends AbstractContentEncoder
             return 0;
         }
         assertNotCompleted();
-        long bytesWritten = src.transferTo(position, count, this.channel);
-        if (bytesWritten > 0) {
-            this.metrics.incrementBytesTransferred(bytesWritten);
+        if (!flushBuffer()) {
+            return 0;
         }
-        return bytesWritten;
+        return transferFile(src, position, count);
     }
 
     @Override
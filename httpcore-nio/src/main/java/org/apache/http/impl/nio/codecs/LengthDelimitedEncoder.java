@@ -56,6 +56,7 @@ public class LengthDelimitedEncoder extends AbstractContentEncoder
         implements FileContentEncoder {
 
     private final long contentLength;
+    private final boolean gathering;
 
     private long len;
 
@@ -68,6 +69,25 @@ public class LengthDelimitedEncoder extends AbstractContentEncoder
         Args.notNegative(contentLength, "Content length");
         this.contentLength = contentLength;
         this.len = 0;
+        this.gathering = canGather();
+    }
+
+    @Override
+    public boolean isGatheringWrites() {
+        return this.gathering;
+    }
+
+    private int writeContent(final ByteBuffer src) throws IOException {
+        if (this.gathering && this.buffer.hasData()) {
+            int pos = src.position();
+            writeGathered(new ByteBuffer[] { src });
+            return src.position() - pos;
+        }
+        int bytesWritten = this.channel.write(src);
+        if (bytesWritten > 0) {
+            this.metrics.incrementBytesTransferred(bytesWritten);
+        }
+        return bytesWritten;
     }
 
     public int write(final ByteBuffer src) throws IOException {
@@ -82,13 +102,10 @@ public class LengthDelimitedEncoder extends AbstractContentEncoder
             int oldLimit = src.limit();
             int newLimit = oldLimit - (src.remaining() - chunk);
             src.limit(newLimit);
-            bytesWritten = this.channel.write(src);
+            bytesWritten = writeContent(src);
             src.limit(oldLimit);
         } else {
-            bytesWritten = this.channel.write(src);
-        }
-        if (bytesWritten > 0) {
-            this.metrics.incrementBytesTransferred(bytesWritten);
+            bytesWritten = writeContent(src);
         }
         this.len += bytesWritten;
         if (this.len >= this.contentLength) {
@@ -106,11 +123,11 @@ public class LengthDelimitedEncoder extends AbstractContentEncoder
             return 0;
         }
         assertNotCompleted();
-        long chunk = Math.min((this.contentLength - this.len), count);
-        long bytesWritten = src.transferTo(position, chunk, this.channel);
-        if (bytesWritten > 0) {
-            this.metrics.incrementBytesTransferred(bytesWritten);
+        if (!flushBuffer()) {
+            return 0;
         }
+        long chunk = Math.min((this.contentLength - this.len), count);
+        long bytesWritten = transferFile(src, position, chunk);
         this.len += bytesWritten;
         if (this.len >= this.contentLength) {
             this.completed = true;
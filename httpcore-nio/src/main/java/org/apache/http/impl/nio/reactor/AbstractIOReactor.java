@@ -35,11 +35,15 @@ import java.nio.channels.ClosedSelectorException;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
 import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.http.annotation.ThreadSafe;
 import org.apache.http.nio.reactor.IOReactor;
@@ -56,7 +60,10 @@ import org.apache.http.util.Args;
  * @since 4.0
  */
 @ThreadSafe // public methods only
-public abstract class AbstractIOReactor implements IOReactor {
+public abstract class AbstractIOReactor implements IOReactor, DispatcherStats {
+
+    private static final int TIMEOUT_WHEEL_SIZE = 512;
+    private static final long BUSY_RATIO_PERIOD = 1000000000L;
 
     private volatile IOReactorStatus status;
 
@@ -65,9 +72,24 @@ public abstract class AbstractIOReactor implements IOReactor {
     private final boolean interestOpsQueueing;
     private final Selector selector;
     private final Set<IOSession> sessions;
-    private final Queue<InterestOpEntry> interestOpsQueue;
+    private final Queue<IOSessionImpl> interestOpsQueue;
+    private final InterestOpsCallback interestOpsCallback;
+    private final AtomicBoolean wakeupPending;
     private final Queue<IOSession> closedSessions;
     private final Queue<ChannelEntry> newChannels;
+    private final SessionTimeoutWheel timeoutWheel;
+    private final List<IOSessionImpl> timedOutSessions;
+    private final AtomicInteger pendingChannelCount;
+
+    private volatile Thread dispatchThread;
+    private volatile IOReactorStatsListener statsListener;
+
+    // select loop statistics; written by the I/O dispatch thread only
+    private volatile long selectCount;
+    private volatile long busyTime;
+    private volatile double recentBusyRatio;
+    private long periodStart;
+    private long periodBusyTime;
 
     /**
      * Creates new AbstractIOReactor instance.
@@ -90,14 +112,50 @@ public abstract class AbstractIOReactor implements IOReactor {
      * @since 4.1
      */
     public AbstractIOReactor(long selectTimeout, boolean interestOpsQueueing) throws IOReactorException {
+        this(selectTimeout, interestOpsQueueing, false);
+    }
+
+    /**
+     * Creates new AbstractIOReactor instance.
+     *
+     * @param selectTimeout the select timeout.
+     * @param interestOpsQueueing Ops queueing flag.
+     * @param timeoutWheelEnabled if <code>true</code> session timeouts will be
+     *   tracked using a timing wheel instead of a full scan of all sessions.
+     *
+     * @throws IOReactorException in case if a non-recoverable I/O error.
+     *
+     * @since 4.3
+     */
+    public AbstractIOReactor(
+            long selectTimeout,
+            boolean interestOpsQueueing,
+            boolean timeoutWheelEnabled) throws IOReactorException {
         super();
         Args.positive(selectTimeout, "Select timeout");
         this.selectTimeout = selectTimeout;
         this.interestOpsQueueing = interestOpsQueueing;
         this.sessions = Collections.synchronizedSet(new HashSet<IOSession>());
-        this.interestOpsQueue = new ConcurrentLinkedQueue<InterestOpEntry>();
+        this.interestOpsQueue = new ConcurrentLinkedQueue<IOSessionImpl>();
+        this.interestOpsCallback = new InterestOpsCallback() {
+
+            public void addInterestOps(final IOSessionImpl session) {
+                queueInterestOps(session);
+            }
+
+        };
+        this.wakeupPending = new AtomicBoolean(false);
         this.closedSessions = new ConcurrentLinkedQueue<IOSession>();
         this.newChannels = new ConcurrentLinkedQueue<ChannelEntry>();
+        this.pendingChannelCount = new AtomicInteger(0);
+        if (timeoutWheelEnabled) {
+            this.timeoutWheel = new SessionTimeoutWheel(
+                    selectTimeout, TIMEOUT_WHEEL_SIZE, System.currentTimeMillis());
+            this.timedOutSessions = new ArrayList<IOSessionImpl>();
+        } else {
+            this.timeoutWheel = null;
+            this.timedOutSessions = null;
+        }
         try {
             this.selector = Selector.open();
         } catch (IOException ex) {
@@ -210,6 +268,16 @@ public abstract class AbstractIOReactor implements IOReactor {
         return this.interestOpsQueueing;
     }
 
+    /**
+     * Returns <code>true</code> if session timeouts are tracked using a timing wheel,
+     * <code>false</code> if all sessions are scanned for timeouts.
+     *
+     * @since 4.3
+     */
+    public boolean isTimeoutWheelEnabled() {
+        return this.timeoutWheel != null;
+    }
+
     /**
      * Adds new channel entry. The channel will be asynchronously registered
      * with the selector.
@@ -218,8 +286,84 @@ public abstract class AbstractIOReactor implements IOReactor {
      */
     public void addChannel(final ChannelEntry channelEntry) {
         Args.notNull(channelEntry, "Channel entry");
+        this.pendingChannelCount.incrementAndGet();
         this.newChannels.add(channelEntry);
-        this.selector.wakeup();
+        wakeupSelector();
+    }
+
+    /**
+     * Wakes up the selector unless called by the I/O dispatch thread, which
+     * is bound to re-enter {@link Selector#select(long)} only after having
+     * processed pending changes. Wake-ups requested by other threads are
+     * coalesced until the selector returns.
+     */
+    private void wakeupSelector() {
+        if (Thread.currentThread() == this.dispatchThread) {
+            return;
+        }
+        if (this.wakeupPending.compareAndSet(false, true)) {
+            this.selector.wakeup();
+        }
+    }
+
+    /**
+     * @since 4.3
+     */
+    public int getSessionCount() {
+        return this.sessions.size() + Math.max(0, this.pendingChannelCount.get());
+    }
+
+    /**
+     * @since 4.3
+     */
+    public long getSelectCount() {
+        return this.selectCount;
+    }
+
+    /**
+     * @since 4.3
+     */
+    public long getBusyTime() {
+        return this.busyTime;
+    }
+
+    /**
+     * @since 4.3
+     */
+    public double getRecentBusyRatio() {
+        return this.recentBusyRatio;
+    }
+
+    /**
+     * Sets the listener to be notified of select loop statistics.
+     *
+     * @param statsListener the statistics listener. Can be <code>null</code>
+     *   in which case no statistics will be reported.
+     *
+     * @since 4.3
+     */
+    public void setStatsListener(final IOReactorStatsListener statsListener) {
+        this.statsListener = statsListener;
+    }
+
+    /**
+     * @since 4.3
+     */
+    public IOReactorStatsListener getStatsListener() {
+        return this.statsListener;
+    }
+
+    private void updateLoopStats(long loopStart, long now) {
+        long busy = now - loopStart;
+        this.selectCount++;
+        this.busyTime += busy;
+        this.periodBusyTime += busy;
+        long elapsed = now - this.periodStart;
+        if (elapsed >= BUSY_RATIO_PERIOD) {
+            this.recentBusyRatio = Math.min(1.0, (double) this.periodBusyTime / elapsed);
+            this.periodStart = now;
+            this.periodBusyTime = 0;
+        }
     }
 
     /**
@@ -237,6 +381,7 @@ public abstract class AbstractIOReactor implements IOReactor {
      * @see #readable(SelectionKey)
      * @see #writable(SelectionKey)
      * @see #timeoutCheck(SelectionKey, long)
+     * @see #timeoutCheck(long)
      * @see #validate(Set)
      * @see #sessionCreated(SelectionKey, IOSession)
      * @see #sessionClosed(IOSession)
@@ -246,10 +391,15 @@ public abstract class AbstractIOReactor implements IOReactor {
      */
     protected void execute() throws InterruptedIOException, IOReactorException {
         this.status = IOReactorStatus.ACTIVE;
+        this.dispatchThread = Thread.currentThread();
+        this.periodStart = System.nanoTime();
 
         try {
             for (;;) {
 
+                IOReactorStatsListener statsListener = this.statsListener;
+                long selectStart = statsListener != null ? System.nanoTime() : 0;
+
                 int readyCount;
                 try {
                     readyCount = this.selector.select(this.selectTimeout);
@@ -258,6 +408,12 @@ public abstract class AbstractIOReactor implements IOReactor {
                 } catch (IOException ex) {
                     throw new IOReactorException("Unexpected selector failure", ex);
                 }
+                long loopStart = System.nanoTime();
+                // Changes made from now on will be picked up before the next select
+                this.wakeupPending.set(false);
+                if (statsListener != null) {
+                    statsListener.selectCompleted(loopStart - selectStart, readyCount);
+                }
 
                 if (this.status == IOReactorStatus.SHUT_DOWN) {
                     // Hard shut down. Exit select loop immediately
@@ -271,6 +427,10 @@ public abstract class AbstractIOReactor implements IOReactor {
                     closeNewChannels();
                 }
 
+                int newChannelCount = 0;
+                int closedSessionCount = 0;
+                int interestOpsCount = 0;
+
                 // Process selected I/O events
                 if (readyCount > 0) {
                     processEvents(this.selector.selectedKeys());
@@ -280,11 +440,11 @@ public abstract class AbstractIOReactor implements IOReactor {
                 validate(this.selector.keys());
 
                 // Process closed sessions
-                processClosedSessions();
+                closedSessionCount = processClosedSessions();
 
                 // If active process new channels
                 if (this.status == IOReactorStatus.ACTIVE) {
-                    processNewChannels();
+                    newChannelCount = processNewChannels();
                 }
 
                 // Exit select loop if graceful shutdown has been completed
@@ -295,13 +455,21 @@ public abstract class AbstractIOReactor implements IOReactor {
 
                 if (this.interestOpsQueueing) {
                     // process all pending interestOps() operations
-                    processPendingInterestOps();
+                    interestOpsCount = processPendingInterestOps();
                 }
 
+                long loopEnd = System.nanoTime();
+                updateLoopStats(loopStart, loopEnd);
+                if (statsListener != null) {
+                    statsListener.loopCompleted(loopEnd - loopStart,
+                            newChannelCount, closedSessionCount, interestOpsCount,
+                            this.sessions.size());
+                }
             }
 
         } catch (ClosedSelectorException ex) {
         } finally {
+            this.dispatchThread = null;
             hardShutdown();
             synchronized (this.statusMutex) {
                 this.statusMutex.notifyAll();
@@ -357,9 +525,12 @@ public abstract class AbstractIOReactor implements IOReactor {
         }
     }
 
-    private void processNewChannels() throws IOReactorException {
+    private int processNewChannels() throws IOReactorException {
+        int count = 0;
         ChannelEntry entry;
         while ((entry = this.newChannels.poll()) != null) {
+            this.pendingChannelCount.decrementAndGet();
+            count++;
 
             SocketChannel channel;
             SelectionKey key;
@@ -372,7 +543,7 @@ public abstract class AbstractIOReactor implements IOReactor {
                 if (sessionRequest != null) {
                     sessionRequest.failed(ex);
                 }
-                return;
+                return count;
 
             } catch (IOException ex) {
                 throw new IOReactorException("Failure registering channel " +
@@ -387,18 +558,19 @@ public abstract class AbstractIOReactor implements IOReactor {
 
             };
 
-            InterestOpsCallback interestOpsCallback = null;
-            if (this.interestOpsQueueing) {
-                interestOpsCallback = new InterestOpsCallback() {
+            SessionTimeoutCallback sessionTimeoutCallback = null;
+            if (this.timeoutWheel != null) {
+                sessionTimeoutCallback = new SessionTimeoutCallback() {
 
-                    public void addInterestOps(final InterestOpEntry entry) {
-                        queueInterestOps(entry);
+                    public void socketTimeoutChanged(final IOSessionImpl session) {
+                        timeoutWheel.schedule(session);
                     }
 
                 };
             }
 
-            IOSession session = new IOSessionImpl(key, interestOpsCallback, sessionClosedCallback);
+            IOSession session = new IOSessionImpl(
+                    key, this.interestOpsCallback, sessionClosedCallback, sessionTimeoutCallback);
 
             int timeout = 0;
             try {
@@ -425,12 +597,18 @@ public abstract class AbstractIOReactor implements IOReactor {
                 key.attach(null);
             }
         }
+        return count;
     }
 
-    private void processClosedSessions() {
+    private int processClosedSessions() {
+        int count = 0;
         IOSession session;
         while ((session = this.closedSessions.poll()) != null) {
             if (this.sessions.remove(session)) {
+                count++;
+                if (this.timeoutWheel != null) {
+                    this.timeoutWheel.cancel((IOSessionImpl) session);
+                }
                 try {
                     sessionClosed(session);
                 } catch (CancelledKeyException ex) {
@@ -438,37 +616,45 @@ public abstract class AbstractIOReactor implements IOReactor {
                 }
             }
         }
+        return count;
     }
 
-    private void processPendingInterestOps() {
+    private int processPendingInterestOps() {
         // validity check
         if (!this.interestOpsQueueing) {
-            return;
+            return 0;
         }
-        InterestOpEntry entry;
-        while ((entry = this.interestOpsQueue.poll()) != null) {
-            // obtain the operation's details
-            SelectionKey key = entry.getSelectionKey();
-            int eventMask = entry.getEventMask();
-            if (key.isValid()) {
-                key.interestOps(eventMask);
-            }
+        int count = 0;
+        IOSessionImpl session;
+        while ((session = this.interestOpsQueue.poll()) != null) {
+            // apply the most recent event mask of the session
+            session.applyPendingEventMask();
+            count++;
         }
+        return count;
     }
 
-    private boolean queueInterestOps(final InterestOpEntry entry) {
-        // validity checks
-        if (!this.interestOpsQueueing) {
-            throw new IllegalStateException("Interest ops queueing not enabled");
+    /**
+     * Invoked by I/O sessions whose event mask has changed, while holding
+     * the session lock. The owning I/O dispatch thread applies the event
+     * mask immediately; other threads either apply it directly or, if
+     * interestOps() queueing is enabled, leave it to the dispatch thread.
+     * In the latter case a session is queued at most once per select
+     * loop no matter how often its event mask changes.
+     */
+    private void queueInterestOps(final IOSessionImpl session) {
+        if (Thread.currentThread() == this.dispatchThread) {
+            session.applyEventMask();
+            return;
         }
-        if (entry == null) {
-            return false;
+        if (this.interestOpsQueueing) {
+            if (session.markEventMaskPending()) {
+                this.interestOpsQueue.add(session);
+            }
+        } else {
+            session.applyEventMask();
         }
-
-        // add this operation to the interestOps() queue
-        this.interestOpsQueue.add(entry);
-
-        return true;
+        wakeupSelector();
     }
 
     /**
@@ -492,6 +678,33 @@ public abstract class AbstractIOReactor implements IOReactor {
         }
     }
 
+    /**
+     * Triggered to verify whether any of the I/O sessions tracked by the timeout
+     * wheel have timed out. This method has no effect unless the timeout wheel
+     * is enabled.
+     * <p>
+     * Super-classes can invoke this method from {@link #validate(Set)}.
+     *
+     * @param now current time as long value.
+     *
+     * @since 4.3
+     */
+    protected void timeoutCheck(long now) {
+        if (this.timeoutWheel == null) {
+            return;
+        }
+        this.timeoutWheel.expire(now, this.timedOutSessions);
+        if (!this.timedOutSessions.isEmpty()) {
+            try {
+                for (int i = 0; i < this.timedOutSessions.size(); i++) {
+                    sessionTimedOut(this.timedOutSessions.get(i));
+                }
+            } finally {
+                this.timedOutSessions.clear();
+            }
+        }
+    }
+
     /**
      * Closes out all I/O sessions maintained by this I/O reactor.
      */
@@ -511,6 +724,7 @@ public abstract class AbstractIOReactor implements IOReactor {
     protected void closeNewChannels() throws IOReactorException {
         ChannelEntry entry;
         while ((entry = this.newChannels.poll()) != null) {
+            this.pendingChannelCount.decrementAndGet();
             SessionRequestImpl sessionRequest = entry.getSessionRequest();
             if (sessionRequest != null) {
                 sessionRequest.cancel();
@@ -571,6 +785,9 @@ public abstract class AbstractIOReactor implements IOReactor {
         closeNewChannels();
         closeActiveChannels();
         processClosedSessions();
+        if (this.timeoutWheel != null) {
+            this.timeoutWheel.clear();
+        }
     }
 
     /**
@@ -37,6 +37,8 @@ import java.nio.channels.SelectableChannel;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.concurrent.ThreadFactory;
@@ -112,6 +114,7 @@ public abstract class AbstractMultiworkerIOReactor implements IOReactor {
     private final int workerCount;
     private final ThreadFactory threadFactory;
     private final BaseIOReactor[] dispatchers;
+    private final List<BaseIOReactor> dispatcherList;
     private final Worker[] workers;
     private final Thread[] threads;
     private final Object statusLock;
@@ -119,7 +122,8 @@ public abstract class AbstractMultiworkerIOReactor implements IOReactor {
     protected IOReactorExceptionHandler exceptionHandler;
     protected List<ExceptionEvent> auditLog;
 
-    private int currentWorker = 0;
+    private volatile DispatcherSelectionStrategy dispatcherSelectionStrategy;
+    private volatile IOReactorStatsListenerFactory statsListenerFactory;
 
     /**
      * Creates an instance of AbstractMultiworkerIOReactor with the given configuration.
@@ -152,6 +156,8 @@ public abstract class AbstractMultiworkerIOReactor implements IOReactor {
         }
         this.workerCount = this.config.getIoThreadCount();
         this.dispatchers = new BaseIOReactor[workerCount];
+        this.dispatcherList = Collections.unmodifiableList(Arrays.asList(this.dispatchers));
+        this.dispatcherSelectionStrategy = new RoundRobinDispatcherSelectionStrategy();
         this.workers = new Worker[workerCount];
         this.threads = new Thread[workerCount];
         this.status = IOReactorStatus.INACTIVE;
@@ -262,6 +268,75 @@ public abstract class AbstractMultiworkerIOReactor implements IOReactor {
         this.exceptionHandler = exceptionHandler;
     }
 
+    /**
+     * Sets the strategy used to assign new channels to the worker I/O
+     * reactors. Defaults to {@link RoundRobinDispatcherSelectionStrategy}.
+     *
+     * @param strategy the dispatcher selection strategy.
+     *
+     * @since 4.3
+     */
+    public void setDispatcherSelectionStrategy(final DispatcherSelectionStrategy strategy) {
+        Args.notNull(strategy, "Dispatcher selection strategy");
+        this.dispatcherSelectionStrategy = strategy;
+    }
+
+    /**
+     * Sets the factory of listeners collecting select loop statistics of
+     * the worker I/O reactors. The factory is used once for each worker
+     * when this I/O reactor is started. No statistics are collected by
+     * default.
+     *
+     * @param statsListenerFactory the statistics listener factory.
+     *   Can be <code>null</code>.
+     *
+     * @see IOReactorStatistics#FACTORY
+     *
+     * @since 4.3
+     */
+    public void setStatsListenerFactory(final IOReactorStatsListenerFactory statsListenerFactory) {
+        this.statsListenerFactory = statsListenerFactory;
+    }
+
+    /**
+     * Returns the statistics listeners of the worker I/O reactors started
+     * by this I/O reactor in the order of the workers. Workers without
+     * a listener are represented by <code>null</code> elements.
+     *
+     * @return list of statistics listeners.
+     *
+     * @since 4.3
+     */
+    public List<IOReactorStatsListener> getStatsListeners() {
+        List<IOReactorStatsListener> listeners =
+            new ArrayList<IOReactorStatsListener>(this.workerCount);
+        for (BaseIOReactor dispatcher: this.dispatchers) {
+            if (dispatcher != null) {
+                listeners.add(dispatcher.getStatsListener());
+            }
+        }
+        return listeners;
+    }
+
+    /**
+     * Returns statistics of the worker I/O reactors started by this
+     * I/O reactor. The returned objects are live views updated by
+     * the worker threads.
+     *
+     * @return list of per-dispatcher statistics.
+     *
+     * @since 4.3
+     */
+    public List<DispatcherStats> getDispatcherStats() {
+        List<DispatcherStats> stats = new ArrayList<DispatcherStats>(this.workerCount);
+        for (BaseIOReactor dispatcher: this.dispatchers) {
+            if (dispatcher != null) {
+                stats.add(dispatcher);
+            }
+        }
+        return stats;
+    }
+
     /**
      * Triggered to process I/O events registered by the main {@link Selector}.
      * <p>
@@ -318,8 +393,12 @@ public abstract class AbstractMultiworkerIOReactor implements IOReactor {
             this.status = IOReactorStatus.ACTIVE;
             // Start I/O dispatchers
             for (int i = 0; i < this.dispatchers.length; i++) {
-                BaseIOReactor dispatcher = new BaseIOReactor(this.selectTimeout, this.interestOpsQueueing);
+                BaseIOReactor dispatcher = new BaseIOReactor(
+                        this.selectTimeout, this.interestOpsQueueing, this.config.isTimeoutWheelEnabled());
                 dispatcher.setExceptionHandler(exceptionHandler);
+                if (this.statsListenerFactory != null) {
+                    dispatcher.setStatsListener(this.statsListenerFactory.create(i));
+                }
                 this.dispatchers[i] = dispatcher;
             }
             for (int i = 0; i < this.workerCount; i++) {
@@ -466,6 +545,17 @@ public abstract class AbstractMultiworkerIOReactor implements IOReactor {
         }
     }
 
+    /**
+     * Returns the factory used to create the threads of this I/O reactor.
+     * Subclasses that run additional threads should create them with this
+     * factory too.
+     *
+     * @since 4.3
+     */
+    protected ThreadFactory getThreadFactory() {
+        return this.threadFactory;
+    }
+
     /**
      * Assigns the given channel entry to one of the worker I/O reactors.
      *
@@ -473,7 +563,10 @@ public abstract class AbstractMultiworkerIOReactor implements IOReactor {
      */
     protected void addChannel(final ChannelEntry entry) {
         // Distribute new channels among the workers
-        int i = Math.abs(this.currentWorker++ % this.workerCount);
+        int i = this.dispatcherSelectionStrategy.select(this.dispatcherList);
+        if (i < 0 || i >= this.workerCount) {
+            throw new IllegalStateException("Invalid dispatcher index: " + i);
+        }
         this.dispatchers[i].addChannel(entry);
     }
 
@@ -84,7 +84,26 @@ public class BaseIOReactor extends AbstractIOReactor {
      */
     public BaseIOReactor(
             long selectTimeout, boolean interestOpsQueueing) throws IOReactorException {
-        super(selectTimeout, interestOpsQueueing);
+        this(selectTimeout, interestOpsQueueing, false);
+    }
+
+    /**
+     * Creates new BaseIOReactor instance.
+     *
+     * @param selectTimeout the select timeout.
+     * @param interestOpsQueueing Ops queueing flag.
+     * @param timeoutWheelEnabled if <code>true</code> session timeouts will be
+     *   tracked using a timing wheel instead of a full scan of all sessions.
+     *
+     * @throws IOReactorException in case if a non-recoverable I/O error.
+     *
+     * @since 4.3
+     */
+    public BaseIOReactor(
+            long selectTimeout,
+            boolean interestOpsQueueing,
+            boolean timeoutWheelEnabled) throws IOReactorException {
+        super(selectTimeout, interestOpsQueueing, timeoutWheelEnabled);
         this.bufferingSessions = new HashSet<IOSession>();
         this.timeoutCheckInterval = selectTimeout;
         this.lastTimeoutCheck = System.currentTimeMillis();
@@ -189,7 +208,8 @@ public class BaseIOReactor extends AbstractIOReactor {
     /**
      * Verifies whether any of the sessions associated with the given selection
      * keys timed out by invoking the {@link #timeoutCheck(SelectionKey, long)}
-     * method.
+     * method. If the timeout wheel is enabled only sessions whose timeout
+     * is due are checked by invoking the {@link #timeoutCheck(long)} method.
      * <p>
      * This method will also invoke the
      * {@link IOEventDispatch#inputReady(IOSession)} method on all sessions
@@ -198,7 +218,9 @@ public class BaseIOReactor extends AbstractIOReactor {
     @Override
     protected void validate(final Set<SelectionKey> keys) {
         long currentTime = System.currentTimeMillis();
-        if( (currentTime - this.lastTimeoutCheck) >= this.timeoutCheckInterval) {
+        if (isTimeoutWheelEnabled()) {
+            timeoutCheck(currentTime);
+        } else if( (currentTime - this.lastTimeoutCheck) >= this.timeoutCheckInterval) {
             this.lastTimeoutCheck = currentTime;
             if (keys != null) {
                 for (SelectionKey key : keys) {
@@ -28,18 +28,27 @@
 package org.apache.http.impl.nio.reactor;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.net.SocketAddress;
 import java.nio.channels.CancelledKeyException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ClosedSelectorException;
 import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
 import java.nio.channels.ServerSocketChannel;
 import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.http.annotation.ThreadSafe;
 import org.apache.http.nio.reactor.IOReactorException;
@@ -62,9 +71,14 @@ public class DefaultListeningIOReactor extends AbstractMultiworkerIOReactor
 
     private final Queue<ListenerEndpointImpl> requestQueue;
     private final Set<ListenerEndpointImpl> endpoints;
-    private final Set<SocketAddress> pausedEndpoints;
+    private final Map<SocketAddress, Integer> pausedEndpoints;
+    private final int acceptBatchSize;
+    private final AtomicLong acceptedCount;
+    private final AtomicLong acceptBatchLimitCount;
+    private final AtomicLong acceptFailureCount;
 
     private volatile boolean paused;
+    private Acceptor[] acceptors;
 
     /**
      * Creates an instance of DefaultListeningIOReactor with the given configuration.
@@ -82,7 +96,11 @@ public class DefaultListeningIOReactor extends AbstractMultiworkerIOReactor
         super(config, threadFactory);
         this.requestQueue = new ConcurrentLinkedQueue<ListenerEndpointImpl>();
         this.endpoints = Collections.synchronizedSet(new HashSet<ListenerEndpointImpl>());
-        this.pausedEndpoints = new HashSet<SocketAddress>();
+        this.pausedEndpoints = new LinkedHashMap<SocketAddress, Integer>();
+        this.acceptBatchSize = Math.max(1, this.config.getAcceptBatchSize());
+        this.acceptedCount = new AtomicLong();
+        this.acceptBatchLimitCount = new AtomicLong();
+        this.acceptFailureCount = new AtomicLong();
     }
 
     /**
@@ -140,6 +158,16 @@ public class DefaultListeningIOReactor extends AbstractMultiworkerIOReactor
 
     @Override
     protected void processEvents(int readyCount) throws IOReactorException {
+        if (this.acceptors == null) {
+            startAcceptors();
+        }
+        for (int i = 0; i < this.acceptors.length; i++) {
+            Exception ex = this.acceptors[i].getException();
+            if (ex != null) {
+                throw new IOReactorException("I/O acceptor terminated abnormally", ex);
+            }
+        }
+
         if (!this.paused) {
             processSessionRequests();
         }
@@ -162,18 +190,25 @@ public class DefaultListeningIOReactor extends AbstractMultiworkerIOReactor
             if (key.isAcceptable()) {
 
                 ServerSocketChannel serverChannel = (ServerSocketChannel) key.channel();
-                SocketChannel socketChannel = null;
-                try {
-                    socketChannel = serverChannel.accept();
-                } catch (IOException ex) {
-                    if (this.exceptionHandler == null ||
-                            !this.exceptionHandler.handle(ex)) {
-                        throw new IOReactorException(
-                                "Failure accepting connection", ex);
+                int accepted = 0;
+                while (accepted < this.acceptBatchSize) {
+                    SocketChannel socketChannel = null;
+                    try {
+                        socketChannel = serverChannel.accept();
+                    } catch (IOException ex) {
+                        this.acceptFailureCount.incrementAndGet();
+                        if (this.exceptionHandler == null ||
+                                !this.exceptionHandler.handle(ex)) {
+                            throw new IOReactorException(
+                                    "Failure accepting connection", ex);
+                        }
+                        break;
                     }
-                }
-
-                if (socketChannel != null) {
+                    if (socketChannel == null) {
+                        break;
+                    }
+                    accepted++;
+                    this.acceptedCount.incrementAndGet();
                     try {
                         prepareSocket(socketChannel.socket());
                     } catch (IOException ex) {
@@ -186,6 +221,9 @@ public class DefaultListeningIOReactor extends AbstractMultiworkerIOReactor
                     ChannelEntry entry = new ChannelEntry(socketChannel);
                     addChannel(entry);
                 }
+                if (accepted == this.acceptBatchSize) {
+                    this.acceptBatchLimitCount.incrementAndGet();
+                }
             }
 
         } catch (CancelledKeyException ex) {
@@ -195,9 +233,100 @@ public class DefaultListeningIOReactor extends AbstractMultiworkerIOReactor
         }
     }
 
-    private ListenerEndpointImpl createEndpoint(final SocketAddress address) {
+    private void startAcceptors() throws IOReactorException {
+        int count = Math.max(1, this.config.getAcceptorCount()) - 1;
+        Acceptor[] newAcceptors = new Acceptor[count];
+        try {
+            for (int i = 0; i < count; i++) {
+                newAcceptors[i] = new Acceptor();
+            }
+        } catch (IOException ex) {
+            for (int i = 0; i < count; i++) {
+                if (newAcceptors[i] != null) {
+                    newAcceptors[i].close();
+                }
+            }
+            throw new IOReactorException("Failure opening selector", ex);
+        }
+        this.acceptors = newAcceptors;
+        ThreadFactory threadFactory = getThreadFactory();
+        for (int i = 0; i < count; i++) {
+            Thread thread;
+            if (threadFactory instanceof DefaultThreadFactory) {
+                thread = new Thread(newAcceptors[i], "I/O acceptor " + (i + 1));
+            } else {
+                thread = threadFactory.newThread(newAcceptors[i]);
+            }
+            newAcceptors[i].thread = thread;
+            thread.start();
+        }
+    }
+
+    private void stopAcceptors() {
+        Acceptor[] current = this.acceptors;
+        if (current == null) {
+            return;
+        }
+        for (int i = 0; i < current.length; i++) {
+            current[i].close();
+        }
+        for (int i = 0; i < current.length; i++) {
+            Thread thread = current[i].thread;
+            if (thread != null) {
+                try {
+                    thread.join(this.config.getShutdownGracePeriod());
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    @Override
+    protected void doShutdown() throws InterruptedIOException {
+        // Stop accepting connections before the I/O dispatchers go away
+        stopAcceptors();
+        super.doShutdown();
+    }
+
+    /**
+     * Returns the total number of connections accepted by this I/O reactor.
+     * The accept rate can be obtained by sampling this value periodically.
+     *
+     * @since 4.3
+     */
+    public long getAcceptedConnectionCount() {
+        return this.acceptedCount.get();
+    }
+
+    /**
+     * Returns the number of times accepting connections from a ready server
+     * socket stopped at the {@link IOReactorConfig#getAcceptBatchSize() accept
+     * batch size} limit, with more connections possibly still waiting in
+     * the server socket backlog. A count growing along with the number of
+     * accepted connections indicates that connections arrive faster than they
+     * are accepted and the backlog is at risk of overflowing.
+     *
+     * @since 4.3
+     */
+    public long getAcceptBatchLimitCount() {
+        return this.acceptBatchLimitCount.get();
+    }
+
+    /**
+     * Returns the number of failed attempts to accept a connection.
+     *
+     * @since 4.3
+     */
+    public long getAcceptFailureCount() {
+        return this.acceptFailureCount.get();
+    }
+
+    private ListenerEndpointImpl createEndpoint(final SocketAddress address, int backlog) {
         ListenerEndpointImpl endpoint = new ListenerEndpointImpl(
                 address,
+                backlog,
                 new ListenerEndpointClosedCallback() {
 
                     public void endpointClosed(final ListenerEndpoint endpoint) {
@@ -209,10 +338,27 @@ public class DefaultListeningIOReactor extends AbstractMultiworkerIOReactor
     }
 
     public ListenerEndpoint listen(final SocketAddress address) {
+        return listen(address, this.config.getBacklogSize());
+    }
+
+    /**
+     * Opens a new listener endpoint with the given socket address and
+     * the given server socket backlog.
+     *
+     * @param address the socket address to listen on.
+     * @param backlog the maximum length of the queue of incoming connections.
+     *   A value of zero or less selects the platform default.
+     * @return listener endpoint.
+     *
+     * @see ListeningIOReactor#listen(SocketAddress)
+     *
+     * @since 4.3
+     */
+    public ListenerEndpoint listen(final SocketAddress address, int backlog) {
         if (this.status.compareTo(IOReactorStatus.ACTIVE) > 0) {
             throw new IllegalStateException("I/O reactor has been shut down");
         }
-        ListenerEndpointImpl request = createEndpoint(address);
+        ListenerEndpointImpl request = createEndpoint(address, backlog);
         this.requestQueue.add(request);
         this.selector.wakeup();
         return request;
@@ -230,7 +376,7 @@ public class DefaultListeningIOReactor extends AbstractMultiworkerIOReactor
             }
             try {
                 serverChannel.configureBlocking(false);
-                serverChannel.socket().bind(address);
+                serverChannel.socket().bind(address, request.getBacklog());
             } catch (IOException ex) {
                 closeChannel(serverChannel);
                 request.failed(ex);
@@ -245,6 +391,9 @@ public class DefaultListeningIOReactor extends AbstractMultiworkerIOReactor
                 SelectionKey key = serverChannel.register(this.selector, SelectionKey.OP_ACCEPT);
                 key.attach(request);
                 request.setKey(key);
+                for (int i = 0; i < this.acceptors.length; i++) {
+                    this.acceptors[i].register(key);
+                }
             } catch (IOException ex) {
                 closeChannel(serverChannel);
                 throw new IOReactorException("Failure registering channel " +
@@ -277,17 +426,19 @@ public class DefaultListeningIOReactor extends AbstractMultiworkerIOReactor
             return;
         }
         this.paused = true;
+        List<ListenerEndpointImpl> active;
         synchronized (this.endpoints) {
-            Iterator<ListenerEndpointImpl> it = this.endpoints.iterator();
-            while (it.hasNext()) {
-                ListenerEndpoint endpoint = it.next();
-                if (!endpoint.isClosed()) {
-                    endpoint.close();
-                    this.pausedEndpoints.add(endpoint.getAddress());
-                }
-            }
+            // closing an endpoint removes it from the set
+            active = new ArrayList<ListenerEndpointImpl>(this.endpoints);
             this.endpoints.clear();
         }
+        for (ListenerEndpointImpl endpoint: active) {
+            if (!endpoint.isClosed()) {
+                endpoint.close();
+                this.pausedEndpoints.put(endpoint.getAddress(),
+                        Integer.valueOf(endpoint.getBacklog()));
+            }
+        }
     }
 
     public void resume() throws IOException {
@@ -295,12 +446,81 @@ public class DefaultListeningIOReactor extends AbstractMultiworkerIOReactor
             return;
         }
         this.paused = false;
-        for (SocketAddress address: this.pausedEndpoints) {
-            ListenerEndpointImpl request = createEndpoint(address);
+        for (Map.Entry<SocketAddress, Integer> entry: this.pausedEndpoints.entrySet()) {
+            ListenerEndpointImpl request = createEndpoint(entry.getKey(),
+                    entry.getValue().intValue());
             this.requestQueue.add(request);
         }
         this.pausedEndpoints.clear();
         this.selector.wakeup();
     }
 
+    /**
+     * Accepts connections on all listener endpoints using a selector
+     * of its own.
+     */
+    private class Acceptor implements Runnable {
+
+        private final Selector acceptSelector;
+        private final Queue<SelectionKey> registrations;
+
+        private volatile Thread thread;
+        private volatile Exception exception;
+
+        Acceptor() throws IOException {
+            super();
+            this.acceptSelector = Selector.open();
+            this.registrations = new ConcurrentLinkedQueue<SelectionKey>();
+        }
+
+        /**
+         * Registers the server channel of the given key of the main selector
+         * with this acceptor.
+         */
+        void register(final SelectionKey key) {
+            this.registrations.add(key);
+            this.acceptSelector.wakeup();
+        }
+
+        public void run() {
+            try {
+                while (status.compareTo(IOReactorStatus.ACTIVE) <= 0) {
+                    int readyCount = this.acceptSelector.select(selectTimeout);
+                    SelectionKey mainKey;
+                    while ((mainKey = this.registrations.poll()) != null) {
+                        if (mainKey.isValid()) {
+                            try {
+                                mainKey.channel().register(this.acceptSelector,
+                                        SelectionKey.OP_ACCEPT, mainKey.attachment());
+                            } catch (ClosedChannelException ignore) {
+                            }
+                        }
+                    }
+                    if (readyCount > 0 && status.compareTo(IOReactorStatus.ACTIVE) == 0) {
+                        Set<SelectionKey> selectedKeys = this.acceptSelector.selectedKeys();
+                        for (SelectionKey key : selectedKeys) {
+                            processEvent(key);
+                        }
+                        selectedKeys.clear();
+                    }
+                }
+            } catch (ClosedSelectorException ignore) {
+            } catch (Exception ex) {
+                this.exception = ex;
+            }
+        }
+
+        Exception getException() {
+            return this.exception;
+        }
+
+        void close() {
+            try {
+                this.acceptSelector.close();
+            } catch (IOException ignore) {
+            }
+        }
+
+    }
+
 }
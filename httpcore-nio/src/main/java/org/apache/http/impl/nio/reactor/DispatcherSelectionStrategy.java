@@ -0,0 +1,52 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+
+package org.apache.http.impl.nio.reactor;
+
+import java.util.List;
+
+/**
+ * Strategy of assigning new channels to the I/O dispatchers of
+ * a multi-worker I/O reactor.
+ * <p/>
+ * Implementations of this interface are expected to be thread-safe.
+ *
+ * @see AbstractMultiworkerIOReactor#setDispatcherSelectionStrategy(DispatcherSelectionStrategy)
+ *
+ * @since 4.3
+ */
+public interface DispatcherSelectionStrategy {
+
+    /**
+     * Selects the I/O dispatcher a new channel is to be assigned to.
+     *
+     * @param dispatchers statistics of all I/O dispatchers.
+     * @return index of the selected dispatcher in the list.
+     */
+    int select(List<? extends DispatcherStats> dispatchers);
+
+}
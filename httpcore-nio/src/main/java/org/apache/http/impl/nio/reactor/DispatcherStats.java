@@ -0,0 +1,64 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+
+package org.apache.http.impl.nio.reactor;
+
+/**
+ * Load statistics of an I/O dispatcher, that is, of an I/O reactor
+ * serving a share of the sessions of a multi-worker I/O reactor.
+ * The statistics can be read from any thread.
+ *
+ * @since 4.3
+ */
+public interface DispatcherStats {
+
+    /**
+     * Returns the number of sessions assigned to the dispatcher including
+     * channels assigned to it but not yet registered with its selector.
+     */
+    int getSessionCount();
+
+    /**
+     * Returns the number of select loop iterations completed by
+     * the dispatcher.
+     */
+    long getSelectCount();
+
+    /**
+     * Returns the total time in nanoseconds the dispatcher spent processing
+     * events, that is, outside of the select call.
+     */
+    long getBusyTime();
+
+    /**
+     * Returns the share of time between <code>0</code> and <code>1</code>
+     * the dispatcher spent processing events during its most recent
+     * measurement period of about one second.
+     */
+    double getRecentBusyRatio();
+
+}
@@ -56,6 +56,10 @@ public final class IOReactorConfig implements Cloneable {
     private boolean soKeepAlive;
     private boolean tcpNoDelay;
     private int connectTimeout;
+    private boolean timeoutWheelEnabled;
+    private int backlogSize;
+    private int acceptBatchSize;
+    private int acceptorCount;
 
     @Deprecated
     public IOReactorConfig() {
@@ -70,6 +74,10 @@ public final class IOReactorConfig implements Cloneable {
         this.soKeepAlive = false;
         this.tcpNoDelay = true;
         this.connectTimeout = 0;
+        this.timeoutWheelEnabled = false;
+        this.backlogSize = 0;
+        this.acceptBatchSize = 1;
+        this.acceptorCount = 1;
     }
 
     IOReactorConfig(
@@ -82,7 +90,11 @@ public final class IOReactorConfig implements Cloneable {
             int soLinger,
             boolean soKeepAlive,
             boolean tcpNoDelay,
-            int connectTimeout) {
+            int connectTimeout,
+            boolean timeoutWheelEnabled,
+            int backlogSize,
+            int acceptBatchSize,
+            int acceptorCount) {
         super();
         this.selectInterval = selectInterval;
         this.shutdownGracePeriod = shutdownGracePeriod;
@@ -94,6 +106,10 @@ public final class IOReactorConfig implements Cloneable {
         this.soKeepAlive = soKeepAlive;
         this.tcpNoDelay = tcpNoDelay;
         this.connectTimeout = connectTimeout;
+        this.timeoutWheelEnabled = timeoutWheelEnabled;
+        this.backlogSize = backlogSize;
+        this.acceptBatchSize = acceptBatchSize;
+        this.acceptorCount = acceptorCount;
     }
 
     /**
@@ -261,6 +277,63 @@ public final class IOReactorConfig implements Cloneable {
         this.connectTimeout = connectTimeout;
     }
 
+    /**
+     * Determines whether or not I/O dispatchers are to track session timeouts using
+     * a hashed timing wheel. When enabled, the cost of a timeout check is proportional
+     * to the number of sessions whose timeout is due rather than to the total number
+     * of sessions registered with the I/O dispatcher. When disabled, all sessions
+     * are scanned at every select interval.
+     * <p/>
+     * Default: <code>false</code>
+     *
+     * @since 4.3
+     */
+    public boolean isTimeoutWheelEnabled() {
+        return this.timeoutWheelEnabled;
+    }
+
+    /**
+     * Determines the maximum queue length for incoming connection indications
+     * (a request to connect) also known as server socket backlog. A value of
+     * zero or less selects the platform default.
+     * <p/>
+     * Default: <code>0</code>
+     *
+     * @since 4.3
+     */
+    public int getBacklogSize() {
+        return this.backlogSize;
+    }
+
+    /**
+     * Determines the maximum number of connections the listening I/O reactor
+     * accepts from a ready server socket in one go before returning to
+     * the select loop. Accepting in batches lets the reactor drain
+     * the backlog quickly when many connections arrive at once.
+     * <p/>
+     * Default: <code>1</code>
+     *
+     * @since 4.3
+     */
+    public int getAcceptBatchSize() {
+        return this.acceptBatchSize;
+    }
+
+    /**
+     * Determines the number of threads accepting incoming connections
+     * on each listener endpoint. All acceptor threads share the same
+     * server socket, each selecting it for readiness with a selector of
+     * its own. The main I/O reactor thread counts as one acceptor; the
+     * others are created with the thread factory of the I/O reactor.
+     * <p/>
+     * Default: <code>1</code>
+     *
+     * @since 4.3
+     */
+    public int getAcceptorCount() {
+        return this.acceptorCount;
+    }
+
     @Override
     protected IOReactorConfig clone() throws CloneNotSupportedException {
         return (IOReactorConfig) super.clone();
@@ -282,6 +355,10 @@ public final class IOReactorConfig implements Cloneable {
         private boolean soKeepAlive;
         private boolean tcpNoDelay;
         private int connectTimeout;
+        private boolean timeoutWheelEnabled;
+        private int backlogSize;
+        private int acceptBatchSize;
+        private int acceptorCount;
 
         Builder() {
             this.selectInterval = 1000;
@@ -294,6 +371,10 @@ public final class IOReactorConfig implements Cloneable {
             this.soKeepAlive = false;
             this.tcpNoDelay = true;
             this.connectTimeout = 0;
+            this.timeoutWheelEnabled = false;
+            this.backlogSize = 0;
+            this.acceptBatchSize = 1;
+            this.acceptorCount = 1;
         }
 
         public Builder setSelectInterval(long selectInterval) {
@@ -346,10 +427,40 @@ public final class IOReactorConfig implements Cloneable {
             return this;
         }
 
+        public Builder setTimeoutWheelEnabled(boolean timeoutWheelEnabled) {
+            this.timeoutWheelEnabled = timeoutWheelEnabled;
+            return this;
+        }
+
+        /**
+         * @since 4.3
+         */
+        public Builder setBacklogSize(int backlogSize) {
+            this.backlogSize = backlogSize;
+            return this;
+        }
+
+        /**
+         * @since 4.3
+         */
+        public Builder setAcceptBatchSize(int acceptBatchSize) {
+            this.acceptBatchSize = acceptBatchSize;
+            return this;
+        }
+
+        /**
+         * @since 4.3
+         */
+        public Builder setAcceptorCount(int acceptorCount) {
+            this.acceptorCount = acceptorCount;
+            return this;
+        }
+
         public IOReactorConfig build() {
             return new IOReactorConfig(
                     selectInterval, shutdownGracePeriod, interestOpQueued, ioThreadCount,
-                    soTimeout, soReuseAddress, soLinger, soKeepAlive, tcpNoDelay, connectTimeout);
+                    soTimeout, soReuseAddress, soLinger, soKeepAlive, tcpNoDelay, connectTimeout,
+                    timeoutWheelEnabled, backlogSize, acceptBatchSize, acceptorCount);
         }
 
     }
@@ -366,7 +477,11 @@ public final class IOReactorConfig implements Cloneable {
                 .append(", soLinger=").append(this.soLinger)
                 .append(", soKeepAlive=").append(this.soKeepAlive)
                 .append(", tcpNoDelay=").append(this.tcpNoDelay)
-                .append(", connectTimeout=").append(this.connectTimeout).append("]");
+                .append(", connectTimeout=").append(this.connectTimeout)
+                .append(", timeoutWheelEnabled=").append(this.timeoutWheelEnabled)
+                .append(", backlogSize=").append(this.backlogSize)
+                .append(", acceptBatchSize=").append(this.acceptBatchSize)
+                .append(", acceptorCount=").append(this.acceptorCount).append("]");
         return builder.toString();
     }
 
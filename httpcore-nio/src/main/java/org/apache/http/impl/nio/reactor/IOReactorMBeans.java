@@ -0,0 +1,111 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+
+package org.apache.http.impl.nio.reactor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.http.annotation.Immutable;
+import org.apache.http.util.Args;
+
+/**
+ * Helper for exposing I/O dispatcher statistics of a multi-worker
+ * I/O reactor as JMX MBeans. Only statistics listeners that are
+ * standard MBeans, such as {@link IOReactorStatistics}, get registered.
+ * <p/>
+ * MBeans are registered under names of the form
+ * <code>org.apache.http.nio:type=IOReactor,name=&lt;name&gt;,dispatcher=&lt;index&gt;</code>.
+ *
+ * @since 4.3
+ */
+@Immutable
+public final class IOReactorMBeans {
+
+    public static final String DOMAIN = "org.apache.http.nio";
+
+    private IOReactorMBeans() {
+    }
+
+    /**
+     * Registers the statistics of all I/O dispatchers of the given
+     * I/O reactor. The I/O reactor must already have been started.
+     *
+     * @param server the MBean server.
+     * @param ioreactor the multi-worker I/O reactor.
+     * @param name name of the I/O reactor unique within the MBean server.
+     * @return names of the registered MBeans.
+     * @throws JMException in case of a registration failure.
+     */
+    public static List<ObjectName> register(
+            final MBeanServer server,
+            final AbstractMultiworkerIOReactor ioreactor,
+            final String name) throws JMException {
+        Args.notNull(server, "MBean server");
+        Args.notNull(ioreactor, "I/O reactor");
+        Args.notBlank(name, "Name");
+        List<ObjectName> names = new ArrayList<ObjectName>();
+        List<IOReactorStatsListener> listeners = ioreactor.getStatsListeners();
+        try {
+            for (int i = 0; i < listeners.size(); i++) {
+                IOReactorStatsListener listener = listeners.get(i);
+                if (listener instanceof IOReactorStatisticsMBean) {
+                    ObjectName objectName = new ObjectName(DOMAIN + ":type=IOReactor,name="
+                            + ObjectName.quote(name) + ",dispatcher=" + i);
+                    server.registerMBean(listener, objectName);
+                    names.add(objectName);
+                }
+            }
+        } catch (JMException ex) {
+            unregister(server, names);
+            throw ex;
+        }
+        return names;
+    }
+
+    /**
+     * Unregisters the given MBeans ignoring those no longer registered.
+     *
+     * @param server the MBean server.
+     * @param names names of the MBeans.
+     */
+    public static void unregister(final MBeanServer server, final List<ObjectName> names) {
+        Args.notNull(server, "MBean server");
+        Args.notNull(names, "MBean names");
+        for (ObjectName objectName: names) {
+            try {
+                server.unregisterMBean(objectName);
+            } catch (JMException ignore) {
+            }
+        }
+    }
+
+}
@@ -0,0 +1,243 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+
+package org.apache.http.impl.nio.reactor;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.http.annotation.ThreadSafe;
+
+/**
+ * Default {@link IOReactorStatsListener} implementation that keeps
+ * counters, queue depth maxima and latency histograms of the select loop
+ * of a single I/O reactor. The statistics can be read from any thread and
+ * the instance can be registered with an MBean server as a standard MBean.
+ *
+ * @see IOReactorMBeans
+ *
+ * @since 4.3
+ */
+@ThreadSafe
+public class IOReactorStatistics implements IOReactorStatsListener, IOReactorStatisticsMBean {
+
+    /**
+     * Factory creating a new instance for each I/O dispatcher.
+     */
+    public static final IOReactorStatsListenerFactory FACTORY = new IOReactorStatsListenerFactory() {
+
+        public IOReactorStatsListener create(final int dispatcherIndex) {
+            return new IOReactorStatistics();
+        }
+
+    };
+
+    private final AtomicLong selectCount;
+    private final AtomicLong emptySelectCount;
+    private final AtomicLong readyKeyCount;
+    private final AtomicLong selectTime;
+    private final AtomicLong dispatchTime;
+    private final AtomicLong newChannelCount;
+    private final AtomicLong closedSessionCount;
+    private final AtomicLong interestOpsCount;
+    private final Log2Histogram selectTimeHistogram;
+    private final Log2Histogram dispatchTimeHistogram;
+    private final Log2Histogram readyKeyHistogram;
+
+    private volatile int maxNewChannelQueueDepth;
+    private volatile int maxClosedSessionQueueDepth;
+    private volatile int maxInterestOpsQueueDepth;
+    private volatile int sessionCount;
+
+    public IOReactorStatistics() {
+        super();
+        this.selectCount = new AtomicLong(0);
+        this.emptySelectCount = new AtomicLong(0);
+        this.readyKeyCount = new AtomicLong(0);
+        this.selectTime = new AtomicLong(0);
+        this.dispatchTime = new AtomicLong(0);
+        this.newChannelCount = new AtomicLong(0);
+        this.closedSessionCount = new AtomicLong(0);
+        this.interestOpsCount = new AtomicLong(0);
+        this.selectTimeHistogram = new Log2Histogram();
+        this.dispatchTimeHistogram = new Log2Histogram();
+        this.readyKeyHistogram = new Log2Histogram();
+    }
+
+    public void selectCompleted(long selectTime, int readyCount) {
+        this.selectCount.incrementAndGet();
+        if (readyCount == 0) {
+            this.emptySelectCount.incrementAndGet();
+        } else {
+            this.readyKeyCount.addAndGet(readyCount);
+        }
+        this.readyKeyHistogram.update(readyCount);
+        this.selectTime.addAndGet(selectTime);
+        this.selectTimeHistogram.update(TimeUnit.NANOSECONDS.toMicros(selectTime));
+    }
+
+    public void loopCompleted(
+            long dispatchTime,
+            int newChannelCount,
+            int closedSessionCount,
+            int interestOpsCount,
+            int sessionCount) {
+        this.dispatchTime.addAndGet(dispatchTime);
+        this.dispatchTimeHistogram.update(TimeUnit.NANOSECONDS.toMicros(dispatchTime));
+        if (newChannelCount > 0) {
+            this.newChannelCount.addAndGet(newChannelCount);
+            if (newChannelCount > this.maxNewChannelQueueDepth) {
+                this.maxNewChannelQueueDepth = newChannelCount;
+            }
+        }
+        if (closedSessionCount > 0) {
+            this.closedSessionCount.addAndGet(closedSessionCount);
+            if (closedSessionCount > this.maxClosedSessionQueueDepth) {
+                this.maxClosedSessionQueueDepth = closedSessionCount;
+            }
+        }
+        if (interestOpsCount > 0) {
+            this.interestOpsCount.addAndGet(interestOpsCount);
+            if (interestOpsCount > this.maxInterestOpsQueueDepth) {
+                this.maxInterestOpsQueueDepth = interestOpsCount;
+            }
+        }
+        this.sessionCount = sessionCount;
+    }
+
+    /**
+     * Returns the histogram of times spent in the select call in microseconds.
+     */
+    public Log2Histogram getSelectTimeHistogram() {
+        return this.selectTimeHistogram;
+    }
+
+    /**
+     * Returns the histogram of times spent processing events and pending
+     * operations per select loop iteration in microseconds.
+     */
+    public Log2Histogram getDispatchTimeHistogram() {
+        return this.dispatchTimeHistogram;
+    }
+
+    /**
+     * Returns the histogram of numbers of keys returned by the select call.
+     */
+    public Log2Histogram getReadyKeyHistogram() {
+        return this.readyKeyHistogram;
+    }
+
+    public long getSelectCount() {
+        return this.selectCount.get();
+    }
+
+    public long getEmptySelectCount() {
+        return this.emptySelectCount.get();
+    }
+
+    public long getReadyKeyCount() {
+        return this.readyKeyCount.get();
+    }
+
+    public long getMaxReadyKeyCount() {
+        return this.readyKeyHistogram.getMax();
+    }
+
+    public long getTotalSelectTime() {
+        return TimeUnit.NANOSECONDS.toMicros(this.selectTime.get());
+    }
+
+    public long getTotalDispatchTime() {
+        return TimeUnit.NANOSECONDS.toMicros(this.dispatchTime.get());
+    }
+
+    public long getMedianSelectTime() {
+        return this.selectTimeHistogram.getPercentile(50);
+    }
+
+    public long get99thPercentileSelectTime() {
+        return this.selectTimeHistogram.getPercentile(99);
+    }
+
+    public long getMaxSelectTime() {
+        return this.selectTimeHistogram.getMax();
+    }
+
+    public long getMedianDispatchTime() {
+        return this.dispatchTimeHistogram.getPercentile(50);
+    }
+
+    public long get99thPercentileDispatchTime() {
+        return this.dispatchTimeHistogram.getPercentile(99);
+    }
+
+    public long getMaxDispatchTime() {
+        return this.dispatchTimeHistogram.getMax();
+    }
+
+    public long getNewChannelCount() {
+        return this.newChannelCount.get();
+    }
+
+    public int getMaxNewChannelQueueDepth() {
+        return this.maxNewChannelQueueDepth;
+    }
+
+    public long getClosedSessionCount() {
+        return this.closedSessionCount.get();
+    }
+
+    public int getMaxClosedSessionQueueDepth() {
+        return this.maxClosedSessionQueueDepth;
+    }
+
+    public long getInterestOpsCount() {
+        return this.interestOpsCount.get();
+    }
+
+    public int getMaxInterestOpsQueueDepth() {
+        return this.maxInterestOpsQueueDepth;
+    }
+
+    public int getSessionCount() {
+        return this.sessionCount;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder buffer = new StringBuilder();
+        buffer.append("[selects=").append(getSelectCount());
+        buffer.append(", empty selects=").append(getEmptySelectCount());
+        buffer.append(", ready keys=").append(this.readyKeyHistogram);
+        buffer.append(", select time=").append(this.selectTimeHistogram);
+        buffer.append(", dispatch time=").append(this.dispatchTimeHistogram);
+        buffer.append(", sessions=").append(getSessionCount());
+        buffer.append("]");
+        return buffer.toString();
+    }
+
+}
@@ -0,0 +1,73 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+
+package org.apache.http.impl.nio.reactor;
+
+/**
+ * Service provider interface for collecting select loop statistics of
+ * an I/O reactor. Listener methods are invoked by the I/O dispatch thread
+ * on every iteration of the select loop and are expected to return quickly.
+ * No statistics are gathered by an I/O reactor without a listener.
+ *
+ * @see AbstractIOReactor#setStatsListener(IOReactorStatsListener)
+ * @see AbstractMultiworkerIOReactor#setStatsListenerFactory(IOReactorStatsListenerFactory)
+ *
+ * @since 4.3
+ */
+public interface IOReactorStatsListener {
+
+    /**
+     * Triggered when the {@link java.nio.channels.Selector#select(long)}
+     * call returns.
+     *
+     * @param selectTime time in nanoseconds spent blocked in the select call.
+     * @param readyCount number of selection keys ready for processing.
+     */
+    void selectCompleted(long selectTime, int readyCount);
+
+    /**
+     * Triggered when an iteration of the select loop has been completed.
+     *
+     * @param dispatchTime time in nanoseconds spent processing I/O events
+     *   and pending operations since the select call returned.
+     * @param newChannelCount number of new channels registered
+     *   with the selector.
+     * @param closedSessionCount number of closed sessions removed.
+     * @param interestOpsCount number of queued
+     *   {@link java.nio.channels.SelectionKey#interestOps(int)}
+     *   operations applied.
+     * @param sessionCount number of sessions currently served
+     *   by the I/O reactor.
+     */
+    void loopCompleted(
+            long dispatchTime,
+            int newChannelCount,
+            int closedSessionCount,
+            int interestOpsCount,
+            int sessionCount);
+
+}
@@ -58,9 +58,11 @@ public class IOSessionImpl implements IOSession, SocketAccessor {
     private final Map<String, Object> attributes;
     private final InterestOpsCallback interestOpsCallback;
     private final SessionClosedCallback sessionClosedCallback;
+    private final SessionTimeoutCallback sessionTimeoutCallback;
 
     private volatile int status;
     private volatile int currentEventMask;
+    private boolean eventMaskPending;
     private volatile SessionBufferStatus bufferStatus;
     private volatile int socketTimeout;
 
@@ -76,19 +78,22 @@ public class IOSessionImpl implements IOSession, SocketAccessor {
      * @param key the selection key.
      * @param interestOpsCallback interestOps callback.
      * @param sessionClosedCallback session closed callback.
+     * @param sessionTimeoutCallback socket timeout change callback.
      *
-     * @since 4.1
+     * @since 4.3
      */
     public IOSessionImpl(
             final SelectionKey key,
             final InterestOpsCallback interestOpsCallback,
-            final SessionClosedCallback sessionClosedCallback) {
+            final SessionClosedCallback sessionClosedCallback,
+            final SessionTimeoutCallback sessionTimeoutCallback) {
         super();
         Args.notNull(key, "Selection key");
         this.key = key;
         this.channel = (ByteChannel) this.key.channel();
         this.interestOpsCallback = interestOpsCallback;
         this.sessionClosedCallback = sessionClosedCallback;
+        this.sessionTimeoutCallback = sessionTimeoutCallback;
         this.attributes = Collections.synchronizedMap(new HashMap<String, Object>());
         this.currentEventMask = key.interestOps();
         this.socketTimeout = 0;
@@ -100,6 +105,22 @@ public class IOSessionImpl implements IOSession, SocketAccessor {
         this.lastAccessTime = now;
     }
 
+    /**
+     * Creates new instance of IOSessionImpl.
+     *
+     * @param key the selection key.
+     * @param interestOpsCallback interestOps callback.
+     * @param sessionClosedCallback session closed callback.
+     *
+     * @since 4.1
+     */
+    public IOSessionImpl(
+            final SelectionKey key,
+            final InterestOpsCallback interestOpsCallback,
+            final SessionClosedCallback sessionClosedCallback) {
+        this(key, interestOpsCallback, sessionClosedCallback, null);
+    }
+
     /**
      * Creates new instance of IOSessionImpl.
      *
@@ -142,59 +163,67 @@ public class IOSessionImpl implements IOSession, SocketAccessor {
         if (this.status == CLOSED) {
             return;
         }
-        if (this.interestOpsCallback != null) {
-            // update the current event mask
-            this.currentEventMask = ops;
-
-            // local variable
-            InterestOpEntry entry = new InterestOpEntry(this.key, this.currentEventMask);
-
-            // add this operation to the interestOps() queue
-            this.interestOpsCallback.addInterestOps(entry);
-        } else {
-            this.key.interestOps(ops);
-        }
-        this.key.selector().wakeup();
+        updateEventMask(ops);
     }
 
     public synchronized void setEvent(int op) {
         if (this.status == CLOSED) {
             return;
         }
-        if (this.interestOpsCallback != null) {
-            // update the current event mask
-            this.currentEventMask |= op;
-
-            // local variable
-            InterestOpEntry entry = new InterestOpEntry(this.key, this.currentEventMask);
-
-            // add this operation to the interestOps() queue
-            this.interestOpsCallback.addInterestOps(entry);
-        } else {
-            int ops = this.key.interestOps();
-            this.key.interestOps(ops | op);
-        }
-        this.key.selector().wakeup();
+        updateEventMask(getEventMask() | op);
     }
 
     public synchronized void clearEvent(int op) {
         if (this.status == CLOSED) {
             return;
         }
+        updateEventMask(getEventMask() & ~op);
+    }
+
+    private void updateEventMask(int ops) {
         if (this.interestOpsCallback != null) {
             // update the current event mask
-            this.currentEventMask &= ~op;
-
-            // local variable
-            InterestOpEntry entry = new InterestOpEntry(this.key, this.currentEventMask);
+            this.currentEventMask = ops;
 
-            // add this operation to the interestOps() queue
-            this.interestOpsCallback.addInterestOps(entry);
+            // let the I/O reactor decide when and by whom the event mask gets applied
+            this.interestOpsCallback.addInterestOps(this);
         } else {
-            int ops = this.key.interestOps();
-            this.key.interestOps(ops & ~op);
+            this.key.interestOps(ops);
+            this.key.selector().wakeup();
+        }
+    }
+
+    /**
+     * Applies the current event mask to the selection key. Must be called
+     * while holding the session lock.
+     */
+    void applyEventMask() {
+        this.key.interestOps(this.currentEventMask);
+    }
+
+    /**
+     * Marks the current event mask as pending application by the I/O
+     * dispatch thread. Must be called while holding the session lock.
+     *
+     * @return <code>true</code> if the event mask has not been pending yet
+     *   and the session needs to be queued.
+     */
+    boolean markEventMaskPending() {
+        if (this.eventMaskPending) {
+            return false;
+        }
+        this.eventMaskPending = true;
+        return true;
+    }
+
+    /**
+     * Applies the pending event mask if the session is still valid.
+     */
+    synchronized void applyPendingEventMask() {
+        this.eventMaskPending = false;
+        if (this.key.isValid()) {
+            this.key.interestOps(this.currentEventMask);
         }
-        this.key.selector().wakeup();
     }
 
     public int getSocketTimeout() {
@@ -204,6 +233,9 @@ public class IOSessionImpl implements IOSession, SocketAccessor {
     public synchronized void setSocketTimeout(int timeout) {
         this.socketTimeout = timeout;
         this.lastAccessTime = System.currentTimeMillis();
+        if (this.sessionTimeoutCallback != null) {
+            this.sessionTimeoutCallback.socketTimeoutChanged(this);
+        }
     }
 
     public synchronized void close() {
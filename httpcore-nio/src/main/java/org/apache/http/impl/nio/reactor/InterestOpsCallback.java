@@ -35,6 +35,6 @@ package org.apache.http.impl.nio.reactor;
  */
 interface InterestOpsCallback {
 
-    void addInterestOps(InterestOpEntry entry);
+    void addInterestOps(IOSessionImpl session);
 
 }
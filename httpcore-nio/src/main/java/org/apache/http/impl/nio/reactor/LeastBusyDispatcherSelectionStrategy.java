@@ -0,0 +1,104 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+
+package org.apache.http.impl.nio.reactor;
+
+import java.util.List;
+
+import org.apache.http.annotation.Immutable;
+import org.apache.http.util.Args;
+
+/**
+ * {@link DispatcherSelectionStrategy} that assigns new channels to
+ * the I/O dispatcher that has recently spent the least time processing
+ * events. Among the dispatchers whose busy ratio is within a tolerance
+ * of the lowest one, the dispatcher with the fewest sessions is selected.
+ * <p/>
+ * Busy ratios are refreshed only about once a second, whereas session
+ * counts include channels assigned but not yet registered. Channels
+ * accepted in a burst are therefore spread across all dispatchers that
+ * are about equally busy instead of all going to the same one.
+ *
+ * @see DispatcherStats#getRecentBusyRatio()
+ *
+ * @since 4.3
+ */
+@Immutable
+public class LeastBusyDispatcherSelectionStrategy implements DispatcherSelectionStrategy {
+
+    /**
+     * The default tolerance of <code>0.1</code>, that is, ten percentage
+     * points of busy time.
+     */
+    public static final double DEFAULT_TOLERANCE = 0.1;
+
+    public static final LeastBusyDispatcherSelectionStrategy INSTANCE =
+        new LeastBusyDispatcherSelectionStrategy();
+
+    private final double tolerance;
+
+    /**
+     * Creates new instance of LeastBusyDispatcherSelectionStrategy.
+     *
+     * @param tolerance the difference in busy ratio between <code>0</code>
+     *   and <code>1</code> up to which dispatchers are considered equally busy.
+     */
+    public LeastBusyDispatcherSelectionStrategy(final double tolerance) {
+        super();
+        Args.check(tolerance >= 0 && tolerance <= 1, "Tolerance must be between 0 and 1");
+        this.tolerance = tolerance;
+    }
+
+    public LeastBusyDispatcherSelectionStrategy() {
+        this(DEFAULT_TOLERANCE);
+    }
+
+    public int select(final List<? extends DispatcherStats> dispatchers) {
+        int n = dispatchers.size();
+        double[] ratios = new double[n];
+        double minRatio = Double.MAX_VALUE;
+        for (int i = 0; i < n; i++) {
+            ratios[i] = dispatchers.get(i).getRecentBusyRatio();
+            if (ratios[i] < minRatio) {
+                minRatio = ratios[i];
+            }
+        }
+        int selected = 0;
+        int minCount = Integer.MAX_VALUE;
+        for (int i = 0; i < n; i++) {
+            if (ratios[i] <= minRatio + this.tolerance) {
+                int count = dispatchers.get(i).getSessionCount();
+                if (count < minCount) {
+                    minCount = count;
+                    selected = i;
+                }
+            }
+        }
+        return selected;
+    }
+
+}
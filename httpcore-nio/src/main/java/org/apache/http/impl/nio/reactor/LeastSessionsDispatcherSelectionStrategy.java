@@ -0,0 +1,59 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+
+package org.apache.http.impl.nio.reactor;
+
+import java.util.List;
+
+import org.apache.http.annotation.Immutable;
+
+/**
+ * {@link DispatcherSelectionStrategy} that assigns new channels to
+ * the I/O dispatcher with the fewest sessions.
+ *
+ * @since 4.3
+ */
+@Immutable
+public class LeastSessionsDispatcherSelectionStrategy implements DispatcherSelectionStrategy {
+
+    public static final LeastSessionsDispatcherSelectionStrategy INSTANCE =
+        new LeastSessionsDispatcherSelectionStrategy();
+
+    public int select(final List<? extends DispatcherStats> dispatchers) {
+        int selected = 0;
+        int min = Integer.MAX_VALUE;
+        for (int i = 0; i < dispatchers.size(); i++) {
+            int count = dispatchers.get(i).getSessionCount();
+            if (count < min) {
+                min = count;
+                selected = i;
+            }
+        }
+        return selected;
+    }
+
+}
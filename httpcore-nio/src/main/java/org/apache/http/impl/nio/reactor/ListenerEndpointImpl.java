@@ -50,21 +50,52 @@ public class ListenerEndpointImpl implements ListenerEndpoint {
     private volatile SocketAddress address;
     private volatile IOException exception;
 
+    private final int backlog;
     private final ListenerEndpointClosedCallback callback;
 
+    /**
+     * Creates an endpoint listening on the given address with the given
+     * server socket backlog.
+     *
+     * @param address the socket address to listen on.
+     * @param backlog the maximum length of the queue of incoming connections.
+     *   A value of zero or less selects the platform default.
+     * @param callback the endpoint closed callback. Can be <code>null</code>.
+     *
+     * @since 4.3
+     */
     public ListenerEndpointImpl(
             final SocketAddress address,
+            int backlog,
             final ListenerEndpointClosedCallback callback) {
         super();
         Args.notNull(address, "Address");
         this.address = address;
+        this.backlog = backlog;
         this.callback = callback;
     }
 
+    public ListenerEndpointImpl(
+            final SocketAddress address,
+            final ListenerEndpointClosedCallback callback) {
+        this(address, 0, callback);
+    }
+
     public SocketAddress getAddress() {
         return this.address;
     }
 
+    /**
+     * Returns the maximum length of the queue of incoming connections
+     * requested for this endpoint. A value of zero or less denotes
+     * the platform default.
+     *
+     * @since 4.3
+     */
+    public int getBacklog() {
+        return this.backlog;
+    }
+
     public boolean isCompleted() {
         return this.completed;
     }
@@ -0,0 +1,240 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+
+package org.apache.http.impl.nio.reactor;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.apache.http.annotation.ThreadSafe;
+import org.apache.http.util.Args;
+
+/**
+ * Histogram of non-negative values with buckets of exponentially growing
+ * size. By default bucket <code>0</code> counts zero values and bucket
+ * <code>n</code> counts values from <code>2^(n-1)</code> to
+ * <code>2^n - 1</code>. For finer resolution every power of two range can
+ * be split into <code>2^subBucketBits</code> equally sized buckets, which
+ * bounds the relative error of reported percentiles to
+ * <code>2^-subBucketBits</code>. Updates are lock-free and cost a few
+ * atomic operations.
+ *
+ * @since 4.3
+ */
+@ThreadSafe
+public class Log2Histogram {
+
+    /**
+     * Number of buckets at default resolution, enough for any non-negative
+     * <code>long</code>.
+     */
+    public static final int BUCKET_COUNT = 64;
+
+    /**
+     * Largest supported number of sub-bucket bits.
+     */
+    public static final int MAX_SUB_BUCKET_BITS = 16;
+
+    private final int subBucketBits;
+    private final AtomicLongArray buckets;
+    private final AtomicLong count;
+    private final AtomicLong max;
+
+    /**
+     * Creates a histogram that splits every power of two range into
+     * <code>2^subBucketBits</code> buckets.
+     *
+     * @param subBucketBits number of sub-bucket bits between <code>0</code>
+     *   and {@link #MAX_SUB_BUCKET_BITS}.
+     */
+    public Log2Histogram(int subBucketBits) {
+        super();
+        Args.check(subBucketBits >= 0 && subBucketBits <= MAX_SUB_BUCKET_BITS,
+                "Invalid number of sub-bucket bits");
+        this.subBucketBits = subBucketBits;
+        this.buckets = new AtomicLongArray(getBucketCount(subBucketBits));
+        this.count = new AtomicLong(0);
+        this.max = new AtomicLong(0);
+    }
+
+    public Log2Histogram() {
+        this(0);
+    }
+
+    static int getBucketCount(int subBucketBits) {
+        return (64 - subBucketBits) << subBucketBits;
+    }
+
+    /**
+     * Returns the index of the bucket the given value falls into at default
+     * resolution.
+     */
+    static int bucketOf(long value) {
+        return bucketOf(value, 0);
+    }
+
+    /**
+     * Returns the index of the bucket the given value falls into. Values
+     * below <code>2^subBucketBits</code> get a bucket of their own.
+     */
+    static int bucketOf(long value, int subBucketBits) {
+        int subCount = 1 << subBucketBits;
+        if (value < subCount) {
+            return value <= 0 ? 0 : (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - subBucketBits;
+        int sub = (int) (value >>> shift) & (subCount - 1);
+        return ((shift + 1) << subBucketBits) + sub;
+    }
+
+    /**
+     * Returns the largest value counted by the given bucket at default
+     * resolution.
+     */
+    public static long getUpperBound(int bucket) {
+        return getUpperBound(bucket, 0);
+    }
+
+    /**
+     * Returns the largest value counted by the given bucket of a histogram
+     * with the given number of sub-bucket bits.
+     */
+    public static long getUpperBound(int bucket, int subBucketBits) {
+        Args.check(subBucketBits >= 0 && subBucketBits <= MAX_SUB_BUCKET_BITS,
+                "Invalid number of sub-bucket bits");
+        Args.check(bucket >= 0 && bucket < getBucketCount(subBucketBits), "Invalid bucket index");
+        int subCount = 1 << subBucketBits;
+        if (bucket < subCount) {
+            return bucket;
+        }
+        int shift = (bucket >> subBucketBits) - 1;
+        int sub = bucket & (subCount - 1);
+        long lower = ((long) (subCount + sub)) << shift;
+        return lower + ((1L << shift) - 1);
+    }
+
+    /**
+     * Returns the number of sub-bucket bits of this histogram.
+     */
+    public int getSubBucketBits() {
+        return this.subBucketBits;
+    }
+
+    /**
+     * Returns the number of buckets of this histogram.
+     */
+    public int getBucketCount() {
+        return this.buckets.length();
+    }
+
+    /**
+     * Records the given value. Negative values are recorded as zero.
+     */
+    public void update(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        this.buckets.incrementAndGet(bucketOf(value, this.subBucketBits));
+        this.count.incrementAndGet();
+        long current = this.max.get();
+        while (value > current) {
+            if (this.max.compareAndSet(current, value)) {
+                break;
+            }
+            current = this.max.get();
+        }
+    }
+
+    /**
+     * Returns the number of recorded values.
+     */
+    public long getCount() {
+        return this.count.get();
+    }
+
+    /**
+     * Returns the number of recorded values in the given bucket.
+     */
+    public long getCount(int bucket) {
+        Args.check(bucket >= 0 && bucket < this.buckets.length(), "Invalid bucket index");
+        return this.buckets.get(bucket);
+    }
+
+    /**
+     * Returns the largest recorded value.
+     */
+    public long getMax() {
+        return this.max.get();
+    }
+
+    /**
+     * Returns an upper estimate of the given percentile of recorded values,
+     * that is, the upper bound of the bucket containing the percentile,
+     * but no more than the largest recorded value.
+     *
+     * @param percentile percentile between <code>0</code> and <code>100</code>.
+     * @return percentile estimate or <code>0</code> if no values have been
+     *   recorded.
+     */
+    public long getPercentile(double percentile) {
+        Args.check(percentile >= 0.0 && percentile <= 100.0, "Invalid percentile");
+        int bucketCount = this.buckets.length();
+        long total = 0;
+        long[] counts = new long[bucketCount];
+        for (int i = 0; i < bucketCount; i++) {
+            counts[i] = this.buckets.get(i);
+            total += counts[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(total * percentile / 100.0);
+        if (rank < 1) {
+            rank = 1;
+        }
+        long seen = 0;
+        for (int i = 0; i < bucketCount; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(getUpperBound(i, this.subBucketBits), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder buffer = new StringBuilder();
+        buffer.append("[count=").append(getCount());
+        buffer.append(", p50=").append(getPercentile(50));
+        buffer.append(", p99=").append(getPercentile(99));
+        buffer.append(", max=").append(getMax());
+        buffer.append("]");
+        return buffer.toString();
+    }
+
+}
@@ -27,44 +27,29 @@
 
 package org.apache.http.impl.nio.reactor;
 
-import java.nio.channels.SelectionKey;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
-import org.apache.http.util.Args;
+import org.apache.http.annotation.ThreadSafe;
 
 /**
- * Helper class, representing an entry on an {@link java.nio.channels.SelectionKey#interestOps(int)
- * interestOps(int)} queue.
+ * {@link DispatcherSelectionStrategy} that assigns new channels to
+ * the I/O dispatchers in turn regardless of their load.
  *
- * @since 4.1
+ * @since 4.3
  */
-class InterestOpEntry {
+@ThreadSafe
+public class RoundRobinDispatcherSelectionStrategy implements DispatcherSelectionStrategy {
 
-    private final SelectionKey key;
-    private final int eventMask;
+    private final AtomicInteger count;
 
-    public InterestOpEntry(final SelectionKey key, int eventMask) {
+    public RoundRobinDispatcherSelectionStrategy() {
         super();
-        Args.notNull(key, "Selection key");
-        this.key = key;
-        this.eventMask = eventMask;
+        this.count = new AtomicInteger(0);
     }
 
-    public SelectionKey getSelectionKey() {
-        return this.key;
-    }
-
-    public int getEventMask() {
-        return this.eventMask;
-    }
-
-    @Override
-    public boolean equals(Object obj) {
-        return this.key.equals(obj);
-    }
-
-    @Override
-    public int hashCode() {
-        return this.key.hashCode();
+    public int select(final List<? extends DispatcherStats> dispatchers) {
+        return (this.count.getAndIncrement() & Integer.MAX_VALUE) % dispatchers.size();
     }
 
 }
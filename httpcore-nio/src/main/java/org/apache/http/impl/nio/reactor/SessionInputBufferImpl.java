@@ -29,6 +29,7 @@ package org.apache.http.impl.nio.reactor;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.nio.CharBuffer;
 import java.nio.channels.ReadableByteChannel;
 import java.nio.channels.WritableByteChannel;
@@ -60,10 +61,15 @@ import org.apache.http.util.CharsetUtils;
 @NotThreadSafe
 public class SessionInputBufferImpl extends ExpandableBuffer implements SessionInputBuffer {
 
+    private static final long LF_PATTERN = 0x0A0A0A0A0A0A0A0AL;
+    private static final long LOW_BITS = 0x7F7F7F7F7F7F7F7FL;
+
     private final CharsetDecoder chardecoder;
     private final int lineBuffersize;
 
     private CharBuffer charbuffer;
+    // number of bytes past the buffer position known not to contain LF
+    private int scanned;
 
     /**
      *  Creates SessionInputBufferImpl instance.
@@ -158,6 +164,7 @@ public class SessionInputBufferImpl extends ExpandableBuffer implements SessionI
 
     public int read() {
         setOutputMode();
+        this.scanned = 0;
         return this.buffer.get() & 0xff;
     }
 
@@ -166,6 +173,7 @@ public class SessionInputBufferImpl extends ExpandableBuffer implements SessionI
             return 0;
         }
         setOutputMode();
+        this.scanned = 0;
         int len = Math.min(dst.remaining(), maxLen);
         int chunk = Math.min(this.buffer.remaining(), len);
         for (int i = 0; i < chunk; i++) {
@@ -186,6 +194,7 @@ public class SessionInputBufferImpl extends ExpandableBuffer implements SessionI
             return 0;
         }
         setOutputMode();
+        this.scanned = 0;
         int bytesRead;
         if (this.buffer.remaining() > maxLen) {
             int oldLimit = this.buffer.limit();
@@ -204,26 +213,59 @@ public class SessionInputBufferImpl extends ExpandableBuffer implements SessionI
             return 0;
         }
         setOutputMode();
+        this.scanned = 0;
         return dst.write(this.buffer);
     }
 
+    /**
+     * Returns index of the first LF char in the buffer or <code>-1</code>
+     * if the buffer contains no LF. The buffer is expected to be in
+     * the output mode. Bytes found not to contain LF are not scanned again
+     * when more data becomes available, so that a line arriving in many
+     * small chunks is scanned only once. Eight bytes at a time are matched
+     * as a single <code>long</code> word.
+     */
+    private int findLF() {
+        int limit = this.buffer.limit();
+        int i = this.buffer.position() + Math.min(this.scanned, this.buffer.remaining());
+        boolean bigEndian = this.buffer.order() == ByteOrder.BIG_ENDIAN;
+        while (i + 8 <= limit) {
+            long word = this.buffer.getLong(i) ^ LF_PATTERN;
+            // high bit of each byte is set if and only if the byte is zero
+            long match = ~(((word & LOW_BITS) + LOW_BITS) | word | LOW_BITS);
+            if (match != 0) {
+                int n = bigEndian ? Long.numberOfLeadingZeros(match)
+                        : Long.numberOfTrailingZeros(match);
+                return i + (n >>> 3);
+            }
+            i += 8;
+        }
+        for (; i < limit; i++) {
+            if (this.buffer.get(i) == HTTP.LF) {
+                return i;
+            }
+        }
+        this.scanned = limit - this.buffer.position();
+        return -1;
+    }
+
+    @Override
+    protected void clear() {
+        super.clear();
+        this.scanned = 0;
+    }
+
     public boolean readLine(
             final CharArrayBuffer linebuffer,
             boolean endOfStream) throws CharacterCodingException {
 
         setOutputMode();
         // See if there is LF char present in the buffer
-        int pos = -1;
-        boolean hasLine = false;
-        for (int i = this.buffer.position(); i < this.buffer.limit(); i++) {
-            int b = this.buffer.get(i);
-            if (b == HTTP.LF) {
-                hasLine = true;
-                pos = i + 1;
-                break;
-            }
-        }
-        if (!hasLine) {
+        int pos;
+        int lf = findLF();
+        if (lf != -1) {
+            pos = lf + 1;
+        } else {
             if (endOfStream && this.buffer.hasRemaining()) {
                 // No more data. Get the rest
                 pos = this.buffer.limit();
@@ -233,6 +275,7 @@ public class SessionInputBufferImpl extends ExpandableBuffer implements SessionI
                 return false;
             }
         }
+        this.scanned = 0;
         int origLimit = this.buffer.limit();
         this.buffer.limit(pos);
 
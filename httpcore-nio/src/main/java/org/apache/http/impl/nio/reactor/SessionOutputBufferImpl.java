@@ -30,6 +30,7 @@ package org.apache.http.impl.nio.reactor;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.CharBuffer;
+import java.nio.channels.GatheringByteChannel;
 import java.nio.channels.ReadableByteChannel;
 import java.nio.channels.WritableByteChannel;
 import java.nio.charset.CharacterCodingException;
@@ -159,6 +160,33 @@ public class SessionOutputBufferImpl extends ExpandableBuffer implements Session
         return noWritten;
     }
 
+    /**
+     * Writes content of this buffer followed by content of the given buffers
+     * to the channel using a single gathering write. Content of the given
+     * buffers is passed to the channel directly without being copied into
+     * this buffer; their positions get advanced by the number of bytes
+     * written from each of them.
+     *
+     * @param channel the destination channel.
+     * @param srcs the buffers to write after content of this buffer.
+     * @return total number of bytes written including content of this buffer.
+     * @throws IOException in case of an I/O error.
+     *
+     * @since 4.3
+     */
+    public long flush(final GatheringByteChannel channel, final ByteBuffer[] srcs) throws IOException {
+        Args.notNull(channel, "Channel");
+        Args.notNull(srcs, "Source buffers");
+        setOutputMode();
+        if (!this.buffer.hasRemaining()) {
+            return channel.write(srcs);
+        }
+        ByteBuffer[] bufs = new ByteBuffer[srcs.length + 1];
+        bufs[0] = this.buffer;
+        System.arraycopy(srcs, 0, bufs, 1, srcs.length);
+        return channel.write(bufs);
+    }
+
     public void write(final ByteBuffer src) {
         if (src == null) {
             return;
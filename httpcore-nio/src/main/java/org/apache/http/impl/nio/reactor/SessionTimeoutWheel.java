@@ -0,0 +1,250 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+
+package org.apache.http.impl.nio.reactor;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.apache.http.annotation.NotThreadSafe;
+import org.apache.http.util.Args;
+
+/**
+ * Hashed timing wheel used by I/O reactors to track session timeouts. Each
+ * tick of the wheel only visits sessions whose bucket falls due, which makes
+ * the cost of timeout tracking independent of the total number of idle
+ * sessions.
+ * <p>
+ * Session activity is not propagated to the wheel eagerly. Instead, once
+ * a session's bucket falls due its actual deadline is re-evaluated from
+ * the time of last access, and the session is either reported as timed out
+ * or re-armed for its new deadline.
+ * <p>
+ * With the exception of {@link #schedule(IOSessionImpl)} all methods of this
+ * class are expected to be called from the I/O reactor thread only.
+ *
+ * @since 4.3
+ */
+@NotThreadSafe // except #schedule(IOSessionImpl)
+class SessionTimeoutWheel {
+
+    private final long tickDuration;
+    private final Entry[] buckets;
+    private final int mask;
+    private final Map<IOSessionImpl, Entry> entries;
+    private final Queue<IOSessionImpl> pending;
+
+    private long currentTick;
+
+    /**
+     * Creates new SessionTimeoutWheel instance.
+     *
+     * @param tickDuration the duration of one tick in milliseconds.
+     * @param wheelSize the number of buckets. Will be rounded up
+     *   to the nearest power of two.
+     * @param now current time as long value.
+     */
+    public SessionTimeoutWheel(final long tickDuration, final int wheelSize, final long now) {
+        super();
+        Args.positive(tickDuration, "Tick duration");
+        Args.positive(wheelSize, "Wheel size");
+        int size = 1;
+        while (size < wheelSize) {
+            size <<= 1;
+        }
+        this.tickDuration = tickDuration;
+        this.buckets = new Entry[size];
+        for (int i = 0; i < size; i++) {
+            final Entry head = new Entry(null);
+            head.prev = head;
+            head.next = head;
+            this.buckets[i] = head;
+        }
+        this.mask = size - 1;
+        this.entries = new HashMap<IOSessionImpl, Entry>();
+        this.pending = new ConcurrentLinkedQueue<IOSessionImpl>();
+        this.currentTick = now / tickDuration;
+    }
+
+    /**
+     * Requests the session to be (re-)scheduled according to its current
+     * socket timeout. The request will be applied upon the next call to
+     * {@link #expire(long, List)}. This method can be called from any thread.
+     *
+     * @param session the I/O session.
+     */
+    public void schedule(final IOSessionImpl session) {
+        if (session != null) {
+            this.pending.add(session);
+        }
+    }
+
+    /**
+     * Removes the session from the wheel.
+     *
+     * @param session the I/O session.
+     */
+    public void cancel(final IOSessionImpl session) {
+        final Entry entry = this.entries.remove(session);
+        if (entry != null) {
+            entry.unlink();
+        }
+    }
+
+    /**
+     * Returns the number of sessions currently tracked by the wheel.
+     */
+    public int size() {
+        return this.entries.size();
+    }
+
+    /**
+     * Applies pending schedule requests and advances the wheel to the given
+     * point of time. Sessions found to have timed out are added to the
+     * <code>timedOut</code> list. Those sessions remain on the wheel and will
+     * be reported again one tick later unless they register activity, change
+     * their socket timeout or get closed in the meantime.
+     *
+     * @param now current time as long value.
+     * @param timedOut the list to add timed out sessions to.
+     */
+    public void expire(final long now, final List<IOSessionImpl> timedOut) {
+        IOSessionImpl session;
+        while ((session = this.pending.poll()) != null) {
+            rearm(session);
+        }
+        final long nowTick = now / this.tickDuration;
+        if (nowTick <= this.currentTick) {
+            return;
+        }
+        final long ticks = Math.min(nowTick - this.currentTick, this.buckets.length);
+        for (long i = 1; i <= ticks; i++) {
+            final Entry head = this.buckets[(int) ((this.currentTick + i) & this.mask)];
+            Entry entry = head.next;
+            while (entry != head) {
+                final Entry next = entry.next;
+                if (entry.tick <= nowTick) {
+                    entry.unlink();
+                    if (entry.session.isClosed() || entry.session.getSocketTimeout() <= 0) {
+                        this.entries.remove(entry.session);
+                    } else {
+                        // Hold on to the entry to prevent it from being
+                        // visited again in the course of the same advance
+                        entry.next = null;
+                        entry.prev = null;
+                        timedOut.add(entry.session);
+                    }
+                }
+                entry = next;
+            }
+        }
+        this.currentTick = nowTick;
+        // Re-arm due sessions. Those that have actually timed out are
+        // kept in the list and scheduled for another check one tick later
+        int n = 0;
+        for (int i = 0; i < timedOut.size(); i++) {
+            session = timedOut.get(i);
+            final long deadline = session.getLastAccessTime() + session.getSocketTimeout();
+            if (deadline < now) {
+                link(this.entries.get(session), this.currentTick + 1);
+                timedOut.set(n++, session);
+            } else {
+                link(this.entries.get(session), deadline / this.tickDuration + 1);
+            }
+        }
+        while (timedOut.size() > n) {
+            timedOut.remove(timedOut.size() - 1);
+        }
+    }
+
+    /**
+     * Removes all sessions from the wheel.
+     */
+    public void clear() {
+        this.pending.clear();
+        this.entries.clear();
+        for (final Entry head : this.buckets) {
+            head.prev = head;
+            head.next = head;
+        }
+    }
+
+    private void rearm(final IOSessionImpl session) {
+        final int timeout = session.getSocketTimeout();
+        if (session.isClosed() || timeout <= 0) {
+            cancel(session);
+            return;
+        }
+        Entry entry = this.entries.get(session);
+        if (entry == null) {
+            entry = new Entry(session);
+            this.entries.put(session, entry);
+        } else {
+            entry.unlink();
+        }
+        final long deadline = session.getLastAccessTime() + timeout;
+        link(entry, deadline / this.tickDuration + 1);
+    }
+
+    private void link(final Entry entry, final long tick) {
+        final long due = Math.max(tick, this.currentTick + 1);
+        final Entry head = this.buckets[(int) (due & this.mask)];
+        entry.tick = due;
+        entry.prev = head.prev;
+        entry.next = head;
+        head.prev.next = entry;
+        head.prev = entry;
+    }
+
+    static class Entry {
+
+        final IOSessionImpl session;
+
+        long tick;
+        Entry prev;
+        Entry next;
+
+        Entry(final IOSessionImpl session) {
+            super();
+            this.session = session;
+        }
+
+        void unlink() {
+            if (this.prev != null && this.next != null) {
+                this.prev.next = this.next;
+                this.next.prev = this.prev;
+            }
+            this.prev = null;
+            this.next = null;
+        }
+
+    }
+
+}
@@ -0,0 +1,64 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+
+package org.apache.http.nio;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * A content encoder that may hold back small portions of content in order
+ * to send them to the underlying channel in fewer, larger units. Content
+ * producers can use this interface to tell the encoder whether more content
+ * is about to follow or content written so far should be sent without delay.
+ *
+ * @since 4.3
+ */
+public interface FlushableContentEncoder extends ContentEncoder {
+
+    /**
+     * Writes a portion of entity content to the underlying channel.
+     *
+     * @param src The buffer from which content is to be retrieved
+     * @param moreData <code>true</code> if more content is going to follow
+     *   shortly and the encoder may hold back content in order to coalesce
+     *   it with subsequent writes, <code>false</code> if all content written
+     *   so far should be sent without delay.
+     * @return The number of bytes read, possibly zero
+     * @throws IOException if I/O error occurs while writing content
+     */
+    int write(ByteBuffer src, boolean moreData) throws IOException;
+
+    /**
+     * Sends content held back by the encoder without waiting for more
+     * content to be written.
+     *
+     * @throws IOException if I/O error occurs while writing content
+     */
+    void flush() throws IOException;
+
+}
@@ -57,6 +57,7 @@ public class ContentOutputStream extends OutputStream {
 
     @Override
     public void flush() throws IOException {
+        this.buffer.flush();
     }
 
     @Override
@@ -28,13 +28,15 @@ package org.apache.http.nio.pool;
 
 import java.io.IOException;
 import java.net.SocketAddress;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
-import java.util.ListIterator;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeSet;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
@@ -56,6 +58,14 @@ import org.apache.http.util.Args;
 
 /**
  * Abstract non-blocking connection pool.
+ * <p/>
+ * Lease requests that cannot be served immediately are queued per route.
+ * Releasing a connection services the waiters of its route only. Once
+ * total capacity becomes available, requests blocked by the total
+ * connection limit are served route by route in the order their routes
+ * ran out of capacity. Requests with a timeout are also kept ordered by
+ * their deadline so expired requests can be failed without scanning
+ * all waiters.
  *
  * @param <T> route
  * @param <C> connection object
@@ -71,7 +81,8 @@ public abstract class AbstractNIOConnPool<T, C, E extends PoolEntry<T, C>>
     private final NIOConnFactory<T, C> connFactory;
     private final SessionRequestCallback sessionRequestCallback;
     private final Map<T, RouteSpecificPool<T, C, E>> routeToPool;
-    private final LinkedList<LeaseRequest<T, C, E>> leasingRequests;
+    private final TreeSet<LeaseRequest<T, C, E>> leaseDeadlines;
+    private final Set<RouteSpecificPool<T, C, E>> capacityBlocked;
     private final Set<SessionRequest> pending;
     private final Set<E> leased;
     private final LinkedList<E> available;
@@ -82,6 +93,8 @@ public abstract class AbstractNIOConnPool<T, C, E extends PoolEntry<T, C>>
     private volatile int defaultMaxPerRoute;
     private volatile int maxTotal;
 
+    private long leaseSequence;
+
     public AbstractNIOConnPool(
             final ConnectingIOReactor ioreactor,
             final NIOConnFactory<T, C> connFactory,
@@ -96,7 +109,8 @@ public abstract class AbstractNIOConnPool<T, C, E extends PoolEntry<T, C>>
         this.connFactory = connFactory;
         this.sessionRequestCallback = new InternalSessionRequestCallback();
         this.routeToPool = new HashMap<T, RouteSpecificPool<T, C, E>>();
-        this.leasingRequests = new LinkedList<LeaseRequest<T, C, E>>();
+        this.leaseDeadlines = new TreeSet<LeaseRequest<T, C, E>>(new DeadlineComparator<T, C, E>());
+        this.capacityBlocked = new LinkedHashSet<RouteSpecificPool<T, C, E>>();
         this.pending = new HashSet<SessionRequest>();
         this.leased = new HashSet<E>();
         this.available = new LinkedList<E>();
@@ -139,7 +153,8 @@ public abstract class AbstractNIOConnPool<T, C, E extends PoolEntry<T, C>>
             this.leased.clear();
             this.pending.clear();
             this.available.clear();
-            this.leasingRequests.clear();
+            this.leaseDeadlines.clear();
+            this.capacityBlocked.clear();
             this.ioreactor.shutdown(waitMs);
         } finally {
             this.lock.unlock();
@@ -175,10 +190,15 @@ public abstract class AbstractNIOConnPool<T, C, E extends PoolEntry<T, C>>
         try {
             long timeout = connectTimeout > 0 ? tunit.toMillis(connectTimeout) : 0;
             BasicFuture<E> future = new BasicFuture<E>(callback);
-            LeaseRequest<T, C, E> request = new LeaseRequest<T, C, E>(route, state, timeout, future);
-            this.leasingRequests.add(request);
+            LeaseRequest<T, C, E> request = new LeaseRequest<T, C, E>(
+                    route, state, timeout, future, this.leaseSequence++);
+            RouteSpecificPool<T, C, E> pool = getPool(route);
+            pool.queue(request);
+            if (request.getDeadline() != Long.MAX_VALUE) {
+                this.leaseDeadlines.add(request);
+            }
 
-            processPendingRequests();
+            processPendingRequests(pool);
             return future;
         } finally {
             this.lock.unlock();
@@ -210,112 +230,168 @@ public abstract class AbstractNIOConnPool<T, C, E extends PoolEntry<T, C>>
                 } else {
                     entry.close();
                 }
-                processPendingRequests();
+                processPendingRequests(pool);
+                processCapacityBlockedRequests();
             }
         } finally {
             this.lock.unlock();
         }
     }
 
-    private void processPendingRequests() {
-        ListIterator<LeaseRequest<T, C, E>> it = this.leasingRequests.listIterator();
+    /**
+     * Services lease requests waiting for a connection to the given route
+     * in the order they have been queued.
+     */
+    private void processPendingRequests(final RouteSpecificPool<T, C, E> pool) {
+        boolean blocked = false;
+        long now = System.currentTimeMillis();
+        Iterator<LeaseRequest<T, C, E>> it = pool.leasingRequestIterator();
         while (it.hasNext()) {
             LeaseRequest<T, C, E> request = it.next();
-
-            T route = request.getRoute();
-            Object state = request.getState();
-            long deadline = request.getDeadline();
             BasicFuture<E> future = request.getFuture();
-
-            long now = System.currentTimeMillis();
-            if (now > deadline) {
+            if (future.isDone()) {
                 it.remove();
-                future.failed(new TimeoutException());
+                this.leaseDeadlines.remove(request);
                 continue;
             }
-
-            RouteSpecificPool<T, C, E> pool = getPool(route);
-            E entry = null;
-            for (;;) {
-                entry = pool.getFree(state);
-                if (entry == null) {
-                    break;
-                }
-                if (entry.isClosed() || entry.isExpired(System.currentTimeMillis())) {
-                    entry.close();
-                    this.available.remove(entry);
-                    pool.free(entry, false);
-                } else {
-                    break;
-                }
+            if (now > request.getDeadline()) {
+                it.remove();
+                this.leaseDeadlines.remove(request);
+                future.failed(new TimeoutException());
+                continue;
             }
-            if (entry != null) {
+            int result = processPendingRequest(pool, request);
+            if (result == SERVED) {
                 it.remove();
-                this.available.remove(entry);
-                this.leased.add(entry);
-                future.completed(entry);
+                this.leaseDeadlines.remove(request);
                 continue;
             }
+            if (result == BLOCKED_BY_TOTAL_LIMIT) {
+                blocked = true;
+            }
+            if (pool.getAvailableCount() == 0) {
+                // No other request for this route can be served either
+                break;
+            }
+        }
+        if (blocked) {
+            this.capacityBlocked.add(pool);
+        } else {
+            this.capacityBlocked.remove(pool);
+        }
+    }
 
-            // New connection is needed
-            int maxPerRoute = getMax(route);
-            // Shrink the pool prior to allocating a new connection
-            int excess = Math.max(0, pool.getAllocatedCount() + 1 - maxPerRoute);
-            if (excess > 0) {
-                for (int i = 0; i < excess; i++) {
-                    E lastUsed = pool.getLastUsed();
-                    if (lastUsed == null) {
-                        break;
-                    }
-                    lastUsed.close();
-                    this.available.remove(lastUsed);
-                    pool.remove(lastUsed);
-                }
+    /**
+     * Services routes with requests blocked by the total connection limit
+     * as long as there is spare capacity.
+     */
+    private void processCapacityBlockedRequests() {
+        int count = this.capacityBlocked.size();
+        while (count > 0 && this.pending.size() + this.leased.size() < this.maxTotal) {
+            Iterator<RouteSpecificPool<T, C, E>> it = this.capacityBlocked.iterator();
+            if (!it.hasNext()) {
+                break;
             }
+            RouteSpecificPool<T, C, E> pool = it.next();
+            it.remove();
+            processPendingRequests(pool);
+            count--;
+        }
+    }
 
-            if (pool.getAllocatedCount() < maxPerRoute) {
-                int totalUsed = this.pending.size() + this.leased.size();
-                int freeCapacity = Math.max(this.maxTotal - totalUsed, 0);
-                if (freeCapacity == 0) {
-                    continue;
-                }
-                int totalAvailable = this.available.size();
-                if (totalAvailable > freeCapacity - 1) {
-                    if (!this.available.isEmpty()) {
-                        E lastUsed = this.available.removeLast();
-                        lastUsed.close();
-                        RouteSpecificPool<T, C, E> otherpool = getPool(lastUsed.getRoute());
-                        otherpool.remove(lastUsed);
-                    }
+    private static final int SERVED = 0;
+    private static final int BLOCKED_BY_ROUTE_LIMIT = 1;
+    private static final int BLOCKED_BY_TOTAL_LIMIT = 2;
+
+    private int processPendingRequest(
+            final RouteSpecificPool<T, C, E> pool, final LeaseRequest<T, C, E> request) {
+        T route = request.getRoute();
+        Object state = request.getState();
+        BasicFuture<E> future = request.getFuture();
+
+        E entry = null;
+        for (;;) {
+            entry = pool.getFree(state);
+            if (entry == null) {
+                break;
+            }
+            if (entry.isClosed() || entry.isExpired(System.currentTimeMillis())) {
+                entry.close();
+                this.available.remove(entry);
+                pool.free(entry, false);
+            } else {
+                break;
+            }
+        }
+        if (entry != null) {
+            this.available.remove(entry);
+            this.leased.add(entry);
+            future.completed(entry);
+            return SERVED;
+        }
+
+        // New connection is needed
+        int maxPerRoute = getMax(route);
+        // Shrink the pool prior to allocating a new connection
+        int excess = Math.max(0, pool.getAllocatedCount() + 1 - maxPerRoute);
+        if (excess > 0) {
+            for (int i = 0; i < excess; i++) {
+                E lastUsed = pool.getLastUsed();
+                if (lastUsed == null) {
+                    break;
                 }
-                it.remove();
-                SessionRequest sessionRequest = this.ioreactor.connect(
-                        resolveRemoteAddress(route),
-                        resolveLocalAddress(route),
-                        route,
-                        this.sessionRequestCallback);
-                int timout = request.getConnectTimeout() < Integer.MAX_VALUE ?
-                        (int) request.getConnectTimeout() : Integer.MAX_VALUE;
-                sessionRequest.setConnectTimeout(timout);
-                this.pending.add(sessionRequest);
-                pool.addPending(sessionRequest, future);
+                lastUsed.close();
+                this.available.remove(lastUsed);
+                pool.remove(lastUsed);
+            }
+        }
+
+        if (pool.getAllocatedCount() >= maxPerRoute) {
+            return BLOCKED_BY_ROUTE_LIMIT;
+        }
+        int totalUsed = this.pending.size() + this.leased.size();
+        int freeCapacity = Math.max(this.maxTotal - totalUsed, 0);
+        if (freeCapacity == 0) {
+            return BLOCKED_BY_TOTAL_LIMIT;
+        }
+        int totalAvailable = this.available.size();
+        if (totalAvailable > freeCapacity - 1) {
+            if (!this.available.isEmpty()) {
+                E lastUsed = this.available.removeLast();
+                lastUsed.close();
+                RouteSpecificPool<T, C, E> otherpool = getPool(lastUsed.getRoute());
+                otherpool.remove(lastUsed);
             }
         }
+        SessionRequest sessionRequest = this.ioreactor.connect(
+                resolveRemoteAddress(route),
+                resolveLocalAddress(route),
+                route,
+                this.sessionRequestCallback);
+        int timout = request.getConnectTimeout() < Integer.MAX_VALUE ?
+                (int) request.getConnectTimeout() : Integer.MAX_VALUE;
+        sessionRequest.setConnectTimeout(timout);
+        this.pending.add(sessionRequest);
+        pool.addPending(sessionRequest, future);
+        return SERVED;
     }
 
     public void validatePendingRequests() {
         this.lock.lock();
         try {
             long now = System.currentTimeMillis();
-            ListIterator<LeaseRequest<T, C, E>> it = this.leasingRequests.listIterator();
-            while (it.hasNext()) {
-                LeaseRequest<T, C, E> request = it.next();
-                long deadline = request.getDeadline();
-                if (now > deadline) {
-                    it.remove();
-                    BasicFuture<E> future = request.getFuture();
-                    future.failed(new TimeoutException());
+            while (!this.leaseDeadlines.isEmpty()) {
+                LeaseRequest<T, C, E> request = this.leaseDeadlines.first();
+                if (now <= request.getDeadline()) {
+                    break;
+                }
+                this.leaseDeadlines.remove(request);
+                RouteSpecificPool<T, C, E> pool = this.routeToPool.get(request.getRoute());
+                if (pool != null) {
+                    pool.unqueue(request);
                 }
+                BasicFuture<E> future = request.getFuture();
+                future.failed(new TimeoutException());
             }
         } finally {
             this.lock.unlock();
@@ -358,7 +434,8 @@ public abstract class AbstractNIOConnPool<T, C, E extends PoolEntry<T, C>>
             this.pending.remove(request);
             RouteSpecificPool<T, C, E> pool = getPool(route);
             pool.cancelled(request);
-            processPendingRequests();
+            processPendingRequests(pool);
+            processCapacityBlockedRequests();
         } finally {
             this.lock.unlock();
         }
@@ -375,7 +452,8 @@ public abstract class AbstractNIOConnPool<T, C, E extends PoolEntry<T, C>>
             this.pending.remove(request);
             RouteSpecificPool<T, C, E> pool = getPool(route);
             pool.failed(request, request.getException());
-            processPendingRequests();
+            processPendingRequests(pool);
+            processCapacityBlockedRequests();
         } finally {
             this.lock.unlock();
         }
@@ -392,7 +470,8 @@ public abstract class AbstractNIOConnPool<T, C, E extends PoolEntry<T, C>>
             this.pending.remove(request);
             RouteSpecificPool<T, C, E> pool = getPool(route);
             pool.timeout(request);
-            processPendingRequests();
+            processPendingRequests(pool);
+            processCapacityBlockedRequests();
         } finally {
             this.lock.unlock();
         }
@@ -503,6 +582,7 @@ public abstract class AbstractNIOConnPool<T, C, E extends PoolEntry<T, C>>
         long deadline = System.currentTimeMillis() - time;
         this.lock.lock();
         try {
+            Set<RouteSpecificPool<T, C, E>> affected = new HashSet<RouteSpecificPool<T, C, E>>();
             Iterator<E> it = this.available.iterator();
             while (it.hasNext()) {
                 E entry = it.next();
@@ -511,9 +591,10 @@ public abstract class AbstractNIOConnPool<T, C, E extends PoolEntry<T, C>>
                     RouteSpecificPool<T, C, E> pool = getPool(entry.getRoute());
                     pool.remove(entry);
                     it.remove();
+                    affected.add(pool);
                 }
             }
-            processPendingRequests();
+            processPendingRequests(affected);
         } finally {
             this.lock.unlock();
         }
@@ -523,6 +604,7 @@ public abstract class AbstractNIOConnPool<T, C, E extends PoolEntry<T, C>>
         long now = System.currentTimeMillis();
         this.lock.lock();
         try {
+            Set<RouteSpecificPool<T, C, E>> affected = new HashSet<RouteSpecificPool<T, C, E>>();
             Iterator<E> it = this.available.iterator();
             while (it.hasNext()) {
                 E entry = it.next();
@@ -531,14 +613,22 @@ public abstract class AbstractNIOConnPool<T, C, E extends PoolEntry<T, C>>
                     RouteSpecificPool<T, C, E> pool = getPool(entry.getRoute());
                     pool.remove(entry);
                     it.remove();
+                    affected.add(pool);
                 }
             }
-            processPendingRequests();
+            processPendingRequests(affected);
         } finally {
             this.lock.unlock();
         }
     }
 
+    private void processPendingRequests(final Set<RouteSpecificPool<T, C, E>> pools) {
+        for (RouteSpecificPool<T, C, E> pool: pools) {
+            processPendingRequests(pool);
+        }
+        processCapacityBlockedRequests();
+    }
+
     @Override
     public String toString() {
         StringBuilder buffer = new StringBuilder();
@@ -552,6 +642,22 @@ public abstract class AbstractNIOConnPool<T, C, E extends PoolEntry<T, C>>
         return buffer.toString();
     }
 
+    static class DeadlineComparator<T, C, E extends PoolEntry<T, C>>
+                                        implements Comparator<LeaseRequest<T, C, E>> {
+
+        public int compare(final LeaseRequest<T, C, E> r1, final LeaseRequest<T, C, E> r2) {
+            long d1 = r1.getDeadline();
+            long d2 = r2.getDeadline();
+            if (d1 != d2) {
+                return d1 < d2 ? -1 : 1;
+            }
+            long s1 = r1.getSequence();
+            long s2 = r2.getSequence();
+            return s1 < s2 ? -1 : (s1 == s2 ? 0 : 1);
+        }
+
+    }
+
     class InternalSessionRequestCallback implements SessionRequestCallback {
 
         public void completed(final SessionRequest request) {
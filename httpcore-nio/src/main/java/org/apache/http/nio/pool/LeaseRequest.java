@@ -38,12 +38,17 @@ class LeaseRequest<T, C, E extends PoolEntry<T, C>> {
     private final long connectTimeout;
     private final long deadline;
     private final BasicFuture<E> future;
+    private final long sequence;
 
+    /**
+     * @since 4.3
+     */
     public LeaseRequest(
             final T route,
             final Object state,
             final long connectTimeout,
-            final BasicFuture<E> future) {
+            final BasicFuture<E> future,
+            final long sequence) {
         super();
         this.route = route;
         this.state = state;
@@ -51,6 +56,15 @@ class LeaseRequest<T, C, E extends PoolEntry<T, C>> {
         this.deadline = connectTimeout > 0 ? System.currentTimeMillis() + connectTimeout :
             Long.MAX_VALUE;
         this.future = future;
+        this.sequence = sequence;
+    }
+
+    public LeaseRequest(
+            final T route,
+            final Object state,
+            final long connectTimeout,
+            final BasicFuture<E> future) {
+        this(route, state, connectTimeout, future, 0);
     }
 
     public T getRoute() {
@@ -73,6 +87,16 @@ class LeaseRequest<T, C, E extends PoolEntry<T, C>> {
         return this.future;
     }
 
+    /**
+     * Returns the sequence number used to order requests with
+     * the same deadline.
+     *
+     * @since 4.3
+     */
+    public long getSequence() {
+        return this.sequence;
+    }
+
     @Override
     public String toString() {
         StringBuilder buffer = new StringBuilder();
@@ -30,6 +30,7 @@ import java.net.SocketTimeoutException;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.Map;
 import java.util.Set;
@@ -47,6 +48,7 @@ abstract class RouteSpecificPool<T, C, E extends PoolEntry<T, C>> {
     private final Set<E> leased;
     private final LinkedList<E> available;
     private final Map<SessionRequest, BasicFuture<E>> pending;
+    private final Set<LeaseRequest<T, C, E>> leasingRequests;
 
     RouteSpecificPool(final T route) {
         super();
@@ -54,6 +56,7 @@ abstract class RouteSpecificPool<T, C, E extends PoolEntry<T, C>> {
         this.leased = new HashSet<E>();
         this.available = new LinkedList<E>();
         this.pending = new HashMap<SessionRequest, BasicFuture<E>>();
+        this.leasingRequests = new LinkedHashSet<LeaseRequest<T, C, E>>();
     }
 
     protected abstract E createEntry(T route, C conn);
@@ -170,7 +173,29 @@ abstract class RouteSpecificPool<T, C, E extends PoolEntry<T, C>> {
         future.failed(new SocketTimeoutException());
     }
 
+    public void queue(final LeaseRequest<T, C, E> request) {
+        this.leasingRequests.add(request);
+    }
+
+    public boolean unqueue(final LeaseRequest<T, C, E> request) {
+        return this.leasingRequests.remove(request);
+    }
+
+    /**
+     * Returns lease requests waiting for a connection to this route
+     * in the order they have been queued. Requests can be removed
+     * through the iterator.
+     */
+    public Iterator<LeaseRequest<T, C, E>> leasingRequestIterator() {
+        return this.leasingRequests.iterator();
+    }
+
+    public int getLeasingRequestCount() {
+        return this.leasingRequests.size();
+    }
+
     public void shutdown() {
+        this.leasingRequests.clear();
         for (SessionRequest sessionRequest: this.pending.keySet()) {
             sessionRequest.cancel();
         }
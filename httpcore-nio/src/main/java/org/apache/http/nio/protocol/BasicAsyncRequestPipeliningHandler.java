@@ -0,0 +1,377 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+
+package org.apache.http.nio.protocol;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+
+import org.apache.http.ConnectionReuseStrategy;
+import org.apache.http.HttpException;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpResponse;
+import org.apache.http.concurrent.BasicFuture;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.impl.DefaultConnectionReuseStrategy;
+import org.apache.http.nio.ContentDecoder;
+import org.apache.http.nio.ContentEncoder;
+import org.apache.http.nio.IOControl;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.protocol.HttpProcessor;
+import org.apache.http.util.Args;
+
+/**
+ * Basic implementation of {@link HttpAsyncRequestPipeliningHandler} that
+ * executes a series of HTTP request / response exchanges over the same
+ * connection using HTTP pipelining. The result of execution is a list of
+ * individual results in the order the requests have been submitted.
+ * <p/>
+ * If the connection fails before all responses have been received and all
+ * requests awaiting a response are idempotent and repeatable, the unanswered
+ * requests can be re-executed over a new connection when the handler
+ * is used with {@link HttpAsyncRequester#executePipelined(List, List,
+ * org.apache.http.pool.ConnPool, HttpContext, FutureCallback)}.
+ *
+ * @param <T> the result type of individual request execution.
+ * @since 4.3
+ */
+public class BasicAsyncRequestPipeliningHandler<T> implements HttpAsyncRequestPipeliningHandler<List<T>> {
+
+    private static final int MAX_STALLED_RETRIES = 1;
+
+    private final List<HttpAsyncRequestProducer> requestProducers;
+    private final List<HttpAsyncResponseConsumer<T>> responseConsumers;
+    private final HttpRequest[] requests;
+    private final List<T> results;
+    private final BasicFuture<List<T>> future;
+    private final HttpContext localContext;
+    private final HttpProcessor httppocessor;
+    private final ConnectionReuseStrategy reuseStrategy;
+
+    private volatile int requestCount;
+    private volatile int responseCount;
+    private volatile boolean responseInProgress;
+    private volatile RetryCallback retryCallback;
+    private volatile int attemptOffset;
+    private volatile int stalledRetries;
+
+    /**
+     * Creates new instance of BasicAsyncRequestPipeliningHandler.
+     *
+     * @param requestProducers the request producers.
+     * @param responseConsumers the response consumers, one per request producer.
+     * @param callback the future callback invoked when the operation is completed.
+     * @param localContext the local execution context.
+     * @param httppocessor the HTTP protocol processor.
+     * @param reuseStrategy the connection re-use strategy. If <code>null</code>
+     *   {@link DefaultConnectionReuseStrategy#INSTANCE} will be used.
+     */
+    public BasicAsyncRequestPipeliningHandler(
+            final List<? extends HttpAsyncRequestProducer> requestProducers,
+            final List<? extends HttpAsyncResponseConsumer<T>> responseConsumers,
+            final FutureCallback<List<T>> callback,
+            final HttpContext localContext,
+            final HttpProcessor httppocessor,
+            final ConnectionReuseStrategy reuseStrategy) {
+        super();
+        Args.notEmpty(requestProducers, "Request producer list");
+        Args.notEmpty(responseConsumers, "Response consumer list");
+        Args.check(requestProducers.size() == responseConsumers.size(),
+                "Number of request producers does not match that of response consumers");
+        this.requestProducers = new ArrayList<HttpAsyncRequestProducer>(requestProducers);
+        this.responseConsumers = new ArrayList<HttpAsyncResponseConsumer<T>>(responseConsumers);
+        this.requests = new HttpRequest[this.requestProducers.size()];
+        this.results = new ArrayList<T>(this.requestProducers.size());
+        this.future = new BasicFuture<List<T>>(callback);
+        this.localContext = Args.notNull(localContext, "HTTP context");
+        this.httppocessor = Args.notNull(httppocessor, "HTTP processor");
+        this.reuseStrategy = reuseStrategy != null ? reuseStrategy :
+            DefaultConnectionReuseStrategy.INSTANCE;
+    }
+
+    /**
+     * Creates new instance of BasicAsyncRequestPipeliningHandler.
+     *
+     * @param requestProducers the request producers.
+     * @param responseConsumers the response consumers, one per request producer.
+     * @param localContext the local execution context.
+     * @param httppocessor the HTTP protocol processor.
+     */
+    public BasicAsyncRequestPipeliningHandler(
+            final List<? extends HttpAsyncRequestProducer> requestProducers,
+            final List<? extends HttpAsyncResponseConsumer<T>> responseConsumers,
+            final HttpContext localContext,
+            final HttpProcessor httppocessor) {
+        this(requestProducers, responseConsumers, null, localContext, httppocessor, null);
+    }
+
+    public Future<List<T>> getFuture() {
+        return this.future;
+    }
+
+    private void releaseResources() {
+        for (HttpAsyncResponseConsumer<T> responseConsumer: this.responseConsumers) {
+            try {
+                responseConsumer.close();
+            } catch (IOException ex) {
+            }
+        }
+        for (HttpAsyncRequestProducer requestProducer: this.requestProducers) {
+            try {
+                requestProducer.close();
+            } catch (IOException ex) {
+            }
+        }
+    }
+
+    public void close() throws IOException {
+        releaseResources();
+        if (!this.future.isDone()) {
+            this.future.cancel();
+        }
+    }
+
+    public HttpHost getTarget() {
+        return this.requestProducers.get(0).getTarget();
+    }
+
+    public HttpRequest generateRequest() throws IOException, HttpException {
+        int i = this.requestCount;
+        if (i >= this.requests.length) {
+            return null;
+        }
+        HttpRequest request = this.requestProducers.get(i).generateRequest();
+        this.requests[i] = request;
+        return request;
+    }
+
+    public void produceContent(
+            final ContentEncoder encoder, final IOControl ioctrl) throws IOException {
+        this.requestProducers.get(this.requestCount).produceContent(encoder, ioctrl);
+    }
+
+    public void requestCompleted(final HttpContext context) {
+        this.requestProducers.get(this.requestCount).requestCompleted(context);
+        this.requestCount++;
+    }
+
+    public boolean isRepeatable() {
+        return false;
+    }
+
+    public void resetRequest() {
+    }
+
+    public void responseReceived(final HttpResponse response) throws IOException, HttpException {
+        if (this.requestCount == this.responseCount) {
+            // The request has been answered before its content was sent
+            this.requestCount++;
+        }
+        this.responseInProgress = true;
+        this.responseConsumers.get(this.responseCount).responseReceived(response);
+    }
+
+    public void consumeContent(
+            final ContentDecoder decoder, final IOControl ioctrl) throws IOException {
+        this.responseConsumers.get(this.responseCount).consumeContent(decoder, ioctrl);
+    }
+
+    public void failed(final Exception ex) {
+        RetryCallback callback = this.retryCallback;
+        if (callback != null && isRetriable(ex)) {
+            boolean prepared = false;
+            try {
+                prepareRetry();
+                prepared = true;
+            } catch (IOException ignore) {
+            }
+            if (prepared) {
+                callback.retry();
+                return;
+            }
+        }
+        try {
+            for (int i = this.responseCount; i < this.requests.length; i++) {
+                if (i >= this.requestCount) {
+                    this.requestProducers.get(i).failed(ex);
+                }
+                this.responseConsumers.get(i).failed(ex);
+            }
+        } finally {
+            try {
+                this.future.failed(ex);
+            } finally {
+                releaseResources();
+            }
+        }
+    }
+
+    public boolean cancel() {
+        try {
+            boolean cancelled = false;
+            for (int i = this.responseCount; i < this.requests.length; i++) {
+                if (this.responseConsumers.get(i).cancel()) {
+                    cancelled = true;
+                }
+            }
+            this.future.cancel();
+            releaseResources();
+            return cancelled;
+        } catch (RuntimeException ex) {
+            failed(ex);
+            throw ex;
+        }
+    }
+
+    public void responseCompleted(final HttpContext context) {
+        try {
+            HttpAsyncResponseConsumer<T> responseConsumer = this.responseConsumers.get(this.responseCount);
+            responseConsumer.responseCompleted(context);
+            this.responseInProgress = false;
+            T result = responseConsumer.getResult();
+            Exception ex = responseConsumer.getException();
+            if (ex == null) {
+                this.results.add(result);
+                this.responseCount++;
+                if (this.responseCount == this.requests.length) {
+                    this.future.completed(this.results);
+                    releaseResources();
+                }
+            } else {
+                this.future.failed(ex);
+                releaseResources();
+            }
+        } catch (RuntimeException ex) {
+            failed(ex);
+            throw ex;
+        }
+    }
+
+    public List<T> getResult() {
+        return this.future.isDone() ? this.results : null;
+    }
+
+    public Exception getException() {
+        for (HttpAsyncResponseConsumer<T> responseConsumer: this.responseConsumers) {
+            Exception ex = responseConsumer.getException();
+            if (ex != null) {
+                return ex;
+            }
+        }
+        return null;
+    }
+
+    public HttpContext getContext() {
+        return this.localContext;
+    }
+
+    public HttpProcessor getHttpProcessor() {
+        return this.httppocessor;
+    }
+
+    public ConnectionReuseStrategy getConnectionReuseStrategy() {
+        return this.reuseStrategy;
+    }
+
+    public boolean isDone() {
+        return this.future.isDone();
+    }
+
+    void setRetryCallback(final RetryCallback retryCallback) {
+        this.retryCallback = retryCallback;
+    }
+
+    /**
+     * Determines whether the requests that have not been answered yet can be
+     * safely re-executed over a new connection. Only I/O failures occurring
+     * between responses are retried, all unanswered requests must be idempotent
+     * and their producers repeatable, and the execution must have made progress
+     * since the last retry.
+     */
+    boolean isRetriable(final Exception ex) {
+        if (!(ex instanceof IOException)) {
+            return false;
+        }
+        if (this.future.isDone() || this.responseInProgress) {
+            return false;
+        }
+        if (this.responseCount == this.attemptOffset && this.stalledRetries >= MAX_STALLED_RETRIES) {
+            return false;
+        }
+        for (int i = this.responseCount; i < this.requests.length; i++) {
+            HttpRequest request = this.requests[i];
+            if (request == null) {
+                break;
+            }
+            if (!isIdempotent(request) || !this.requestProducers.get(i).isRepeatable()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isIdempotent(final HttpRequest request) {
+        String method = request.getRequestLine().getMethod();
+        return method.equalsIgnoreCase("GET")
+            || method.equalsIgnoreCase("HEAD")
+            || method.equalsIgnoreCase("OPTIONS")
+            || method.equalsIgnoreCase("TRACE")
+            || method.equalsIgnoreCase("PUT")
+            || method.equalsIgnoreCase("DELETE");
+    }
+
+    private void prepareRetry() throws IOException {
+        if (this.responseCount == this.attemptOffset) {
+            this.stalledRetries++;
+        } else {
+            this.stalledRetries = 0;
+        }
+        this.attemptOffset = this.responseCount;
+        for (int i = this.responseCount; i < this.requests.length; i++) {
+            if (this.requests[i] != null) {
+                this.requestProducers.get(i).resetRequest();
+                this.requests[i] = null;
+            }
+        }
+        this.requestCount = this.responseCount;
+    }
+
+    /**
+     * Callback invoked by a failed handler that is ready to be re-executed.
+     * The callback is expected to detach the handler from the failed
+     * connection and execute it over a new one.
+     */
+    interface RetryCallback {
+
+        void retry();
+
+    }
+
+}
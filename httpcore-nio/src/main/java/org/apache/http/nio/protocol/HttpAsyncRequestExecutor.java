@@ -30,6 +30,8 @@ package org.apache.http.nio.protocol;
 import java.io.Closeable;
 import java.io.IOException;
 import java.net.SocketTimeoutException;
+import java.util.LinkedList;
+import java.util.Queue;
 
 import org.apache.http.ConnectionClosedException;
 import org.apache.http.ConnectionReuseStrategy;
@@ -70,6 +72,13 @@ import org.apache.http.util.Args;
  * complete when the {@link HttpAsyncRequestExecutionHandler#isDone()} method
  * returns <code>true</code>. The {@link HttpAsyncRequester} utility class can
  * be used to facilitate initiation of asynchronous HTTP request execution.
+ * <p/>
+ * If the handler implements {@link HttpAsyncRequestPipeliningHandler}
+ * <tt>HttpAsyncRequestExecutor</tt> will pipeline requests, that is, it will
+ * send the next request as soon as the previous one has been written out
+ * without waiting for its response. Responses are matched to requests in
+ * the order the requests have been sent. Requests are never pipelined
+ * behind a request that expects a <code>100-continue</code> handshake.
  *
  * @see HttpAsyncRequestExecutionHandler
  *
@@ -109,8 +118,10 @@ public class HttpAsyncRequestExecutor implements NHttpClientEventHandler {
     public void closed(final NHttpClientConnection conn) {
         State state = getState(conn);
         HttpAsyncRequestExecutionHandler<?> handler = getHandler(conn);
-        if (state == null || !state.isValid()) {
-            closeHandler(handler, null);
+        if (isPipelining(handler) && !handler.isDone()) {
+            closeHandler(conn, handler, new ConnectionClosedException("Connection closed"));
+        } else if (state == null || !state.isValid()) {
+            closeHandler(conn, handler, null);
         }
         if (state != null) {
             state.reset();
@@ -122,7 +133,7 @@ public class HttpAsyncRequestExecutor implements NHttpClientEventHandler {
         shutdownConnection(conn);
         HttpAsyncRequestExecutionHandler<?> handler = getHandler(conn);
         if (handler != null) {
-            closeHandler(handler, cause);
+            closeHandler(conn, handler, cause);
         } else {
             log(cause);
         }
@@ -136,7 +147,7 @@ public class HttpAsyncRequestExecutor implements NHttpClientEventHandler {
         }
         HttpAsyncRequestExecutionHandler<?> handler = getHandler(conn);
         if (handler != null && handler.isDone()) {
-            closeHandler(handler, null);
+            closeHandler(conn, handler, null);
             state.reset();
             handler = null;
         }
@@ -147,18 +158,31 @@ public class HttpAsyncRequestExecutor implements NHttpClientEventHandler {
         HttpContext context = handler.getContext();
         context.setAttribute(ExecutionContext.HTTP_CONNECTION, conn);
 
+        boolean pipelining = isPipelining(handler);
+        if (pipelining && state.isExpectingContinue()) {
+            return;
+        }
+
         HttpRequest request = handler.generateRequest();
+        if (pipelining && request == null) {
+            return;
+        }
         context.setAttribute(ExecutionContext.HTTP_REQUEST, request);
 
         HttpProcessor httppocessor = handler.getHttpProcessor();
         httppocessor.process(request, context);
 
-        state.setRequest(request);
+        if (pipelining) {
+            state.getRequestQueue().add(request);
+        } else {
+            state.setRequest(request);
+        }
 
         conn.submitRequest(request);
 
         if (request instanceof HttpEntityEnclosingRequest) {
             if (((HttpEntityEnclosingRequest) request).expectContinue()) {
+                state.setExpectingContinue(true);
                 int timeout = conn.getSocketTimeout();
                 state.setTimeout(timeout);
                 conn.setSocketTimeout(this.waitForContinue);
@@ -168,7 +192,7 @@ public class HttpAsyncRequestExecutor implements NHttpClientEventHandler {
             }
         } else {
             handler.requestCompleted(context);
-            state.setRequestState(MessageState.COMPLETED);
+            state.setRequestState(pipelining ? MessageState.READY : MessageState.COMPLETED);
         }
     }
 
@@ -186,7 +210,7 @@ public class HttpAsyncRequestExecutor implements NHttpClientEventHandler {
         state.setRequestState(MessageState.BODY_STREAM);
         if (encoder.isCompleted()) {
             handler.requestCompleted(context);
-            state.setRequestState(MessageState.COMPLETED);
+            state.setRequestState(isPipelining(handler) ? MessageState.READY : MessageState.COMPLETED);
         }
     }
 
@@ -195,7 +219,16 @@ public class HttpAsyncRequestExecutor implements NHttpClientEventHandler {
         State state = ensureNotNull(getState(conn));
         HttpAsyncRequestExecutionHandler<?> handler = ensureNotNull(getHandler(conn));
         HttpResponse response = conn.getHttpResponse();
-        HttpRequest request = state.getRequest();
+        boolean pipelining = isPipelining(handler);
+        HttpRequest request;
+        if (pipelining) {
+            request = state.getRequestQueue().peek();
+            if (request == null) {
+                throw new ProtocolException("Unexpected response: " + response.getStatusLine());
+            }
+        } else {
+            request = state.getRequest();
+        }
 
         int statusCode = response.getStatusLine().getStatusCode();
         if (statusCode < HttpStatus.SC_OK) {
@@ -212,12 +245,23 @@ public class HttpAsyncRequestExecutor implements NHttpClientEventHandler {
             }
             return;
         }
+        boolean lastRequest = true;
+        if (pipelining) {
+            state.getRequestQueue().remove();
+            state.setRequest(request);
+            lastRequest = state.getRequestQueue().isEmpty();
+            if (lastRequest) {
+                state.setExpectingContinue(false);
+            }
+        }
         state.setResponse(response);
-        if (state.getRequestState() == MessageState.ACK_EXPECTED) {
+        if (!lastRequest) {
+            // Response to a request that precedes the one being sent
+        } else if (state.getRequestState() == MessageState.ACK_EXPECTED) {
             int timeout = state.getTimeout();
             conn.setSocketTimeout(timeout);
             conn.resetOutput();
-            state.setRequestState(MessageState.COMPLETED);
+            state.setRequestState(pipelining ? MessageState.READY : MessageState.COMPLETED);
         } else if (state.getRequestState() == MessageState.BODY_STREAM) {
             // Early response
             conn.resetOutput();
@@ -257,9 +301,10 @@ public class HttpAsyncRequestExecutor implements NHttpClientEventHandler {
     public void endOfInput(final NHttpClientConnection conn) throws IOException {
         State state = getState(conn);
         if (state != null) {
-            if (state.getRequestState().compareTo(MessageState.READY) != 0) {
+            if (state.getRequestState().compareTo(MessageState.READY) != 0
+                    || !state.getRequestQueue().isEmpty()) {
                 state.invalidate();
-                closeHandler(getHandler(conn), new ConnectionClosedException("Connection closed"));
+                closeHandler(conn, getHandler(conn), new ConnectionClosedException("Connection closed"));
             }
         }
         conn.close();
@@ -277,7 +322,7 @@ public class HttpAsyncRequestExecutor implements NHttpClientEventHandler {
                 return;
             } else {
                 state.invalidate();
-                closeHandler(getHandler(conn), new SocketTimeoutException());
+                closeHandler(conn, getHandler(conn), new SocketTimeoutException());
             }
         }
         if (conn.getStatus() == NHttpConnection.ACTIVE) {
@@ -323,6 +368,10 @@ public class HttpAsyncRequestExecutor implements NHttpClientEventHandler {
         return handler;
     }
 
+    private boolean isPipelining(final HttpAsyncRequestExecutionHandler<?> handler) {
+        return handler instanceof HttpAsyncRequestPipeliningHandler<?>;
+    }
+
     private void shutdownConnection(final NHttpConnection conn) {
         try {
             conn.shutdown();
@@ -331,17 +380,24 @@ public class HttpAsyncRequestExecutor implements NHttpClientEventHandler {
         }
     }
 
-    private void closeHandler(final HttpAsyncRequestExecutionHandler<?> handler, final Exception ex) {
+    private void closeHandler(
+            final NHttpConnection conn,
+            final HttpAsyncRequestExecutionHandler<?> handler,
+            final Exception ex) {
         if (handler != null) {
             try {
                 if (ex != null) {
                     handler.failed(ex);
                 }
             } finally {
-                try {
-                    handler.close();
-                } catch (IOException ioex) {
-                    log(ioex);
+                // A failed handler may have detached itself from the connection
+                // in order to be re-executed; it is no longer ours to close
+                if (getHandler(conn) == handler) {
+                    try {
+                        handler.close();
+                    } catch (IOException ioex) {
+                        log(ioex);
+                    }
                 }
             }
         }
@@ -367,7 +423,11 @@ public class HttpAsyncRequestExecutor implements NHttpClientEventHandler {
             conn.close();
         }
         handler.responseCompleted(context);
-        state.reset();
+        if (isPipelining(handler)) {
+            state.resetResponse();
+        } else {
+            state.reset();
+        }
     }
 
     private boolean canResponseHaveBody(final HttpRequest request, final HttpResponse response) {
@@ -397,9 +457,12 @@ public class HttpAsyncRequestExecutor implements NHttpClientEventHandler {
         private volatile HttpResponse response;
         private volatile boolean valid;
         private volatile int timeout;
+        private volatile boolean expectingContinue;
+        private final Queue<HttpRequest> requestQueue;
 
         State() {
             super();
+            this.requestQueue = new LinkedList<HttpRequest>();
             this.valid = true;
             this.requestState = MessageState.READY;
             this.responseState = MessageState.READY;
@@ -445,12 +508,32 @@ public class HttpAsyncRequestExecutor implements NHttpClientEventHandler {
             this.timeout = timeout;
         }
 
+        public Queue<HttpRequest> getRequestQueue() {
+            return this.requestQueue;
+        }
+
+        public boolean isExpectingContinue() {
+            return this.expectingContinue;
+        }
+
+        public void setExpectingContinue(final boolean expectingContinue) {
+            this.expectingContinue = expectingContinue;
+        }
+
+        public void resetResponse() {
+            this.responseState = MessageState.READY;
+            this.response = null;
+            this.request = null;
+        }
+
         public void reset() {
             this.responseState = MessageState.READY;
             this.requestState = MessageState.READY;
             this.response = null;
             this.request = null;
             this.timeout = 0;
+            this.expectingContinue = false;
+            this.requestQueue.clear();
         }
 
         public boolean isValid() {
@@ -0,0 +1,47 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+
+package org.apache.http.nio.protocol;
+
+/**
+ * <tt>HttpAsyncRequestPipeliningHandler</tt> is a marker interface for
+ * {@link HttpAsyncRequestExecutionHandler}s capable of executing a series of
+ * HTTP requests over the same connection without waiting for a response to
+ * each individual request (HTTP pipelining).
+ * <p/>
+ * {@link HttpAsyncRequestExecutor} will ask such handlers to generate the next
+ * request as soon as the previous one has been fully written out.
+ * The {@link #generateRequest()} method is expected to return <code>null</code>
+ * when there are no more requests to be sent. Responses are delivered in
+ * the same order the requests have been generated.
+ *
+ * @param <T> the result type of request execution.
+ * @since 4.3
+ */
+public interface HttpAsyncRequestPipeliningHandler<T> extends HttpAsyncRequestExecutionHandler<T> {
+
+}
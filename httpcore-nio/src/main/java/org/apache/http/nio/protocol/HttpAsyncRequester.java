@@ -28,6 +28,7 @@ package org.apache.http.nio.protocol;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.util.List;
 import java.util.concurrent.Future;
 
 import org.apache.http.ConnectionClosedException;
@@ -285,6 +286,105 @@ public class HttpAsyncRequester {
         return execute(requestProducer, responseConsumer, connPool, new BasicHttpContext());
     }
 
+    /**
+     * Initiates asynchronous execution of a series of HTTP requests over
+     * the given connection using HTTP pipelining. Responses are matched to
+     * requests in the order the requests have been submitted.
+     *
+     * @param <T> the result type of individual request execution.
+     * @param requestProducers list of request producers.
+     * @param responseConsumers list of response consumers, one per request producer.
+     * @param conn underlying HTTP connection.
+     * @param context HTTP context
+     * @param callback future callback.
+     * @return future representing pending completion of the operation.
+     *
+     * @since 4.3
+     */
+    public <T> Future<List<T>> executePipelined(
+            final List<? extends HttpAsyncRequestProducer> requestProducers,
+            final List<? extends HttpAsyncResponseConsumer<T>> responseConsumers,
+            final NHttpClientConnection conn,
+            final HttpContext context,
+            final FutureCallback<List<T>> callback) {
+        Args.notEmpty(requestProducers, "HTTP request producers");
+        Args.notEmpty(responseConsumers, "HTTP response consumers");
+        Args.notNull(conn, "HTTP connection");
+        Args.notNull(context, "HTTP context");
+        BasicAsyncRequestPipeliningHandler<T> handler = new BasicAsyncRequestPipeliningHandler<T>(
+                requestProducers, responseConsumers, callback, context,
+                this.httppocessor, this.reuseStrategy);
+        initExection(handler, conn);
+        return handler.getFuture();
+    }
+
+    /**
+     * Initiates asynchronous execution of a series of HTTP requests over
+     * a connection leased from the pool using HTTP pipelining. Responses are
+     * matched to requests in the order the requests have been submitted.
+     * All requests are expected to be sent to the same target host.
+     * <p/>
+     * If the connection fails before all responses have been received and all
+     * requests awaiting a response are idempotent and repeatable, a new
+     * connection is leased and unanswered requests are re-executed over it.
+     *
+     * @param <T> the result type of individual request execution.
+     * @param <E> the connection pool entry type.
+     * @param requestProducers list of request producers.
+     * @param responseConsumers list of response consumers, one per request producer.
+     * @param connPool pool of persistent reusable connections.
+     * @param context HTTP context
+     * @param callback future callback.
+     * @return future representing pending completion of the operation.
+     *
+     * @since 4.3
+     */
+    public <T, E extends PoolEntry<HttpHost, NHttpClientConnection>> Future<List<T>> executePipelined(
+            final List<? extends HttpAsyncRequestProducer> requestProducers,
+            final List<? extends HttpAsyncResponseConsumer<T>> responseConsumers,
+            final ConnPool<HttpHost, E> connPool,
+            final HttpContext context,
+            final FutureCallback<List<T>> callback) {
+        Args.notEmpty(requestProducers, "HTTP request producers");
+        Args.notEmpty(responseConsumers, "HTTP response consumers");
+        Args.notNull(connPool, "HTTP connection pool");
+        Args.notNull(context, "HTTP context");
+        BasicFuture<List<T>> future = new BasicFuture<List<T>>(callback);
+        HttpHost target = requestProducers.get(0).getTarget();
+        PipelinedConnRequestCallback<T, E> connRequestCallback = new PipelinedConnRequestCallback<T, E>(
+                future, target, connPool);
+        BasicAsyncRequestPipeliningHandler<T> handler = new BasicAsyncRequestPipeliningHandler<T>(
+                requestProducers, responseConsumers,
+                new PipelinedRequestExecutionCallback<T, E>(connRequestCallback),
+                context, this.httppocessor, this.reuseStrategy);
+        handler.setRetryCallback(connRequestCallback);
+        connRequestCallback.setHandler(handler);
+        connPool.lease(target, null, connRequestCallback);
+        return future;
+    }
+
+    /**
+     * Initiates asynchronous execution of a series of HTTP requests over
+     * a connection leased from the pool using HTTP pipelining.
+     *
+     * @param <T> the result type of individual request execution.
+     * @param <E> the connection pool entry type.
+     * @param requestProducers list of request producers.
+     * @param responseConsumers list of response consumers, one per request producer.
+     * @param connPool pool of persistent reusable connections.
+     * @param context HTTP context
+     * @return future representing pending completion of the operation.
+     *
+     * @since 4.3
+     */
+    public <T, E extends PoolEntry<HttpHost, NHttpClientConnection>> Future<List<T>> executePipelined(
+            final List<? extends HttpAsyncRequestProducer> requestProducers,
+            final List<? extends HttpAsyncResponseConsumer<T>> responseConsumers,
+            final ConnPool<HttpHost, E> connPool,
+            final HttpContext context) {
+        return executePipelined(requestProducers, responseConsumers, connPool, context, null);
+    }
+
     class ConnRequestCallback<T, E extends PoolEntry<HttpHost, NHttpClientConnection>> implements FutureCallback<E> {
 
         private final BasicFuture<T> requestFuture;
@@ -359,6 +459,113 @@ public class HttpAsyncRequester {
 
     }
 
+    class PipelinedConnRequestCallback<T, E extends PoolEntry<HttpHost, NHttpClientConnection>>
+                            implements FutureCallback<E>, BasicAsyncRequestPipeliningHandler.RetryCallback {
+
+        private final BasicFuture<List<T>> requestFuture;
+        private final HttpHost target;
+        private final ConnPool<HttpHost, E> connPool;
+
+        private volatile BasicAsyncRequestPipeliningHandler<T> handler;
+        private volatile E poolEntry;
+
+        PipelinedConnRequestCallback(
+                final BasicFuture<List<T>> requestFuture,
+                final HttpHost target,
+                final ConnPool<HttpHost, E> connPool) {
+            super();
+            this.requestFuture = requestFuture;
+            this.target = target;
+            this.connPool = connPool;
+        }
+
+        void setHandler(final BasicAsyncRequestPipeliningHandler<T> handler) {
+            this.handler = handler;
+        }
+
+        BasicFuture<List<T>> getRequestFuture() {
+            return this.requestFuture;
+        }
+
+        public void completed(final E result) {
+            if (this.requestFuture.isDone()) {
+                this.connPool.release(result, true);
+                return;
+            }
+            this.poolEntry = result;
+            initExection(this.handler, result.getConnection());
+        }
+
+        public void failed(final Exception ex) {
+            this.handler.setRetryCallback(null);
+            this.handler.failed(ex);
+        }
+
+        public void cancelled() {
+            this.handler.cancel();
+        }
+
+        public void retry() {
+            // Detach the handler from the failed connection and start over
+            E entry = this.poolEntry;
+            this.poolEntry = null;
+            if (entry != null) {
+                entry.getConnection().getContext().removeAttribute(HttpAsyncRequestExecutor.HTTP_HANDLER);
+                this.connPool.release(entry, false);
+            }
+            if (this.requestFuture.isDone()) {
+                this.handler.cancel();
+                return;
+            }
+            this.connPool.lease(this.target, null, this);
+        }
+
+        void releaseConnection(final boolean reusable) {
+            E entry = this.poolEntry;
+            this.poolEntry = null;
+            if (entry != null) {
+                this.connPool.release(entry, reusable);
+            }
+        }
+
+    }
+
+    class PipelinedRequestExecutionCallback<T, E extends PoolEntry<HttpHost, NHttpClientConnection>>
+                                               implements FutureCallback<List<T>> {
+
+        private final PipelinedConnRequestCallback<T, E> connRequestCallback;
+
+        PipelinedRequestExecutionCallback(final PipelinedConnRequestCallback<T, E> connRequestCallback) {
+            super();
+            this.connRequestCallback = connRequestCallback;
+        }
+
+        public void completed(final List<T> result) {
+            try {
+                this.connRequestCallback.releaseConnection(true);
+            } finally {
+                this.connRequestCallback.getRequestFuture().completed(result);
+            }
+        }
+
+        public void failed(final Exception ex) {
+            try {
+                this.connRequestCallback.releaseConnection(false);
+            } finally {
+                this.connRequestCallback.getRequestFuture().failed(ex);
+            }
+        }
+
+        public void cancelled() {
+            try {
+                this.connRequestCallback.releaseConnection(false);
+            } finally {
+                this.connRequestCallback.getRequestFuture().cancel(true);
+            }
+        }
+
+    }
+
     class RequestExecutionCallback<T, E extends PoolEntry<HttpHost, NHttpClientConnection>>
                                                implements FutureCallback<T> {
 
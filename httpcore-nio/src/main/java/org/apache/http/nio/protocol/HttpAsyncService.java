@@ -30,6 +30,8 @@ package org.apache.http.nio.protocol;
 import java.io.Closeable;
 import java.io.IOException;
 import java.net.SocketTimeoutException;
+import java.util.LinkedList;
+import java.util.Queue;
 
 import org.apache.http.ConnectionReuseStrategy;
 import org.apache.http.HttpConnection;
@@ -90,6 +92,14 @@ import org.apache.http.util.Args;
  * request handling to another service or a worker thread. HTTP response can
  * be submitted as a later a later point of time once response content becomes
  * available.
+ * <p/>
+ * <tt>HttpAsyncService</tt> can optionally accept pipelined requests. Requests
+ * received while a response to a preceding request is still pending are
+ * queued up to the maximum pipeline depth and dispatched to their
+ * {@link HttpAsyncRequestHandler}s immediately. Responses, however, are always
+ * committed in the order the requests were received. Once the pipeline is
+ * full the connection stops reading input until the head response has been
+ * fully written out.
  *
  * @since 4.2
  */
@@ -104,6 +114,7 @@ public class HttpAsyncService implements NHttpServerEventHandler {
     private final HttpResponseFactory responseFactory;
     private final HttpAsyncRequestHandlerMapper handlerMapper;
     private final HttpAsyncExpectationVerifier expectationVerifier;
+    private final int maxPipelineDepth;
 
     /**
      * Creates new instance of <tt>HttpAsyncServerProtocolHandler</tt>.
@@ -169,6 +180,9 @@ public class HttpAsyncService implements NHttpServerEventHandler {
      *   {@link DefaultHttpResponseFactory#INSTANCE} will be used.
      * @param handlerMapper Request handler mapper.
      * @param expectationVerifier Request expectation verifier. May be <code>null</code>.
+     * @param maxPipelineDepth maximum number of pipelined requests that can be queued
+     *   per connection while awaiting a response to a preceding request.
+     *   If <code>0</code> request pipelining is not supported.
      *
      * @since 4.3
      */
@@ -177,7 +191,8 @@ public class HttpAsyncService implements NHttpServerEventHandler {
             final ConnectionReuseStrategy connStrategy,
             final HttpResponseFactory responseFactory,
             final HttpAsyncRequestHandlerMapper handlerMapper,
-            final HttpAsyncExpectationVerifier expectationVerifier) {
+            final HttpAsyncExpectationVerifier expectationVerifier,
+            final int maxPipelineDepth) {
         super();
         this.httpProcessor = Args.notNull(httpProcessor, "HTTP processor");
         this.connStrategy = connStrategy != null ? connStrategy :
@@ -186,6 +201,29 @@ public class HttpAsyncService implements NHttpServerEventHandler {
             DefaultHttpResponseFactory.INSTANCE;
         this.handlerMapper = handlerMapper;
         this.expectationVerifier = expectationVerifier;
+        this.maxPipelineDepth = Args.notNegative(maxPipelineDepth, "Max pipeline depth");
+    }
+
+    /**
+     * Creates new instance of <tt>HttpAsyncServerProtocolHandler</tt>.
+     *
+     * @param httpProcessor HTTP protocol processor.
+     * @param connStrategy Connection re-use strategy. If <code>null</code>
+     *   {@link DefaultConnectionReuseStrategy#INSTANCE} will be used.
+     * @param responseFactory HTTP response factory. If <code>null</code>
+     *   {@link DefaultHttpResponseFactory#INSTANCE} will be used.
+     * @param handlerMapper Request handler mapper.
+     * @param expectationVerifier Request expectation verifier. May be <code>null</code>.
+     *
+     * @since 4.3
+     */
+    public HttpAsyncService(
+            final HttpProcessor httpProcessor,
+            final ConnectionReuseStrategy connStrategy,
+            final HttpResponseFactory responseFactory,
+            final HttpAsyncRequestHandlerMapper handlerMapper,
+            final HttpAsyncExpectationVerifier expectationVerifier) {
+        this(httpProcessor, connStrategy, responseFactory, handlerMapper, expectationVerifier, 0);
     }
 
     /**
@@ -216,6 +254,7 @@ public class HttpAsyncService implements NHttpServerEventHandler {
             if (cancellable != null) {
                 cancellable.cancel();
             }
+            closePipeline(state, null);
             state.reset();
         }
     }
@@ -230,9 +269,12 @@ public class HttpAsyncService implements NHttpServerEventHandler {
             if (cancellable != null) {
                 cancellable.cancel();
             }
+            boolean pipelined = !state.getPipeline().isEmpty();
+            closePipeline(state, cause);
             if (cause instanceof HttpException) {
                 if (conn.isResponseSubmitted()
-                        || state.getResponseState().compareTo(MessageState.INIT) > 0) {
+                        || state.getResponseState().compareTo(MessageState.INIT) > 0
+                        || pipelined) {
                     // There is not much that we can do if a response
                     // has already been submitted
                     closeConnection(conn);
@@ -268,8 +310,15 @@ public class HttpAsyncService implements NHttpServerEventHandler {
     public void requestReceived(
             final NHttpServerConnection conn) throws IOException, HttpException {
         State state = ensureNotNull(getState(conn));
-        if (state.getResponseState() != MessageState.READY) {
-            throw new ProtocolException("Out of sequence request message detected (pipelining is not supported)");
+        if (state.getResponseState() != MessageState.READY || !state.getPipeline().isEmpty()) {
+            if (this.maxPipelineDepth == 0) {
+                throw new ProtocolException("Out of sequence request message detected (pipelining is not supported)");
+            }
+            if (state.getPipeline().size() >= this.maxPipelineDepth) {
+                throw new ProtocolException("Out of sequence request message detected (pipeline is full)");
+            }
+            pipelineRequest(conn, state);
+            return;
         }
         HttpRequest request = conn.getHttpRequest();
         HttpContext context = state.getContext();
@@ -314,6 +363,15 @@ public class HttpAsyncService implements NHttpServerEventHandler {
             final NHttpServerConnection conn,
             final ContentDecoder decoder) throws IOException, HttpException {
         State state = ensureNotNull(getState(conn));
+        PipelineEntry incoming = state.getIncoming();
+        if (incoming != null) {
+            incoming.getConsumer().consumeContent(decoder, conn);
+            if (decoder.isCompleted()) {
+                state.setIncoming(null);
+                processPipelinedRequest(conn, state, incoming);
+            }
+            return;
+        }
         HttpAsyncRequestConsumer<?> consumer = ensureNotNull(state.getRequestConsumer());
         consumer.consumeContent(decoder, conn);
         state.setRequestState(MessageState.BODY_STREAM);
@@ -378,13 +436,17 @@ public class HttpAsyncService implements NHttpServerEventHandler {
         state.setResponseState(MessageState.BODY_STREAM);
         if (encoder.isCompleted()) {
             responseProducer.responseCompleted(context);
-            if (!this.connStrategy.keepAlive(response, context)) {
+            boolean keepAlive = this.connStrategy.keepAlive(response, context);
+            if (!keepAlive) {
                 conn.close();
             } else {
                 conn.requestInput();
             }
             closeHandlers(state);
             state.reset();
+            if (keepAlive) {
+                promotePipelined(conn, state);
+            }
         }
     }
 
@@ -395,7 +457,9 @@ public class HttpAsyncService implements NHttpServerEventHandler {
     public void timeout(final NHttpServerConnection conn) throws IOException {
         State state = getState(conn);
         if (state != null) {
-            closeHandlers(state, new SocketTimeoutException());
+            SocketTimeoutException ex = new SocketTimeoutException();
+            closeHandlers(state, ex);
+            closePipeline(state, ex);
         }
         if (conn.getStatus() == NHttpConnection.ACTIVE) {
             conn.close();
@@ -580,7 +644,8 @@ public class HttpAsyncService implements NHttpServerEventHandler {
         if (entity == null) {
             HttpAsyncResponseProducer responseProducer = state.getResponseProducer();
             responseProducer.responseCompleted(context);
-            if (!this.connStrategy.keepAlive(response, context)) {
+            boolean keepAlive = this.connStrategy.keepAlive(response, context);
+            if (!keepAlive) {
                 conn.close();
             } else {
                 // Ready to process new request
@@ -588,11 +653,135 @@ public class HttpAsyncService implements NHttpServerEventHandler {
             }
             closeHandlers(state);
             state.reset();
+            if (keepAlive) {
+                promotePipelined(conn, state);
+            }
         } else {
             state.setResponseState(MessageState.BODY_STREAM);
         }
     }
 
+    private void pipelineRequest(
+            final NHttpServerConnection conn,
+            final State state) throws IOException, HttpException {
+        HttpRequest request = conn.getHttpRequest();
+        HttpContext context = new BasicHttpContext();
+
+        context.setAttribute(ExecutionContext.HTTP_REQUEST, request);
+        context.setAttribute(ExecutionContext.HTTP_CONNECTION, conn);
+        this.httpProcessor.process(request, context);
+
+        HttpAsyncRequestHandler<Object> requestHandler = getRequestHandler(request);
+        HttpAsyncRequestConsumer<Object> consumer = requestHandler.processRequest(request, context);
+        PipelineEntry entry = new PipelineEntry(request, requestHandler, consumer, context);
+        Queue<PipelineEntry> pipeline = state.getPipeline();
+        pipeline.add(entry);
+        if (pipeline.size() >= this.maxPipelineDepth) {
+            // Stop reading until the head of the pipeline has been written out
+            conn.suspendInput();
+        }
+
+        consumer.requestReceived(request);
+
+        // Expectations cannot be acknowledged out of sequence.
+        // Pipelined request content is simply consumed
+        if (request instanceof HttpEntityEnclosingRequest) {
+            entry.setRequestState(MessageState.BODY_STREAM);
+            state.setIncoming(entry);
+        } else {
+            processPipelinedRequest(conn, state, entry);
+        }
+    }
+
+    private void processPipelinedRequest(
+            final NHttpServerConnection conn,
+            final State state,
+            final PipelineEntry entry) throws HttpException, IOException {
+        HttpAsyncRequestHandler<Object> handler = entry.getRequestHandler();
+        HttpContext context = entry.getContext();
+        HttpAsyncRequestConsumer<Object> consumer = entry.getConsumer();
+        consumer.requestCompleted(context);
+        entry.setRequestState(MessageState.COMPLETED);
+        Exception exception = consumer.getException();
+        if (exception != null) {
+            entry.submitResponse(handleException(exception, context), conn);
+        } else {
+            HttpRequest request = entry.getRequest();
+            Object result = consumer.getResult();
+            HttpResponse response = this.responseFactory.newHttpResponse(HttpVersion.HTTP_1_1,
+                    HttpStatus.SC_OK, context);
+            Exchange httpexchange = new Exchange(request, response, state, entry, conn);
+            try {
+                handler.handle(result, httpexchange, context);
+            } catch (HttpException ex) {
+                entry.submitResponse(handleException(ex, context), conn);
+            }
+        }
+    }
+
+    private void promotePipelined(
+            final NHttpServerConnection conn,
+            final State state) {
+        PipelineEntry entry = state.getPipeline().poll();
+        if (entry == null) {
+            return;
+        }
+        state.setContext(entry.getContext());
+        state.setRequest(entry.getRequest());
+        state.setRequestHandler(entry.getRequestHandler());
+        state.setRequestConsumer(entry.getConsumer());
+        if (entry == state.getIncoming()) {
+            // Request content is still being received
+            state.setIncoming(null);
+            state.setRequestState(MessageState.BODY_STREAM);
+            entry.promote(state);
+        } else {
+            state.setRequestState(MessageState.COMPLETED);
+            state.setResponseState(MessageState.INIT);
+            entry.promote(state);
+            if (state.getResponseProducer() != null) {
+                conn.requestOutput();
+            }
+        }
+    }
+
+    private void closePipeline(final State state, final Exception ex) {
+        state.setIncoming(null);
+        PipelineEntry entry;
+        while ((entry = state.getPipeline().poll()) != null) {
+            HttpAsyncRequestConsumer<Object> consumer = entry.getConsumer();
+            try {
+                if (ex != null) {
+                    consumer.failed(ex);
+                }
+            } finally {
+                try {
+                    consumer.close();
+                } catch (IOException ioex) {
+                    log(ioex);
+                }
+            }
+            HttpAsyncResponseProducer producer = entry.getResponseProducer();
+            if (producer != null) {
+                try {
+                    if (ex != null) {
+                        producer.failed(ex);
+                    }
+                } finally {
+                    try {
+                        producer.close();
+                    } catch (IOException ioex) {
+                        log(ioex);
+                    }
+                }
+            }
+            Cancellable cancellable = entry.getCancellable();
+            if (cancellable != null) {
+                cancellable.cancel();
+            }
+        }
+    }
+
     @SuppressWarnings("unchecked")
     private HttpAsyncRequestHandler<Object> getRequestHandler(final HttpRequest request) {
         HttpAsyncRequestHandler<Object> handler = null;
@@ -607,7 +796,10 @@ public class HttpAsyncService implements NHttpServerEventHandler {
 
     static class State {
 
-        private final BasicHttpContext context;
+        private final Queue<PipelineEntry> pipeline;
+
+        private volatile HttpContext context;
+        private volatile PipelineEntry incoming;
         private volatile boolean terminated;
         private volatile HttpAsyncRequestHandler<Object> requestHandler;
         private volatile MessageState requestState;
@@ -620,6 +812,7 @@ public class HttpAsyncService implements NHttpServerEventHandler {
 
         State() {
             super();
+            this.pipeline = new LinkedList<PipelineEntry>();
             this.context = new BasicHttpContext();
             this.requestState = MessageState.READY;
             this.responseState = MessageState.READY;
@@ -629,6 +822,29 @@ public class HttpAsyncService implements NHttpServerEventHandler {
             return this.context;
         }
 
+        public void setContext(final HttpContext context) {
+            this.context = context;
+        }
+
+        /**
+         * Pipelined requests awaiting their turn to commit a response.
+         * Accessed by the I/O dispatch thread only.
+         */
+        public Queue<PipelineEntry> getPipeline() {
+            return this.pipeline;
+        }
+
+        /**
+         * Pipelined request whose content is being received, if any.
+         */
+        public PipelineEntry getIncoming() {
+            return this.incoming;
+        }
+
+        public void setIncoming(final PipelineEntry incoming) {
+            this.incoming = incoming;
+        }
+
         public boolean isTerminated() {
             return this.terminated;
         }
@@ -702,7 +918,9 @@ public class HttpAsyncService implements NHttpServerEventHandler {
         }
 
         public void reset() {
-            this.context.clear();
+            if (this.context instanceof BasicHttpContext) {
+                ((BasicHttpContext) this.context).clear();
+            }
             this.responseState = MessageState.READY;
             this.requestState = MessageState.READY;
             this.requestHandler = null;
@@ -734,11 +952,111 @@ public class HttpAsyncService implements NHttpServerEventHandler {
 
     }
 
+    /**
+     * Pipelined request queued behind the exchange currently at the head of
+     * the connection. Its response producer and cancellable are handed over
+     * to the {@link State} once the entry reaches the head of the pipeline.
+     */
+    static class PipelineEntry {
+
+        private final HttpRequest request;
+        private final HttpAsyncRequestHandler<Object> requestHandler;
+        private final HttpAsyncRequestConsumer<Object> consumer;
+        private final HttpContext context;
+
+        private volatile MessageState requestState;
+        private HttpAsyncResponseProducer responseProducer;
+        private Cancellable cancellable;
+        private State owner;
+
+        PipelineEntry(
+                final HttpRequest request,
+                final HttpAsyncRequestHandler<Object> requestHandler,
+                final HttpAsyncRequestConsumer<Object> consumer,
+                final HttpContext context) {
+            super();
+            this.request = request;
+            this.requestHandler = requestHandler;
+            this.consumer = consumer;
+            this.context = context;
+            this.requestState = MessageState.READY;
+        }
+
+        public HttpRequest getRequest() {
+            return this.request;
+        }
+
+        public HttpAsyncRequestHandler<Object> getRequestHandler() {
+            return this.requestHandler;
+        }
+
+        public HttpAsyncRequestConsumer<Object> getConsumer() {
+            return this.consumer;
+        }
+
+        public HttpContext getContext() {
+            return this.context;
+        }
+
+        public MessageState getRequestState() {
+            return this.requestState;
+        }
+
+        public void setRequestState(final MessageState state) {
+            this.requestState = state;
+        }
+
+        public synchronized HttpAsyncResponseProducer getResponseProducer() {
+            return this.responseProducer;
+        }
+
+        public synchronized Cancellable getCancellable() {
+            return this.cancellable;
+        }
+
+        public synchronized void setCancellable(final Cancellable cancellable) {
+            if (this.owner != null) {
+                this.owner.setCancellable(cancellable);
+            } else {
+                this.cancellable = cancellable;
+            }
+        }
+
+        public void submitResponse(
+                final HttpAsyncResponseProducer responseProducer,
+                final NHttpServerConnection conn) {
+            boolean head;
+            synchronized (this) {
+                head = this.owner != null;
+                if (head) {
+                    this.owner.setResponseProducer(responseProducer);
+                    this.owner.setCancellable(null);
+                } else {
+                    this.responseProducer = responseProducer;
+                    this.cancellable = null;
+                }
+            }
+            if (head) {
+                conn.requestOutput();
+            }
+        }
+
+        synchronized void promote(final State state) {
+            this.owner = state;
+            state.setResponseProducer(this.responseProducer);
+            state.setCancellable(this.cancellable);
+            this.responseProducer = null;
+            this.cancellable = null;
+        }
+
+    }
+
     static class Exchange implements HttpAsyncExchange {
 
         private final HttpRequest request;
         private final HttpResponse response;
         private final State state;
+        private final PipelineEntry entry;
         private final NHttpServerConnection conn;
 
         private volatile boolean completed;
@@ -747,14 +1065,24 @@ public class HttpAsyncService implements NHttpServerEventHandler {
                 final HttpRequest request,
                 final HttpResponse response,
                 final State state,
+                final PipelineEntry entry,
                 final NHttpServerConnection conn) {
             super();
             this.request = request;
             this.response = response;
             this.state = state;
+            this.entry = entry;
             this.conn = conn;
         }
 
+        public Exchange(
+                final HttpRequest request,
+                final HttpResponse response,
+                final State state,
+                final NHttpServerConnection conn) {
+            this(request, response, state, null, conn);
+        }
+
         public HttpRequest getRequest() {
             return this.request;
         }
@@ -770,6 +1098,8 @@ public class HttpAsyncService implements NHttpServerEventHandler {
                 }
                 if (this.state.isTerminated() && cancellable != null) {
                     cancellable.cancel();
+                } else if (this.entry != null) {
+                    this.entry.setCancellable(cancellable);
                 } else {
                     this.state.setCancellable(cancellable);
                     this.conn.requestInput();
@@ -784,7 +1114,9 @@ public class HttpAsyncService implements NHttpServerEventHandler {
                     throw new IllegalStateException("Response already submitted");
                 }
                 this.completed = true;
-                if (!this.state.isTerminated()) {
+                if (!this.state.isTerminated() && this.entry != null) {
+                    this.entry.submitResponse(responseProducer, this.conn);
+                } else if (!this.state.isTerminated()) {
                     this.state.setResponseProducer(responseProducer);
                     this.state.setCancellable(null);
                     this.conn.requestOutput();
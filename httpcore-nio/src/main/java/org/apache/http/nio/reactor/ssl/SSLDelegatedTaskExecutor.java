@@ -0,0 +1,148 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+
+package org.apache.http.nio.reactor.ssl;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.http.annotation.ThreadSafe;
+import org.apache.http.util.Args;
+
+/**
+ * Runs {@link javax.net.ssl.SSLEngine#getDelegatedTask() delegated tasks}
+ * of {@link SSLIOSession}s on a separate {@link Executor} so that
+ * expensive handshake computations such as key exchange and certificate
+ * validation do not block I/O dispatch threads. A single instance is
+ * usually shared by all sessions and keeps track of the number of queued
+ * tasks and of task latency.
+ *
+ * @since 4.3
+ */
+@ThreadSafe
+public class SSLDelegatedTaskExecutor {
+
+    private final Executor executor;
+    private final AtomicInteger pending;
+    private final AtomicLong completed;
+    private final AtomicLong totalLatency;
+    private final AtomicLong maxLatency;
+
+    public SSLDelegatedTaskExecutor(final Executor executor) {
+        super();
+        this.executor = Args.notNull(executor, "Executor");
+        this.pending = new AtomicInteger();
+        this.completed = new AtomicLong();
+        this.totalLatency = new AtomicLong();
+        this.maxLatency = new AtomicLong();
+    }
+
+    /**
+     * Schedules execution of the given task followed by the callback.
+     * The callback is executed even if the task fails.
+     */
+    void execute(final Runnable task, final Runnable callback) {
+        final long submitted = System.nanoTime();
+        this.pending.incrementAndGet();
+        try {
+            this.executor.execute(new Runnable() {
+
+                public void run() {
+                    try {
+                        task.run();
+                    } finally {
+                        taskCompleted(submitted);
+                        callback.run();
+                    }
+                }
+
+            });
+        } catch (RuntimeException ex) {
+            this.pending.decrementAndGet();
+            throw ex;
+        }
+    }
+
+    private void taskCompleted(final long submitted) {
+        final long latency = (System.nanoTime() - submitted) / 1000;
+        this.pending.decrementAndGet();
+        this.completed.incrementAndGet();
+        this.totalLatency.addAndGet(latency);
+        long max = this.maxLatency.get();
+        while (latency > max && !this.maxLatency.compareAndSet(max, latency)) {
+            max = this.maxLatency.get();
+        }
+    }
+
+    /**
+     * Returns the number of tasks submitted but not yet completed.
+     */
+    public int getQueueDepth() {
+        return this.pending.get();
+    }
+
+    /**
+     * Returns the number of completed tasks.
+     */
+    public long getCompletedTaskCount() {
+        return this.completed.get();
+    }
+
+    /**
+     * Returns the average time in microseconds from submission to
+     * completion of a task.
+     */
+    public long getAverageTaskLatency() {
+        final long count = this.completed.get();
+        return count > 0 ? this.totalLatency.get() / count : 0;
+    }
+
+    /**
+     * Returns the maximum time in microseconds from submission to
+     * completion of a task.
+     */
+    public long getMaxTaskLatency() {
+        return this.maxLatency.get();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder buffer = new StringBuilder();
+        buffer.append("[queued: ");
+        buffer.append(this.pending.get());
+        buffer.append("; completed: ");
+        buffer.append(this.completed.get());
+        buffer.append("; avg latency (us): ");
+        buffer.append(getAverageTaskLatency());
+        buffer.append("; max latency (us): ");
+        buffer.append(this.maxLatency.get());
+        buffer.append("]");
+        return buffer.toString();
+    }
+
+}
@@ -48,6 +48,7 @@ import org.apache.http.nio.reactor.EventMask;
 import org.apache.http.nio.reactor.IOSession;
 import org.apache.http.nio.reactor.SessionBufferStatus;
 import org.apache.http.nio.reactor.SocketAccessor;
+import org.apache.http.nio.util.RecyclingByteBufferAllocator;
 import org.apache.http.util.Args;
 
 /**
@@ -79,17 +80,24 @@ public class SSLIOSession implements IOSession, SessionBufferStatus, SocketAcces
     private final IOSession session;
     private final SSLMode defaultMode;
     private final SSLEngine sslEngine;
-    private final ByteBuffer inEncrypted;
-    private final ByteBuffer outEncrypted;
-    private final ByteBuffer inPlain;
-    private final ByteBuffer outPlain;
+    private final RecyclingByteBufferAllocator bufferPool;
+    private final SSLDelegatedTaskExecutor taskExecutor;
+    private final int netBuffersize;
+    private final int appBuffersize;
     private final InternalByteChannel channel;
     private final SSLSetupHandler handler;
 
+    private ByteBuffer inEncrypted;
+    private ByteBuffer outEncrypted;
+    private ByteBuffer inPlain;
+    private ByteBuffer outPlain;
+
     private int appEventMask;
     private SessionBufferStatus appBufferStatus;
 
     private boolean endOfStream;
+    private boolean taskPending;
+    private RuntimeException taskException;
     private volatile int status;
     private volatile boolean initialized;
 
@@ -106,6 +114,59 @@ public class SSLIOSession implements IOSession, SessionBufferStatus, SocketAcces
             final SSLMode defaultMode,
             final SSLContext sslContext,
             final SSLSetupHandler handler) {
+        this(session, defaultMode, sslContext, handler, null, null);
+    }
+
+    /**
+     * Creates new instance of <tt>SSLIOSession</tt> class. If a buffer pool
+     * is given, the session takes its network and application buffers
+     * from the pool on demand and gives them back whenever they are all
+     * empty and no handshake is in progress, so that idle sessions do not
+     * retain any buffers.
+     *
+     * @param session I/O session to be decorated with the TLS/SSL capabilities.
+     * @param defaultMode default mode (client or server)
+     * @param sslContext SSL context to use for this I/O session.
+     * @param handler optional SSL setup handler. May be <code>null</code>.
+     * @param bufferPool optional pool to release idle buffers to.
+     *   May be <code>null</code>.
+     *
+     * @since 4.3
+     */
+    public SSLIOSession(
+            final IOSession session,
+            final SSLMode defaultMode,
+            final SSLContext sslContext,
+            final SSLSetupHandler handler,
+            final RecyclingByteBufferAllocator bufferPool) {
+        this(session, defaultMode, sslContext, handler, bufferPool, null);
+    }
+
+    /**
+     * Creates new instance of <tt>SSLIOSession</tt> class. If a task executor
+     * is given, delegated tasks of the SSL engine are run by the executor
+     * instead of the I/O dispatch thread. Events of the session are suspended
+     * while a task is being executed and handshaking resumes on the I/O
+     * dispatch thread once the task has been completed.
+     *
+     * @param session I/O session to be decorated with the TLS/SSL capabilities.
+     * @param defaultMode default mode (client or server)
+     * @param sslContext SSL context to use for this I/O session.
+     * @param handler optional SSL setup handler. May be <code>null</code>.
+     * @param bufferPool optional pool to release idle buffers to.
+     *   May be <code>null</code>.
+     * @param taskExecutor optional executor for delegated tasks.
+     *   May be <code>null</code>.
+     *
+     * @since 4.3
+     */
+    public SSLIOSession(
+            final IOSession session,
+            final SSLMode defaultMode,
+            final SSLContext sslContext,
+            final SSLSetupHandler handler,
+            final RecyclingByteBufferAllocator bufferPool,
+            final SSLDelegatedTaskExecutor taskExecutor) {
         super();
         Args.notNull(session, "IO session");
         Args.notNull(sslContext, "SSL context");
@@ -127,15 +188,62 @@ public class SSLIOSession implements IOSession, SessionBufferStatus, SocketAcces
             this.sslEngine = sslContext.createSSLEngine();
         }
 
-        // Allocate buffers for network (encrypted) data
-        int netBuffersize = this.sslEngine.getSession().getPacketBufferSize();
-        this.inEncrypted = ByteBuffer.allocate(netBuffersize);
-        this.outEncrypted = ByteBuffer.allocate(netBuffersize);
+        this.netBuffersize = this.sslEngine.getSession().getPacketBufferSize();
+        this.appBuffersize = this.sslEngine.getSession().getApplicationBufferSize();
+        this.bufferPool = bufferPool;
+        this.taskExecutor = taskExecutor;
+        if (bufferPool == null) {
+            acquireBuffers();
+        }
+    }
+
+    private void acquireBuffers() {
+        if (this.inEncrypted != null) {
+            return;
+        }
+        if (this.bufferPool != null) {
+            this.inEncrypted = this.bufferPool.allocate(this.netBuffersize);
+            this.outEncrypted = this.bufferPool.allocate(this.netBuffersize);
+            this.inPlain = this.bufferPool.allocate(this.appBuffersize);
+            this.outPlain = this.bufferPool.allocate(this.appBuffersize);
+        } else {
+            // Allocate buffers for network (encrypted) data
+            this.inEncrypted = ByteBuffer.allocate(this.netBuffersize);
+            this.outEncrypted = ByteBuffer.allocate(this.netBuffersize);
+            // Allocate buffers for application (unencrypted) data
+            this.inPlain = ByteBuffer.allocate(this.appBuffersize);
+            this.outPlain = ByteBuffer.allocate(this.appBuffersize);
+        }
+    }
+
+    private void releaseBuffers() {
+        if (this.bufferPool == null || this.inEncrypted == null) {
+            return;
+        }
+        this.bufferPool.release(this.inEncrypted);
+        this.bufferPool.release(this.outEncrypted);
+        this.bufferPool.release(this.inPlain);
+        this.bufferPool.release(this.outPlain);
+        this.inEncrypted = null;
+        this.outEncrypted = null;
+        this.inPlain = null;
+        this.outPlain = null;
+    }
 
-        // Allocate buffers for application (unencrypted) data
-        int appBuffersize = this.sslEngine.getSession().getApplicationBufferSize();
-        this.inPlain = ByteBuffer.allocate(appBuffersize);
-        this.outPlain = ByteBuffer.allocate(appBuffersize);
+    private void releaseIdleBuffers() {
+        if (this.bufferPool != null
+                && this.inEncrypted != null
+                && this.inEncrypted.position() == 0
+                && this.outEncrypted.position() == 0
+                && this.inPlain.position() == 0
+                && this.outPlain.position() == 0
+                && this.sslEngine.getHandshakeStatus() == HandshakeStatus.NOT_HANDSHAKING) {
+            releaseBuffers();
+        }
+    }
+
+    private static int position(final ByteBuffer buffer) {
+        return buffer != null ? buffer.position() : 0;
     }
 
     protected SSLSetupHandler getSSLSetupHandler() {
@@ -179,6 +287,7 @@ public class SSLIOSession implements IOSession, SessionBufferStatus, SocketAcces
             this.handler.initalize(this.sslEngine);
         }
         this.initialized = true;
+        acquireBuffers();
         this.sslEngine.beginHandshake();
         doHandshake();
     }
@@ -240,7 +349,55 @@ public class SSLIOSession implements IOSession, SessionBufferStatus, SocketAcces
         }
     }
 
+    private void doSubmitTasks() throws SSLException {
+        final SSLEngine engine = this.sslEngine;
+        this.taskPending = true;
+        try {
+            this.taskExecutor.execute(new Runnable() {
+
+                public void run() {
+                    try {
+                        Runnable r;
+                        while ((r = engine.getDelegatedTask()) != null) {
+                            r.run();
+                        }
+                    } catch (RuntimeException ex) {
+                        taskFailed(ex);
+                    }
+                }
+
+            }, new Runnable() {
+
+                public void run() {
+                    taskCompleted();
+                }
+
+            });
+        } catch (RuntimeException ex) {
+            this.taskPending = false;
+            throw convert(ex);
+        }
+    }
+
+    private synchronized void taskFailed(final RuntimeException ex) {
+        this.taskException = ex;
+    }
+
+    private synchronized void taskCompleted() {
+        this.taskPending = false;
+        if (this.status == CLOSED) {
+            return;
+        }
+        updateEventMask();
+        // Resume handshaking on the I/O dispatch thread; handshake data
+        // may already be buffered, so do not wait for more input.
+        this.session.setEvent(EventMask.WRITE);
+    }
+
     private void doHandshake() throws SSLException {
+        if (this.taskException != null) {
+            throw convert(this.taskException);
+        }
         boolean handshaking = true;
 
         SSLEngineResult result = null;
@@ -265,7 +422,14 @@ public class SSLIOSession implements IOSession, SessionBufferStatus, SocketAcces
                 }
                 break;
             case NEED_TASK:
-                doRunTask();
+                if (this.taskExecutor == null) {
+                    doRunTask();
+                } else {
+                    if (!this.taskPending) {
+                        doSubmitTasks();
+                    }
+                    handshaking = false;
+                }
                 break;
             case NOT_HANDSHAKING:
                 handshaking = false;
@@ -292,6 +456,7 @@ public class SSLIOSession implements IOSession, SessionBufferStatus, SocketAcces
         }
         if (this.status == CLOSED) {
             this.session.close();
+            releaseBuffers();
             return;
         }
         // Need to toggle the event mask for this channel?
@@ -308,13 +473,17 @@ public class SSLIOSession implements IOSession, SessionBufferStatus, SocketAcces
             newMask = this.appEventMask;
             break;
         case NEED_TASK:
+            if (this.taskPending) {
+                // Suspend events until the delegated task completes
+                newMask = 0;
+            }
             break;
         case FINISHED:
             break;
         }
 
         // Do we have encrypted data ready to be sent?
-        if (this.outEncrypted.position() > 0) {
+        if (position(this.outEncrypted) > 0) {
             newMask = newMask | EventMask.WRITE;
         }
 
@@ -363,6 +532,11 @@ public class SSLIOSession implements IOSession, SessionBufferStatus, SocketAcces
      * @throws IOException in case of an I/O error.
      */
     public synchronized boolean isAppInputReady() throws IOException {
+        if (this.status == CLOSED) {
+            // Buffers have been released
+            return false;
+        }
+        acquireBuffers();
         int bytesRead = receiveEncryptedData();
         if (bytesRead == -1) {
             this.endOfStream = true;
@@ -398,6 +572,7 @@ public class SSLIOSession implements IOSession, SessionBufferStatus, SocketAcces
      */
     public synchronized void inboundTransport() throws IOException {
         updateEventMask();
+        releaseIdleBuffers();
     }
 
     /**
@@ -406,9 +581,15 @@ public class SSLIOSession implements IOSession, SessionBufferStatus, SocketAcces
      * @throws IOException in case of an I/O error.
      */
     public synchronized void outboundTransport() throws IOException {
+        if (this.status == CLOSED) {
+            // Buffers have been released
+            return;
+        }
+        acquireBuffers();
         sendEncryptedData();
         doHandshake();
         updateEventMask();
+        releaseIdleBuffers();
     }
 
     /**
@@ -430,6 +611,7 @@ public class SSLIOSession implements IOSession, SessionBufferStatus, SocketAcces
         if (this.status != ACTIVE) {
             return -1;
         }
+        acquireBuffers();
         if (this.outPlain.position() > 0) {
             this.outPlain.flip();
             doWrap(this.outPlain, this.outEncrypted);
@@ -448,7 +630,7 @@ public class SSLIOSession implements IOSession, SessionBufferStatus, SocketAcces
 
     private synchronized int readPlain(final ByteBuffer dst) {
         Args.notNull(dst, "Byte buffer");
-        if (this.inPlain.position() > 0) {
+        if (position(this.inPlain) > 0) {
             this.inPlain.flip();
             int n = Math.min(this.inPlain.remaining(), dst.remaining());
             for (int i = 0; i < n; i++) {
@@ -480,6 +662,7 @@ public class SSLIOSession implements IOSession, SessionBufferStatus, SocketAcces
         }
         this.status = CLOSED;
         this.session.shutdown();
+        releaseBuffers();
     }
 
     public int getStatus() {
@@ -531,14 +714,14 @@ public class SSLIOSession implements IOSession, SessionBufferStatus, SocketAcces
 
     public synchronized boolean hasBufferedInput() {
         return (this.appBufferStatus != null && this.appBufferStatus.hasBufferedInput())
-            || this.inEncrypted.position() > 0
-            || this.inPlain.position() > 0;
+            || position(this.inEncrypted) > 0
+            || position(this.inPlain) > 0;
     }
 
     public synchronized boolean hasBufferedOutput() {
         return (this.appBufferStatus != null && this.appBufferStatus.hasBufferedOutput())
-            || this.outEncrypted.position() > 0
-            || this.outPlain.position() > 0;
+            || position(this.outEncrypted) > 0
+            || position(this.outPlain) > 0;
     }
 
     public synchronized void setBufferStatus(final SessionBufferStatus status) {
@@ -579,13 +762,13 @@ public class SSLIOSession implements IOSession, SessionBufferStatus, SocketAcces
             buffer.append("][EOF][");
         }
         buffer.append("][");
-        buffer.append(this.inEncrypted.position());
+        buffer.append(position(this.inEncrypted));
         buffer.append("][");
-        buffer.append(this.inPlain.position());
+        buffer.append(position(this.inPlain));
         buffer.append("][");
-        buffer.append(this.outEncrypted.position());
+        buffer.append(position(this.outEncrypted));
         buffer.append("][");
-        buffer.append(this.outPlain.position());
+        buffer.append(position(this.outPlain));
         buffer.append("]");
         return buffer.toString();
     }
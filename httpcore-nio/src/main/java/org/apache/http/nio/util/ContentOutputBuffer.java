@@ -56,9 +56,12 @@ public interface ContentOutputBuffer {
     void reset();
 
     /**
-     * @deprecated (4.2) No longer used.
+     * Requests content written to this buffer so far to be sent without
+     * waiting for more content, even if the content encoder would otherwise
+     * coalesce it with subsequent writes. This method does not block.
+     *
+     * @throws IOException in case of an I/O error.
      */
-    @Deprecated
     void flush() throws IOException;
 
     /**
@@ -50,8 +50,10 @@ public class ExpandableBuffer implements BufferInfo, org.apache.http.nio.util.Bu
     public final static int OUTPUT_MODE = 1;
 
     private final ByteBufferAllocator allocator;
+    private final int initialSize;
 
     private int mode;
+    private boolean released;
     protected ByteBuffer buffer = null;
 
     /**
@@ -64,6 +66,7 @@ public class ExpandableBuffer implements BufferInfo, org.apache.http.nio.util.Bu
         super();
         Args.notNull(allocator, "ByteBuffer allocator");
         this.allocator = allocator;
+        this.initialSize = buffersize;
         this.buffer = allocator.allocate(buffersize);
         this.mode = INPUT_MODE;
     }
@@ -95,7 +98,11 @@ public class ExpandableBuffer implements BufferInfo, org.apache.http.nio.util.Bu
      * Sets input mode. The buffer can now be written into.
      */
     protected void setInputMode() {
-        if (this.mode != INPUT_MODE) {
+        if (this.released) {
+            this.buffer = this.allocator.allocate(this.initialSize);
+            this.released = false;
+            this.mode = INPUT_MODE;
+        } else if (this.mode != INPUT_MODE) {
             if (this.buffer.hasRemaining()) {
                 this.buffer.compact();
             } else {
@@ -110,6 +117,11 @@ public class ExpandableBuffer implements BufferInfo, org.apache.http.nio.util.Bu
         this.buffer = allocator.allocate(capacity);
         oldbuffer.flip();
         this.buffer.put(oldbuffer);
+        if (this.released) {
+            this.released = false;
+        } else if (this.allocator instanceof RecyclingByteBufferAllocator) {
+            ((RecyclingByteBufferAllocator) this.allocator).release(oldbuffer);
+        }
     }
 
     /**
@@ -182,6 +194,30 @@ public class ExpandableBuffer implements BufferInfo, org.apache.http.nio.util.Bu
         this.mode = INPUT_MODE;
     }
 
+    /**
+     * Releases the underlying {@link ByteBuffer}. Content of the buffer gets
+     * discarded. If the buffer was obtained from a
+     * {@link RecyclingByteBufferAllocator} it is returned to the allocator
+     * for re-use. The buffer remains usable after this method has been
+     * called and lazily re-acquires a buffer of its initial size the next
+     * time it is switched into the input mode.
+     *
+     * @since 4.3
+     */
+    public void release() {
+        if (this.released) {
+            return;
+        }
+        final ByteBuffer oldbuffer = this.buffer;
+        // zero capacity placeholder; private to this buffer as it gets mutated
+        this.buffer = ByteBuffer.allocate(0);
+        this.released = true;
+        this.mode = INPUT_MODE;
+        if (this.allocator instanceof RecyclingByteBufferAllocator) {
+            ((RecyclingByteBufferAllocator) this.allocator).release(oldbuffer);
+        }
+    }
+
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder();
@@ -0,0 +1,237 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+
+package org.apache.http.nio.util;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.http.annotation.ThreadSafe;
+import org.apache.http.util.Args;
+
+/**
+ * Recycling {@link ByteBufferAllocator} that keeps released buffers in size
+ * classes of powers of two.
+ * <p/>
+ * Each thread, typically an I/O dispatch thread of a
+ * {@link org.apache.http.nio.reactor.IOReactor}, first tries a small
+ * thread-local cache and then a shared pool of the requested size class
+ * before allocating a new buffer. Requested sizes are rounded up to the
+ * next power of two, so the capacity of the buffers handed out may exceed
+ * the requested size. Requests larger than the maximum pooled size are
+ * allocated without pooling. Released buffers are dropped once the total
+ * size of retained buffers would exceed the configured limit.
+ *
+ * @since 4.3
+ */
+@ThreadSafe
+public class PooledByteBufferAllocator implements RecyclingByteBufferAllocator {
+
+    private static final int MIN_SHIFT = 8;
+
+    private final boolean direct;
+    private final int maxShift;
+    private final int localCacheSize;
+    private final long maxRetainedBytes;
+    private final List<Queue<ByteBuffer>> sharedPools;
+    private final ThreadLocal<ByteBuffer[][]> localCaches;
+    private final AtomicLong hits;
+    private final AtomicLong misses;
+    private final AtomicLong retainedBytes;
+
+    /**
+     * Creates new instance of PooledByteBufferAllocator.
+     *
+     * @param direct whether to allocate direct buffers.
+     * @param maxPooledSize the size of the largest buffers to pool.
+     * @param localCacheSize the maximum number of buffers per size class
+     *   cached by each thread.
+     * @param maxRetainedBytes the maximum total size of buffers retained
+     *   for re-use.
+     */
+    public PooledByteBufferAllocator(
+            final boolean direct,
+            final int maxPooledSize,
+            final int localCacheSize,
+            final long maxRetainedBytes) {
+        super();
+        Args.positive(maxPooledSize, "Max pooled size");
+        Args.notNegative(localCacheSize, "Local cache size");
+        Args.notNegative(maxRetainedBytes, "Max retained bytes");
+        this.direct = direct;
+        int shift = MIN_SHIFT;
+        while ((1 << shift) < maxPooledSize && shift < 30) {
+            shift++;
+        }
+        this.maxShift = shift;
+        this.localCacheSize = localCacheSize;
+        this.maxRetainedBytes = maxRetainedBytes;
+        final int sizeClasses = shift - MIN_SHIFT + 1;
+        this.sharedPools = new ArrayList<Queue<ByteBuffer>>(sizeClasses);
+        for (int i = 0; i < sizeClasses; i++) {
+            this.sharedPools.add(new ConcurrentLinkedQueue<ByteBuffer>());
+        }
+        this.localCaches = new ThreadLocal<ByteBuffer[][]>();
+        this.hits = new AtomicLong();
+        this.misses = new AtomicLong();
+        this.retainedBytes = new AtomicLong();
+    }
+
+    /**
+     * Creates new instance of PooledByteBufferAllocator pooling buffers
+     * up to 1 MB with a total of up to 64 MB retained.
+     *
+     * @param direct whether to allocate direct buffers.
+     */
+    public PooledByteBufferAllocator(final boolean direct) {
+        this(direct, 1024 * 1024, 16, 64L * 1024 * 1024);
+    }
+
+    static int sizeClass(final int size) {
+        if (size <= (1 << MIN_SHIFT)) {
+            return 0;
+        }
+        return 32 - Integer.numberOfLeadingZeros(size - 1) - MIN_SHIFT;
+    }
+
+    private ByteBuffer create(final int size) {
+        return this.direct ? ByteBuffer.allocateDirect(size) : ByteBuffer.allocate(size);
+    }
+
+    private ByteBuffer[][] localCache() {
+        ByteBuffer[][] cache = this.localCaches.get();
+        if (cache == null) {
+            cache = new ByteBuffer[this.sharedPools.size()][this.localCacheSize];
+            this.localCaches.set(cache);
+        }
+        return cache;
+    }
+
+    public ByteBuffer allocate(final int size) {
+        Args.notNegative(size, "Buffer size");
+        final int sizeClass = sizeClass(size);
+        if (sizeClass >= this.sharedPools.size()) {
+            this.misses.incrementAndGet();
+            return create(size);
+        }
+        ByteBuffer buffer = null;
+        if (this.localCacheSize > 0) {
+            final ByteBuffer[] cache = localCache()[sizeClass];
+            for (int i = cache.length - 1; i >= 0; i--) {
+                if (cache[i] != null) {
+                    buffer = cache[i];
+                    cache[i] = null;
+                    break;
+                }
+            }
+        }
+        if (buffer == null) {
+            buffer = this.sharedPools.get(sizeClass).poll();
+        }
+        if (buffer != null) {
+            this.hits.incrementAndGet();
+            this.retainedBytes.addAndGet(-buffer.capacity());
+            buffer.clear();
+            return buffer;
+        }
+        this.misses.incrementAndGet();
+        return create(1 << (sizeClass + MIN_SHIFT));
+    }
+
+    public void release(final ByteBuffer buffer) {
+        if (buffer == null || buffer.isDirect() != this.direct || buffer.isReadOnly()) {
+            return;
+        }
+        final int capacity = buffer.capacity();
+        final int sizeClass = sizeClass(capacity);
+        if (sizeClass >= this.sharedPools.size() || (1 << (sizeClass + MIN_SHIFT)) != capacity) {
+            // not allocated by this pool
+            return;
+        }
+        if (this.retainedBytes.addAndGet(capacity) > this.maxRetainedBytes) {
+            this.retainedBytes.addAndGet(-capacity);
+            return;
+        }
+        buffer.clear();
+        if (this.localCacheSize > 0) {
+            final ByteBuffer[] cache = localCache()[sizeClass];
+            for (int i = 0; i < cache.length; i++) {
+                if (cache[i] == null) {
+                    cache[i] = buffer;
+                    return;
+                }
+            }
+        }
+        this.sharedPools.get(sizeClass).add(buffer);
+    }
+
+    /**
+     * Returns the number of allocations served from the pool.
+     */
+    public long getHitCount() {
+        return this.hits.get();
+    }
+
+    /**
+     * Returns the number of allocations that required a new buffer.
+     */
+    public long getMissCount() {
+        return this.misses.get();
+    }
+
+    /**
+     * Returns the total capacity of buffers currently retained for re-use.
+     */
+    public long getRetainedBytes() {
+        return this.retainedBytes.get();
+    }
+
+    /**
+     * Returns the size of the largest buffers that get pooled.
+     */
+    public int getMaxPooledSize() {
+        return 1 << this.maxShift;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder buffer = new StringBuilder();
+        buffer.append("[hits: ");
+        buffer.append(this.hits.get());
+        buffer.append("; misses: ");
+        buffer.append(this.misses.get());
+        buffer.append("; retained bytes: ");
+        buffer.append(this.retainedBytes.get());
+        buffer.append("]");
+        return buffer.toString();
+    }
+
+}
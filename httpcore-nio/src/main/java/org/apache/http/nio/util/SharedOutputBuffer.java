@@ -33,6 +33,7 @@ import java.util.concurrent.locks.ReentrantLock;
 
 import org.apache.http.annotation.ThreadSafe;
 import org.apache.http.nio.ContentEncoder;
+import org.apache.http.nio.FlushableContentEncoder;
 import org.apache.http.nio.IOControl;
 import org.apache.http.util.Args;
 
@@ -61,6 +62,7 @@ public class SharedOutputBuffer extends ExpandableBuffer implements ContentOutpu
     private volatile IOControl ioctrl;
     private volatile boolean shutdown = false;
     private volatile boolean endOfStream = false;
+    private volatile boolean flushRequested = false;
 
     /**
      * @deprecated (4.3) use {@link SharedOutputBuffer#SharedOutputBuffer(int, ByteBufferAllocator)}
@@ -98,6 +100,7 @@ public class SharedOutputBuffer extends ExpandableBuffer implements ContentOutpu
         try {
             clear();
             this.endOfStream = false;
+            this.flushRequested = false;
         } finally {
             this.lock.unlock();
         }
@@ -178,6 +181,12 @@ public class SharedOutputBuffer extends ExpandableBuffer implements ContentOutpu
                     encoder.complete();
                 }
                 if (!this.endOfStream) {
+                    if (this.flushRequested) {
+                        this.flushRequested = false;
+                        if (encoder instanceof FlushableContentEncoder) {
+                            ((FlushableContentEncoder) encoder).flush();
+                        }
+                    }
                     // suspend output events
                     if (this.ioctrl != null) {
                         this.ioctrl.suspendOutput();
@@ -259,6 +268,18 @@ public class SharedOutputBuffer extends ExpandableBuffer implements ContentOutpu
     }
 
     public void flush() throws IOException {
+        this.lock.lock();
+        try {
+            if (this.shutdown || this.endOfStream) {
+                return;
+            }
+            this.flushRequested = true;
+            if (this.ioctrl != null) {
+                this.ioctrl.requestOutput();
+            }
+        } finally {
+            this.lock.unlock();
+        }
     }
 
     private void flushContent() throws IOException {
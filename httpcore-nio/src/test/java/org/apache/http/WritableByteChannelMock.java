@@ -0,0 +1,102 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+
+package org.apache.http;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+
+/**
+ * Gathering channel that accepts up to a given number of bytes per
+ * write operation and keeps track of the number of write operations.
+ */
+public class WritableByteChannelMock implements GatheringByteChannel {
+
+    private final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    private final int maxPerWrite;
+
+    private int writeCount;
+    private boolean closed;
+
+    public WritableByteChannelMock(int maxPerWrite) {
+        super();
+        this.maxPerWrite = maxPerWrite;
+    }
+
+    public WritableByteChannelMock() {
+        this(Integer.MAX_VALUE);
+    }
+
+    public int write(final ByteBuffer src) throws IOException {
+        return (int) write(new ByteBuffer[] { src }, 0, 1);
+    }
+
+    public long write(final ByteBuffer[] srcs, int offset, int length) throws IOException {
+        if (this.closed) {
+            throw new IOException("Channel closed");
+        }
+        this.writeCount++;
+        int count = 0;
+        for (int i = offset; i < offset + length; i++) {
+            ByteBuffer src = srcs[i];
+            while (src.hasRemaining() && count < this.maxPerWrite) {
+                this.baos.write(src.get());
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public long write(final ByteBuffer[] srcs) throws IOException {
+        return write(srcs, 0, srcs.length);
+    }
+
+    public boolean isOpen() {
+        return !this.closed;
+    }
+
+    public void close() throws IOException {
+        this.closed = true;
+    }
+
+    public int getWriteCount() {
+        return this.writeCount;
+    }
+
+    public void reset() {
+        this.baos.reset();
+        this.writeCount = 0;
+    }
+
+    public String toString(final String encoding) throws UnsupportedEncodingException {
+        return this.baos.toString(encoding);
+    }
+
+}
@@ -0,0 +1,161 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+
+package org.apache.http.impl.nio;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ByteChannel;
+import java.nio.channels.SelectionKey;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.http.Consts;
+import org.apache.http.HttpException;
+import org.apache.http.nio.ContentDecoder;
+import org.apache.http.nio.ContentEncoder;
+import org.apache.http.nio.NHttpServerConnection;
+import org.apache.http.nio.NHttpServerEventHandler;
+import org.apache.http.nio.reactor.IOSession;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+public class TestDefaultNHttpServerConnection {
+
+    /**
+     * Channel that returns the given content with the first read
+     * and signals end of stream afterwards.
+     */
+    static class OneShotChannel implements ByteChannel {
+
+        private final ByteBuffer content;
+
+        OneShotChannel(final String content) {
+            this.content = ByteBuffer.wrap(content.getBytes(Consts.ASCII));
+        }
+
+        public int read(final ByteBuffer dst) {
+            if (!this.content.hasRemaining()) {
+                return -1;
+            }
+            int n = Math.min(dst.remaining(), this.content.remaining());
+            for (int i = 0; i < n; i++) {
+                dst.put(this.content.get());
+            }
+            return n;
+        }
+
+        public int write(final ByteBuffer src) {
+            int n = src.remaining();
+            src.position(src.limit());
+            return n;
+        }
+
+        public boolean isOpen() {
+            return true;
+        }
+
+        public void close() {
+        }
+
+    }
+
+    static class RecordingHandler implements NHttpServerEventHandler {
+
+        final List<String> events = new ArrayList<String>();
+        final StringBuilder content = new StringBuilder();
+
+        public void connected(final NHttpServerConnection conn) {
+        }
+
+        public void requestReceived(final NHttpServerConnection conn) {
+            this.events.add("request " + conn.getHttpRequest().getRequestLine().getUri());
+        }
+
+        public void inputReady(
+                final NHttpServerConnection conn, final ContentDecoder decoder) throws IOException {
+            ByteBuffer dst = ByteBuffer.allocate(1024);
+            while (decoder.read(dst) > 0) {
+            }
+            dst.flip();
+            this.content.append(Consts.ASCII.decode(dst));
+            if (decoder.isCompleted()) {
+                this.events.add("content");
+            }
+        }
+
+        public void responseReady(final NHttpServerConnection conn) {
+        }
+
+        public void outputReady(final NHttpServerConnection conn, final ContentEncoder encoder) {
+        }
+
+        public void endOfInput(final NHttpServerConnection conn) {
+            this.events.add("end of input");
+        }
+
+        public void timeout(final NHttpServerConnection conn) {
+        }
+
+        public void closed(final NHttpServerConnection conn) {
+        }
+
+        public void exception(final NHttpServerConnection conn, final Exception ex) {
+            this.events.add("exception " + ex);
+        }
+
+    }
+
+    @Test
+    public void testBufferedContentConsumedBeforeEndOfInput() throws HttpException, IOException {
+        // Two pipelined requests followed by end of stream: the second request
+        // is parsed from the session buffer by the read that hits end of stream
+        ByteChannel channel = new OneShotChannel(
+                "POST /1 HTTP/1.1\r\nContent-Length: 5\r\n\r\nhello" +
+                "POST /2 HTTP/1.1\r\nContent-Length: 5\r\n\r\nworld");
+        IOSession session = Mockito.mock(IOSession.class);
+        Mockito.when(session.channel()).thenReturn(channel);
+        Mockito.when(session.getEventMask()).thenReturn(SelectionKey.OP_READ);
+
+        DefaultNHttpServerConnection conn = new DefaultNHttpServerConnection(session, 1024);
+        RecordingHandler handler = new RecordingHandler();
+        conn.consumeInput(handler);
+        Assert.assertTrue(conn.hasBufferedInput());
+        conn.consumeInput(handler);
+
+        Assert.assertEquals("helloworld", handler.content.toString());
+        List<String> expected = new ArrayList<String>();
+        expected.add("request /1");
+        expected.add("content");
+        expected.add("request /2");
+        expected.add("content");
+        expected.add("end of input");
+        Assert.assertEquals(expected, handler.events);
+    }
+
+}
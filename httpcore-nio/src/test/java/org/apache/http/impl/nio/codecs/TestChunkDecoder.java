@@ -27,17 +27,23 @@
 
 package org.apache.http.impl.nio.codecs;
 
+import java.io.File;
 import java.io.IOException;
+import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.channels.ReadableByteChannel;
 
 import org.apache.http.Consts;
 import org.apache.http.Header;
 import org.apache.http.MalformedChunkCodingException;
 import org.apache.http.ReadableByteChannelMock;
+import org.apache.http.TruncatedChunkException;
 import org.apache.http.impl.io.HttpTransportMetricsImpl;
 import org.apache.http.impl.nio.reactor.SessionInputBufferImpl;
 import org.apache.http.nio.reactor.SessionInputBuffer;
+import org.apache.http.util.EncodingUtils;
+import org.junit.After;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -46,6 +52,36 @@ import org.junit.Test;
  */
 public class TestChunkDecoder {
 
+    private File tmpfile;
+
+    @After
+    public void deleteTempFile() {
+        if (this.tmpfile != null && this.tmpfile.exists()) {
+            this.tmpfile.delete();
+        }
+    }
+
+    private String transferToFile(final ChunkDecoder decoder, final long count) throws IOException {
+        this.tmpfile = File.createTempFile("testFile", ".txt");
+        RandomAccessFile testfile = new RandomAccessFile(this.tmpfile, "rw");
+        try {
+            FileChannel fchannel = testfile.getChannel();
+            long pos = 0;
+            while (!decoder.isCompleted()) {
+                long bytesRead = decoder.transfer(fchannel, pos, count);
+                if (bytesRead > 0) {
+                    pos += bytesRead;
+                }
+            }
+            byte[] content = new byte[(int) fchannel.size()];
+            testfile.seek(0);
+            testfile.readFully(content);
+            return EncodingUtils.getAsciiString(content);
+        } finally {
+            testfile.close();
+        }
+    }
+
     private static String convert(final ByteBuffer src) {
         src.flip();
         StringBuilder buffer = new StringBuilder(src.remaining());
@@ -431,4 +467,41 @@ public class TestChunkDecoder {
         }
     }
 
+    @Test
+    public void testDecodingFile() throws Exception {
+        String s = "5\r\n01234\r\n5\r\n56789\r\n6\r\nabcdef\r\n0\r\n\r\n";
+        ReadableByteChannel channel = new ReadableByteChannelMock(
+                new String[] {s}, "US-ASCII");
+        SessionInputBuffer inbuf = new SessionInputBufferImpl(1024, 256, Consts.ASCII);
+        HttpTransportMetricsImpl metrics = new HttpTransportMetricsImpl();
+        ChunkDecoder decoder = new ChunkDecoder(channel, inbuf, metrics);
+
+        Assert.assertEquals("0123456789abcdef", transferToFile(decoder, Long.MAX_VALUE));
+        Assert.assertTrue(decoder.isCompleted());
+        Assert.assertEquals(s.length(), metrics.getBytesTransferred());
+    }
+
+    @Test
+    public void testDecodingFileDirectTransfer() throws Exception {
+        String[] chunks = {"5\r\n", "01234", "\r\n5\r\n56789\r\n", "6\r\n", "abcdef", "\r\n0\r\n", "\r\n"};
+        ReadableByteChannel channel = new ReadableByteChannelMock(chunks, "US-ASCII");
+        SessionInputBuffer inbuf = new SessionInputBufferImpl(1024, 256, Consts.ASCII);
+        HttpTransportMetricsImpl metrics = new HttpTransportMetricsImpl();
+        ChunkDecoder decoder = new ChunkDecoder(channel, inbuf, metrics);
+
+        Assert.assertEquals("0123456789abcdef", transferToFile(decoder, 3));
+        Assert.assertTrue(decoder.isCompleted());
+    }
+
+    @Test(expected=TruncatedChunkException.class)
+    public void testDecodingFileTruncatedChunk() throws Exception {
+        String[] chunks = {"5\r\n", "012"};
+        ReadableByteChannel channel = new ReadableByteChannelMock(chunks, "US-ASCII");
+        SessionInputBuffer inbuf = new SessionInputBufferImpl(1024, 256, Consts.ASCII);
+        HttpTransportMetricsImpl metrics = new HttpTransportMetricsImpl();
+        ChunkDecoder decoder = new ChunkDecoder(channel, inbuf, metrics);
+
+        transferToFile(decoder, Long.MAX_VALUE);
+    }
+
 }
@@ -28,17 +28,23 @@
 package org.apache.http.impl.nio.codecs;
 
 import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.RandomAccessFile;
 import java.io.UnsupportedEncodingException;
 import java.nio.ByteBuffer;
 import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.nio.channels.WritableByteChannel;
 
 import org.apache.http.Consts;
+import org.apache.http.WritableByteChannelMock;
 import org.apache.http.impl.io.HttpTransportMetricsImpl;
 import org.apache.http.impl.nio.reactor.SessionOutputBufferImpl;
 import org.apache.http.nio.reactor.SessionOutputBuffer;
 import org.apache.http.util.EncodingUtils;
+import org.junit.After;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -47,6 +53,26 @@ import org.junit.Test;
  */
 public class TestChunkEncoder {
 
+    private File tmpfile;
+
+    private File createTempFile(final String content) throws IOException {
+        this.tmpfile = File.createTempFile("testFile", ".txt");
+        FileOutputStream outstream = new FileOutputStream(this.tmpfile);
+        try {
+            outstream.write(EncodingUtils.getAsciiBytes(content));
+        } finally {
+            outstream.close();
+        }
+        return this.tmpfile;
+    }
+
+    @After
+    public void deleteTempFile() {
+        if (this.tmpfile != null && this.tmpfile.exists()) {
+            this.tmpfile.delete();
+        }
+    }
+
     private static ByteBuffer wrap(final String s) {
         return ByteBuffer.wrap(EncodingUtils.getAsciiBytes(s));
     }
@@ -239,6 +265,293 @@ public class TestChunkEncoder {
         }
     }
 
+    private static String repeat(char c, int n) {
+        StringBuilder buffer = new StringBuilder(n);
+        for (int i = 0; i < n; i++) {
+            buffer.append(c);
+        }
+        return buffer.toString();
+    }
+
+    @Test
+    public void testGatheringWrite() throws Exception {
+        WritableByteChannelMock channel = new WritableByteChannelMock();
+        SessionOutputBufferImpl outbuf = new SessionOutputBufferImpl(1024, 128, Consts.ASCII);
+        HttpTransportMetricsImpl metrics = new HttpTransportMetricsImpl();
+        ChunkEncoder encoder = new ChunkEncoder(channel, outbuf, metrics);
+        Assert.assertTrue(encoder.isGatheringWrites());
+
+        outbuf.writeLine("HEAD");
+        String data = repeat('x', 4096);
+        ByteBuffer src = wrap(data);
+        Assert.assertEquals(4096, encoder.write(src));
+        Assert.assertFalse(src.hasRemaining());
+        Assert.assertEquals(1, channel.getWriteCount());
+        Assert.assertFalse(outbuf.hasData());
+        Assert.assertEquals("HEAD\r\n1000\r\n" + data + "\r\n", channel.toString("US-ASCII"));
+        Assert.assertEquals(6 + 6 + 4096 + 2, metrics.getBytesTransferred());
+
+        encoder.complete();
+        outbuf.flush(channel);
+        Assert.assertEquals("HEAD\r\n1000\r\n" + data + "\r\n0\r\n\r\n", channel.toString("US-ASCII"));
+    }
+
+    @Test
+    public void testGatheringPartialWrites() throws Exception {
+        WritableByteChannelMock channel = new WritableByteChannelMock(1000);
+        SessionOutputBufferImpl outbuf = new SessionOutputBufferImpl(1024, 128, Consts.ASCII);
+        HttpTransportMetricsImpl metrics = new HttpTransportMetricsImpl();
+        ChunkEncoder encoder = new ChunkEncoder(channel, outbuf, metrics);
+
+        String data1 = repeat('a', 2500);
+        String data2 = repeat('b', 3000);
+        ByteBuffer src = wrap(data1 + data2);
+        src.limit(2500);
+        // first write declares a chunk of 2500 bytes
+        Assert.assertEquals(995, encoder.write(src));
+        // subsequent writes complete the chunk before a new one is started
+        src.limit(src.capacity());
+        Assert.assertEquals(1000, encoder.write(src));
+        Assert.assertEquals(505, encoder.write(src));
+        Assert.assertEquals(2500, src.position());
+        int total = 0;
+        while (src.hasRemaining()) {
+            total += encoder.write(src);
+        }
+        Assert.assertEquals(3000, total);
+        encoder.complete();
+        while (outbuf.hasData()) {
+            outbuf.flush(channel);
+        }
+        Assert.assertEquals("9c4\r\n" + data1 + "\r\nbb8\r\n" + data2 + "\r\n0\r\n\r\n",
+                channel.toString("US-ASCII"));
+    }
+
+    @Test
+    public void testGatheringPartialChunkHeader() throws Exception {
+        WritableByteChannelMock channel = new WritableByteChannelMock(2);
+        SessionOutputBufferImpl outbuf = new SessionOutputBufferImpl(1024, 128, Consts.ASCII);
+        HttpTransportMetricsImpl metrics = new HttpTransportMetricsImpl();
+        ChunkEncoder encoder = new ChunkEncoder(channel, outbuf, metrics);
+
+        String data = repeat('c', 2048);
+        ByteBuffer src = wrap(data);
+        Assert.assertEquals(0, encoder.write(src));
+        Assert.assertTrue(outbuf.hasData());
+        while (src.hasRemaining()) {
+            encoder.write(src);
+        }
+        encoder.complete();
+        while (outbuf.hasData()) {
+            outbuf.flush(channel);
+        }
+        Assert.assertEquals("800\r\n" + data + "\r\n0\r\n\r\n", channel.toString("US-ASCII"));
+    }
+
+    @Test(expected=IllegalStateException.class)
+    public void testCompleteIncompleteChunk() throws Exception {
+        WritableByteChannelMock channel = new WritableByteChannelMock(100);
+        SessionOutputBufferImpl outbuf = new SessionOutputBufferImpl(1024, 128, Consts.ASCII);
+        HttpTransportMetricsImpl metrics = new HttpTransportMetricsImpl();
+        ChunkEncoder encoder = new ChunkEncoder(channel, outbuf, metrics);
+        encoder.write(wrap(repeat('d', 4096)));
+        encoder.complete();
+    }
+
+    @Test
+    public void testCoalescingWrites() throws Exception {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        WritableByteChannel channel = newChannel(baos);
+        SessionOutputBuffer outbuf = new SessionOutputBufferImpl(1024, 128, Consts.ASCII);
+        HttpTransportMetricsImpl metrics = new HttpTransportMetricsImpl();
+        ChunkEncoder encoder = new ChunkEncoder(channel, outbuf, metrics, 8);
+
+        Assert.assertEquals(5, encoder.write(wrap("12345")));
+        Assert.assertEquals(3, encoder.write(wrap("678")));
+        Assert.assertEquals(2, encoder.write(wrap("90")));
+        Assert.assertEquals(4, encoder.write(wrap("abcd")));
+        encoder.complete();
+
+        outbuf.flush(channel);
+
+        String s = baos.toString("US-ASCII");
+
+        Assert.assertTrue(encoder.isCompleted());
+        Assert.assertEquals("8\r\n12345678\r\n6\r\n90abcd\r\n0\r\n\r\n", s);
+    }
+
+    @Test
+    public void testCoalescingLargeWrite() throws Exception {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        WritableByteChannel channel = newChannel(baos);
+        SessionOutputBuffer outbuf = new SessionOutputBufferImpl(1024, 128, Consts.ASCII);
+        HttpTransportMetricsImpl metrics = new HttpTransportMetricsImpl();
+        ChunkEncoder encoder = new ChunkEncoder(channel, outbuf, metrics, 4);
+
+        Assert.assertEquals(2, encoder.write(wrap("12")));
+        Assert.assertEquals(6, encoder.write(wrap("345678")));
+        Assert.assertEquals(5, encoder.write(wrap("abcde")));
+        encoder.complete();
+
+        outbuf.flush(channel);
+
+        String s = baos.toString("US-ASCII");
+
+        Assert.assertEquals("4\r\n1234\r\n4\r\n5678\r\n5\r\nabcde\r\n0\r\n\r\n", s);
+    }
+
+    @Test
+    public void testCoalescingFlushHint() throws Exception {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        WritableByteChannel channel = newChannel(baos);
+        SessionOutputBuffer outbuf = new SessionOutputBufferImpl(1024, 128, Consts.ASCII);
+        HttpTransportMetricsImpl metrics = new HttpTransportMetricsImpl();
+        ChunkEncoder encoder = new ChunkEncoder(channel, outbuf, metrics, 1024);
+
+        encoder.write(wrap("12345"));
+        Assert.assertFalse(outbuf.hasData());
+        Assert.assertEquals(3, encoder.write(wrap("678"), false));
+        Assert.assertEquals("8\r\n12345678\r\n", baos.toString("US-ASCII")
+                + EncodingUtils.getAsciiString(readAll(outbuf)));
+
+        baos.reset();
+        encoder.write(wrap("90"));
+        Assert.assertFalse(outbuf.hasData());
+        encoder.flush();
+        Assert.assertFalse(outbuf.hasData());
+        Assert.assertEquals("2\r\n90\r\n", baos.toString("US-ASCII"));
+
+        baos.reset();
+        encoder.flush();
+        encoder.complete();
+        outbuf.flush(channel);
+        Assert.assertEquals("0\r\n\r\n", baos.toString("US-ASCII"));
+    }
+
+    @Test
+    public void testCoalescingSessionBufferFull() throws Exception {
+        FixedByteChannel channel = new FixedByteChannel(16);
+        SessionOutputBuffer outbuf = new SessionOutputBufferImpl(32, 32, Consts.ASCII);
+        HttpTransportMetricsImpl metrics = new HttpTransportMetricsImpl();
+        ChunkEncoder encoder = new ChunkEncoder(channel, outbuf, metrics, 8);
+
+        // fill up the channel
+        channel.write(wrap("0123456789ABCDEF"));
+        // fill up the out buffer
+        outbuf.write(wrap("0123456789ABCDEF0123456789"));
+
+        Assert.assertEquals(0, encoder.write(wrap("0123456789")));
+        Assert.assertEquals(2, encoder.write(wrap("01")));
+        Assert.assertEquals(6, encoder.write(wrap("23456789")));
+        Assert.assertEquals(0, encoder.write(wrap("89")));
+        Assert.assertEquals(26, outbuf.length());
+
+        channel.flush();
+        Assert.assertEquals(2, encoder.write(wrap("89")));
+        Assert.assertEquals(10 + 13, outbuf.length());
+    }
+
+    @Test
+    public void testNoCoalescingWithFlushHint() throws Exception {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        WritableByteChannel channel = newChannel(baos);
+        SessionOutputBuffer outbuf = new SessionOutputBufferImpl(1024, 128, Consts.ASCII);
+        HttpTransportMetricsImpl metrics = new HttpTransportMetricsImpl();
+        ChunkEncoder encoder = new ChunkEncoder(channel, outbuf, metrics);
+
+        encoder.write(wrap("12345"), true);
+        encoder.write(wrap("678"), true);
+        encoder.complete();
+
+        outbuf.flush(channel);
+
+        Assert.assertEquals("5\r\n12345\r\n3\r\n678\r\n0\r\n\r\n", baos.toString("US-ASCII"));
+    }
+
+    @Test
+    public void testTransferFromFile() throws Exception {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        WritableByteChannel channel = newChannel(baos);
+        SessionOutputBuffer outbuf = new SessionOutputBufferImpl(1024, 128, Consts.ASCII);
+        HttpTransportMetricsImpl metrics = new HttpTransportMetricsImpl();
+        ChunkEncoder encoder = new ChunkEncoder(channel, outbuf, metrics);
+
+        createTempFile("stuff;more stuff");
+        RandomAccessFile testfile = new RandomAccessFile(this.tmpfile, "r");
+        try {
+            FileChannel fchannel = testfile.getChannel();
+            encoder.write(wrap("12345"));
+            Assert.assertEquals(6, encoder.transfer(fchannel, 0, 6));
+            Assert.assertEquals(10, encoder.transfer(fchannel, 6, Long.MAX_VALUE));
+            Assert.assertEquals(0, encoder.transfer(fchannel, 16, Long.MAX_VALUE));
+        } finally {
+            testfile.close();
+        }
+        encoder.write(wrap("678"));
+        encoder.complete();
+        outbuf.flush(channel);
+
+        Assert.assertEquals("5\r\n12345\r\n6\r\nstuff;\r\na\r\nmore stuff\r\n3\r\n678\r\n0\r\n\r\n",
+                baos.toString("US-ASCII"));
+    }
+
+    @Test
+    public void testTransferPartialChunk() throws Exception {
+        FixedByteChannel channel = new FixedByteChannel(8);
+        SessionOutputBuffer outbuf = new SessionOutputBufferImpl(1024, 128, Consts.ASCII);
+        HttpTransportMetricsImpl metrics = new HttpTransportMetricsImpl();
+        ChunkEncoder encoder = new ChunkEncoder(channel, outbuf, metrics);
+
+        createTempFile("0123456789");
+        RandomAccessFile testfile = new RandomAccessFile(this.tmpfile, "r");
+        try {
+            FileChannel fchannel = testfile.getChannel();
+            Assert.assertEquals(5, encoder.transfer(fchannel, 0, Long.MAX_VALUE));
+        } finally {
+            testfile.close();
+        }
+        // the rest of the chunk is taken from a byte buffer
+        ByteBuffer src = wrap("56789");
+        Assert.assertEquals(0, encoder.write(src));
+        channel.flush();
+        Assert.assertEquals(5, encoder.write(src));
+        encoder.complete();
+        channel.flush();
+        outbuf.flush(channel);
+
+        Assert.assertEquals("a\r\n0123456789\r\n0\r\n\r\n", channel.toString("US-ASCII"));
+    }
+
+    @Test
+    public void testTransferMappedFile() throws Exception {
+        WritableByteChannelMock channel = new WritableByteChannelMock();
+        SessionOutputBuffer outbuf = new SessionOutputBufferImpl(1024, 128, Consts.ASCII);
+        HttpTransportMetricsImpl metrics = new HttpTransportMetricsImpl();
+        ChunkEncoder encoder = new ChunkEncoder(channel, outbuf, metrics);
+
+        String content = repeat('f', 64 * 1024);
+        createTempFile(content);
+        RandomAccessFile testfile = new RandomAccessFile(this.tmpfile, "r");
+        try {
+            FileChannel fchannel = testfile.getChannel();
+            Assert.assertEquals(content.length(), encoder.transfer(fchannel, 0, Long.MAX_VALUE));
+        } finally {
+            testfile.close();
+        }
+        // chunk header followed by a single write of the mapped file region
+        Assert.assertEquals(2, channel.getWriteCount());
+        encoder.complete();
+        outbuf.flush(channel);
+
+        Assert.assertEquals("10000\r\n" + content + "\r\n0\r\n\r\n", channel.toString("US-ASCII"));
+    }
+
+    private static byte[] readAll(final SessionOutputBuffer outbuf) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        outbuf.flush(Channels.newChannel(baos));
+        return baos.toByteArray();
+    }
+
     public class FixedByteChannel implements WritableByteChannel {
 
         // collect bytes written for unit test result evaluation
@@ -265,7 +578,7 @@ public class TestChunkEncoder {
         }
 
         public boolean isOpen() {
-            return false;
+            return true;
         }
 
         public void close() throws IOException {
@@ -34,12 +34,15 @@ import java.nio.channels.Channels;
 import java.nio.channels.ReadableByteChannel;
 
 import org.apache.http.Consts;
+import org.apache.http.Header;
+import org.apache.http.HeaderElement;
 import org.apache.http.HttpException;
 import org.apache.http.HttpRequest;
 import org.apache.http.HttpResponse;
 import org.apache.http.HttpVersion;
 import org.apache.http.config.MessageConstraints;
 import org.apache.http.impl.nio.reactor.SessionInputBufferImpl;
+import org.apache.http.message.BufferedHeaderView;
 import org.apache.http.nio.NHttpMessageParser;
 import org.apache.http.nio.reactor.SessionInputBuffer;
 import org.junit.Assert;
@@ -372,4 +375,169 @@ public class TestHttpMessageParser {
         }
     }
 
+    private static NHttpMessageParser<HttpRequest> newSharedBufferParser(
+            final SessionInputBuffer inbuf, final MessageConstraints constraints) {
+        return new DefaultHttpRequestParser(inbuf, null, null, constraints, true);
+    }
+
+    @Test
+    public void testSharedHeaderBufferParsing() throws Exception {
+        SessionInputBuffer inbuf = new SessionInputBufferImpl(1024, 128, Consts.ASCII);
+        NHttpMessageParser<HttpRequest> requestParser = newSharedBufferParser(inbuf, null);
+
+        requestParser.fillBuffer(newChannel("GET /whatever HTTP/1.1\r\nHeader1: one\r\nHea"));
+        Assert.assertNull(requestParser.parse());
+        requestParser.fillBuffer(newChannel("der2:  two  \r"));
+        Assert.assertNull(requestParser.parse());
+        requestParser.fillBuffer(newChannel("\nCookie: a=b; c=d\r\n\r\n"));
+        HttpRequest request = requestParser.parse();
+
+        Assert.assertNotNull(request);
+        Assert.assertEquals("/whatever", request.getRequestLine().getUri());
+        Header[] headers = request.getAllHeaders();
+        Assert.assertEquals(3, headers.length);
+        Assert.assertTrue(headers[0] instanceof BufferedHeaderView);
+        Assert.assertEquals("Header1", headers[0].getName());
+        Assert.assertEquals("one", headers[0].getValue());
+        Assert.assertEquals("Header2", headers[1].getName());
+        Assert.assertEquals("two", headers[1].getValue());
+        Assert.assertEquals("Cookie", headers[2].getName());
+        HeaderElement[] elements = headers[2].getElements();
+        Assert.assertEquals(1, elements.length);
+        Assert.assertEquals("a", elements[0].getName());
+        Assert.assertEquals("d", elements[0].getParameterByName("c").getValue());
+    }
+
+    @Test
+    public void testSharedHeaderBufferManyHeaders() throws Exception {
+        SessionInputBuffer inbuf = new SessionInputBufferImpl(1024, 128, Consts.ASCII);
+        NHttpMessageParser<HttpRequest> requestParser = newSharedBufferParser(inbuf, null);
+
+        StringBuilder buffer = new StringBuilder("GET / HTTP/1.1\r\n");
+        for (int i = 0; i < 50; i++) {
+            buffer.append("Header").append(i).append(": value").append(i).append("\r\n");
+        }
+        buffer.append("\r\n");
+        ReadableByteChannel channel = newChannel(buffer.toString());
+        HttpRequest request = null;
+        while (request == null && requestParser.fillBuffer(channel) != -1) {
+            request = requestParser.parse();
+        }
+        Assert.assertNotNull(request);
+        Header[] headers = request.getAllHeaders();
+        Assert.assertEquals(50, headers.length);
+        for (int i = 0; i < headers.length; i++) {
+            Assert.assertEquals("Header" + i, headers[i].getName());
+            Assert.assertEquals("value" + i, headers[i].getValue());
+        }
+    }
+
+    @Test
+    public void testSharedHeaderBufferFoldedHeaders() throws Exception {
+        SessionInputBuffer inbuf = new SessionInputBufferImpl(1024, 128, Consts.ASCII);
+        NHttpMessageParser<HttpRequest> requestParser = newSharedBufferParser(inbuf, null);
+
+        requestParser.fillBuffer(newChannel("GET /whatever HTTP/1.1\r\n" +
+                "Some header: stuff\r\n   more\r\n\tstuff\r\n" +
+                "Other: x\r\n      \r\n      y\r\n\r\n"));
+        HttpRequest request = requestParser.parse();
+
+        Assert.assertNotNull(request);
+        Assert.assertEquals(2, request.getAllHeaders().length);
+        Assert.assertEquals("stuff more stuff", request.getFirstHeader("Some header").getValue());
+        Assert.assertEquals("x  y", request.getFirstHeader("Other").getValue());
+    }
+
+    @Test
+    public void testSharedHeaderBufferBadlyFoldedFirstHeader() throws Exception {
+        SessionInputBuffer inbuf = new SessionInputBufferImpl(1024, 128, Consts.ASCII);
+        NHttpMessageParser<HttpRequest> requestParser = newSharedBufferParser(inbuf, null);
+
+        requestParser.fillBuffer(newChannel("GET /whatever HTTP/1.1\r\n" +
+                "  Some header: stuff\r\n   more stuff\r\n\r\n"));
+        HttpRequest request = requestParser.parse();
+
+        Assert.assertNotNull(request);
+        Assert.assertEquals(1, request.getAllHeaders().length);
+        Assert.assertEquals("stuff more stuff", request.getFirstHeader("Some header").getValue());
+    }
+
+    @Test
+    public void testSharedHeaderBufferInvalidHeader() throws Exception {
+        SessionInputBuffer inbuf = new SessionInputBufferImpl(1024, 128, Consts.ASCII);
+        NHttpMessageParser<HttpRequest> requestParser = newSharedBufferParser(inbuf, null);
+
+        requestParser.fillBuffer(newChannel("GET /whatever HTTP/1.1\r\nstuff\r\n\r\n"));
+        try {
+            requestParser.parse();
+            Assert.fail("HttpException should have been thrown");
+        } catch (HttpException ex) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testSharedHeaderBufferReset() throws Exception {
+        SessionInputBuffer inbuf = new SessionInputBufferImpl(1024, 128, Consts.ASCII);
+        NHttpMessageParser<HttpRequest> requestParser = newSharedBufferParser(inbuf, null);
+
+        requestParser.fillBuffer(newChannel("GET /one HTTP/1.1\r\nHeader: one\r\n\r\n" +
+                "GET /two HTTP/1.1\r\nHeader: two\r\n\r\n"));
+        HttpRequest request1 = requestParser.parse();
+        Assert.assertNotNull(request1);
+        requestParser.reset();
+        HttpRequest request2 = requestParser.parse();
+        Assert.assertNotNull(request2);
+
+        Assert.assertEquals("one", request1.getFirstHeader("Header").getValue());
+        Assert.assertEquals("two", request2.getFirstHeader("Header").getValue());
+    }
+
+    @Test
+    public void testSharedHeaderBufferConstraints() throws Exception {
+        SessionInputBuffer inbuf = new SessionInputBufferImpl(1024, 128, Consts.ASCII);
+
+        MessageConstraints constraints = MessageConstraints.custom()
+                .setMaxHeaderCount(3).setMaxLineLength(15).build();
+        NHttpMessageParser<HttpRequest> requestParser = newSharedBufferParser(inbuf, constraints);
+        requestParser.fillBuffer(newChannel("GET / HTTP/1.0\r\nHeader: 9012345\r\n" +
+                "Header: 9012\r\n 45\r\n\r\n"));
+        HttpRequest request = requestParser.parse();
+        Assert.assertNotNull(request);
+        Assert.assertEquals("9012 45", request.getHeaders("Header")[1].getValue());
+        requestParser.reset();
+
+        try {
+            requestParser.fillBuffer(newChannel("GET / HTTP/1.0\r\nHeader: 9012345\r\n" +
+                    " 23456789012345\r\n\r\n"));
+            requestParser.parse();
+            Assert.fail("IOException should have been thrown");
+        } catch (IOException expected) {
+        }
+
+        inbuf = new SessionInputBufferImpl(1024, 128, Consts.ASCII);
+        requestParser = newSharedBufferParser(inbuf, constraints);
+        try {
+            requestParser.fillBuffer(newChannel("GET / HTTP/1.0\r\nHeader: one\r\n" +
+                    "Header: two\r\nHeader: three\r\nHeader: four\r\n\r\n"));
+            requestParser.parse();
+            Assert.fail("IOException should have been thrown");
+        } catch (IOException expected) {
+        }
+    }
+
+    @Test
+    public void testSharedHeaderBufferResponseParserFactory() throws Exception {
+        SessionInputBuffer inbuf = new SessionInputBufferImpl(1024, 128, Consts.ASCII);
+        NHttpMessageParser<HttpResponse> responseParser = new DefaultHttpResponseParserFactory(
+                null, null, true).create(inbuf, null);
+
+        responseParser.fillBuffer(newChannel("HTTP/1.1 200 OK\r\nContent-Length: 10\r\n\r\n"));
+        HttpResponse response = responseParser.parse();
+        Assert.assertNotNull(response);
+        Header header = response.getFirstHeader("Content-Length");
+        Assert.assertTrue(header instanceof BufferedHeaderView);
+        Assert.assertEquals("10", header.getValue());
+    }
+
 }
@@ -38,6 +38,7 @@ import java.nio.channels.FileChannel;
 import java.nio.channels.WritableByteChannel;
 
 import org.apache.http.Consts;
+import org.apache.http.WritableByteChannelMock;
 import org.apache.http.impl.io.HttpTransportMetricsImpl;
 import org.apache.http.impl.nio.reactor.SessionOutputBufferImpl;
 import org.apache.http.nio.reactor.SessionOutputBuffer;
@@ -310,4 +311,33 @@ public class TestLengthDelimitedEncoder {
         }
     }
 
+    @Test
+    public void testGatheringWrite() throws Exception {
+        WritableByteChannelMock channel = new WritableByteChannelMock();
+        SessionOutputBufferImpl outbuf = new SessionOutputBufferImpl(1024, 128, Consts.ASCII);
+        HttpTransportMetricsImpl metrics = new HttpTransportMetricsImpl();
+        LengthDelimitedEncoder encoder = new LengthDelimitedEncoder(
+                channel, outbuf, metrics, 16);
+        Assert.assertTrue(encoder.isGatheringWrites());
+
+        outbuf.writeLine("HEAD");
+        Assert.assertEquals(16, encoder.write(wrap("0123456789ABCDEFGH")));
+        Assert.assertTrue(encoder.isCompleted());
+        Assert.assertFalse(outbuf.hasData());
+        Assert.assertEquals(1, channel.getWriteCount());
+        Assert.assertEquals("HEAD\r\n0123456789ABCDEF", channel.toString("US-ASCII"));
+        Assert.assertEquals(22, metrics.getBytesTransferred());
+    }
+
+    @Test
+    public void testNonGatheringChannel() throws Exception {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        WritableByteChannel channel = newChannel(baos);
+        SessionOutputBufferImpl outbuf = new SessionOutputBufferImpl(1024, 128, Consts.ASCII);
+        HttpTransportMetricsImpl metrics = new HttpTransportMetricsImpl();
+        LengthDelimitedEncoder encoder = new LengthDelimitedEncoder(
+                channel, outbuf, metrics, 16);
+        Assert.assertFalse(encoder.isGatheringWrites());
+    }
+
 }
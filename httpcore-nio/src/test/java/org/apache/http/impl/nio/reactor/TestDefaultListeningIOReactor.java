@@ -30,8 +30,12 @@ package org.apache.http.impl.nio.reactor;
 import java.io.IOException;
 import java.net.BindException;
 import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.http.HttpResponseInterceptor;
@@ -42,6 +46,7 @@ import org.apache.http.nio.protocol.UriHttpAsyncRequestHandlerMapper;
 import org.apache.http.nio.reactor.IOEventDispatch;
 import org.apache.http.nio.reactor.IOReactorExceptionHandler;
 import org.apache.http.nio.reactor.IOReactorStatus;
+import org.apache.http.nio.reactor.IOSession;
 import org.apache.http.nio.reactor.ListenerEndpoint;
 import org.apache.http.nio.reactor.ListeningIOReactor;
 import org.apache.http.protocol.HttpProcessor;
@@ -214,4 +219,287 @@ public class TestDefaultListeningIOReactor {
         Assert.assertEquals(IOReactorStatus.SHUT_DOWN, ioreactor.getStatus());
     }
 
+    @Test
+    public void testLeastSessionsDispatcherSelection() throws Exception {
+        final int connCount = 20;
+        final CountDownLatch latch = new CountDownLatch(connCount);
+        final IOEventDispatch eventDispatch = new IOEventDispatch() {
+
+            public void connected(final IOSession session) {
+                latch.countDown();
+            }
+
+            public void inputReady(final IOSession session) {
+            }
+
+            public void outputReady(final IOSession session) {
+            }
+
+            public void timeout(final IOSession session) {
+            }
+
+            public void disconnected(final IOSession session) {
+            }
+
+        };
+        IOReactorConfig config = IOReactorConfig.custom().setIoThreadCount(2).build();
+        final DefaultListeningIOReactor ioreactor = new DefaultListeningIOReactor(config);
+        ioreactor.setDispatcherSelectionStrategy(LeastSessionsDispatcherSelectionStrategy.INSTANCE);
+
+        Thread t = new Thread(new Runnable() {
+
+            public void run() {
+                try {
+                    ioreactor.execute(eventDispatch);
+                } catch (IOException ex) {
+                }
+            }
+
+        });
+
+        t.start();
+
+        ListenerEndpoint endpoint = ioreactor.listen(new InetSocketAddress("localhost", 0));
+        endpoint.waitFor();
+        int port = ((InetSocketAddress) endpoint.getAddress()).getPort();
+
+        Socket[] sockets = new Socket[connCount];
+        try {
+            for (int i = 0; i < connCount; i++) {
+                sockets[i] = new Socket("localhost", port);
+            }
+            Assert.assertTrue(latch.await(10, TimeUnit.SECONDS));
+
+            List<DispatcherStats> stats = ioreactor.getDispatcherStats();
+            Assert.assertEquals(2, stats.size());
+            int total = 0;
+            for (DispatcherStats s: stats) {
+                Assert.assertTrue(s.getSessionCount() >= connCount / 4);
+                Assert.assertTrue(s.getSelectCount() > 0);
+                Assert.assertTrue(s.getRecentBusyRatio() >= 0.0 && s.getRecentBusyRatio() <= 1.0);
+                total += s.getSessionCount();
+            }
+            Assert.assertEquals(connCount, total);
+        } finally {
+            for (int i = 0; i < connCount; i++) {
+                if (sockets[i] != null) {
+                    sockets[i].close();
+                }
+            }
+        }
+
+        ioreactor.shutdown(1000);
+        t.join(1000);
+
+        Assert.assertEquals(IOReactorStatus.SHUT_DOWN, ioreactor.getStatus());
+    }
+
+    @Test
+    public void testBatchAcceptWithMultipleAcceptors() throws Exception {
+        final int connCount = 50;
+        final CountDownLatch latch = new CountDownLatch(connCount);
+        final IOEventDispatch eventDispatch = new IOEventDispatch() {
+
+            public void connected(final IOSession session) {
+                latch.countDown();
+                session.close();
+            }
+
+            public void inputReady(final IOSession session) {
+            }
+
+            public void outputReady(final IOSession session) {
+            }
+
+            public void timeout(final IOSession session) {
+            }
+
+            public void disconnected(final IOSession session) {
+            }
+
+        };
+        IOReactorConfig config = IOReactorConfig.custom()
+                .setIoThreadCount(2)
+                .setAcceptBatchSize(8)
+                .setAcceptorCount(3)
+                .setBacklogSize(100)
+                .build();
+        final DefaultListeningIOReactor ioreactor = new DefaultListeningIOReactor(config);
+
+        Thread t = new Thread(new Runnable() {
+
+            public void run() {
+                try {
+                    ioreactor.execute(eventDispatch);
+                } catch (IOException ex) {
+                }
+            }
+
+        });
+
+        t.start();
+
+        ListenerEndpoint endpoint = ioreactor.listen(new InetSocketAddress("localhost", 0));
+        endpoint.waitFor();
+        Assert.assertNull(endpoint.getException());
+        Assert.assertEquals(100, ((ListenerEndpointImpl) endpoint).getBacklog());
+        int port = ((InetSocketAddress) endpoint.getAddress()).getPort();
+
+        Socket[] sockets = new Socket[connCount];
+        try {
+            for (int i = 0; i < connCount; i++) {
+                sockets[i] = new Socket("localhost", port);
+            }
+            Assert.assertTrue(latch.await(10, TimeUnit.SECONDS));
+        } finally {
+            for (int i = 0; i < connCount; i++) {
+                if (sockets[i] != null) {
+                    sockets[i].close();
+                }
+            }
+        }
+        Assert.assertEquals(connCount, ioreactor.getAcceptedConnectionCount());
+        Assert.assertEquals(0, ioreactor.getAcceptFailureCount());
+        Assert.assertEquals(2, countAcceptorThreads());
+
+        ioreactor.shutdown(1000);
+        t.join(1000);
+
+        Assert.assertEquals(IOReactorStatus.SHUT_DOWN, ioreactor.getStatus());
+        Assert.assertEquals(0, countAcceptorThreads());
+    }
+
+    @Test
+    public void testAcceptorThreadsCreatedByThreadFactory() throws Exception {
+        final List<Thread> created = new CopyOnWriteArrayList<Thread>();
+        final ThreadFactory threadFactory = new ThreadFactory() {
+
+            public Thread newThread(final Runnable r) {
+                Thread thread = new Thread(r, "custom " + created.size());
+                thread.setDaemon(true);
+                created.add(thread);
+                return thread;
+            }
+
+        };
+        final IOEventDispatch eventDispatch = new IOEventDispatch() {
+
+            public void connected(final IOSession session) {
+                session.close();
+            }
+
+            public void inputReady(final IOSession session) {
+            }
+
+            public void outputReady(final IOSession session) {
+            }
+
+            public void timeout(final IOSession session) {
+            }
+
+            public void disconnected(final IOSession session) {
+            }
+
+        };
+        IOReactorConfig config = IOReactorConfig.custom()
+                .setIoThreadCount(2)
+                .setAcceptorCount(3)
+                .build();
+        final DefaultListeningIOReactor ioreactor = new DefaultListeningIOReactor(config, threadFactory);
+
+        Thread t = new Thread(new Runnable() {
+
+            public void run() {
+                try {
+                    ioreactor.execute(eventDispatch);
+                } catch (IOException ex) {
+                }
+            }
+
+        });
+
+        t.start();
+
+        ListenerEndpoint endpoint = ioreactor.listen(new InetSocketAddress("localhost", 0));
+        endpoint.waitFor();
+        Assert.assertNull(endpoint.getException());
+
+        // 2 I/O dispatchers and 2 acceptors in addition to the main thread
+        Assert.assertEquals(4, created.size());
+        Assert.assertEquals(0, countAcceptorThreads());
+        for (Thread thread: created) {
+            Assert.assertTrue(thread.isDaemon());
+        }
+
+        ioreactor.shutdown(1000);
+        t.join(1000);
+
+        Assert.assertEquals(IOReactorStatus.SHUT_DOWN, ioreactor.getStatus());
+    }
+
+    private static int countAcceptorThreads() {
+        Thread[] threads = new Thread[Thread.activeCount() + 16];
+        int n = Thread.enumerate(threads);
+        int count = 0;
+        for (int i = 0; i < n; i++) {
+            if (threads[i].getName().startsWith("I/O acceptor") && threads[i].isAlive()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Test
+    public void testBacklogPreservedOnResume() throws Exception {
+        final IOEventDispatch eventDispatch = createIOEventDispatch();
+        IOReactorConfig config = IOReactorConfig.custom()
+                .setIoThreadCount(1)
+                .setBacklogSize(10)
+                .build();
+        final DefaultListeningIOReactor ioreactor = new DefaultListeningIOReactor(config);
+
+        Thread t = new Thread(new Runnable() {
+
+            public void run() {
+                try {
+                    ioreactor.execute(eventDispatch);
+                } catch (IOException ex) {
+                }
+            }
+
+        });
+
+        t.start();
+
+        ListenerEndpoint endpoint1 = ioreactor.listen(new InetSocketAddress(0));
+        endpoint1.waitFor();
+        ListenerEndpoint endpoint2 = ioreactor.listen(new InetSocketAddress(0), 50);
+        endpoint2.waitFor();
+        Assert.assertEquals(10, ((ListenerEndpointImpl) endpoint1).getBacklog());
+        Assert.assertEquals(50, ((ListenerEndpointImpl) endpoint2).getBacklog());
+        int port1 = ((InetSocketAddress) endpoint1.getAddress()).getPort();
+
+        ioreactor.pause();
+        Assert.assertEquals(0, ioreactor.getEndpoints().size());
+        ioreactor.resume();
+
+        Set<ListenerEndpoint> endpoints = ioreactor.getEndpoints();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (endpoints.size() < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+            endpoints = ioreactor.getEndpoints();
+        }
+        Assert.assertEquals(2, endpoints.size());
+        for (ListenerEndpoint endpoint: endpoints) {
+            int port = ((InetSocketAddress) endpoint.getAddress()).getPort();
+            int backlog = ((ListenerEndpointImpl) endpoint).getBacklog();
+            Assert.assertEquals(port == port1 ? 10 : 50, backlog);
+        }
+
+        ioreactor.shutdown(1000);
+        t.join(1000);
+
+        Assert.assertEquals(IOReactorStatus.SHUT_DOWN, ioreactor.getStatus());
+    }
+
 }
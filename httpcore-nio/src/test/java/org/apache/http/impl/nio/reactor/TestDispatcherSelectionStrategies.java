@@ -0,0 +1,171 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+
+package org.apache.http.impl.nio.reactor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link DispatcherSelectionStrategy} implementations.
+ */
+public class TestDispatcherSelectionStrategies {
+
+    static class Stats implements DispatcherStats {
+
+        private final double busyRatio;
+        private int sessionCount;
+
+        Stats(final int sessionCount, final double busyRatio) {
+            super();
+            this.sessionCount = sessionCount;
+            this.busyRatio = busyRatio;
+        }
+
+        public int getSessionCount() {
+            return this.sessionCount;
+        }
+
+        public long getSelectCount() {
+            return 0;
+        }
+
+        public long getBusyTime() {
+            return 0;
+        }
+
+        public double getRecentBusyRatio() {
+            return this.busyRatio;
+        }
+
+        void addSession() {
+            this.sessionCount++;
+        }
+
+    }
+
+    private static List<DispatcherStats> stats(final Stats... stats) {
+        List<DispatcherStats> list = new ArrayList<DispatcherStats>();
+        for (Stats s: stats) {
+            list.add(s);
+        }
+        return list;
+    }
+
+    @Test
+    public void testRoundRobin() throws Exception {
+        List<DispatcherStats> list = stats(
+                new Stats(0, 0.0), new Stats(0, 0.0), new Stats(0, 0.0));
+        DispatcherSelectionStrategy strategy = new RoundRobinDispatcherSelectionStrategy();
+        for (int i = 0; i < 10; i++) {
+            Assert.assertEquals(i % 3, strategy.select(list));
+        }
+    }
+
+    @Test
+    public void testRoundRobinConcurrent() throws Exception {
+        final List<DispatcherStats> list = stats(
+                new Stats(0, 0.0), new Stats(0, 0.0), new Stats(0, 0.0), new Stats(0, 0.0));
+        final DispatcherSelectionStrategy strategy = new RoundRobinDispatcherSelectionStrategy();
+        final int[][] counts = new int[4][4];
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            final int[] count = counts[t];
+            threads[t] = new Thread(new Runnable() {
+
+                public void run() {
+                    for (int i = 0; i < 10000; i++) {
+                        count[strategy.select(list)]++;
+                    }
+                }
+
+            });
+        }
+        for (Thread thread: threads) {
+            thread.start();
+        }
+        for (Thread thread: threads) {
+            thread.join();
+        }
+        for (int d = 0; d < 4; d++) {
+            int total = 0;
+            for (int t = 0; t < threads.length; t++) {
+                total += counts[t][d];
+            }
+            Assert.assertEquals(10000, total);
+        }
+    }
+
+    @Test
+    public void testLeastSessions() throws Exception {
+        DispatcherSelectionStrategy strategy = LeastSessionsDispatcherSelectionStrategy.INSTANCE;
+        Assert.assertEquals(1, strategy.select(stats(
+                new Stats(5, 0.0), new Stats(2, 0.9), new Stats(3, 0.0))));
+        Assert.assertEquals(0, strategy.select(stats(
+                new Stats(2, 0.0), new Stats(2, 0.0), new Stats(3, 0.0))));
+    }
+
+    @Test
+    public void testLeastBusy() throws Exception {
+        DispatcherSelectionStrategy strategy = LeastBusyDispatcherSelectionStrategy.INSTANCE;
+        Assert.assertEquals(2, strategy.select(stats(
+                new Stats(1, 0.5), new Stats(0, 0.3), new Stats(9, 0.1))));
+        // dispatchers within the tolerance are told apart by session count
+        Assert.assertEquals(0, strategy.select(stats(
+                new Stats(2, 0.28), new Stats(4, 0.25), new Stats(1, 0.9))));
+        // but not apart from less busy ones outside of it
+        Assert.assertEquals(0, strategy.select(stats(
+                new Stats(9, 0.2), new Stats(2, 0.35), new Stats(1, 0.36))));
+        Assert.assertEquals(0, new LeastBusyDispatcherSelectionStrategy(0).select(stats(
+                new Stats(9, 0.2), new Stats(2, 0.2001))));
+    }
+
+    @Test
+    public void testLeastBusyBurst() throws Exception {
+        DispatcherSelectionStrategy strategy = LeastBusyDispatcherSelectionStrategy.INSTANCE;
+        // Busy ratios do not change during a burst of new channels, while
+        // session counts include the channels assigned so far
+        Stats[] dispatchers = new Stats[] {
+                new Stats(0, 0.30), new Stats(0, 0.29), new Stats(0, 0.33),
+                new Stats(0, 0.31), new Stats(0, 0.95) };
+        List<DispatcherStats> list = stats(dispatchers);
+        int[] counts = new int[dispatchers.length];
+        for (int i = 0; i < 100; i++) {
+            int selected = strategy.select(list);
+            dispatchers[selected].addSession();
+            counts[selected]++;
+        }
+        for (int i = 0; i < 4; i++) {
+            Assert.assertEquals(25, counts[i]);
+        }
+        Assert.assertEquals(0, counts[4]);
+    }
+
+}
@@ -0,0 +1,171 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+
+package org.apache.http.impl.nio.reactor;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.http.nio.reactor.IOEventDispatch;
+import org.apache.http.nio.reactor.IOSession;
+import org.apache.http.nio.reactor.ListenerEndpoint;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for {@link IOReactorStatistics} fed by a running I/O reactor.
+ */
+public class TestIOReactorStatistics {
+
+    @Test
+    public void testNoStatisticsByDefault() throws Exception {
+        DefaultListeningIOReactor ioreactor = new DefaultListeningIOReactor(
+                IOReactorConfig.custom().setIoThreadCount(2).build());
+        Assert.assertTrue(ioreactor.getStatsListeners().isEmpty());
+    }
+
+    @Test
+    public void testDispatcherStatistics() throws Exception {
+        final int connCount = 10;
+        final CountDownLatch connected = new CountDownLatch(connCount);
+        final CountDownLatch disconnected = new CountDownLatch(connCount);
+        final IOEventDispatch eventDispatch = new IOEventDispatch() {
+
+            public void connected(final IOSession session) {
+                connected.countDown();
+            }
+
+            public void inputReady(final IOSession session) {
+                session.close();
+            }
+
+            public void outputReady(final IOSession session) {
+            }
+
+            public void timeout(final IOSession session) {
+            }
+
+            public void disconnected(final IOSession session) {
+                disconnected.countDown();
+            }
+
+        };
+        IOReactorConfig config = IOReactorConfig.custom()
+                .setIoThreadCount(2)
+                .setInterestOpQueued(true)
+                .build();
+        final DefaultListeningIOReactor ioreactor = new DefaultListeningIOReactor(config);
+        ioreactor.setStatsListenerFactory(IOReactorStatistics.FACTORY);
+
+        Thread t = new Thread(new Runnable() {
+
+            public void run() {
+                try {
+                    ioreactor.execute(eventDispatch);
+                } catch (IOException ex) {
+                }
+            }
+
+        });
+        t.start();
+
+        ListenerEndpoint endpoint = ioreactor.listen(new InetSocketAddress("localhost", 0));
+        endpoint.waitFor();
+        int port = ((InetSocketAddress) endpoint.getAddress()).getPort();
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        List<ObjectName> names = IOReactorMBeans.register(server, ioreactor, "test");
+        try {
+            Assert.assertEquals(2, names.size());
+
+            Socket[] sockets = new Socket[connCount];
+            try {
+                for (int i = 0; i < connCount; i++) {
+                    sockets[i] = new Socket("localhost", port);
+                }
+                Assert.assertTrue(connected.await(10, TimeUnit.SECONDS));
+            } finally {
+                for (int i = 0; i < connCount; i++) {
+                    if (sockets[i] != null) {
+                        sockets[i].close();
+                    }
+                }
+            }
+            Assert.assertTrue(disconnected.await(10, TimeUnit.SECONDS));
+
+            List<IOReactorStatsListener> listeners = ioreactor.getStatsListeners();
+            Assert.assertEquals(2, listeners.size());
+            long newChannels = 0;
+            long closedSessions = 0;
+            long readyKeys = 0;
+            for (IOReactorStatsListener listener: listeners) {
+                IOReactorStatistics stats = (IOReactorStatistics) listener;
+                Assert.assertTrue(stats.getSelectCount() > 0);
+                Assert.assertEquals(stats.getSelectCount(),
+                        stats.getSelectTimeHistogram().getCount());
+                newChannels += stats.getNewChannelCount();
+                closedSessions += stats.getClosedSessionCount();
+                readyKeys += stats.getReadyKeyCount();
+            }
+            Assert.assertEquals(connCount, newChannels);
+            // closed sessions are removed in the loop following the one that closed them
+            long deadline = System.currentTimeMillis() + 5000;
+            while (closedSessions < connCount && System.currentTimeMillis() < deadline) {
+                Thread.sleep(50);
+                closedSessions = 0;
+                for (IOReactorStatsListener listener: listeners) {
+                    closedSessions += ((IOReactorStatistics) listener).getClosedSessionCount();
+                }
+            }
+            Assert.assertEquals(connCount, closedSessions);
+            Assert.assertTrue(readyKeys >= connCount);
+
+            long selectCount = 0;
+            for (ObjectName name: names) {
+                selectCount += ((Long) server.getAttribute(name, "SelectCount")).longValue();
+                Assert.assertNotNull(server.getAttribute(name, "99thPercentileSelectTime"));
+            }
+            Assert.assertTrue(selectCount > 0);
+        } finally {
+            IOReactorMBeans.unregister(server, names);
+            ioreactor.shutdown(1000);
+            t.join(1000);
+        }
+        for (ObjectName name: names) {
+            Assert.assertFalse(server.isRegistered(name));
+        }
+    }
+
+}
@@ -0,0 +1,229 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+
+package org.apache.http.impl.nio.reactor;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.http.nio.reactor.IOEventDispatch;
+import org.apache.http.nio.reactor.IOSession;
+import org.apache.http.nio.reactor.ListenerEndpoint;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for event mask updates of {@link IOSessionImpl}.
+ */
+public class TestIOSessionEventMask {
+
+    private Selector selector;
+    private ServerSocketChannel server;
+    private SocketChannel client;
+    private SocketChannel channel;
+
+    @Before
+    public void setUp() throws Exception {
+        this.selector = Selector.open();
+        this.server = ServerSocketChannel.open();
+        this.server.socket().bind(new InetSocketAddress("localhost", 0));
+        this.client = SocketChannel.open(this.server.socket().getLocalSocketAddress());
+        this.channel = this.server.accept();
+        this.channel.configureBlocking(false);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        this.channel.close();
+        this.client.close();
+        this.server.close();
+        this.selector.close();
+    }
+
+    @Test
+    public void testEventMaskUpdatesDelegatedToCallback() throws Exception {
+        SelectionKey key = this.channel.register(this.selector, SelectionKey.OP_READ);
+        final List<IOSessionImpl> notified = new ArrayList<IOSessionImpl>();
+        IOSessionImpl session = new IOSessionImpl(key, new InterestOpsCallback() {
+
+            public void addInterestOps(final IOSessionImpl session) {
+                notified.add(session);
+            }
+
+        }, null);
+
+        session.setEvent(SelectionKey.OP_WRITE);
+        session.clearEvent(SelectionKey.OP_READ);
+        Assert.assertEquals(SelectionKey.OP_WRITE, session.getEventMask());
+        Assert.assertEquals(SelectionKey.OP_READ, key.interestOps());
+        Assert.assertEquals(2, notified.size());
+        Assert.assertSame(session, notified.get(0));
+
+        Assert.assertTrue(session.markEventMaskPending());
+        Assert.assertFalse(session.markEventMaskPending());
+        session.applyPendingEventMask();
+        Assert.assertEquals(SelectionKey.OP_WRITE, key.interestOps());
+        Assert.assertTrue(session.markEventMaskPending());
+
+        session.close();
+        session.setEventMask(SelectionKey.OP_READ);
+        Assert.assertEquals(2, notified.size());
+        // must not fail on a cancelled key
+        session.applyPendingEventMask();
+    }
+
+    @Test
+    public void testEventMaskUpdatesWithoutCallback() throws Exception {
+        SelectionKey key = this.channel.register(this.selector, SelectionKey.OP_READ);
+        IOSessionImpl session = new IOSessionImpl(key, null);
+        session.setEvent(SelectionKey.OP_WRITE);
+        Assert.assertEquals(SelectionKey.OP_READ | SelectionKey.OP_WRITE, key.interestOps());
+        session.clearEvent(SelectionKey.OP_READ);
+        Assert.assertEquals(SelectionKey.OP_WRITE, key.interestOps());
+        Assert.assertEquals(SelectionKey.OP_WRITE, session.getEventMask());
+    }
+
+    private static void exchange(final boolean interestOpQueued) throws Exception {
+        final IOEventDispatch eventDispatch = new IOEventDispatch() {
+
+            public void connected(final IOSession session) {
+            }
+
+            public void inputReady(final IOSession session) {
+                ByteBuffer dst = ByteBuffer.allocate(16);
+                int count;
+                try {
+                    count = session.channel().read(dst);
+                } catch (IOException ex) {
+                    session.close();
+                    return;
+                }
+                if (count < 0) {
+                    session.close();
+                    return;
+                }
+                for (int i = 0; i < count; i++) {
+                    if (dst.get(i) == 'd') {
+                        // request output from the dispatch thread
+                        session.setEvent(SelectionKey.OP_WRITE);
+                    } else {
+                        // request output from a foreign thread
+                        Thread t = new Thread(new Runnable() {
+
+                            public void run() {
+                                session.setEvent(SelectionKey.OP_WRITE);
+                            }
+
+                        });
+                        t.start();
+                    }
+                }
+            }
+
+            public void outputReady(final IOSession session) {
+                try {
+                    session.channel().write(ByteBuffer.wrap(new byte[] {'y'}));
+                } catch (IOException ex) {
+                    session.close();
+                    return;
+                }
+                session.clearEvent(SelectionKey.OP_WRITE);
+            }
+
+            public void timeout(final IOSession session) {
+            }
+
+            public void disconnected(final IOSession session) {
+            }
+
+        };
+        IOReactorConfig config = IOReactorConfig.custom()
+                .setIoThreadCount(1)
+                .setSelectInterval(5000)
+                .setInterestOpQueued(interestOpQueued)
+                .build();
+        final DefaultListeningIOReactor ioreactor = new DefaultListeningIOReactor(config);
+        Thread t = new Thread(new Runnable() {
+
+            public void run() {
+                try {
+                    ioreactor.execute(eventDispatch);
+                } catch (IOException ex) {
+                }
+            }
+
+        });
+        t.start();
+        try {
+            ListenerEndpoint endpoint = ioreactor.listen(new InetSocketAddress("localhost", 0));
+            endpoint.waitFor();
+            int port = ((InetSocketAddress) endpoint.getAddress()).getPort();
+
+            Socket socket = new Socket("localhost", port);
+            try {
+                socket.setSoTimeout(3000);
+                OutputStream outstream = socket.getOutputStream();
+                InputStream instream = socket.getInputStream();
+                // The select interval is longer than the socket timeout,
+                // so responses from foreign threads rely on a selector wake-up
+                for (int i = 0; i < 10; i++) {
+                    outstream.write(i % 2 == 0 ? 'd' : 'f');
+                    outstream.flush();
+                    Assert.assertEquals('y', instream.read());
+                }
+            } finally {
+                socket.close();
+            }
+        } finally {
+            ioreactor.shutdown(1000);
+            t.join(1000);
+        }
+    }
+
+    @Test
+    public void testEventMaskUpdatesFromAnyThread() throws Exception {
+        exchange(false);
+    }
+
+    @Test
+    public void testQueuedEventMaskUpdatesFromAnyThread() throws Exception {
+        exchange(true);
+    }
+
+}
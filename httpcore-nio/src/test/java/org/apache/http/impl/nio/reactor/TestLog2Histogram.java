@@ -0,0 +1,125 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+
+package org.apache.http.impl.nio.reactor;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link Log2Histogram}.
+ */
+public class TestLog2Histogram {
+
+    @Test
+    public void testBuckets() throws Exception {
+        Assert.assertEquals(0, Log2Histogram.bucketOf(0));
+        Assert.assertEquals(1, Log2Histogram.bucketOf(1));
+        Assert.assertEquals(2, Log2Histogram.bucketOf(2));
+        Assert.assertEquals(2, Log2Histogram.bucketOf(3));
+        Assert.assertEquals(3, Log2Histogram.bucketOf(4));
+        Assert.assertEquals(10, Log2Histogram.bucketOf(1023));
+        Assert.assertEquals(11, Log2Histogram.bucketOf(1024));
+        Assert.assertEquals(63, Log2Histogram.bucketOf(Long.MAX_VALUE));
+        Assert.assertEquals(0, Log2Histogram.getUpperBound(0));
+        Assert.assertEquals(1023, Log2Histogram.getUpperBound(10));
+        Assert.assertEquals(Long.MAX_VALUE, Log2Histogram.getUpperBound(63));
+    }
+
+    @Test
+    public void testEmpty() throws Exception {
+        Log2Histogram histogram = new Log2Histogram();
+        Assert.assertEquals(0, histogram.getCount());
+        Assert.assertEquals(0, histogram.getMax());
+        Assert.assertEquals(0, histogram.getPercentile(50));
+    }
+
+    @Test
+    public void testPercentiles() throws Exception {
+        Log2Histogram histogram = new Log2Histogram();
+        for (int i = 0; i < 98; i++) {
+            histogram.update(10);
+        }
+        histogram.update(1000);
+        histogram.update(5000);
+        histogram.update(-1);
+        Assert.assertEquals(101, histogram.getCount());
+        Assert.assertEquals(1, histogram.getCount(0));
+        Assert.assertEquals(98, histogram.getCount(4));
+        Assert.assertEquals(5000, histogram.getMax());
+        Assert.assertEquals(15, histogram.getPercentile(50));
+        Assert.assertEquals(1023, histogram.getPercentile(99));
+        Assert.assertEquals(5000, histogram.getPercentile(100));
+        Assert.assertEquals(0, histogram.getPercentile(0));
+    }
+
+    @Test
+    public void testSubBuckets() throws Exception {
+        Assert.assertEquals(59 * 32, Log2Histogram.getBucketCount(5));
+        Assert.assertEquals(31, Log2Histogram.bucketOf(31, 5));
+        Assert.assertEquals(32, Log2Histogram.bucketOf(32, 5));
+        Assert.assertEquals(63, Log2Histogram.bucketOf(63, 5));
+        Assert.assertEquals(64, Log2Histogram.bucketOf(64, 5));
+        Assert.assertEquals(64, Log2Histogram.bucketOf(65, 5));
+        Assert.assertEquals(59 * 32 - 1, Log2Histogram.bucketOf(Long.MAX_VALUE, 5));
+        for (long v = 1; v > 0 && v < Long.MAX_VALUE / 3; v = v * 3 + 1) {
+            int bucket = Log2Histogram.bucketOf(v, 5);
+            long upper = Log2Histogram.getUpperBound(bucket, 5);
+            Assert.assertTrue(upper >= v);
+            Assert.assertTrue(upper - v <= v / 32);
+            Assert.assertTrue(Log2Histogram.getUpperBound(bucket - 1, 5) < v);
+        }
+        Assert.assertEquals(Long.MAX_VALUE, Log2Histogram.getUpperBound(59 * 32 - 1, 5));
+    }
+
+    @Test
+    public void testSubBucketPercentiles() throws Exception {
+        Log2Histogram histogram = new Log2Histogram(5);
+        Assert.assertEquals(5, histogram.getSubBucketBits());
+        Assert.assertEquals(59 * 32, histogram.getBucketCount());
+        for (int i = 0; i < 98; i++) {
+            histogram.update(1000);
+        }
+        histogram.update(100000);
+        histogram.update(200000);
+        Assert.assertEquals(100, histogram.getCount());
+        Assert.assertEquals(1007, histogram.getPercentile(50));
+        Assert.assertEquals(100351, histogram.getPercentile(99));
+        Assert.assertEquals(200000, histogram.getPercentile(100));
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testInvalidSubBucketBits() throws Exception {
+        new Log2Histogram(Log2Histogram.MAX_SUB_BUCKET_BITS + 1);
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testInvalidPercentile() throws Exception {
+        new Log2Histogram().getPercentile(101);
+    }
+
+}
@@ -31,6 +31,7 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.UnsupportedEncodingException;
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.nio.channels.Channels;
 import java.nio.channels.ReadableByteChannel;
 import java.nio.channels.WritableByteChannel;
@@ -131,6 +132,131 @@ public class TestSessionInOutBuffers {
         Assert.assertFalse(inbuf.readLine(line, true));
     }
 
+    private static ReadableByteChannel newChunkedChannel(final byte[] bytes, final int chunk) {
+        return new ReadableByteChannel() {
+
+            private int pos;
+
+            public int read(final ByteBuffer dst) {
+                if (this.pos >= bytes.length) {
+                    return -1;
+                }
+                int len = Math.min(Math.min(chunk, dst.remaining()), bytes.length - this.pos);
+                dst.put(bytes, this.pos, len);
+                this.pos += len;
+                return len;
+            }
+
+            public boolean isOpen() {
+                return true;
+            }
+
+            public void close() {
+            }
+
+        };
+    }
+
+    @Test
+    public void testReadLineIncrementalFill() throws Exception {
+        StringBuilder buffer = new StringBuilder();
+        buffer.append("Cookie: ");
+        for (int i = 0; i < 200; i++) {
+            buffer.append("name").append(i).append("=value").append(i).append("; ");
+        }
+        String longLine = buffer.toString();
+        // 0x0b is next to LF in value and must not be mistaken for it
+        String s = longLine + "\r\n\u000b\r\nlast\n";
+        ReadableByteChannel channel = newChunkedChannel(s.getBytes("US-ASCII"), 7);
+        SessionInputBuffer inbuf = new SessionInputBufferImpl(16, 16, null, this.allocator);
+
+        CharArrayBuffer line = new CharArrayBuffer(64);
+        int fills = 0;
+        while (!inbuf.readLine(line, false)) {
+            Assert.assertTrue(inbuf.fill(channel) > 0);
+            fills++;
+        }
+        Assert.assertTrue(fills > 100);
+        Assert.assertEquals(longLine, line.toString());
+
+        line.clear();
+        while (!inbuf.readLine(line, false)) {
+            Assert.assertTrue(inbuf.fill(channel) > 0);
+        }
+        Assert.assertEquals("\u000b", line.toString());
+
+        line.clear();
+        while (!inbuf.readLine(line, false)) {
+            Assert.assertTrue(inbuf.fill(channel) > 0);
+        }
+        Assert.assertEquals("last", line.toString());
+        Assert.assertEquals(-1, inbuf.fill(channel));
+    }
+
+    @Test
+    public void testReadLineDelimiterAtEveryOffset() throws Exception {
+        for (int n = 0; n < 24; n++) {
+            StringBuilder buffer = new StringBuilder();
+            for (int i = 0; i < n; i++) {
+                buffer.append((char) ('a' + i));
+            }
+            String s = buffer.toString();
+            ReadableByteChannel channel = newChannel(s + "\n" + s + "\r\n");
+            SessionInputBuffer inbuf = new SessionInputBufferImpl(64, 16, null, this.allocator);
+            inbuf.fill(channel);
+
+            CharArrayBuffer line = new CharArrayBuffer(64);
+            Assert.assertTrue(inbuf.readLine(line, false));
+            Assert.assertEquals(s, line.toString());
+            line.clear();
+            Assert.assertTrue(inbuf.readLine(line, false));
+            Assert.assertEquals(s, line.toString());
+            line.clear();
+            Assert.assertFalse(inbuf.readLine(line, false));
+        }
+    }
+
+    @Test
+    public void testReadLineAfterPartialScanAndRead() throws Exception {
+        SessionInputBuffer inbuf = new SessionInputBufferImpl(16, 16, null, this.allocator);
+
+        inbuf.fill(newChannel("0123456789ab"));
+        CharArrayBuffer line = new CharArrayBuffer(64);
+        Assert.assertFalse(inbuf.readLine(line, false));
+        Assert.assertEquals('0', inbuf.read());
+        Assert.assertEquals('1', inbuf.read());
+        Assert.assertEquals('2', inbuf.read());
+        Assert.assertEquals('3', inbuf.read());
+
+        ReadableByteChannel channel = newChannel("\r\nnext\r\n");
+        inbuf.fill(channel);
+        Assert.assertTrue(inbuf.readLine(line, false));
+        Assert.assertEquals("456789ab", line.toString());
+        inbuf.fill(channel);
+        line.clear();
+        Assert.assertTrue(inbuf.readLine(line, false));
+        Assert.assertEquals("next", line.toString());
+    }
+
+    @Test
+    public void testReadLineLittleEndianBuffer() throws Exception {
+        final ByteBufferAllocator allocator = this.allocator;
+        SessionInputBuffer inbuf = new SessionInputBufferImpl(64, 16, null, new ByteBufferAllocator() {
+
+            public ByteBuffer allocate(final int size) {
+                return allocator.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+            }
+
+        });
+        inbuf.fill(newChannel("0123456789\r\nabc\r\n"));
+        CharArrayBuffer line = new CharArrayBuffer(64);
+        Assert.assertTrue(inbuf.readLine(line, false));
+        Assert.assertEquals("0123456789", line.toString());
+        line.clear();
+        Assert.assertTrue(inbuf.readLine(line, false));
+        Assert.assertEquals("abc", line.toString());
+    }
+
     @Test
     public void testWriteLineChunks() throws Exception {
         SessionOutputBuffer outbuf = new SessionOutputBufferImpl(16, 16, null, this.allocator);
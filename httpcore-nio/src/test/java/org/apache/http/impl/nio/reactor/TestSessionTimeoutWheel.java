@@ -0,0 +1,156 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+
+package org.apache.http.impl.nio.reactor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+public class TestSessionTimeoutWheel {
+
+    private static IOSessionImpl mockSession(final long lastAccess, final int timeout) {
+        IOSessionImpl session = Mockito.mock(IOSessionImpl.class);
+        Mockito.when(session.getLastAccessTime()).thenReturn(lastAccess);
+        Mockito.when(session.getSocketTimeout()).thenReturn(timeout);
+        Mockito.when(session.isClosed()).thenReturn(false);
+        return session;
+    }
+
+    @Test
+    public void testSessionTimeout() throws Exception {
+        SessionTimeoutWheel wheel = new SessionTimeoutWheel(100, 16, 0);
+        IOSessionImpl session = mockSession(0, 250);
+        wheel.schedule(session);
+        List<IOSessionImpl> timedOut = new ArrayList<IOSessionImpl>();
+
+        wheel.expire(100, timedOut);
+        Assert.assertEquals(1, wheel.size());
+        Assert.assertTrue(timedOut.isEmpty());
+        wheel.expire(200, timedOut);
+        Assert.assertTrue(timedOut.isEmpty());
+        wheel.expire(300, timedOut);
+        Assert.assertEquals(1, timedOut.size());
+        Assert.assertSame(session, timedOut.get(0));
+        timedOut.clear();
+
+        // Still idle: reported once again one tick later
+        wheel.expire(350, timedOut);
+        Assert.assertTrue(timedOut.isEmpty());
+        wheel.expire(400, timedOut);
+        Assert.assertEquals(1, timedOut.size());
+    }
+
+    @Test
+    public void testSessionActivityRearmsTimeout() throws Exception {
+        SessionTimeoutWheel wheel = new SessionTimeoutWheel(100, 16, 0);
+        IOSessionImpl session = mockSession(0, 250);
+        wheel.schedule(session);
+        List<IOSessionImpl> timedOut = new ArrayList<IOSessionImpl>();
+        wheel.expire(0, timedOut);
+
+        Mockito.when(session.getLastAccessTime()).thenReturn(200L);
+        wheel.expire(300, timedOut);
+        Assert.assertTrue(timedOut.isEmpty());
+        Assert.assertEquals(1, wheel.size());
+        wheel.expire(400, timedOut);
+        Assert.assertTrue(timedOut.isEmpty());
+        wheel.expire(500, timedOut);
+        Assert.assertEquals(1, timedOut.size());
+    }
+
+    @Test
+    public void testTimeoutBeyondWheelRevolution() throws Exception {
+        SessionTimeoutWheel wheel = new SessionTimeoutWheel(10, 4, 0);
+        IOSessionImpl session = mockSession(0, 95);
+        wheel.schedule(session);
+        List<IOSessionImpl> timedOut = new ArrayList<IOSessionImpl>();
+        for (long now = 0; now < 100; now += 10) {
+            wheel.expire(now, timedOut);
+            Assert.assertTrue("Unexpected timeout at " + now, timedOut.isEmpty());
+        }
+        wheel.expire(100, timedOut);
+        Assert.assertEquals(1, timedOut.size());
+    }
+
+    @Test
+    public void testClockJumpBeyondWheelRevolution() throws Exception {
+        SessionTimeoutWheel wheel = new SessionTimeoutWheel(10, 4, 0);
+        IOSessionImpl session1 = mockSession(0, 15);
+        IOSessionImpl session2 = mockSession(0, 1000);
+        wheel.schedule(session1);
+        wheel.schedule(session2);
+        List<IOSessionImpl> timedOut = new ArrayList<IOSessionImpl>();
+        wheel.expire(0, timedOut);
+        wheel.expire(500, timedOut);
+        Assert.assertEquals(1, timedOut.size());
+        Assert.assertSame(session1, timedOut.get(0));
+        Assert.assertEquals(2, wheel.size());
+    }
+
+    @Test
+    public void testClosedOrUntimedSessionsRemoved() throws Exception {
+        SessionTimeoutWheel wheel = new SessionTimeoutWheel(100, 16, 0);
+        IOSessionImpl session1 = mockSession(0, 100);
+        IOSessionImpl session2 = mockSession(0, 100);
+        IOSessionImpl session3 = mockSession(0, 100);
+        wheel.schedule(session1);
+        wheel.schedule(session2);
+        wheel.schedule(session3);
+        List<IOSessionImpl> timedOut = new ArrayList<IOSessionImpl>();
+        wheel.expire(0, timedOut);
+        Assert.assertEquals(3, wheel.size());
+
+        Mockito.when(session1.isClosed()).thenReturn(true);
+        Mockito.when(session2.getSocketTimeout()).thenReturn(0);
+        wheel.cancel(session3);
+        Assert.assertEquals(2, wheel.size());
+
+        wheel.expire(1000, timedOut);
+        Assert.assertTrue(timedOut.isEmpty());
+        Assert.assertEquals(0, wheel.size());
+    }
+
+    @Test
+    public void testRescheduleWithZeroTimeout() throws Exception {
+        SessionTimeoutWheel wheel = new SessionTimeoutWheel(100, 16, 0);
+        IOSessionImpl session = mockSession(0, 100);
+        wheel.schedule(session);
+        List<IOSessionImpl> timedOut = new ArrayList<IOSessionImpl>();
+        wheel.expire(0, timedOut);
+        Assert.assertEquals(1, wheel.size());
+
+        Mockito.when(session.getSocketTimeout()).thenReturn(0);
+        wheel.schedule(session);
+        wheel.expire(0, timedOut);
+        Assert.assertEquals(0, wheel.size());
+    }
+
+}
@@ -0,0 +1,243 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+
+package org.apache.http.nio.integration;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.net.InetSocketAddress;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.concurrent.Future;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpException;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.entity.ContentType;
+import org.apache.http.impl.nio.DefaultNHttpClientConnection;
+import org.apache.http.impl.nio.DefaultNHttpServerConnection;
+import org.apache.http.message.BasicHttpRequest;
+import org.apache.http.nio.ContentDecoder;
+import org.apache.http.nio.ContentDecoderChannel;
+import org.apache.http.nio.FileContentDecoder;
+import org.apache.http.nio.IOControl;
+import org.apache.http.nio.NHttpConnectionFactory;
+import org.apache.http.nio.entity.NFileEntity;
+import org.apache.http.nio.protocol.AbstractAsyncResponseConsumer;
+import org.apache.http.nio.protocol.BasicAsyncRequestHandler;
+import org.apache.http.nio.protocol.BasicAsyncRequestProducer;
+import org.apache.http.nio.protocol.UriHttpAsyncRequestHandlerMapper;
+import org.apache.http.nio.reactor.IOReactorStatus;
+import org.apache.http.nio.reactor.ListenerEndpoint;
+import org.apache.http.nio.testserver.HttpCoreNIOTestBase;
+import org.apache.http.nio.testserver.LoggingClientConnectionFactory;
+import org.apache.http.nio.testserver.LoggingServerConnectionFactory;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.protocol.HttpRequestHandler;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * HttpCore NIO integration tests for file content transferred with
+ * chunk coding.
+ */
+public class TestChunkedFileTransfer extends HttpCoreNIOTestBase {
+
+    private File srcfile;
+    private File dstfile;
+
+    @Before
+    public void setUp() throws Exception {
+        initServer();
+        initClient();
+        this.srcfile = File.createTempFile("src", ".bin");
+        this.dstfile = File.createTempFile("dst", ".bin");
+        byte[] content = new byte[1024 * 1024 + 17];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) (i % 251);
+        }
+        FileOutputStream outstream = new FileOutputStream(this.srcfile);
+        try {
+            outstream.write(content);
+        } finally {
+            outstream.close();
+        }
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        shutDownClient();
+        shutDownServer();
+        this.srcfile.delete();
+        this.dstfile.delete();
+    }
+
+    @Override
+    protected NHttpConnectionFactory<DefaultNHttpServerConnection> createServerConnectionFactory() throws Exception {
+        return new LoggingServerConnectionFactory();
+    }
+
+    @Override
+    protected NHttpConnectionFactory<DefaultNHttpClientConnection> createClientConnectionFactory() throws Exception {
+        return new LoggingClientConnectionFactory();
+    }
+
+    static class FileRequestHandler implements HttpRequestHandler {
+
+        private final File file;
+
+        FileRequestHandler(final File file) {
+            super();
+            this.file = file;
+        }
+
+        public void handle(
+                final HttpRequest request,
+                final HttpResponse response,
+                final HttpContext context) throws HttpException, IOException {
+            NFileEntity entity = new NFileEntity(this.file, ContentType.DEFAULT_BINARY, true);
+            entity.setChunked(true);
+            response.setEntity(entity);
+        }
+
+    }
+
+    static class FileResponseConsumer extends AbstractAsyncResponseConsumer<File> {
+
+        private final File file;
+
+        private HttpResponse response;
+        private RandomAccessFile accessfile;
+        private FileChannel filechannel;
+        private long idx;
+        private boolean fileDecoder;
+
+        FileResponseConsumer(final File file) {
+            super();
+            this.file = file;
+        }
+
+        @Override
+        protected void onResponseReceived(final HttpResponse response) {
+            this.response = response;
+        }
+
+        @Override
+        protected void onEntityEnclosed(
+                final HttpEntity entity, final ContentType contentType) throws IOException {
+            this.response.setEntity(entity);
+            this.accessfile = new RandomAccessFile(this.file, "rw");
+            this.filechannel = this.accessfile.getChannel();
+        }
+
+        @Override
+        protected void onContentReceived(
+                final ContentDecoder decoder, final IOControl ioctrl) throws IOException {
+            long transferred;
+            if (decoder instanceof FileContentDecoder) {
+                this.fileDecoder = true;
+                transferred = ((FileContentDecoder) decoder).transfer(
+                        this.filechannel, this.idx, Integer.MAX_VALUE);
+            } else {
+                transferred = this.filechannel.transferFrom(
+                        new ContentDecoderChannel(decoder), this.idx, Integer.MAX_VALUE);
+            }
+            if (transferred > 0) {
+                this.idx += transferred;
+            }
+        }
+
+        @Override
+        protected File buildResult(final HttpContext context) throws Exception {
+            return this.file;
+        }
+
+        @Override
+        protected void releaseResources() {
+            if (this.accessfile != null) {
+                try {
+                    this.accessfile.close();
+                } catch (IOException ignore) {
+                }
+                this.accessfile = null;
+            }
+        }
+
+        HttpResponse getResponse() {
+            return this.response;
+        }
+
+        boolean isFileDecoder() {
+            return this.fileDecoder;
+        }
+
+    }
+
+    private static byte[] readAll(final File file) throws IOException {
+        RandomAccessFile accessfile = new RandomAccessFile(file, "r");
+        try {
+            byte[] content = new byte[(int) accessfile.length()];
+            accessfile.readFully(content);
+            return content;
+        } finally {
+            accessfile.close();
+        }
+    }
+
+    @Test
+    public void testChunkedFileTransfer() throws Exception {
+        UriHttpAsyncRequestHandlerMapper registry = new UriHttpAsyncRequestHandlerMapper();
+        registry.register("*", new BasicAsyncRequestHandler(new FileRequestHandler(this.srcfile)));
+        this.server.start(registry);
+        this.client.start();
+
+        ListenerEndpoint endpoint = this.server.getListenerEndpoint();
+        endpoint.waitFor();
+        Assert.assertEquals("Test server status", IOReactorStatus.ACTIVE, this.server.getStatus());
+        InetSocketAddress address = (InetSocketAddress) endpoint.getAddress();
+
+        HttpHost target = new HttpHost("localhost", address.getPort());
+        FileResponseConsumer consumer = new FileResponseConsumer(this.dstfile);
+        Future<File> future = this.client.execute(
+                new BasicAsyncRequestProducer(target, new BasicHttpRequest("GET", "/")),
+                consumer, null, null);
+        File file = future.get();
+        Assert.assertNotNull(file);
+        Assert.assertTrue(consumer.isFileDecoder());
+        Assert.assertEquals(HttpStatus.SC_OK, consumer.getResponse().getStatusLine().getStatusCode());
+        Assert.assertTrue(consumer.getResponse().getEntity().isChunked());
+        Assert.assertTrue(Arrays.equals(readAll(this.srcfile), readAll(file)));
+    }
+
+}
@@ -0,0 +1,102 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+
+package org.apache.http.nio.integration;
+
+import java.net.InetSocketAddress;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.http.HttpHost;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.impl.nio.DefaultNHttpClientConnection;
+import org.apache.http.impl.nio.DefaultNHttpServerConnection;
+import org.apache.http.impl.nio.SSLNHttpClientConnectionFactory;
+import org.apache.http.impl.nio.SSLNHttpServerConnectionFactory;
+import org.apache.http.message.BasicHttpRequest;
+import org.apache.http.nio.NHttpConnectionFactory;
+import org.apache.http.nio.protocol.BasicAsyncRequestHandler;
+import org.apache.http.nio.protocol.UriHttpAsyncRequestHandlerMapper;
+import org.apache.http.nio.reactor.ListenerEndpoint;
+import org.apache.http.nio.reactor.ssl.SSLDelegatedTaskExecutor;
+import org.apache.http.nio.testserver.SSLTestContexts;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * HttpCore NIO integration tests for async handlers using SSL with
+ * delegated tasks executed off the I/O dispatch threads.
+ */
+public class TestHttpsAsyncHandlersTaskExecutor extends TestHttpAsyncHandlers {
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(2);
+    private final SSLDelegatedTaskExecutor taskExecutor = new SSLDelegatedTaskExecutor(this.executor);
+
+    @After
+    public void shutDownExecutor() throws Exception {
+        this.executor.shutdownNow();
+    }
+
+    @Override
+    protected NHttpConnectionFactory<DefaultNHttpServerConnection> createServerConnectionFactory() throws Exception {
+        return new SSLNHttpServerConnectionFactory(SSLTestContexts.createServerSSLContext(),
+                null, null, null, this.taskExecutor, null);
+    }
+
+    @Override
+    protected NHttpConnectionFactory<DefaultNHttpClientConnection> createClientConnectionFactory() throws Exception {
+        return new SSLNHttpClientConnectionFactory(SSLTestContexts.createClientSSLContext(),
+                null, null, null, this.taskExecutor, null);
+    }
+
+    @Test
+    public void testDelegatedTasksOffloaded() throws Exception {
+        UriHttpAsyncRequestHandlerMapper registry = new UriHttpAsyncRequestHandlerMapper();
+        registry.register("*", new BasicAsyncRequestHandler(new SimpleRequestHandler()));
+        this.server.start(registry);
+        this.client.start();
+
+        ListenerEndpoint endpoint = this.server.getListenerEndpoint();
+        endpoint.waitFor();
+        InetSocketAddress address = (InetSocketAddress) endpoint.getAddress();
+
+        HttpHost target = new HttpHost("localhost", address.getPort());
+        BasicHttpRequest request = new BasicHttpRequest("GET", "/stuffx1");
+        Future<HttpResponse> future = this.client.execute(target, request);
+        HttpResponse response = future.get();
+        Assert.assertNotNull(response);
+        Assert.assertEquals(HttpStatus.SC_OK, response.getStatusLine().getStatusCode());
+
+        Assert.assertTrue(this.taskExecutor.getCompletedTaskCount() > 0);
+        Assert.assertEquals(0, this.taskExecutor.getQueueDepth());
+        Assert.assertTrue(this.taskExecutor.getMaxTaskLatency() >= this.taskExecutor.getAverageTaskLatency());
+    }
+
+}
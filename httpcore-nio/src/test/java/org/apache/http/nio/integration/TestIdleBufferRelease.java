@@ -0,0 +1,227 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+
+package org.apache.http.nio.integration;
+
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Future;
+
+import org.apache.http.HttpHost;
+import org.apache.http.HttpResponse;
+import org.apache.http.config.ConnectionConfig;
+import org.apache.http.entity.ContentType;
+import org.apache.http.impl.nio.DefaultNHttpClientConnection;
+import org.apache.http.impl.nio.DefaultNHttpClientConnectionFactory;
+import org.apache.http.impl.nio.DefaultNHttpServerConnection;
+import org.apache.http.impl.nio.DefaultNHttpServerConnectionFactory;
+import org.apache.http.impl.nio.pool.BasicNIOPoolEntry;
+import org.apache.http.message.BasicHttpEntityEnclosingRequest;
+import org.apache.http.message.BasicHttpRequest;
+import org.apache.http.nio.NHttpConnectionFactory;
+import org.apache.http.nio.entity.NStringEntity;
+import org.apache.http.nio.protocol.BasicAsyncRequestHandler;
+import org.apache.http.nio.protocol.UriHttpAsyncRequestHandlerMapper;
+import org.apache.http.nio.reactor.IOReactorStatus;
+import org.apache.http.nio.reactor.ListenerEndpoint;
+import org.apache.http.nio.testserver.HttpCoreNIOTestBase;
+import org.apache.http.nio.util.PooledByteBufferAllocator;
+import org.apache.http.util.EntityUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for connections releasing their session buffers while idle.
+ */
+public class TestIdleBufferRelease extends HttpCoreNIOTestBase {
+
+    /**
+     * Pool that keeps track of the buffers handed out and not yet returned.
+     */
+    static class TrackingAllocator extends PooledByteBufferAllocator {
+
+        private final Map<ByteBuffer, Boolean> created;
+        private final Map<ByteBuffer, Boolean> outstanding;
+        private long createdBytes;
+
+        TrackingAllocator() {
+            super(false);
+            this.created = new IdentityHashMap<ByteBuffer, Boolean>();
+            this.outstanding = new IdentityHashMap<ByteBuffer, Boolean>();
+        }
+
+        @Override
+        public synchronized ByteBuffer allocate(final int size) {
+            ByteBuffer buffer = super.allocate(size);
+            if (this.created.put(buffer, Boolean.TRUE) == null) {
+                this.createdBytes += buffer.capacity();
+            }
+            this.outstanding.put(buffer, Boolean.TRUE);
+            return buffer;
+        }
+
+        @Override
+        public synchronized void release(final ByteBuffer buffer) {
+            this.outstanding.remove(buffer);
+            super.release(buffer);
+        }
+
+        synchronized int getOutstandingCount() {
+            return this.outstanding.size();
+        }
+
+        synchronized long getCreatedBytes() {
+            return this.createdBytes;
+        }
+
+        void awaitAllReleased(final long timeout) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + timeout;
+            while (getOutstandingCount() > 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+        }
+
+    }
+
+    protected TrackingAllocator serverAllocator;
+    protected TrackingAllocator clientAllocator;
+
+    @Before
+    public void setUp() throws Exception {
+        this.serverAllocator = new TrackingAllocator();
+        this.clientAllocator = new TrackingAllocator();
+        initServer();
+        initClient();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        shutDownClient();
+        shutDownServer();
+    }
+
+    @Override
+    protected NHttpConnectionFactory<DefaultNHttpServerConnection> createServerConnectionFactory() throws Exception {
+        ConnectionConfig config = ConnectionConfig.custom().setReleaseIdleBuffers(true).build();
+        return new DefaultNHttpServerConnectionFactory(this.serverAllocator, null, config);
+    }
+
+    @Override
+    protected NHttpConnectionFactory<DefaultNHttpClientConnection> createClientConnectionFactory() throws Exception {
+        ConnectionConfig config = ConnectionConfig.custom().setReleaseIdleBuffers(true).build();
+        return new DefaultNHttpClientConnectionFactory(null, this.clientAllocator, config);
+    }
+
+    private InetSocketAddress start() throws Exception {
+        UriHttpAsyncRequestHandlerMapper registry = new UriHttpAsyncRequestHandlerMapper();
+        registry.register("*", new BasicAsyncRequestHandler(new SimpleRequestHandler()));
+        this.server.start(registry);
+        this.client.start();
+
+        ListenerEndpoint endpoint = this.server.getListenerEndpoint();
+        endpoint.waitFor();
+
+        Assert.assertEquals("Test server status", IOReactorStatus.ACTIVE, this.server.getStatus());
+        return (InetSocketAddress) endpoint.getAddress();
+    }
+
+    private static String createExpectedString(final String pattern, int count) {
+        StringBuilder buffer = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            buffer.append(pattern);
+        }
+        return buffer.toString();
+    }
+
+    @Test
+    public void testKeepAliveExchanges() throws Exception {
+        InetSocketAddress address = start();
+
+        this.client.setMaxPerRoute(2);
+        this.client.setMaxTotal(2);
+
+        String pattern = RndTestPatternGenerator.generateText();
+        int count = RndTestPatternGenerator.generateCount(1000);
+
+        HttpHost target = new HttpHost("localhost", address.getPort());
+        String expectedPattern = createExpectedString(pattern, count);
+
+        Queue<Future<HttpResponse>> queue = new ConcurrentLinkedQueue<Future<HttpResponse>>();
+        for (int i = 0; i < 20; i++) {
+            if (i % 2 == 0) {
+                BasicHttpRequest request = new BasicHttpRequest("GET", pattern + "x" + count);
+                queue.add(this.client.execute(target, request));
+            } else {
+                BasicHttpEntityEnclosingRequest request = new BasicHttpEntityEnclosingRequest(
+                        "POST", pattern + "x" + count);
+                request.setEntity(new NStringEntity(expectedPattern, ContentType.DEFAULT_TEXT));
+                queue.add(this.client.execute(target, request));
+            }
+        }
+
+        while (!queue.isEmpty()) {
+            Future<HttpResponse> future = queue.remove();
+            HttpResponse response = future.get();
+            Assert.assertNotNull(response);
+            Assert.assertEquals(expectedPattern, EntityUtils.toString(response.getEntity()));
+        }
+
+        // session buffers get re-acquired from the pools between exchanges
+        Assert.assertTrue(this.serverAllocator.getHitCount() > 0);
+        Assert.assertTrue(this.clientAllocator.getHitCount() > 0);
+
+        // all buffers are back in the pools while the connections sit idle
+        this.serverAllocator.awaitAllReleased(5000);
+        this.clientAllocator.awaitAllReleased(5000);
+        Assert.assertEquals(0, this.serverAllocator.getOutstandingCount());
+        Assert.assertEquals(0, this.clientAllocator.getOutstandingCount());
+        Assert.assertEquals(this.serverAllocator.getCreatedBytes(), this.serverAllocator.getRetainedBytes());
+        Assert.assertEquals(this.clientAllocator.getCreatedBytes(), this.clientAllocator.getRetainedBytes());
+
+        // and the persistent connections are still open
+        BasicNIOPoolEntry entry = this.client.lease(target, null).get();
+        try {
+            Assert.assertTrue(entry.getConnection().isOpen());
+            Assert.assertEquals(0, this.clientAllocator.getOutstandingCount());
+            // buffers re-acquired for a graceful close get returned too
+            entry.getConnection().close();
+        } finally {
+            this.client.release(entry, false);
+        }
+        this.serverAllocator.awaitAllReleased(5000);
+        this.clientAllocator.awaitAllReleased(5000);
+        Assert.assertEquals(0, this.serverAllocator.getOutstandingCount());
+        Assert.assertEquals(0, this.clientAllocator.getOutstandingCount());
+    }
+
+}
@@ -36,35 +36,46 @@ import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.net.InetSocketAddress;
 import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.http.HttpException;
+import org.apache.http.HttpHost;
 import org.apache.http.HttpRequest;
 import org.apache.http.HttpResponse;
 import org.apache.http.HttpResponseInterceptor;
 import org.apache.http.concurrent.Cancellable;
 import org.apache.http.entity.ContentType;
+import org.apache.http.impl.DefaultConnectionReuseStrategy;
+import org.apache.http.impl.DefaultHttpResponseFactory;
 import org.apache.http.impl.nio.DefaultNHttpClientConnection;
 import org.apache.http.impl.nio.DefaultNHttpServerConnection;
 import org.apache.http.nio.NHttpConnectionFactory;
 import org.apache.http.nio.entity.NStringEntity;
 import org.apache.http.nio.protocol.BasicAsyncRequestConsumer;
 import org.apache.http.nio.protocol.BasicAsyncRequestHandler;
+import org.apache.http.nio.protocol.BasicAsyncRequestProducer;
+import org.apache.http.nio.protocol.BasicAsyncResponseConsumer;
 import org.apache.http.nio.protocol.HttpAsyncExchange;
 import org.apache.http.nio.protocol.HttpAsyncRequestConsumer;
 import org.apache.http.nio.protocol.HttpAsyncRequestHandler;
+import org.apache.http.nio.protocol.HttpAsyncRequestProducer;
 import org.apache.http.nio.protocol.HttpAsyncService;
 import org.apache.http.nio.protocol.UriHttpAsyncRequestHandlerMapper;
 import org.apache.http.nio.reactor.IOReactorStatus;
 import org.apache.http.nio.reactor.ListenerEndpoint;
 import org.apache.http.protocol.HttpContext;
 import org.apache.http.protocol.HttpProcessor;
+import org.apache.http.message.BasicHttpRequest;
+import org.apache.http.protocol.HTTP;
 import org.apache.http.protocol.HttpRequestHandler;
 import org.apache.http.protocol.ImmutableHttpProcessor;
 import org.apache.http.protocol.ResponseConnControl;
 import org.apache.http.protocol.ResponseContent;
 import org.apache.http.protocol.ResponseServer;
+import org.apache.http.util.EntityUtils;
 import org.apache.http.nio.testserver.HttpCoreNIOTestBase;
 import org.apache.http.nio.testserver.LoggingClientConnectionFactory;
 import org.apache.http.nio.testserver.LoggingServerConnectionFactory;
@@ -83,6 +94,7 @@ public class TestPipelining extends HttpCoreNIOTestBase {
     @Before
     public void setUp() throws Exception {
         initServer();
+        initClient();
         this.serverHttpProc = new ImmutableHttpProcessor(new HttpResponseInterceptor[] {
                 new ResponseServer("TEST-SERVER/1.1"),
                 new ResponseContent(),
@@ -92,6 +104,7 @@ public class TestPipelining extends HttpCoreNIOTestBase {
 
     @After
     public void tearDown() throws Exception {
+        shutDownClient();
         shutDownServer();
     }
 
@@ -271,4 +284,79 @@ public class TestPipelining extends HttpCoreNIOTestBase {
         Assert.assertTrue(latch.await(5, TimeUnit.SECONDS));
     }
 
+    private HttpHost startPipeliningServer(final String closeUri) throws Exception {
+        UriHttpAsyncRequestHandlerMapper registry = new UriHttpAsyncRequestHandlerMapper();
+        registry.register("*", new BasicAsyncRequestHandler(new HttpRequestHandler() {
+
+            public void handle(
+                    final HttpRequest request,
+                    final HttpResponse response,
+                    final HttpContext context) throws HttpException, IOException {
+                String uri = request.getRequestLine().getUri();
+                if (uri.equals(closeUri)) {
+                    response.setHeader(HTTP.CONN_DIRECTIVE, HTTP.CONN_CLOSE);
+                }
+                NStringEntity entity = new NStringEntity(uri, ContentType.DEFAULT_TEXT);
+                response.setEntity(entity);
+            }
+
+        }));
+        HttpAsyncService serviceHandler = new HttpAsyncService(
+                this.serverHttpProc,
+                DefaultConnectionReuseStrategy.INSTANCE,
+                DefaultHttpResponseFactory.INSTANCE,
+                registry,
+                null,
+                10);
+        this.server.start(serviceHandler);
+        this.client.start();
+
+        ListenerEndpoint endpoint = this.server.getListenerEndpoint();
+        endpoint.waitFor();
+
+        Assert.assertEquals("Test server status", IOReactorStatus.ACTIVE, this.server.getStatus());
+
+        InetSocketAddress address = (InetSocketAddress) endpoint.getAddress();
+        return new HttpHost("localhost", address.getPort());
+    }
+
+    private List<String> executePipelined(final HttpHost target, final int n) throws Exception {
+        List<HttpAsyncRequestProducer> requestProducers = new ArrayList<HttpAsyncRequestProducer>();
+        List<BasicAsyncResponseConsumer> responseConsumers = new ArrayList<BasicAsyncResponseConsumer>();
+        for (int i = 1; i <= n; i++) {
+            requestProducers.add(new BasicAsyncRequestProducer(target, new BasicHttpRequest("GET", "/" + i)));
+            responseConsumers.add(new BasicAsyncResponseConsumer());
+        }
+        List<HttpResponse> responses = this.client.executePipelined(
+                requestProducers, responseConsumers, null, null).get();
+        List<String> contents = new ArrayList<String>();
+        for (HttpResponse response: responses) {
+            Assert.assertEquals(200, response.getStatusLine().getStatusCode());
+            contents.add(EntityUtils.toString(response.getEntity()));
+        }
+        return contents;
+    }
+
+    @Test
+    public void testClientPipelining() throws Exception {
+        HttpHost target = startPipeliningServer(null);
+
+        List<String> contents = executePipelined(target, 5);
+        Assert.assertEquals(5, contents.size());
+        for (int i = 0; i < contents.size(); i++) {
+            Assert.assertEquals("/" + (i + 1), contents.get(i));
+        }
+    }
+
+    @Test
+    public void testClientPipeliningRetryOnConnectionClose() throws Exception {
+        HttpHost target = startPipeliningServer("/2");
+
+        List<String> contents = executePipelined(target, 4);
+        Assert.assertEquals(4, contents.size());
+        for (int i = 0; i < contents.size(); i++) {
+            Assert.assertEquals("/" + (i + 1), contents.get(i));
+        }
+    }
+
 }
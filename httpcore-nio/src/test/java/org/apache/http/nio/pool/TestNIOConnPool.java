@@ -33,6 +33,7 @@ import java.net.SocketTimeoutException;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import junit.framework.Assert;
 
@@ -917,6 +918,93 @@ public class TestNIOConnPool {
         Assert.assertTrue(future3.isDone());
     }
 
+    @Test
+    public void testLeaseRequestDeadlineOrdering() throws Exception {
+        IOSession iosession1 = Mockito.mock(IOSession.class);
+        SessionRequest sessionRequest1 = Mockito.mock(SessionRequest.class);
+        Mockito.when(sessionRequest1.getAttachment()).thenReturn("somehost");
+        Mockito.when(sessionRequest1.getSession()).thenReturn(iosession1);
+
+        ConnectingIOReactor ioreactor = Mockito.mock(ConnectingIOReactor.class);
+        Mockito.when(ioreactor.connect(
+                Mockito.any(SocketAddress.class), Mockito.any(SocketAddress.class),
+                Mockito.any(), Mockito.any(SessionRequestCallback.class))).
+                thenReturn(sessionRequest1);
+
+        LocalSessionPool pool = new LocalSessionPool(ioreactor, 1, 1);
+
+        Future<LocalPoolEntry> future1 = pool.lease("somehost", null, 0, TimeUnit.MILLISECONDS, null);
+        Future<LocalPoolEntry> future2 = pool.lease("somehost", null, 10000, TimeUnit.MILLISECONDS, null);
+        Future<LocalPoolEntry> future3 = pool.lease("otherhost", null, 10, TimeUnit.MILLISECONDS, null);
+        Future<LocalPoolEntry> future4 = pool.lease("somehost", null, 20, TimeUnit.MILLISECONDS, null);
+
+        pool.requestCompleted(sessionRequest1);
+        Assert.assertTrue(future1.isDone());
+
+        Thread.sleep(100);
+
+        pool.validatePendingRequests();
+
+        Assert.assertFalse(future2.isDone());
+        Assert.assertTrue(future3.isDone());
+        Assert.assertTrue(future4.isDone());
+        try {
+            future3.get();
+            Assert.fail("ExecutionException should have been thrown");
+        } catch (ExecutionException ex) {
+            Assert.assertTrue(ex.getCause() instanceof TimeoutException);
+        }
+
+        pool.release(future1.get(), true);
+
+        Assert.assertTrue(future2.isDone());
+        Assert.assertSame(iosession1, future2.get().getConnection());
+    }
+
+    @Test
+    public void testTotalLimitBlockedRouteServedOnRelease() throws Exception {
+        IOSession iosession1 = Mockito.mock(IOSession.class);
+        SessionRequest sessionRequest1 = Mockito.mock(SessionRequest.class);
+        Mockito.when(sessionRequest1.getAttachment()).thenReturn("somehost");
+        Mockito.when(sessionRequest1.getSession()).thenReturn(iosession1);
+        SessionRequest sessionRequest2 = Mockito.mock(SessionRequest.class);
+        Mockito.when(sessionRequest2.getAttachment()).thenReturn("otherhost");
+
+        ConnectingIOReactor ioreactor = Mockito.mock(ConnectingIOReactor.class);
+        Mockito.when(ioreactor.connect(
+                Mockito.any(SocketAddress.class), Mockito.any(SocketAddress.class),
+                Mockito.eq("somehost"), Mockito.any(SessionRequestCallback.class))).
+                thenReturn(sessionRequest1);
+        Mockito.when(ioreactor.connect(
+                Mockito.any(SocketAddress.class), Mockito.any(SocketAddress.class),
+                Mockito.eq("otherhost"), Mockito.any(SessionRequestCallback.class))).
+                thenReturn(sessionRequest2);
+
+        LocalSessionPool pool = new LocalSessionPool(ioreactor, 2, 1);
+
+        Future<LocalPoolEntry> future1 = pool.lease("somehost", null);
+        pool.requestCompleted(sessionRequest1);
+        LocalPoolEntry entry1 = future1.get();
+
+        Future<LocalPoolEntry> future2 = pool.lease("otherhost", null);
+        Future<LocalPoolEntry> future3 = pool.lease("otherhost", null);
+        future2.cancel(true);
+
+        Mockito.verify(ioreactor, Mockito.never()).connect(
+                Mockito.any(SocketAddress.class), Mockito.any(SocketAddress.class),
+                Mockito.eq("otherhost"), Mockito.any(SessionRequestCallback.class));
+
+        pool.release(entry1, true);
+
+        Mockito.verify(iosession1).close();
+        Mockito.verify(ioreactor, Mockito.times(1)).connect(
+                Mockito.any(SocketAddress.class), Mockito.any(SocketAddress.class),
+                Mockito.eq("otherhost"), Mockito.any(SessionRequestCallback.class));
+        PoolStats stats = pool.getStats("otherhost");
+        Assert.assertEquals(1, stats.getPending());
+        Assert.assertFalse(future3.isDone());
+    }
+
     @Test(expected=IllegalArgumentException.class)
     public void testCloseIdleInvalid() throws Exception {
         ConnectingIOReactor ioreactor = Mockito.mock(ConnectingIOReactor.class);
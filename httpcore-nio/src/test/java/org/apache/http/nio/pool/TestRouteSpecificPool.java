@@ -28,6 +28,7 @@ package org.apache.http.nio.pool;
 
 import java.io.IOException;
 import java.net.SocketTimeoutException;
+import java.util.Iterator;
 import java.util.concurrent.ExecutionException;
 
 import junit.framework.Assert;
@@ -429,6 +430,37 @@ public class TestRouteSpecificPool {
         pool.remove(null);
     }
 
+    @Test
+    public void testLeasingRequestQueue() throws Exception {
+        LocalRoutePool pool = new LocalRoutePool();
+        LeaseRequest<String, IOSession, LocalPoolEntry> request1 =
+            new LeaseRequest<String, IOSession, LocalPoolEntry>("whatever", null, 0,
+                    new BasicFuture<LocalPoolEntry>(null), 1);
+        LeaseRequest<String, IOSession, LocalPoolEntry> request2 =
+            new LeaseRequest<String, IOSession, LocalPoolEntry>("whatever", null, 0,
+                    new BasicFuture<LocalPoolEntry>(null), 2);
+        LeaseRequest<String, IOSession, LocalPoolEntry> request3 =
+            new LeaseRequest<String, IOSession, LocalPoolEntry>("whatever", null, 0,
+                    new BasicFuture<LocalPoolEntry>(null), 3);
+        pool.queue(request1);
+        pool.queue(request2);
+        pool.queue(request3);
+        Assert.assertEquals(3, pool.getLeasingRequestCount());
+
+        Assert.assertTrue(pool.unqueue(request2));
+        Assert.assertFalse(pool.unqueue(request2));
+
+        Iterator<LeaseRequest<String, IOSession, LocalPoolEntry>> it = pool.leasingRequestIterator();
+        Assert.assertSame(request1, it.next());
+        it.remove();
+        Assert.assertSame(request3, it.next());
+        Assert.assertFalse(it.hasNext());
+        Assert.assertEquals(1, pool.getLeasingRequestCount());
+
+        pool.shutdown();
+        Assert.assertEquals(0, pool.getLeasingRequestCount());
+    }
+
     @Test
     public void testShutdown() throws Exception {
         LocalRoutePool pool = new LocalRoutePool();
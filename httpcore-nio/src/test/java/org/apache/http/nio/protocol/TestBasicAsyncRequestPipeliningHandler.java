@@ -0,0 +1,245 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+
+package org.apache.http.nio.protocol;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+import junit.framework.Assert;
+
+import org.apache.http.ConnectionClosedException;
+import org.apache.http.ConnectionReuseStrategy;
+import org.apache.http.HttpException;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpVersion;
+import org.apache.http.message.BasicHttpRequest;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.protocol.BasicHttpContext;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.protocol.HttpProcessor;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+public class TestBasicAsyncRequestPipeliningHandler {
+
+    private HttpAsyncRequestProducer requestProducer1;
+    private HttpAsyncRequestProducer requestProducer2;
+    private HttpAsyncResponseConsumer<Object> responseConsumer1;
+    private HttpAsyncResponseConsumer<Object> responseConsumer2;
+    private HttpContext context;
+    private HttpProcessor httpProcessor;
+    private ConnectionReuseStrategy reuseStrategy;
+    private BasicAsyncRequestPipeliningHandler.RetryCallback retryCallback;
+    private BasicAsyncRequestPipeliningHandler<Object> exchangeHandler;
+
+    @SuppressWarnings("unchecked")
+    @Before
+    public void setUp() throws Exception {
+        this.requestProducer1 = Mockito.mock(HttpAsyncRequestProducer.class);
+        this.requestProducer2 = Mockito.mock(HttpAsyncRequestProducer.class);
+        this.responseConsumer1 = Mockito.mock(HttpAsyncResponseConsumer.class);
+        this.responseConsumer2 = Mockito.mock(HttpAsyncResponseConsumer.class);
+        this.context = new BasicHttpContext();
+        this.httpProcessor = Mockito.mock(HttpProcessor.class);
+        this.reuseStrategy = Mockito.mock(ConnectionReuseStrategy.class);
+        this.retryCallback = Mockito.mock(BasicAsyncRequestPipeliningHandler.RetryCallback.class);
+        this.exchangeHandler = new BasicAsyncRequestPipeliningHandler<Object>(
+                Arrays.asList(this.requestProducer1, this.requestProducer2),
+                Arrays.asList(this.responseConsumer1, this.responseConsumer2),
+                null,
+                this.context,
+                this.httpProcessor,
+                this.reuseStrategy);
+    }
+
+    private void sendRequests(final String method) throws IOException, HttpException {
+        HttpRequest request1 = new BasicHttpRequest(method, "/1");
+        HttpRequest request2 = new BasicHttpRequest(method, "/2");
+        Mockito.when(this.requestProducer1.generateRequest()).thenReturn(request1);
+        Mockito.when(this.requestProducer2.generateRequest()).thenReturn(request2);
+        Mockito.when(this.requestProducer1.isRepeatable()).thenReturn(Boolean.TRUE);
+        Mockito.when(this.requestProducer2.isRepeatable()).thenReturn(Boolean.TRUE);
+
+        Assert.assertSame(request1, this.exchangeHandler.generateRequest());
+        this.exchangeHandler.requestCompleted(this.context);
+        Assert.assertSame(request2, this.exchangeHandler.generateRequest());
+        this.exchangeHandler.requestCompleted(this.context);
+        Assert.assertNull(this.exchangeHandler.generateRequest());
+    }
+
+    private void receiveResponse(
+            final HttpAsyncResponseConsumer<Object> responseConsumer,
+            final Object result) throws IOException, HttpException {
+        BasicHttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, "OK");
+        Mockito.when(responseConsumer.getResult()).thenReturn(result);
+        this.exchangeHandler.responseReceived(response);
+        Mockito.verify(responseConsumer).responseReceived(response);
+        this.exchangeHandler.responseCompleted(this.context);
+        Mockito.verify(responseConsumer).responseCompleted(this.context);
+    }
+
+    @Test
+    public void testInvalidExecution() throws Exception {
+        try {
+            new BasicAsyncRequestPipeliningHandler<Object>(
+                    Arrays.asList(this.requestProducer1),
+                    Arrays.asList(this.responseConsumer1, this.responseConsumer2),
+                    this.context,
+                    this.httpProcessor);
+            Assert.fail("IllegalArgumentException expected");
+        } catch (IllegalArgumentException ex) {
+        }
+        try {
+            new BasicAsyncRequestPipeliningHandler<Object>(
+                    Arrays.<HttpAsyncRequestProducer>asList(),
+                    Arrays.<HttpAsyncResponseConsumer<Object>>asList(),
+                    this.context,
+                    this.httpProcessor);
+            Assert.fail("IllegalArgumentException expected");
+        } catch (IllegalArgumentException ex) {
+        }
+    }
+
+    @Test
+    public void testPipelinedExecution() throws Exception {
+        sendRequests("GET");
+        Mockito.verify(this.requestProducer1).requestCompleted(this.context);
+        Mockito.verify(this.requestProducer2).requestCompleted(this.context);
+
+        receiveResponse(this.responseConsumer1, "one");
+        Assert.assertFalse(this.exchangeHandler.isDone());
+        receiveResponse(this.responseConsumer2, "two");
+        Assert.assertTrue(this.exchangeHandler.isDone());
+
+        List<Object> results = this.exchangeHandler.getFuture().get();
+        Assert.assertEquals(Arrays.<Object>asList("one", "two"), results);
+        Assert.assertEquals(results, this.exchangeHandler.getResult());
+        Mockito.verify(this.requestProducer1).close();
+        Mockito.verify(this.responseConsumer2).close();
+    }
+
+    @Test
+    public void testFailedWithoutRetry() throws Exception {
+        sendRequests("GET");
+        receiveResponse(this.responseConsumer1, "one");
+
+        ConnectionClosedException ex = new ConnectionClosedException("closed");
+        this.exchangeHandler.failed(ex);
+
+        Mockito.verify(this.responseConsumer1, Mockito.never()).failed(ex);
+        Mockito.verify(this.responseConsumer2).failed(ex);
+        Mockito.verify(this.requestProducer2, Mockito.never()).failed(ex);
+        Assert.assertTrue(this.exchangeHandler.isDone());
+        try {
+            this.exchangeHandler.getFuture().get();
+            Assert.fail("ExecutionException expected");
+        } catch (ExecutionException ee) {
+            Assert.assertSame(ex, ee.getCause());
+        }
+    }
+
+    @Test
+    public void testFailedIdempotentRetried() throws Exception {
+        this.exchangeHandler.setRetryCallback(this.retryCallback);
+        sendRequests("GET");
+        receiveResponse(this.responseConsumer1, "one");
+
+        this.exchangeHandler.failed(new ConnectionClosedException("closed"));
+        Assert.assertFalse(this.exchangeHandler.isDone());
+        Mockito.verify(this.retryCallback).retry();
+        Mockito.verify(this.requestProducer1, Mockito.never()).resetRequest();
+        Mockito.verify(this.requestProducer2).resetRequest();
+        Mockito.verify(this.responseConsumer2, Mockito.never()).failed(
+                Mockito.any(Exception.class));
+        Mockito.verify(this.responseConsumer2, Mockito.never()).close();
+
+        HttpRequest request2 = new BasicHttpRequest("GET", "/2");
+        Mockito.when(this.requestProducer2.generateRequest()).thenReturn(request2);
+        Assert.assertSame(request2, this.exchangeHandler.generateRequest());
+        this.exchangeHandler.requestCompleted(this.context);
+        receiveResponse(this.responseConsumer2, "two");
+
+        Assert.assertEquals(Arrays.<Object>asList("one", "two"), this.exchangeHandler.getFuture().get());
+    }
+
+    @Test
+    public void testCloseDoesNotRetry() throws Exception {
+        this.exchangeHandler.setRetryCallback(this.retryCallback);
+        sendRequests("GET");
+        receiveResponse(this.responseConsumer1, "one");
+
+        this.exchangeHandler.close();
+
+        Mockito.verify(this.retryCallback, Mockito.never()).retry();
+        Mockito.verify(this.requestProducer2, Mockito.never()).resetRequest();
+        Mockito.verify(this.responseConsumer2).close();
+        Assert.assertTrue(this.exchangeHandler.isDone());
+        Assert.assertTrue(this.exchangeHandler.getFuture().isCancelled());
+    }
+
+    @Test
+    public void testFailedNonIdempotentNotRetried() throws Exception {
+        this.exchangeHandler.setRetryCallback(this.retryCallback);
+        sendRequests("POST");
+
+        this.exchangeHandler.failed(new ConnectionClosedException("closed"));
+        this.exchangeHandler.close();
+
+        Assert.assertTrue(this.exchangeHandler.isDone());
+        Mockito.verify(this.retryCallback, Mockito.never()).retry();
+        Mockito.verify(this.requestProducer1, Mockito.never()).resetRequest();
+    }
+
+    @Test
+    public void testFailedResponseInProgressNotRetried() throws Exception {
+        this.exchangeHandler.setRetryCallback(this.retryCallback);
+        sendRequests("GET");
+        this.exchangeHandler.responseReceived(new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, "OK"));
+
+        Assert.assertFalse(this.exchangeHandler.isRetriable(new ConnectionClosedException("closed")));
+    }
+
+    @Test
+    public void testStalledRetryLimit() throws Exception {
+        this.exchangeHandler.setRetryCallback(this.retryCallback);
+        sendRequests("GET");
+
+        IOException ex = new ConnectionClosedException("closed");
+        Assert.assertTrue(this.exchangeHandler.isRetriable(ex));
+        this.exchangeHandler.failed(ex);
+        Mockito.verify(this.retryCallback).retry();
+
+        sendRequests("GET");
+        Assert.assertFalse(this.exchangeHandler.isRetriable(ex));
+        Assert.assertFalse(this.exchangeHandler.isRetriable(new HttpException("oppsie")));
+    }
+
+}
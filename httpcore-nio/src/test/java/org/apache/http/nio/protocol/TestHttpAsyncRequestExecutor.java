@@ -38,6 +38,7 @@ import org.apache.http.HttpException;
 import org.apache.http.HttpRequest;
 import org.apache.http.HttpStatus;
 import org.apache.http.HttpVersion;
+import org.apache.http.ProtocolException;
 import org.apache.http.entity.BasicHttpEntity;
 import org.apache.http.message.BasicHttpEntityEnclosingRequest;
 import org.apache.http.message.BasicHttpRequest;
@@ -57,6 +58,8 @@ import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 
 public class TestHttpAsyncRequestExecutor {
 
@@ -168,6 +171,31 @@ public class TestHttpAsyncRequestExecutor {
         Mockito.verify(this.conn).shutdown();
     }
 
+    @Test
+    public void testIOExceptionHandlerDetached() throws Exception {
+        State state = new HttpAsyncRequestExecutor.State();
+        state.setRequestState(MessageState.COMPLETED);
+        state.setResponseState(MessageState.COMPLETED);
+        this.connContext.setAttribute(HttpAsyncRequestExecutor.HTTP_EXCHANGE_STATE, state);
+        this.connContext.setAttribute(HttpAsyncRequestExecutor.HTTP_HANDLER, this.exchangeHandler);
+
+        IOException ioex = new IOException();
+        // The handler detaches itself in order to be re-executed elsewhere
+        Mockito.doAnswer(new Answer<Object>() {
+
+            public Object answer(final InvocationOnMock invocation) {
+                connContext.removeAttribute(HttpAsyncRequestExecutor.HTTP_HANDLER);
+                return null;
+            }
+
+        }).when(this.exchangeHandler).failed(ioex);
+        this.protocolHandler.exception(this.conn, ioex);
+
+        Mockito.verify(this.exchangeHandler).failed(ioex);
+        Mockito.verify(this.exchangeHandler, Mockito.never()).close();
+        Mockito.verify(this.conn).shutdown();
+    }
+
     @Test
     public void testBasicRequest() throws Exception {
         State state = new HttpAsyncRequestExecutor.State();
@@ -665,4 +693,121 @@ public class TestHttpAsyncRequestExecutor {
         Assert.assertEquals(MessageState.READY, state.getResponseState());
     }
 
+    private HttpAsyncRequestPipeliningHandler<?> setUpPipeliningHandler() {
+        HttpAsyncRequestPipeliningHandler<?> pipeliningHandler = Mockito.mock(
+                HttpAsyncRequestPipeliningHandler.class);
+        Mockito.when(pipeliningHandler.getContext()).thenReturn(this.exchangeContext);
+        Mockito.when(pipeliningHandler.getHttpProcessor()).thenReturn(this.httpprocessor);
+        Mockito.when(pipeliningHandler.getConnectionReuseStrategy()).thenReturn(this.reuseStrategy);
+        this.connContext.setAttribute(HttpAsyncRequestExecutor.HTTP_HANDLER, pipeliningHandler);
+        return pipeliningHandler;
+    }
+
+    @Test
+    public void testPipelinedRequestReady() throws Exception {
+        State state = new HttpAsyncRequestExecutor.State();
+        this.connContext.setAttribute(HttpAsyncRequestExecutor.HTTP_EXCHANGE_STATE, state);
+        HttpAsyncRequestPipeliningHandler<?> pipeliningHandler = setUpPipeliningHandler();
+        HttpRequest request1 = new BasicHttpRequest("GET", "/1");
+        HttpRequest request2 = new BasicHttpRequest("GET", "/2");
+        Mockito.when(pipeliningHandler.generateRequest()).thenReturn(request1, request2, null);
+
+        this.protocolHandler.requestReady(this.conn);
+        this.protocolHandler.requestReady(this.conn);
+        this.protocolHandler.requestReady(this.conn);
+
+        Assert.assertEquals(MessageState.READY, state.getRequestState());
+        Assert.assertEquals(2, state.getRequestQueue().size());
+        Assert.assertSame(request1, state.getRequestQueue().peek());
+        Mockito.verify(this.conn).submitRequest(request1);
+        Mockito.verify(this.conn).submitRequest(request2);
+        Mockito.verify(pipeliningHandler, Mockito.times(2)).requestCompleted(this.exchangeContext);
+    }
+
+    @Test
+    public void testPipelinedRequestNotSentAfterExpectContinue() throws Exception {
+        State state = new HttpAsyncRequestExecutor.State();
+        this.connContext.setAttribute(HttpAsyncRequestExecutor.HTTP_EXCHANGE_STATE, state);
+        HttpAsyncRequestPipeliningHandler<?> pipeliningHandler = setUpPipeliningHandler();
+        BasicHttpEntityEnclosingRequest request = new BasicHttpEntityEnclosingRequest("POST", "/");
+        request.setHeader(HTTP.EXPECT_DIRECTIVE, HTTP.EXPECT_CONTINUE);
+        request.setEntity(new NStringEntity("stuff"));
+        Mockito.when(pipeliningHandler.generateRequest()).thenReturn(request);
+        Mockito.when(this.encoder.isCompleted()).thenReturn(Boolean.TRUE);
+
+        this.protocolHandler.requestReady(this.conn);
+        Assert.assertEquals(MessageState.ACK_EXPECTED, state.getRequestState());
+        state.setRequestState(MessageState.ACK);
+        this.protocolHandler.outputReady(this.conn, this.encoder);
+        Assert.assertEquals(MessageState.READY, state.getRequestState());
+        this.protocolHandler.requestReady(this.conn);
+
+        Mockito.verify(pipeliningHandler, Mockito.times(1)).generateRequest();
+        Assert.assertTrue(state.isExpectingContinue());
+    }
+
+    @Test
+    public void testPipelinedResponsesMatchedInOrder() throws Exception {
+        State state = new HttpAsyncRequestExecutor.State();
+        HttpRequest request1 = new BasicHttpRequest("HEAD", "/1");
+        HttpRequest request2 = new BasicHttpRequest("GET", "/2");
+        state.getRequestQueue().add(request1);
+        state.getRequestQueue().add(request2);
+        this.connContext.setAttribute(HttpAsyncRequestExecutor.HTTP_EXCHANGE_STATE, state);
+        HttpAsyncRequestPipeliningHandler<?> pipeliningHandler = setUpPipeliningHandler();
+        BasicHttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, "OK");
+        Mockito.when(this.conn.getHttpResponse()).thenReturn(response);
+        Mockito.when(this.reuseStrategy.keepAlive(response, this.exchangeContext)).thenReturn(Boolean.TRUE);
+
+        this.protocolHandler.responseReceived(this.conn);
+
+        Mockito.verify(pipeliningHandler).responseReceived(response);
+        Mockito.verify(pipeliningHandler).responseCompleted(this.exchangeContext);
+        Mockito.verify(this.conn).resetInput();
+        Mockito.verify(this.conn, Mockito.never()).close();
+        Assert.assertEquals(MessageState.READY, state.getResponseState());
+        Assert.assertEquals(1, state.getRequestQueue().size());
+        Assert.assertSame(request2, state.getRequestQueue().peek());
+        Assert.assertTrue(state.isValid());
+    }
+
+    @Test(expected=ProtocolException.class)
+    public void testPipelinedUnexpectedResponse() throws Exception {
+        State state = new HttpAsyncRequestExecutor.State();
+        this.connContext.setAttribute(HttpAsyncRequestExecutor.HTTP_EXCHANGE_STATE, state);
+        setUpPipeliningHandler();
+        BasicHttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, "OK");
+        Mockito.when(this.conn.getHttpResponse()).thenReturn(response);
+
+        this.protocolHandler.responseReceived(this.conn);
+    }
+
+    @Test
+    public void testPipelinedEndOfInputWithPendingResponses() throws Exception {
+        State state = new HttpAsyncRequestExecutor.State();
+        state.getRequestQueue().add(new BasicHttpRequest("GET", "/"));
+        this.connContext.setAttribute(HttpAsyncRequestExecutor.HTTP_EXCHANGE_STATE, state);
+        HttpAsyncRequestPipeliningHandler<?> pipeliningHandler = setUpPipeliningHandler();
+
+        this.protocolHandler.endOfInput(this.conn);
+
+        Assert.assertFalse(state.isValid());
+        Mockito.verify(pipeliningHandler).failed(Mockito.any(ConnectionClosedException.class));
+        Mockito.verify(pipeliningHandler).close();
+        Mockito.verify(this.conn).close();
+    }
+
+    @Test
+    public void testPipelinedClosedBeforeDone() throws Exception {
+        State state = new HttpAsyncRequestExecutor.State();
+        this.connContext.setAttribute(HttpAsyncRequestExecutor.HTTP_EXCHANGE_STATE, state);
+        HttpAsyncRequestPipeliningHandler<?> pipeliningHandler = setUpPipeliningHandler();
+        Mockito.when(pipeliningHandler.isDone()).thenReturn(Boolean.FALSE);
+
+        this.protocolHandler.closed(this.conn);
+
+        Mockito.verify(pipeliningHandler).failed(Mockito.any(ConnectionClosedException.class));
+        Mockito.verify(pipeliningHandler).close();
+    }
+
 }
@@ -38,6 +38,7 @@ import org.apache.http.HttpResponse;
 import org.apache.http.HttpResponseFactory;
 import org.apache.http.HttpStatus;
 import org.apache.http.HttpVersion;
+import org.apache.http.ProtocolException;
 import org.apache.http.UnsupportedHttpVersionException;
 import org.apache.http.concurrent.Cancellable;
 import org.apache.http.impl.DefaultHttpResponseFactory;
@@ -49,6 +50,7 @@ import org.apache.http.nio.ContentEncoder;
 import org.apache.http.nio.NHttpClientConnection;
 import org.apache.http.nio.NHttpServerConnection;
 import org.apache.http.nio.entity.NStringEntity;
+import org.apache.http.nio.protocol.HttpAsyncService.PipelineEntry;
 import org.apache.http.nio.protocol.HttpAsyncService.State;
 import org.apache.http.protocol.BasicHttpContext;
 import org.apache.http.protocol.ExecutionContext;
@@ -58,6 +60,7 @@ import org.apache.http.protocol.HttpProcessor;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.ArgumentMatcher;
 import org.mockito.Mockito;
 
@@ -980,4 +983,237 @@ public class TestHttpAsyncService {
         Mockito.verify(this.responseProducer).close();
     }
 
+    @Test(expected=ProtocolException.class)
+    public void testPipeliningNotSupported() throws Exception {
+        State state = new HttpAsyncService.State();
+        state.setRequestState(MessageState.COMPLETED);
+        state.setResponseState(MessageState.INIT);
+        this.connContext.setAttribute(HttpAsyncService.HTTP_EXCHANGE_STATE, state);
+
+        BasicHttpRequest request = new BasicHttpRequest("GET", "/", HttpVersion.HTTP_1_1);
+        Mockito.when(this.conn.getHttpRequest()).thenReturn(request);
+
+        this.protocolHandler.requestReceived(this.conn);
+    }
+
+    @Test
+    public void testPipelinedRequest() throws Exception {
+        this.protocolHandler = new HttpAsyncService(
+                this.httpProcessor, this.reuseStrategy, this.responseFactory, this.handlerResolver, null, 2);
+        State state = new HttpAsyncService.State();
+        HttpContext exchangeContext = state.getContext();
+        state.setRequestState(MessageState.COMPLETED);
+        state.setResponseState(MessageState.BODY_STREAM);
+        this.connContext.setAttribute(HttpAsyncService.HTTP_EXCHANGE_STATE, state);
+
+        BasicHttpRequest request = new BasicHttpRequest("GET", "/", HttpVersion.HTTP_1_1);
+        Mockito.when(this.conn.getHttpRequest()).thenReturn(request);
+        Mockito.when(this.requestHandler.processRequest(
+                Mockito.eq(request), Mockito.any(HttpContext.class))).thenReturn(this.requestConsumer);
+        Object data = new Object();
+        Mockito.when(this.requestConsumer.getResult()).thenReturn(data);
+
+        this.protocolHandler.requestReceived(this.conn);
+
+        Assert.assertEquals(MessageState.COMPLETED, state.getRequestState());
+        Assert.assertEquals(MessageState.BODY_STREAM, state.getResponseState());
+        Assert.assertEquals(1, state.getPipeline().size());
+        PipelineEntry entry = state.getPipeline().peek();
+        Assert.assertSame(request, entry.getRequest());
+        Assert.assertEquals(MessageState.COMPLETED, entry.getRequestState());
+        HttpContext pipelinedContext = entry.getContext();
+        Assert.assertNotSame(exchangeContext, pipelinedContext);
+        Assert.assertSame(request, pipelinedContext.getAttribute(ExecutionContext.HTTP_REQUEST));
+
+        Mockito.verify(this.httpProcessor).process(request, pipelinedContext);
+        Mockito.verify(this.requestConsumer).requestReceived(request);
+        Mockito.verify(this.requestConsumer).requestCompleted(pipelinedContext);
+        Mockito.verify(this.requestHandler).handle(
+                Mockito.eq(data),
+                Mockito.any(HttpAsyncExchange.class),
+                Mockito.eq(pipelinedContext));
+        Mockito.verify(this.conn, Mockito.never()).suspendInput();
+        Mockito.verify(this.conn, Mockito.never()).requestOutput();
+    }
+
+    @Test
+    public void testPipelineFull() throws Exception {
+        this.protocolHandler = new HttpAsyncService(
+                this.httpProcessor, this.reuseStrategy, this.responseFactory, this.handlerResolver, null, 1);
+        State state = new HttpAsyncService.State();
+        state.setRequestState(MessageState.COMPLETED);
+        state.setResponseState(MessageState.INIT);
+        this.connContext.setAttribute(HttpAsyncService.HTTP_EXCHANGE_STATE, state);
+
+        BasicHttpRequest request = new BasicHttpRequest("GET", "/", HttpVersion.HTTP_1_1);
+        Mockito.when(this.conn.getHttpRequest()).thenReturn(request);
+        Mockito.when(this.requestHandler.processRequest(
+                Mockito.eq(request), Mockito.any(HttpContext.class))).thenReturn(this.requestConsumer);
+
+        this.protocolHandler.requestReceived(this.conn);
+
+        Assert.assertEquals(1, state.getPipeline().size());
+        Mockito.verify(this.conn).suspendInput();
+
+        try {
+            this.protocolHandler.requestReceived(this.conn);
+            Assert.fail("ProtocolException expected");
+        } catch (ProtocolException ex) {
+        }
+    }
+
+    @Test
+    public void testPipelinedEntityEnclosingRequest() throws Exception {
+        this.protocolHandler = new HttpAsyncService(
+                this.httpProcessor, this.reuseStrategy, this.responseFactory, this.handlerResolver, null, 2);
+        State state = new HttpAsyncService.State();
+        state.setRequestState(MessageState.COMPLETED);
+        state.setResponseState(MessageState.INIT);
+        this.connContext.setAttribute(HttpAsyncService.HTTP_EXCHANGE_STATE, state);
+
+        BasicHttpEntityEnclosingRequest request = new BasicHttpEntityEnclosingRequest("POST", "/",
+                HttpVersion.HTTP_1_1);
+        request.setHeader(HTTP.EXPECT_DIRECTIVE, HTTP.EXPECT_CONTINUE);
+        Mockito.when(this.conn.getHttpRequest()).thenReturn(request);
+        Mockito.when(this.requestHandler.processRequest(
+                Mockito.eq(request), Mockito.any(HttpContext.class))).thenReturn(this.requestConsumer);
+
+        this.protocolHandler.requestReceived(this.conn);
+
+        PipelineEntry entry = state.getPipeline().peek();
+        Assert.assertSame(entry, state.getIncoming());
+        Assert.assertEquals(MessageState.BODY_STREAM, entry.getRequestState());
+        Mockito.verify(this.conn, Mockito.never()).submitResponse(Mockito.any(HttpResponse.class));
+
+        Mockito.when(this.decoder.isCompleted()).thenReturn(Boolean.TRUE);
+        this.protocolHandler.inputReady(this.conn, this.decoder);
+
+        Assert.assertNull(state.getIncoming());
+        Assert.assertEquals(MessageState.COMPLETED, entry.getRequestState());
+        Mockito.verify(this.requestConsumer).consumeContent(this.decoder, this.conn);
+        Mockito.verify(this.requestConsumer).requestCompleted(entry.getContext());
+        Mockito.verify(this.requestHandler).handle(
+                Mockito.any(),
+                Mockito.any(HttpAsyncExchange.class),
+                Mockito.eq(entry.getContext()));
+    }
+
+    @Test
+    public void testPipelinedResponseCommittedInOrder() throws Exception {
+        this.protocolHandler = new HttpAsyncService(
+                this.httpProcessor, this.reuseStrategy, this.responseFactory, this.handlerResolver, null, 2);
+        State state = new HttpAsyncService.State();
+        HttpContext exchangeContext = state.getContext();
+        BasicHttpRequest request1 = new BasicHttpRequest("GET", "/", HttpVersion.HTTP_1_1);
+        state.setRequest(request1);
+        state.setRequestState(MessageState.COMPLETED);
+        state.setResponseState(MessageState.INIT);
+        this.connContext.setAttribute(HttpAsyncService.HTTP_EXCHANGE_STATE, state);
+
+        BasicHttpRequest request2 = new BasicHttpRequest("GET", "/", HttpVersion.HTTP_1_1);
+        Mockito.when(this.conn.getHttpRequest()).thenReturn(request2);
+        Mockito.when(this.requestHandler.processRequest(
+                Mockito.eq(request2), Mockito.any(HttpContext.class))).thenReturn(this.requestConsumer);
+        this.protocolHandler.requestReceived(this.conn);
+
+        ArgumentCaptor<HttpAsyncExchange> argCaptor = ArgumentCaptor.forClass(HttpAsyncExchange.class);
+        Mockito.verify(this.requestHandler).handle(
+                Mockito.any(), argCaptor.capture(), Mockito.any(HttpContext.class));
+        HttpAsyncExchange exchange2 = argCaptor.getValue();
+
+        // Response to the pipelined request becomes available first
+        HttpAsyncResponseProducer responseProducer2 = Mockito.mock(HttpAsyncResponseProducer.class);
+        exchange2.submitResponse(responseProducer2);
+        Mockito.verify(this.conn, Mockito.never()).requestOutput();
+        Assert.assertNull(state.getResponseProducer());
+
+        state.setResponseProducer(this.responseProducer);
+        BasicHttpResponse response1 = new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, "OK");
+        Mockito.when(this.responseProducer.generateResponse()).thenReturn(response1);
+        Mockito.when(this.reuseStrategy.keepAlive(response1, exchangeContext)).thenReturn(Boolean.TRUE);
+
+        this.protocolHandler.responseReady(this.conn);
+
+        Mockito.verify(this.conn).submitResponse(response1);
+        Mockito.verify(this.responseProducer).responseCompleted(exchangeContext);
+        Mockito.verify(this.conn).requestInput();
+        Mockito.verify(this.conn).requestOutput();
+
+        Assert.assertTrue(state.getPipeline().isEmpty());
+        Assert.assertSame(request2, state.getRequest());
+        Assert.assertSame(this.requestConsumer, state.getRequestConsumer());
+        Assert.assertSame(responseProducer2, state.getResponseProducer());
+        Assert.assertEquals(MessageState.COMPLETED, state.getRequestState());
+        Assert.assertEquals(MessageState.INIT, state.getResponseState());
+        Assert.assertNotSame(exchangeContext, state.getContext());
+    }
+
+    @Test
+    public void testPipelinedResponseSubmittedAfterPromotion() throws Exception {
+        this.protocolHandler = new HttpAsyncService(
+                this.httpProcessor, this.reuseStrategy, this.responseFactory, this.handlerResolver, null, 2);
+        State state = new HttpAsyncService.State();
+        HttpContext exchangeContext = state.getContext();
+        BasicHttpRequest request1 = new BasicHttpRequest("GET", "/", HttpVersion.HTTP_1_1);
+        state.setRequest(request1);
+        state.setRequestState(MessageState.COMPLETED);
+        state.setResponseState(MessageState.INIT);
+        this.connContext.setAttribute(HttpAsyncService.HTTP_EXCHANGE_STATE, state);
+
+        BasicHttpRequest request2 = new BasicHttpRequest("GET", "/", HttpVersion.HTTP_1_1);
+        Mockito.when(this.conn.getHttpRequest()).thenReturn(request2);
+        Mockito.when(this.requestHandler.processRequest(
+                Mockito.eq(request2), Mockito.any(HttpContext.class))).thenReturn(this.requestConsumer);
+        this.protocolHandler.requestReceived(this.conn);
+
+        ArgumentCaptor<HttpAsyncExchange> argCaptor = ArgumentCaptor.forClass(HttpAsyncExchange.class);
+        Mockito.verify(this.requestHandler).handle(
+                Mockito.any(), argCaptor.capture(), Mockito.any(HttpContext.class));
+        HttpAsyncExchange exchange2 = argCaptor.getValue();
+
+        state.setResponseProducer(this.responseProducer);
+        BasicHttpResponse response1 = new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, "OK");
+        Mockito.when(this.responseProducer.generateResponse()).thenReturn(response1);
+        Mockito.when(this.reuseStrategy.keepAlive(response1, exchangeContext)).thenReturn(Boolean.TRUE);
+
+        this.protocolHandler.responseReady(this.conn);
+
+        Assert.assertSame(request2, state.getRequest());
+        Assert.assertNull(state.getResponseProducer());
+        Mockito.verify(this.conn, Mockito.never()).requestOutput();
+
+        HttpAsyncResponseProducer responseProducer2 = Mockito.mock(HttpAsyncResponseProducer.class);
+        exchange2.submitResponse(responseProducer2);
+
+        Assert.assertSame(responseProducer2, state.getResponseProducer());
+        Mockito.verify(this.conn).requestOutput();
+    }
+
+    @Test
+    public void testClosedWithPipelinedRequests() throws Exception {
+        this.protocolHandler = new HttpAsyncService(
+                this.httpProcessor, this.reuseStrategy, this.responseFactory, this.handlerResolver, null, 2);
+        State state = new HttpAsyncService.State();
+        state.setRequestState(MessageState.COMPLETED);
+        state.setResponseState(MessageState.INIT);
+        this.connContext.setAttribute(HttpAsyncService.HTTP_EXCHANGE_STATE, state);
+
+        BasicHttpRequest request = new BasicHttpRequest("GET", "/", HttpVersion.HTTP_1_1);
+        Mockito.when(this.conn.getHttpRequest()).thenReturn(request);
+        Mockito.when(this.requestHandler.processRequest(
+                Mockito.eq(request), Mockito.any(HttpContext.class))).thenReturn(this.requestConsumer);
+        this.protocolHandler.requestReceived(this.conn);
+
+        ArgumentCaptor<HttpAsyncExchange> argCaptor = ArgumentCaptor.forClass(HttpAsyncExchange.class);
+        Mockito.verify(this.requestHandler).handle(
+                Mockito.any(), argCaptor.capture(), Mockito.any(HttpContext.class));
+        argCaptor.getValue().setCallback(this.cancellable);
+
+        this.protocolHandler.closed(this.conn);
+
+        Assert.assertTrue(state.getPipeline().isEmpty());
+        Mockito.verify(this.requestConsumer).close();
+        Mockito.verify(this.cancellable).cancel();
+    }
+
 }
@@ -0,0 +1,121 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.http.nio.reactor.ssl;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.ByteChannel;
+import java.nio.channels.SelectionKey;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import org.apache.http.nio.reactor.IOSession;
+import org.apache.http.nio.testserver.SSLTestContexts;
+import org.apache.http.nio.util.PooledByteBufferAllocator;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+public class TestSSLIOSession {
+
+    static class CountingAllocator extends PooledByteBufferAllocator {
+
+        private final Map<ByteBuffer, Boolean> outstanding;
+
+        CountingAllocator() {
+            super(false);
+            this.outstanding = new IdentityHashMap<ByteBuffer, Boolean>();
+        }
+
+        @Override
+        public synchronized ByteBuffer allocate(final int size) {
+            ByteBuffer buffer = super.allocate(size);
+            this.outstanding.put(buffer, Boolean.TRUE);
+            return buffer;
+        }
+
+        @Override
+        public synchronized void release(final ByteBuffer buffer) {
+            this.outstanding.remove(buffer);
+            super.release(buffer);
+        }
+
+        synchronized int getOutstandingCount() {
+            return this.outstanding.size();
+        }
+
+    }
+
+    /**
+     * Channel whose peer has gone away: end of stream on read, nothing
+     * accepted on write.
+     */
+    static class DeadPeerChannel implements ByteChannel {
+
+        public int read(final ByteBuffer dst) {
+            return -1;
+        }
+
+        public int write(final ByteBuffer src) {
+            return 0;
+        }
+
+        public boolean isOpen() {
+            return true;
+        }
+
+        public void close() {
+        }
+
+    }
+
+    @Test
+    public void testBuffersReleasedOnGracefulClose() throws Exception {
+        IOSession session = Mockito.mock(IOSession.class);
+        Mockito.when(session.channel()).thenReturn(new DeadPeerChannel());
+        Mockito.when(session.getEventMask()).thenReturn(SelectionKey.OP_READ);
+        CountingAllocator allocator = new CountingAllocator();
+
+        SSLIOSession sslsession = new SSLIOSession(session, SSLMode.CLIENT,
+                SSLTestContexts.createClientSSLContext(), null, allocator);
+        Assert.assertEquals(0, allocator.getOutstandingCount());
+        sslsession.initialize();
+        Assert.assertTrue(allocator.getOutstandingCount() > 0);
+
+        sslsession.isAppInputReady();
+        sslsession.close();
+        sslsession.outboundTransport();
+        sslsession.inboundTransport();
+
+        Assert.assertEquals(IOSession.CLOSED, sslsession.getStatus());
+        Mockito.verify(session, Mockito.atLeastOnce()).close();
+        // unsent handshake data must not keep the buffers out of the pool
+        Assert.assertEquals(0, allocator.getOutstandingCount());
+        Assert.assertFalse(sslsession.isAppInputReady());
+        Assert.assertEquals(0, allocator.getOutstandingCount());
+    }
+
+}
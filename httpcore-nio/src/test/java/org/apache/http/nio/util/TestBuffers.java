@@ -37,6 +37,7 @@ import java.nio.channels.WritableByteChannel;
 import org.apache.http.Consts;
 import org.apache.http.ReadableByteChannelMock;
 import org.apache.http.impl.io.HttpTransportMetricsImpl;
+import org.apache.http.impl.nio.codecs.ChunkEncoder;
 import org.apache.http.impl.nio.reactor.SessionOutputBufferImpl;
 import org.apache.http.io.BufferInfo;
 import org.apache.http.nio.ContentDecoder;
@@ -108,6 +109,30 @@ public class TestBuffers {
         Assert.assertEquals("stuff;more stuff", EncodingUtils.getAsciiString(content));
     }
 
+    @Test
+    public void testSharedOutputBufferFlush() throws IOException {
+        ByteArrayOutputStream outstream = new ByteArrayOutputStream();
+        WritableByteChannel channel = Channels.newChannel(outstream);
+        SessionOutputBuffer outbuf = new SessionOutputBufferImpl(1024, 128, Consts.ASCII);
+        HttpTransportMetricsImpl metrics = new HttpTransportMetricsImpl();
+
+        ChunkEncoder encoder = new ChunkEncoder(channel, outbuf, metrics, 1024);
+
+        SharedOutputBuffer buffer = new SharedOutputBuffer(16, HeapByteBufferAllocator.INSTANCE);
+
+        buffer.write(EncodingUtils.getAsciiBytes("stuff;"));
+        buffer.produceContent(encoder, null);
+        outbuf.flush(channel);
+        Assert.assertEquals(0, outstream.size());
+
+        buffer.write(EncodingUtils.getAsciiBytes("more stuff"));
+        buffer.flush();
+        buffer.produceContent(encoder, null);
+        outbuf.flush(channel);
+        Assert.assertEquals("10\r\nstuff;more stuff\r\n",
+                EncodingUtils.getAsciiString(outstream.toByteArray()));
+    }
+
     @Test
     public void testBufferInfo() throws Exception {
         SimpleOutputBuffer buffer = new SimpleOutputBuffer(8, DirectByteBufferAllocator.INSTANCE);
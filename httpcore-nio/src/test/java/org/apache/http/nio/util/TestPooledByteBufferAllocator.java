@@ -0,0 +1,174 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+
+package org.apache.http.nio.util;
+
+import java.nio.ByteBuffer;
+
+import org.apache.http.util.EncodingUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestPooledByteBufferAllocator {
+
+    @Test
+    public void testSizeClasses() throws Exception {
+        PooledByteBufferAllocator allocator = new PooledByteBufferAllocator(false, 4096, 4, 1024 * 1024);
+        Assert.assertEquals(256, allocator.allocate(0).capacity());
+        Assert.assertEquals(256, allocator.allocate(256).capacity());
+        Assert.assertEquals(512, allocator.allocate(257).capacity());
+        Assert.assertEquals(4096, allocator.allocate(4000).capacity());
+        Assert.assertEquals(4097, allocator.allocate(4097).capacity());
+        Assert.assertEquals(4096, allocator.getMaxPooledSize());
+        Assert.assertFalse(allocator.allocate(10).isDirect());
+        Assert.assertTrue(new PooledByteBufferAllocator(true).allocate(10).isDirect());
+    }
+
+    @Test
+    public void testHitsAndMisses() throws Exception {
+        PooledByteBufferAllocator allocator = new PooledByteBufferAllocator(false, 4096, 4, 1024 * 1024);
+        ByteBuffer b1 = allocator.allocate(1000);
+        Assert.assertEquals(0, allocator.getHitCount());
+        Assert.assertEquals(1, allocator.getMissCount());
+        b1.put((byte) 1);
+        allocator.release(b1);
+        Assert.assertEquals(1024, allocator.getRetainedBytes());
+
+        ByteBuffer b2 = allocator.allocate(800);
+        Assert.assertSame(b1, b2);
+        Assert.assertEquals(0, b2.position());
+        Assert.assertEquals(b2.capacity(), b2.limit());
+        Assert.assertEquals(1, allocator.getHitCount());
+        Assert.assertEquals(1, allocator.getMissCount());
+        Assert.assertEquals(0, allocator.getRetainedBytes());
+
+        ByteBuffer b3 = allocator.allocate(2000);
+        Assert.assertNotSame(b1, b3);
+        Assert.assertEquals(2, allocator.getMissCount());
+    }
+
+    @Test
+    public void testSharedPoolAcrossThreads() throws Exception {
+        final PooledByteBufferAllocator allocator = new PooledByteBufferAllocator(false, 4096, 1, 1024 * 1024);
+        final ByteBuffer b1 = allocator.allocate(100);
+        final ByteBuffer b2 = allocator.allocate(100);
+        allocator.release(b1);
+        // overflows the thread-local cache into the shared pool
+        allocator.release(b2);
+        final ByteBuffer[] result = new ByteBuffer[1];
+        Thread t = new Thread(new Runnable() {
+
+            public void run() {
+                result[0] = allocator.allocate(100);
+            }
+
+        });
+        t.start();
+        t.join();
+        Assert.assertSame(b2, result[0]);
+        Assert.assertSame(b1, allocator.allocate(100));
+        Assert.assertEquals(2, allocator.getHitCount());
+    }
+
+    @Test
+    public void testForeignBuffersIgnored() throws Exception {
+        PooledByteBufferAllocator allocator = new PooledByteBufferAllocator(false, 4096, 4, 1024 * 1024);
+        allocator.release(null);
+        allocator.release(ByteBuffer.allocate(1000));
+        allocator.release(ByteBuffer.allocate(8192));
+        allocator.release(ByteBuffer.allocateDirect(1024));
+        allocator.release(ByteBuffer.allocate(1024).asReadOnlyBuffer());
+        Assert.assertEquals(0, allocator.getRetainedBytes());
+    }
+
+    @Test
+    public void testRetainedBytesLimit() throws Exception {
+        PooledByteBufferAllocator allocator = new PooledByteBufferAllocator(false, 4096, 4, 2048);
+        ByteBuffer b1 = allocator.allocate(1024);
+        ByteBuffer b2 = allocator.allocate(1024);
+        ByteBuffer b3 = allocator.allocate(1024);
+        allocator.release(b1);
+        allocator.release(b2);
+        allocator.release(b3);
+        Assert.assertEquals(2048, allocator.getRetainedBytes());
+        allocator.allocate(1024);
+        allocator.allocate(1024);
+        allocator.allocate(1024);
+        Assert.assertEquals(2, allocator.getHitCount());
+        Assert.assertEquals(4, allocator.getMissCount());
+        Assert.assertEquals(0, allocator.getRetainedBytes());
+    }
+
+    @Test
+    public void testExpandableBufferRecycling() throws Exception {
+        PooledByteBufferAllocator allocator = new PooledByteBufferAllocator(false, 4096, 4, 1024 * 1024);
+        SimpleOutputBuffer buffer = new SimpleOutputBuffer(256, allocator);
+        Assert.assertEquals(256, buffer.capacity());
+        byte[] b = EncodingUtils.getAsciiBytes("0123456789");
+        for (int i = 0; i < 30; i++) {
+            buffer.write(b, 0, b.length);
+        }
+        Assert.assertEquals(512, buffer.capacity());
+        Assert.assertEquals(300, buffer.length());
+        Assert.assertEquals(256, allocator.getRetainedBytes());
+
+        buffer.release();
+        Assert.assertEquals(0, buffer.capacity());
+        Assert.assertEquals(0, buffer.length());
+        Assert.assertEquals(768, allocator.getRetainedBytes());
+
+        buffer.write(b, 0, b.length);
+        Assert.assertEquals(10, buffer.length());
+
+        // release is idempotent
+        buffer.release();
+        buffer.release();
+    }
+
+    @Test
+    public void testReleasedBufferReacquired() throws Exception {
+        PooledByteBufferAllocator allocator = new PooledByteBufferAllocator(false, 4096, 4, 1024 * 1024);
+        SimpleOutputBuffer buffer = new SimpleOutputBuffer(1024, allocator);
+        buffer.release();
+        Assert.assertEquals(0, buffer.capacity());
+        Assert.assertFalse(buffer.hasData());
+        Assert.assertEquals(1024, allocator.getRetainedBytes());
+
+        byte[] b = EncodingUtils.getAsciiBytes("stuff");
+        buffer.write(b, 0, b.length);
+        Assert.assertEquals(1024, buffer.capacity());
+        Assert.assertEquals(5, buffer.length());
+        Assert.assertEquals(1, allocator.getHitCount());
+        Assert.assertEquals(0, allocator.getRetainedBytes());
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testInvalidMaxPooledSize() throws Exception {
+        new PooledByteBufferAllocator(false, 0, 4, 1024);
+    }
+
+}
@@ -47,17 +47,23 @@ public class ConnectionConfig implements Cloneable {
     private final CodingErrorAction malformedInputAction;
     private final CodingErrorAction unmappableInputAction;
     private final MessageConstraints messageConstraints;
+    private final boolean releaseIdleBuffers;
+    private final int minChunkSize;
 
     ConnectionConfig(
             final Charset charset,
             final CodingErrorAction malformedInputAction,
             final CodingErrorAction unmappableInputAction,
-            final MessageConstraints messageConstraints) {
+            final MessageConstraints messageConstraints,
+            final boolean releaseIdleBuffers,
+            final int minChunkSize) {
         super();
         this.charset = charset;
         this.malformedInputAction = malformedInputAction;
         this.unmappableInputAction = unmappableInputAction;
         this.messageConstraints = messageConstraints;
+        this.releaseIdleBuffers = releaseIdleBuffers;
+        this.minChunkSize = minChunkSize;
     }
 
     public Charset getCharset() {
@@ -76,6 +82,28 @@ public class ConnectionConfig implements Cloneable {
         return messageConstraints;
     }
 
+    /**
+     * Determines whether connections should give their empty session buffers
+     * back to the allocator while idle between message exchanges and acquire
+     * them again on demand. This trades a small allocation overhead per
+     * exchange for a much smaller memory footprint of idle connections and
+     * is best combined with a pooling buffer allocator.
+     */
+    public boolean isReleaseIdleBuffers() {
+        return releaseIdleBuffers;
+    }
+
+    /**
+     * Determines the minimum size of chunks produced by the chunk coding.
+     * If positive, small portions of content written by content producers
+     * are coalesced into chunks of at least this size unless the producer
+     * explicitly requests content to be flushed. Zero value disables write
+     * coalescing.
+     */
+    public int getMinChunkSize() {
+        return minChunkSize;
+    }
+
     @Override
     protected ConnectionConfig clone() throws CloneNotSupportedException {
         return (ConnectionConfig) super.clone();
@@ -88,6 +116,8 @@ public class ConnectionConfig implements Cloneable {
                 .append(", malformedInputAction=").append(this.malformedInputAction)
                 .append(", unmappableInputAction=").append(this.unmappableInputAction)
                 .append(", messageConstraints=").append(this.messageConstraints)
+                .append(", releaseIdleBuffers=").append(this.releaseIdleBuffers)
+                .append(", minChunkSize=").append(this.minChunkSize)
                 .append("]");
         return builder.toString();
     }
@@ -102,6 +132,8 @@ public class ConnectionConfig implements Cloneable {
         private CodingErrorAction malformedInputAction;
         private CodingErrorAction unmappableInputAction;
         private MessageConstraints messageConstraints;
+        private boolean releaseIdleBuffers;
+        private int minChunkSize;
 
         Builder() {
         }
@@ -136,6 +168,16 @@ public class ConnectionConfig implements Cloneable {
             return this;
         }
 
+        public Builder setReleaseIdleBuffers(final boolean releaseIdleBuffers) {
+            this.releaseIdleBuffers = releaseIdleBuffers;
+            return this;
+        }
+
+        public Builder setMinChunkSize(final int minChunkSize) {
+            this.minChunkSize = minChunkSize;
+            return this;
+        }
+
         public ConnectionConfig build() {
             Charset cs = charset;
             if (cs == null && (malformedInputAction != null || unmappableInputAction != null)) {
@@ -145,7 +187,9 @@ public class ConnectionConfig implements Cloneable {
                     charset,
                     malformedInputAction,
                     unmappableInputAction,
-                    messageConstraints);
+                    messageConstraints,
+                    releaseIdleBuffers,
+                    minChunkSize > 0 ? minChunkSize : 0);
         }
 
     }
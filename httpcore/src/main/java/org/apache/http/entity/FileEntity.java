@@ -75,6 +75,15 @@ public class FileEntity extends AbstractHttpEntity implements Cloneable {
         this.file = Args.notNull(file, "File");
     }
 
+    /**
+     * Returns the file this entity obtains its content from.
+     *
+     * @since 4.3
+     */
+    public File getFile() {
+        return this.file;
+    }
+
     public boolean isRepeatable() {
         return true;
     }
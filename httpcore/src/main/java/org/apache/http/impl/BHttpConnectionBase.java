@@ -27,6 +27,7 @@
 
 package org.apache.http.impl;
 
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -35,8 +36,13 @@ import java.net.Socket;
 import java.net.SocketAddress;
 import java.net.SocketException;
 import java.net.SocketTimeoutException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SocketChannel;
 import java.nio.charset.CharsetDecoder;
 import java.nio.charset.CharsetEncoder;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
 
 import org.apache.http.Header;
 import org.apache.http.HttpConnection;
@@ -49,6 +55,7 @@ import org.apache.http.annotation.NotThreadSafe;
 import org.apache.http.config.MessageConstraints;
 import org.apache.http.entity.BasicHttpEntity;
 import org.apache.http.entity.ContentLengthStrategy;
+import org.apache.http.entity.FileEntity;
 import org.apache.http.impl.entity.LaxContentLengthStrategy;
 import org.apache.http.impl.entity.StrictContentLengthStrategy;
 import org.apache.http.impl.io.ChunkedInputStream;
@@ -76,8 +83,14 @@ import org.apache.http.util.NetUtils;
 @NotThreadSafe
 public class BHttpConnectionBase implements HttpConnection, HttpInetConnection {
 
+    private static final Map<Class<?>, Boolean> PLAIN_FILE_ENTITIES =
+        Collections.synchronizedMap(new WeakHashMap<Class<?>, Boolean>());
+    private static final Map<Class<?>, Boolean> PLAIN_SOCKET_OUTPUT_CONNS =
+        Collections.synchronizedMap(new WeakHashMap<Class<?>, Boolean>());
+
     private final SessionInputBufferImpl inbuffer;
     private final SessionOutputBufferImpl outbuffer;
+    private final HttpTransportMetricsImpl outTransportMetrics;
     private final HttpConnectionMetricsImpl connMetrics;
     private final ContentLengthStrategy incomingContentStrategy;
     private final ContentLengthStrategy outgoingContentStrategy;
@@ -111,6 +124,7 @@ public class BHttpConnectionBase implements HttpConnection, HttpInetConnection {
         Args.positive(buffersize, "Buffer size");
         HttpTransportMetricsImpl inTransportMetrics = new HttpTransportMetricsImpl();
         HttpTransportMetricsImpl outTransportMetrics = new HttpTransportMetricsImpl();
+        this.outTransportMetrics = outTransportMetrics;
         this.inbuffer = new SessionInputBufferImpl(inTransportMetrics, buffersize, -1,
                 constraints != null ? constraints : MessageConstraints.DEFAULT, chardecoder);
         this.outbuffer = new SessionOutputBufferImpl(outTransportMetrics, buffersize, -1,
@@ -195,6 +209,112 @@ public class BHttpConnectionBase implements HttpConnection, HttpInetConnection {
         return createOutputStream(len, this.outbuffer);
     }
 
+    /**
+     * Transfers content of a file backed entity directly from the file to
+     * the socket channel using {@link FileChannel#transferTo(long, long,
+     * java.nio.channels.WritableByteChannel)}, bypassing the session output
+     * buffer.
+     * <p/>
+     * The transfer takes place only if the entity is a {@link FileEntity}
+     * that does not override {@link FileEntity#writeTo(OutputStream)}, the
+     * message content is delimited by content length or sent with identity
+     * coding and the connection socket has an associated blocking
+     * {@link SocketChannel}. Connections that override
+     * {@link #getSocketOutputStream(Socket)}, for instance to log the data
+     * sent, always write content to that stream.
+     *
+     * @param message the message enclosing the entity.
+     * @param entity the message entity.
+     * @return <code>true</code> if the entity content has been transferred,
+     *   <code>false</code> if the content is to be written to the output
+     *   stream returned by {@link #prepareOutput(HttpMessage)}.
+     * @throws IOException in case of an I/O error or if the file is shorter
+     *   than the message content length.
+     *
+     * @since 4.3
+     */
+    protected boolean transferFile(
+            final HttpMessage message,
+            final HttpEntity entity) throws HttpException, IOException {
+        if (!(entity instanceof FileEntity)
+                || !inheritsMethod(entity.getClass(), FileEntity.class,
+                        "writeTo", OutputStream.class, PLAIN_FILE_ENTITIES)
+                || !inheritsMethod(getClass(), BHttpConnectionBase.class,
+                        "getSocketOutputStream", Socket.class, PLAIN_SOCKET_OUTPUT_CONNS)) {
+            return false;
+        }
+        Socket sock = this.socket;
+        SocketChannel channel = sock != null ? sock.getChannel() : null;
+        if (channel == null || !channel.isBlocking()) {
+            return false;
+        }
+        long len = this.outgoingContentStrategy.determineLength(message);
+        if (len == ContentLengthStrategy.CHUNKED) {
+            return false;
+        }
+        FileInputStream instream = new FileInputStream(((FileEntity) entity).getFile());
+        try {
+            FileChannel fileChannel = instream.getChannel();
+            long size = fileChannel.size();
+            if (len != ContentLengthStrategy.IDENTITY && size < len) {
+                throw new IOException("File is shorter than the content length: "
+                        + size + " < " + len);
+            }
+            long count = len == ContentLengthStrategy.IDENTITY ? size : len;
+            // Message head must go out ahead of the content
+            this.outbuffer.flush();
+            long pos = 0;
+            while (pos < count) {
+                long bytesWritten = fileChannel.transferTo(pos, count - pos, channel);
+                if (bytesWritten <= 0) {
+                    break;
+                }
+                pos += bytesWritten;
+                this.outTransportMetrics.incrementBytesTransferred(bytesWritten);
+            }
+            if (pos < count) {
+                throw new IOException("Premature end of file content: "
+                        + pos + " of " + count + " bytes transferred");
+            }
+        } finally {
+            instream.close();
+        }
+        return true;
+    }
+
+    /**
+     * Determines whether the given class inherits the named method from
+     * the base class without overriding it. Results are cached per class.
+     */
+    private static boolean inheritsMethod(
+            final Class<?> cls,
+            final Class<?> base,
+            final String name,
+            final Class<?> paramType,
+            final Map<Class<?>, Boolean> cache) {
+        if (cls == base) {
+            return true;
+        }
+        Boolean inherited = cache.get(cls);
+        if (inherited == null) {
+            inherited = Boolean.TRUE;
+            try {
+                for (Class<?> c = cls; c != base && c != null; c = c.getSuperclass()) {
+                    try {
+                        c.getDeclaredMethod(name, paramType);
+                        inherited = Boolean.FALSE;
+                        break;
+                    } catch (NoSuchMethodException ignore) {
+                    }
+                }
+            } catch (SecurityException ex) {
+                inherited = Boolean.FALSE;
+            }
+            cache.put(cls, inherited);
+        }
+        return inherited.booleanValue();
+    }
+
     protected InputStream createInputStream(
             final long len,
             final SessionInputBuffer inbuffer) {
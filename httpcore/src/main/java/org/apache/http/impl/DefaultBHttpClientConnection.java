@@ -151,7 +151,9 @@ public class DefaultBHttpClientConnection extends BHttpConnectionBase
             return;
         }
         OutputStream outstream = prepareOutput(request);
-        entity.writeTo(outstream);
+        if (!transferFile(request, entity)) {
+            entity.writeTo(outstream);
+        }
         outstream.close();
     }
 
@@ -161,7 +161,9 @@ public class DefaultBHttpServerConnection extends BHttpConnectionBase
             return;
         }
         OutputStream outstream = prepareOutput(response);
-        entity.writeTo(outstream);
+        if (!transferFile(response, entity)) {
+            entity.writeTo(outstream);
+        }
         outstream.close();
     }
 
@@ -37,6 +37,7 @@ import org.apache.http.annotation.NotThreadSafe;
 import org.apache.http.io.HttpMessageWriter;
 import org.apache.http.io.SessionOutputBuffer;
 import org.apache.http.message.BasicLineFormatter;
+import org.apache.http.message.BufferedAsciiHeader;
 import org.apache.http.message.LineFormatter;
 import org.apache.http.params.HttpParams;
 import org.apache.http.util.Args;
@@ -109,8 +110,13 @@ public abstract class AbstractMessageWriter<T extends HttpMessage> implements Ht
         writeHeadLine(message);
         for (HeaderIterator it = message.headerIterator(); it.hasNext(); ) {
             Header header = it.nextHeader();
-            this.sessionBuffer.writeLine
-                (lineFormatter.formatHeader(this.lineBuf, header));
+            if (header instanceof BufferedAsciiHeader) {
+                // Pre-encoded header line can be copied verbatim
+                ((BufferedAsciiHeader) header).writeTo(this.sessionBuffer);
+            } else {
+                this.sessionBuffer.writeLine
+                    (lineFormatter.formatHeader(this.lineBuf, header));
+            }
         }
         this.lineBuf.clear();
         this.sessionBuffer.writeLine(this.lineBuf);
@@ -0,0 +1,118 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+
+package org.apache.http.message;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.apache.http.ParseException;
+import org.apache.http.annotation.Immutable;
+import org.apache.http.io.SessionOutputBuffer;
+import org.apache.http.protocol.HTTP;
+import org.apache.http.util.CharArrayBuffer;
+
+/**
+ * {@link BufferedHeader} that also carries its complete header line
+ * (including the terminating <code>CRLF</code>) pre-encoded as ASCII bytes.
+ * <p/>
+ * Message writers may copy the encoded line directly into the session
+ * output buffer with {@link #writeTo(SessionOutputBuffer)} or
+ * {@link #getEncodedLine()} instead of re-encoding the header line
+ * character by character. This is only safe with ASCII-compatible
+ * element charsets, which is what the HTTP protocol mandates for
+ * message heads.
+ * <p/>
+ * Instances of this class are expected to be shared, so neither the buffer
+ * nor the encoded line is ever exposed: {@link #getBuffer()} returns a copy
+ * of the header line.
+ *
+ * @since 4.3
+ */
+@Immutable
+public class BufferedAsciiHeader extends BufferedHeader {
+
+    private static final long serialVersionUID = 5174553934829460530L;
+
+    private final byte[] encodedLine;
+
+    /**
+     * Creates a new header from a buffer containing ASCII characters only.
+     *
+     * @param buffer    the buffer containing the header to represent
+     *
+     * @throws ParseException   in case of a parse error or if the buffer
+     *   contains non-ASCII characters
+     */
+    public BufferedAsciiHeader(final CharArrayBuffer buffer) throws ParseException {
+        super(buffer);
+        final int len = buffer.length();
+        final byte[] b = new byte[len + 2];
+        for (int i = 0; i < len; i++) {
+            final char ch = buffer.charAt(i);
+            if (ch > 0x7f) {
+                throw new ParseException("Invalid header: " + buffer.toString());
+            }
+            b[i] = (byte) ch;
+        }
+        b[len] = (byte) HTTP.CR;
+        b[len + 1] = (byte) HTTP.LF;
+        this.encodedLine = b;
+    }
+
+    /**
+     * Returns a copy of the header line, as the buffer of this header may
+     * be shared.
+     */
+    @Override
+    public CharArrayBuffer getBuffer() {
+        final CharArrayBuffer buffer = super.getBuffer();
+        final CharArrayBuffer copy = new CharArrayBuffer(buffer.length());
+        copy.append(buffer);
+        return copy;
+    }
+
+    /**
+     * Returns a read-only view of the header line including the terminating
+     * <code>CRLF</code> encoded as ASCII.
+     */
+    public ByteBuffer getEncodedLine() {
+        return ByteBuffer.wrap(this.encodedLine).asReadOnlyBuffer();
+    }
+
+    /**
+     * Writes the header line including the terminating <code>CRLF</code>
+     * encoded as ASCII to the given session buffer.
+     *
+     * @param buffer the session buffer to write to.
+     * @throws IOException in case of an I/O error.
+     */
+    public void writeTo(final SessionOutputBuffer buffer) throws IOException {
+        buffer.write(this.encodedLine, 0, this.encodedLine.length);
+    }
+
+}
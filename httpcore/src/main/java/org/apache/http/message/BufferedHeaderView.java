@@ -0,0 +1,184 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+
+package org.apache.http.message;
+
+import java.io.ObjectStreamException;
+import java.io.Serializable;
+
+import org.apache.http.FormattedHeader;
+import org.apache.http.HeaderElement;
+import org.apache.http.ParseException;
+import org.apache.http.annotation.NotThreadSafe;
+import org.apache.http.protocol.HTTP;
+import org.apache.http.util.Args;
+import org.apache.http.util.CharArrayBuffer;
+
+/**
+ * This class represents a raw HTTP header occupying a segment of a buffer
+ * that may be shared with other headers, usually all headers of the same
+ * message. Neither the name nor the value of the header is extracted from
+ * the buffer until it is requested.
+ * <p/>
+ * The buffer is considered immutable: its content within the segment may
+ * not change for as long as the header is in use.
+ * <p/>
+ * Instances are serialized as a standalone {@link BufferedHeader} holding
+ * a copy of the header line only, never the shared buffer.
+ *
+ * @since 4.3
+ */
+@NotThreadSafe
+public class BufferedHeaderView implements FormattedHeader, Cloneable, Serializable {
+
+    private static final long serialVersionUID = 7497613452315285406L;
+
+    /**
+     * The buffer containing the header line.
+     */
+    private final CharArrayBuffer buffer;
+
+    /**
+     * The beginning of the header line in the buffer.
+     */
+    private final int beginIndex;
+
+    /**
+     * The end of the header line in the buffer (exclusive).
+     */
+    private final int endIndex;
+
+    /**
+     * The position of the colon separating the name from the value.
+     */
+    private final int colon;
+
+    private String name;
+    private String value;
+    private CharArrayBuffer line;
+
+    /**
+     * Creates a new header from a segment of a buffer. The segment is
+     * checked to contain a valid header immediately, the name and the value
+     * are extracted only when accessed.
+     *
+     * @param buffer the buffer containing the header to represent.
+     * @param beginIndex the beginning of the header line in the buffer.
+     * @param endIndex the end of the header line in the buffer (exclusive).
+     *
+     * @throws ParseException in case of a parse error
+     */
+    public BufferedHeaderView(
+            final CharArrayBuffer buffer,
+            int beginIndex,
+            int endIndex) throws ParseException {
+        super();
+        Args.notNull(buffer, "Char array buffer");
+        Args.check(beginIndex >= 0 && beginIndex <= endIndex && endIndex <= buffer.length(),
+                "Invalid header line bounds");
+        int colon = buffer.indexOf(':', beginIndex, endIndex);
+        if (colon == -1) {
+            throw new ParseException
+                ("Invalid header: " + buffer.substring(beginIndex, endIndex));
+        }
+        int i = beginIndex;
+        while (i < colon && HTTP.isWhitespace(buffer.charAt(i))) {
+            i++;
+        }
+        if (i == colon) {
+            throw new ParseException
+                ("Invalid header: " + buffer.substring(beginIndex, endIndex));
+        }
+        this.buffer = buffer;
+        this.beginIndex = beginIndex;
+        this.endIndex = endIndex;
+        this.colon = colon;
+    }
+
+    public String getName() {
+        if (this.name == null) {
+            this.name = this.buffer.substringTrimmed(this.beginIndex, this.colon);
+        }
+        return this.name;
+    }
+
+    public String getValue() {
+        if (this.value == null) {
+            this.value = this.buffer.substringTrimmed(this.colon + 1, this.endIndex);
+        }
+        return this.value;
+    }
+
+    public HeaderElement[] getElements() throws ParseException {
+        ParserCursor cursor = new ParserCursor(this.beginIndex, this.endIndex);
+        cursor.updatePos(this.colon + 1);
+        return BasicHeaderValueParser.INSTANCE.parseElements(this.buffer, cursor);
+    }
+
+    /**
+     * Returns the position of the header value relative to the beginning
+     * of the header line.
+     */
+    public int getValuePos() {
+        return this.colon + 1 - this.beginIndex;
+    }
+
+    /**
+     * Returns a buffer containing the header line only. The line is copied
+     * from the shared buffer on first access.
+     */
+    public CharArrayBuffer getBuffer() {
+        if (this.line == null) {
+            int len = this.endIndex - this.beginIndex;
+            CharArrayBuffer b = new CharArrayBuffer(len);
+            b.append(this.buffer, this.beginIndex, len);
+            this.line = b;
+        }
+        return this.line;
+    }
+
+    @Override
+    public String toString() {
+        return this.buffer.substring(this.beginIndex, this.endIndex);
+    }
+
+    /**
+     * Replaces this header with a standalone copy when serialized, so that
+     * the rest of the shared buffer is not written out along with it.
+     */
+    protected Object writeReplace() throws ObjectStreamException {
+        return new BufferedHeader(getBuffer());
+    }
+
+    @Override
+    public Object clone() throws CloneNotSupportedException {
+        // buffer is considered immutable
+        // no need to make a copy of it
+        return super.clone();
+    }
+
+}
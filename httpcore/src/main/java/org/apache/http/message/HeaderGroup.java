@@ -27,8 +27,12 @@
 
 package org.apache.http.message;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
 
@@ -41,7 +45,10 @@ import org.apache.http.util.CharArrayBuffer;
  * A class for combining a set of headers.
  * This class allows for multiple headers with the same name and
  * keeps track of the order in which headers were added.
- *
+ * <p/>
+ * As of version 4.3 headers are additionally indexed by name. The index
+ * is maintained as headers are added and removed, so lookups by name do not
+ * need to scan all headers and never modify the group.
  *
  * @since 4.0
  */
@@ -50,14 +57,20 @@ public class HeaderGroup implements Cloneable, Serializable {
 
     private static final long serialVersionUID = 2608834160639271617L;
 
+    private static final Header[] EMPTY = new Header[] {};
+
     /** The list of headers for this group, in the order in which they were added */
-    private final List<Header> headers;
+    private List<Header> headers;
+
+    /** Headers indexed by name */
+    private transient HeaderIndex index;
 
     /**
      * Constructor for HeaderGroup.
      */
     public HeaderGroup() {
         this.headers = new ArrayList<Header>(16);
+        this.index = new HeaderIndex();
     }
 
     /**
@@ -65,6 +78,7 @@ public class HeaderGroup implements Cloneable, Serializable {
      */
     public void clear() {
         headers.clear();
+        this.index.clear();
     }
 
     /**
@@ -78,6 +92,7 @@ public class HeaderGroup implements Cloneable, Serializable {
             return;
         }
         headers.add(header);
+        this.index.add(header);
     }
 
     /**
@@ -89,7 +104,15 @@ public class HeaderGroup implements Cloneable, Serializable {
         if (header == null) {
             return;
         }
-        headers.remove(header);
+        final int i = headers.indexOf(header);
+        if (i >= 0) {
+            removeHeader(i);
+        }
+    }
+
+    private void removeHeader(final int i) {
+        final Header removed = this.headers.remove(i);
+        this.index.remove(removed);
     }
 
     /**
@@ -103,14 +126,18 @@ public class HeaderGroup implements Cloneable, Serializable {
         if (header == null) {
             return;
         }
-        for (int i = 0; i < this.headers.size(); i++) {
-            Header current = this.headers.get(i);
-            if (current.getName().equalsIgnoreCase(header.getName())) {
-                this.headers.set(i, header);
-                return;
+        final List<Header> found = this.index.get(header.getName());
+        if (found != null) {
+            final Header current = found.get(0);
+            for (int i = 0; i < this.headers.size(); i++) {
+                if (this.headers.get(i) == current) {
+                    this.headers.set(i, header);
+                    this.index.replace(current, header);
+                    return;
+                }
             }
         }
-        this.headers.add(header);
+        addHeader(header);
     }
 
     /**
@@ -126,7 +153,7 @@ public class HeaderGroup implements Cloneable, Serializable {
             return;
         }
         for (Header header : headers) {
-            this.headers.add(header);
+            addHeader(header);
         }
     }
 
@@ -142,18 +169,18 @@ public class HeaderGroup implements Cloneable, Serializable {
      * headers by the given name are present
      */
     public Header getCondensedHeader(String name) {
-        Header[] headers = getHeaders(name);
+        List<Header> headers = this.index.get(name);
 
-        if (headers.length == 0) {
+        if (headers == null) {
             return null;
-        } else if (headers.length == 1) {
-            return headers[0];
+        } else if (headers.size() == 1) {
+            return headers.get(0);
         } else {
             CharArrayBuffer valueBuffer = new CharArrayBuffer(128);
-            valueBuffer.append(headers[0].getValue());
-            for (int i = 1; i < headers.length; i++) {
+            valueBuffer.append(headers.get(0).getValue());
+            for (int i = 1; i < headers.size(); i++) {
                 valueBuffer.append(", ");
-                valueBuffer.append(headers[i].getValue());
+                valueBuffer.append(headers.get(i).getValue());
             }
 
             return new BasicHeader(name.toLowerCase(Locale.ENGLISH), valueBuffer.toString());
@@ -171,15 +198,10 @@ public class HeaderGroup implements Cloneable, Serializable {
      * @return an array of length >= 0
      */
     public Header[] getHeaders(String name) {
-        List<Header> headersFound = new ArrayList<Header>();
-
-        for (int i = 0; i < headers.size(); i++) {
-            Header header = headers.get(i);
-            if (header.getName().equalsIgnoreCase(name)) {
-                headersFound.add(header);
-            }
+        List<Header> headersFound = this.index.get(name);
+        if (headersFound == null) {
+            return EMPTY;
         }
-
         return headersFound.toArray(new Header[headersFound.size()]);
     }
 
@@ -192,13 +214,8 @@ public class HeaderGroup implements Cloneable, Serializable {
      * @return the first header or <code>null</code>
      */
     public Header getFirstHeader(String name) {
-        for (int i = 0; i < headers.size(); i++) {
-            Header header = headers.get(i);
-            if (header.getName().equalsIgnoreCase(name)) {
-                return header;
-            }
-        }
-        return null;
+        List<Header> headersFound = this.index.get(name);
+        return headersFound != null ? headersFound.get(0) : null;
     }
 
     /**
@@ -210,15 +227,8 @@ public class HeaderGroup implements Cloneable, Serializable {
      * @return the last header or <code>null</code>
      */
     public Header getLastHeader(String name) {
-        // start at the end of the list and work backwards
-        for (int i = headers.size() - 1; i >= 0; i--) {
-            Header header = headers.get(i);
-            if (header.getName().equalsIgnoreCase(name)) {
-                return header;
-            }
-        }
-
-        return null;
+        List<Header> headersFound = this.index.get(name);
+        return headersFound != null ? headersFound.get(headersFound.size() - 1) : null;
     }
 
     /**
@@ -240,14 +250,7 @@ public class HeaderGroup implements Cloneable, Serializable {
      * contained, <code>false</code> otherwise
      */
     public boolean containsHeader(String name) {
-        for (int i = 0; i < headers.size(); i++) {
-            Header header = headers.get(i);
-            if (header.getName().equalsIgnoreCase(name)) {
-                return true;
-            }
-        }
-
-        return false;
+        return this.index.get(name) != null;
     }
 
     /**
@@ -258,7 +261,7 @@ public class HeaderGroup implements Cloneable, Serializable {
      * @since 4.0
      */
     public HeaderIterator iterator() {
-        return new BasicListHeaderIterator(this.headers, null);
+        return new BasicListHeaderIterator(new IndexedView(), null);
     }
 
     /**
@@ -272,7 +275,14 @@ public class HeaderGroup implements Cloneable, Serializable {
      * @since 4.0
      */
     public HeaderIterator iterator(final String name) {
-        return new BasicListHeaderIterator(this.headers, name);
+        if (name == null) {
+            return iterator();
+        }
+        final List<Header> found = this.index.get(name);
+        if (found == null) {
+            return new BasicListHeaderIterator(Collections.<Header>emptyList(), null);
+        }
+        return new BasicListHeaderIterator(new NamedView(found), null);
     }
 
     /**
@@ -285,12 +295,16 @@ public class HeaderGroup implements Cloneable, Serializable {
     public HeaderGroup copy() {
         HeaderGroup clone = new HeaderGroup();
         clone.headers.addAll(this.headers);
+        clone.rebuildIndex();
         return clone;
     }
 
     @Override
     public Object clone() throws CloneNotSupportedException {
-        return super.clone();
+        HeaderGroup clone = (HeaderGroup) super.clone();
+        clone.headers = new ArrayList<Header>(this.headers);
+        clone.rebuildIndex();
+        return clone;
     }
 
     @Override
@@ -298,4 +312,79 @@ public class HeaderGroup implements Cloneable, Serializable {
         return this.headers.toString();
     }
 
+    private void rebuildIndex() {
+        HeaderIndex newIndex = new HeaderIndex();
+        for (int i = 0; i < this.headers.size(); i++) {
+            newIndex.add(this.headers.get(i));
+        }
+        this.index = newIndex;
+    }
+
+    private void readObject(final ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        rebuildIndex();
+    }
+
+    /**
+     * View of the header list that keeps the name index up to date
+     * when headers get removed through a {@link HeaderIterator}.
+     */
+    private class IndexedView extends AbstractList<Header> {
+
+        @Override
+        public Header get(int i) {
+            return headers.get(i);
+        }
+
+        @Override
+        public int size() {
+            return headers.size();
+        }
+
+        @Override
+        public Header remove(int i) {
+            Header removed = headers.get(i);
+            removeHeader(i);
+            return removed;
+        }
+
+    }
+
+    /**
+     * View of the headers with the same name that removes headers
+     * from the group when they get removed through a {@link HeaderIterator}.
+     */
+    private class NamedView extends AbstractList<Header> {
+
+        private final List<Header> found;
+
+        NamedView(final List<Header> found) {
+            super();
+            this.found = found;
+        }
+
+        @Override
+        public Header get(int i) {
+            return this.found.get(i);
+        }
+
+        @Override
+        public int size() {
+            return this.found.size();
+        }
+
+        @Override
+        public Header remove(int i) {
+            Header removed = this.found.get(i);
+            for (int n = 0; n < headers.size(); n++) {
+                if (headers.get(n) == removed) {
+                    removeHeader(n);
+                    break;
+                }
+            }
+            return removed;
+        }
+
+    }
+
 }
@@ -0,0 +1,253 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+
+package org.apache.http.message;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.http.Header;
+import org.apache.http.HttpHeaders;
+import org.apache.http.annotation.NotThreadSafe;
+
+/**
+ * Case-insensitive index of headers by name used by {@link HeaderGroup}.
+ * Each distinct name maps to the list of headers with that name in the
+ * order in which they were added.
+ * <p/>
+ * Names are hashed without allocating a lower-case copy. Well-known header
+ * names are interned to the constants defined in {@link HttpHeaders}, so
+ * lookups with those constants usually succeed on an identity comparison.
+ *
+ * @since 4.3
+ */
+@NotThreadSafe
+class HeaderIndex {
+
+    private static final String[] KNOWN_NAMES = {
+        HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_CHARSET, HttpHeaders.ACCEPT_ENCODING,
+        HttpHeaders.ACCEPT_LANGUAGE, HttpHeaders.ACCEPT_RANGES, HttpHeaders.AGE,
+        HttpHeaders.ALLOW, HttpHeaders.AUTHORIZATION, HttpHeaders.CACHE_CONTROL,
+        HttpHeaders.CONNECTION, HttpHeaders.CONTENT_ENCODING, HttpHeaders.CONTENT_LANGUAGE,
+        HttpHeaders.CONTENT_LENGTH, HttpHeaders.CONTENT_LOCATION, HttpHeaders.CONTENT_MD5,
+        HttpHeaders.CONTENT_RANGE, HttpHeaders.CONTENT_TYPE, HttpHeaders.DATE,
+        HttpHeaders.DAV, HttpHeaders.DEPTH, HttpHeaders.DESTINATION, HttpHeaders.ETAG,
+        HttpHeaders.EXPECT, HttpHeaders.EXPIRES, HttpHeaders.FROM, HttpHeaders.HOST,
+        HttpHeaders.IF, HttpHeaders.IF_MATCH, HttpHeaders.IF_MODIFIED_SINCE,
+        HttpHeaders.IF_NONE_MATCH, HttpHeaders.IF_RANGE, HttpHeaders.IF_UNMODIFIED_SINCE,
+        HttpHeaders.LAST_MODIFIED, HttpHeaders.LOCATION, HttpHeaders.LOCK_TOKEN,
+        HttpHeaders.MAX_FORWARDS, HttpHeaders.OVERWRITE, HttpHeaders.PRAGMA,
+        HttpHeaders.PROXY_AUTHENTICATE, HttpHeaders.PROXY_AUTHORIZATION, HttpHeaders.RANGE,
+        HttpHeaders.REFERER, HttpHeaders.RETRY_AFTER, HttpHeaders.SERVER,
+        HttpHeaders.STATUS_URI, HttpHeaders.TE, HttpHeaders.TIMEOUT, HttpHeaders.TRAILER,
+        HttpHeaders.TRANSFER_ENCODING, HttpHeaders.UPGRADE, HttpHeaders.USER_AGENT,
+        HttpHeaders.VARY, HttpHeaders.VIA, HttpHeaders.WARNING, HttpHeaders.WWW_AUTHENTICATE,
+        "Keep-Alive", "Proxy-Connection"
+    };
+
+    private static final String[] KNOWN_TABLE;
+
+    static {
+        KNOWN_TABLE = new String[256];
+        final int mask = KNOWN_TABLE.length - 1;
+        for (final String name: KNOWN_NAMES) {
+            int i = hash(name) & mask;
+            while (KNOWN_TABLE[i] != null) {
+                i = (i + 1) & mask;
+            }
+            KNOWN_TABLE[i] = name;
+        }
+    }
+
+    /**
+     * Computes a hash code of the given name that is consistent with
+     * {@link String#equalsIgnoreCase(String)}.
+     */
+    static int hash(final String name) {
+        int h = 0;
+        final int len = name.length();
+        for (int i = 0; i < len; i++) {
+            char ch = name.charAt(i);
+            if (ch >= 'A' && ch <= 'Z') {
+                ch += 'a' - 'A';
+            } else if (ch >= 0x80) {
+                ch = Character.toLowerCase(Character.toUpperCase(ch));
+            }
+            h = 31 * h + ch;
+        }
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Returns the well-known header name equal to the given name ignoring
+     * case or the name itself if it is not well-known.
+     */
+    static String intern(final String name, final int hash) {
+        final int mask = KNOWN_TABLE.length - 1;
+        int i = hash & mask;
+        String known;
+        while ((known = KNOWN_TABLE[i]) != null) {
+            if (known == name || known.equalsIgnoreCase(name)) {
+                return known;
+            }
+            i = (i + 1) & mask;
+        }
+        return name;
+    }
+
+    static final class Entry {
+
+        final String name;
+        final int hash;
+        final List<Header> headers;
+        Entry next;
+
+        Entry(final String name, final int hash, final Entry next) {
+            super();
+            this.name = name;
+            this.hash = hash;
+            this.headers = new ArrayList<Header>(2);
+            this.next = next;
+        }
+
+    }
+
+    private Entry[] table;
+    private int count;
+
+    HeaderIndex() {
+        super();
+        this.table = new Entry[16];
+    }
+
+    private Entry find(final String name, final int hash) {
+        for (Entry e = this.table[hash & (this.table.length - 1)]; e != null; e = e.next) {
+            if (e.hash == hash && (e.name == name || e.name.equalsIgnoreCase(name))) {
+                return e;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns headers with the given name in the order in which they were
+     * added or <code>null</code> if there are none. The returned list is a
+     * live view and must not be modified by the caller.
+     */
+    List<Header> get(final String name) {
+        if (name == null) {
+            return null;
+        }
+        final Entry e = find(name, hash(name));
+        return e != null ? e.headers : null;
+    }
+
+    void add(final Header header) {
+        final String name = header.getName();
+        final int hash = hash(name);
+        Entry e = find(name, hash);
+        if (e == null) {
+            if (this.count >= this.table.length * 3 / 4) {
+                resize();
+            }
+            final int i = hash & (this.table.length - 1);
+            e = new Entry(intern(name, hash), hash, this.table[i]);
+            this.table[i] = e;
+            this.count++;
+        }
+        e.headers.add(header);
+    }
+
+    void remove(final Header header) {
+        final String name = header.getName();
+        final int hash = hash(name);
+        final int i = hash & (this.table.length - 1);
+        Entry prev = null;
+        for (Entry e = this.table[i]; e != null; prev = e, e = e.next) {
+            if (e.hash == hash && (e.name == name || e.name.equalsIgnoreCase(name))) {
+                final List<Header> headers = e.headers;
+                for (int n = 0; n < headers.size(); n++) {
+                    if (headers.get(n) == header) {
+                        headers.remove(n);
+                        break;
+                    }
+                }
+                if (headers.isEmpty()) {
+                    if (prev == null) {
+                        this.table[i] = e.next;
+                    } else {
+                        prev.next = e.next;
+                    }
+                    this.count--;
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * Replaces the given header with another one of the same name keeping
+     * its relative position.
+     */
+    void replace(final Header oldHeader, final Header newHeader) {
+        final List<Header> headers = get(oldHeader.getName());
+        if (headers != null) {
+            for (int n = 0; n < headers.size(); n++) {
+                if (headers.get(n) == oldHeader) {
+                    headers.set(n, newHeader);
+                    return;
+                }
+            }
+        }
+    }
+
+    void clear() {
+        if (this.count > 0) {
+            for (int i = 0; i < this.table.length; i++) {
+                this.table[i] = null;
+            }
+            this.count = 0;
+        }
+    }
+
+    private void resize() {
+        final Entry[] oldTable = this.table;
+        final Entry[] newTable = new Entry[oldTable.length * 2];
+        final int mask = newTable.length - 1;
+        for (Entry e: oldTable) {
+            while (e != null) {
+                final Entry next = e.next;
+                final int i = e.hash & mask;
+                e.next = newTable[i];
+                newTable[i] = e;
+                e = next;
+            }
+        }
+        this.table = newTable;
+    }
+
+}
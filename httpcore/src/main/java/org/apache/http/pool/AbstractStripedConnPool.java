@@ -0,0 +1,601 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.http.pool;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.http.annotation.ThreadSafe;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.util.Args;
+
+/**
+ * Abstract synchronous (blocking) pool of connections optimized for
+ * concurrent access from many threads across many routes.
+ * <p/>
+ * Unlike {@link AbstractConnPool}, which guards all its state with a single
+ * lock, this pool maintains a separate lock per route. Operations on different
+ * routes do not contend with each other. The global maximum of connections
+ * is enforced with atomic counters, and connections are created and
+ * lease requests are suspended without holding any route lock. Available
+ * connections can be removed from their route pool in constant time.
+ * The pool maintains the same max-per-route and max-total semantics as
+ * {@link AbstractConnPool}. Pending lease requests are served in the order
+ * they have been queued: those waiting for a connection of their route first,
+ * those waiting for total capacity once no request for the released route
+ * is pending.
+ * <p/>
+ * Please note that this class does not maintain its own pool of execution {@link Thread}s.
+ * Therefore, one <b>must</b> call {@link Future#get()} or {@link Future#get(long, TimeUnit)}
+ * method on the {@link Future} object returned by the
+ * {@link #lease(Object, Object, FutureCallback)} method in order for the lease operation
+ * to complete.
+ *
+ * @param <T> the route type that represents the opposite endpoint of a pooled
+ *   connection.
+ * @param <C> the connection type.
+ * @param <E> the type of the pool entry containing a pooled connection.
+ * @since 4.3
+ */
+@ThreadSafe
+public abstract class AbstractStripedConnPool<T, C, E extends PoolEntry<T, C>>
+                                               implements ConnPool<T, E>, ConnPoolControl<T> {
+
+    private final ConnFactory<T, C> connFactory;
+    private final ConcurrentMap<T, StripedRouteSpecificPool<T, C, E>> routeToPool;
+    private final Queue<PoolEntryFuture<E>> pending;
+    private final ConcurrentMap<T, Integer> maxPerRoute;
+    private final AtomicInteger allocatedCount;
+    private final AtomicInteger leasedCount;
+    private final AtomicInteger availableCount;
+    private final AtomicInteger pendingCount;
+
+    private volatile boolean isShutDown;
+    private volatile int defaultMaxPerRoute;
+    private volatile int maxTotal;
+
+    public AbstractStripedConnPool(
+            final ConnFactory<T, C> connFactory,
+            int defaultMaxPerRoute,
+            int maxTotal) {
+        super();
+        this.connFactory = Args.notNull(connFactory, "Connection factory");
+        this.defaultMaxPerRoute = Args.notNegative(defaultMaxPerRoute, "Max per route value");
+        this.maxTotal = Args.notNegative(maxTotal, "Max total value");
+        this.routeToPool = new ConcurrentHashMap<T, StripedRouteSpecificPool<T, C, E>>();
+        this.pending = new ConcurrentLinkedQueue<PoolEntryFuture<E>>();
+        this.maxPerRoute = new ConcurrentHashMap<T, Integer>();
+        this.allocatedCount = new AtomicInteger(0);
+        this.leasedCount = new AtomicInteger(0);
+        this.availableCount = new AtomicInteger(0);
+        this.pendingCount = new AtomicInteger(0);
+    }
+
+    /**
+     * Creates a new entry for the given connection with the given route.
+     */
+    protected abstract E createEntry(T route, C conn);
+
+    public boolean isShutdown() {
+        return this.isShutDown;
+    }
+
+    /**
+     * Shuts down the pool.
+     */
+    public void shutdown() throws IOException {
+        if (this.isShutDown) {
+            return ;
+        }
+        this.isShutDown = true;
+        List<PoolEntryFuture<E>> futures = new ArrayList<PoolEntryFuture<E>>();
+        for (StripedRouteSpecificPool<T, C, E> pool: this.routeToPool.values()) {
+            ReentrantLock lock = pool.getLock();
+            lock.lock();
+            try {
+                futures.addAll(pool.shutdown());
+            } finally {
+                lock.unlock();
+            }
+        }
+        this.routeToPool.clear();
+        this.leasedCount.set(0);
+        this.availableCount.set(0);
+        this.allocatedCount.set(0);
+        PoolEntryFuture<E> future;
+        while ((future = this.pending.poll()) != null) {
+            futures.add(future);
+        }
+        for (PoolEntryFuture<E> f: futures) {
+            f.cancel(true);
+        }
+    }
+
+    private StripedRouteSpecificPool<T, C, E> getPool(final T route) {
+        StripedRouteSpecificPool<T, C, E> pool = this.routeToPool.get(route);
+        if (pool == null) {
+            StripedRouteSpecificPool<T, C, E> newPool = new StripedRouteSpecificPool<T, C, E>(route) {
+
+                @Override
+                protected E createEntry(final C conn) {
+                    return AbstractStripedConnPool.this.createEntry(route, conn);
+                }
+
+            };
+            pool = this.routeToPool.putIfAbsent(route, newPool);
+            if (pool == null) {
+                pool = newPool;
+            }
+        }
+        return pool;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * Please note that this class does not maintain its own pool of execution
+     * {@link Thread}s. Therefore, one <b>must</b> call {@link Future#get()}
+     * or {@link Future#get(long, TimeUnit)} method on the {@link Future}
+     * returned by this method in order for the lease operation to complete.
+     */
+    public Future<E> lease(final T route, final Object state, final FutureCallback<E> callback) {
+        Args.notNull(route, "Route");
+        if (this.isShutDown) {
+            throw new IllegalStateException("Connection pool shut down");
+        }
+        // Each request has its own lock, which is never acquired
+        // while holding a route lock
+        return new PoolEntryFuture<E>(new ReentrantLock(), callback) {
+
+            @Override
+            public E getPoolEntry(
+                    long timeout,
+                    TimeUnit tunit)
+                        throws InterruptedException, TimeoutException, IOException {
+                return getPoolEntryBlocking(route, state, timeout, tunit, this);
+            }
+
+        };
+    }
+
+    /**
+     * Attempts to lease a connection for the given route and with the given
+     * state from the pool.
+     * <p/>
+     * Please note that this class does not maintain its own pool of execution
+     * {@link Thread}s. Therefore, one <b>must</b> call {@link Future#get()}
+     * or {@link Future#get(long, TimeUnit)} method on the {@link Future}
+     * returned by this method in order for the lease operation to complete.
+     *
+     * @param route route of the connection.
+     * @param state arbitrary object that represents a particular state
+     *  (usually a security principal or a unique token identifying
+     *  the user whose credentials have been used while establishing the connection).
+     *  May be <code>null</code>.
+     * @return future for a leased pool entry.
+     */
+    public Future<E> lease(final T route, final Object state) {
+        return lease(route, state, null);
+    }
+
+    private E getPoolEntryBlocking(
+            final T route, final Object state,
+            final long timeout, final TimeUnit tunit,
+            final PoolEntryFuture<E> future)
+                throws IOException, InterruptedException, TimeoutException {
+
+        Date deadline = null;
+        if (timeout > 0) {
+            deadline = new Date
+                (System.currentTimeMillis() + tunit.toMillis(timeout));
+        }
+
+        for (;;) {
+            if (this.isShutDown) {
+                throw new IllegalStateException("Connection pool shut down");
+            }
+            StripedRouteSpecificPool<T, C, E> pool = getPool(route);
+            boolean create = false;
+            boolean evict = false;
+            boolean capacityBound = false;
+            ReentrantLock lock = pool.getLock();
+            lock.lock();
+            try {
+                for (;;) {
+                    E entry = pool.getFree(state);
+                    if (entry == null) {
+                        break;
+                    }
+                    this.availableCount.decrementAndGet();
+                    if (entry.isClosed() || entry.isExpired(System.currentTimeMillis())) {
+                        entry.close();
+                        pool.remove(entry);
+                        this.allocatedCount.decrementAndGet();
+                    } else {
+                        this.leasedCount.incrementAndGet();
+                        return entry;
+                    }
+                }
+
+                // New connection is needed
+                int maxPerRoute = getMax(route);
+                // Shrink the pool prior to allocating a new connection
+                int excess = Math.max(0, pool.getAllocatedCount() + 1 - maxPerRoute);
+                for (int i = 0; i < excess; i++) {
+                    E lastUsed = pool.getLastUsed();
+                    if (lastUsed == null) {
+                        break;
+                    }
+                    lastUsed.close();
+                    pool.remove(lastUsed);
+                    this.availableCount.decrementAndGet();
+                    this.allocatedCount.decrementAndGet();
+                }
+
+                if (pool.getAllocatedCount() < maxPerRoute) {
+                    if (reserveCapacity()) {
+                        pool.reserve();
+                        create = true;
+                    } else if (this.availableCount.get() > 0) {
+                        evict = true;
+                    } else {
+                        capacityBound = true;
+                    }
+                }
+                if (!create && !evict) {
+                    // Every request waits on its route, so that connections
+                    // released for the route go to its requests first
+                    pool.queue(future);
+                    if (capacityBound) {
+                        this.pending.add(future);
+                        // Re-check in case capacity has been freed concurrently
+                        if (this.allocatedCount.get() < this.maxTotal || this.availableCount.get() > 0) {
+                            this.pending.remove(future);
+                            pool.unqueue(future);
+                            continue;
+                        }
+                    }
+                    this.pendingCount.incrementAndGet();
+                }
+            } finally {
+                lock.unlock();
+            }
+
+            if (create) {
+                return createPoolEntry(pool, route);
+            }
+            if (evict) {
+                evictLastUsed();
+                continue;
+            }
+
+            boolean success = false;
+            try {
+                success = future.await(deadline);
+            } finally {
+                // In case of 'success', we were woken up by the
+                // connection pool and should now have a connection
+                // waiting for us, or else we're shutting down.
+                // Just continue in the loop, both cases are checked.
+                this.pendingCount.decrementAndGet();
+                if (capacityBound) {
+                    this.pending.remove(future);
+                }
+                lock.lock();
+                try {
+                    pool.unqueue(future);
+                } finally {
+                    lock.unlock();
+                }
+            }
+            // check for spurious wakeup vs. timeout
+            if (!success && (deadline != null) &&
+                (deadline.getTime() <= System.currentTimeMillis())) {
+                break;
+            }
+        }
+        throw new TimeoutException("Timeout waiting for connection");
+    }
+
+    private E createPoolEntry(
+            final StripedRouteSpecificPool<T, C, E> pool,
+            final T route) throws IOException {
+        C conn = null;
+        boolean success = false;
+        try {
+            conn = this.connFactory.create(route);
+            success = true;
+        } finally {
+            if (!success) {
+                PoolEntryFuture<E> future;
+                ReentrantLock lock = pool.getLock();
+                lock.lock();
+                try {
+                    pool.cancelReservation();
+                    this.allocatedCount.decrementAndGet();
+                    future = pool.nextPending();
+                } finally {
+                    lock.unlock();
+                }
+                wakeup(future);
+            }
+        }
+        ReentrantLock lock = pool.getLock();
+        lock.lock();
+        try {
+            E entry = pool.add(conn);
+            this.leasedCount.incrementAndGet();
+            return entry;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean reserveCapacity() {
+        for (;;) {
+            int allocated = this.allocatedCount.get();
+            if (allocated >= this.maxTotal) {
+                return false;
+            }
+            if (this.allocatedCount.compareAndSet(allocated, allocated + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Closes the least recently used available connection across all routes
+     * in order to make room for a new connection. Route locks are acquired one
+     * at a time.
+     */
+    private void evictLastUsed() {
+        StripedRouteSpecificPool<T, C, E> candidate = null;
+        long oldest = Long.MAX_VALUE;
+        for (StripedRouteSpecificPool<T, C, E> pool: this.routeToPool.values()) {
+            ReentrantLock lock = pool.getLock();
+            lock.lock();
+            try {
+                E lastUsed = pool.getLastUsed();
+                if (lastUsed != null && lastUsed.getUpdated() < oldest) {
+                    oldest = lastUsed.getUpdated();
+                    candidate = pool;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        if (candidate == null) {
+            return;
+        }
+        ReentrantLock lock = candidate.getLock();
+        lock.lock();
+        try {
+            E lastUsed = candidate.getLastUsed();
+            if (lastUsed != null) {
+                lastUsed.close();
+                candidate.remove(lastUsed);
+                this.availableCount.decrementAndGet();
+                this.allocatedCount.decrementAndGet();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Wakes up the given request of a route, or the request that has waited
+     * longest for total capacity if no request of the route is pending.
+     */
+    private void wakeup(final PoolEntryFuture<E> future) {
+        PoolEntryFuture<E> next = future;
+        if (next != null) {
+            this.pending.remove(next);
+        } else {
+            next = this.pending.poll();
+        }
+        if (next != null) {
+            next.wakeup();
+        }
+    }
+
+    public void release(final E entry, boolean reusable) {
+        StripedRouteSpecificPool<T, C, E> pool = this.routeToPool.get(entry.getRoute());
+        if (pool == null) {
+            return;
+        }
+        PoolEntryFuture<E> future;
+        ReentrantLock lock = pool.getLock();
+        lock.lock();
+        try {
+            boolean keepAlive = reusable && !this.isShutDown;
+            if (!pool.free(entry, keepAlive)) {
+                return;
+            }
+            this.leasedCount.decrementAndGet();
+            if (keepAlive) {
+                this.availableCount.incrementAndGet();
+            } else {
+                entry.close();
+                this.allocatedCount.decrementAndGet();
+            }
+            future = pool.nextPending();
+        } finally {
+            lock.unlock();
+        }
+        wakeup(future);
+    }
+
+    private int getMax(final T route) {
+        Integer v = this.maxPerRoute.get(route);
+        if (v != null) {
+            return v.intValue();
+        } else {
+            return this.defaultMaxPerRoute;
+        }
+    }
+
+    public void setMaxTotal(int max) {
+        Args.notNegative(max, "Max value");
+        this.maxTotal = max;
+    }
+
+    public int getMaxTotal() {
+        return this.maxTotal;
+    }
+
+    public void setDefaultMaxPerRoute(int max) {
+        Args.notNegative(max, "Max per route value");
+        this.defaultMaxPerRoute = max;
+    }
+
+    public int getDefaultMaxPerRoute() {
+        return this.defaultMaxPerRoute;
+    }
+
+    public void setMaxPerRoute(final T route, int max) {
+        Args.notNull(route, "Route");
+        Args.notNegative(max, "Max per route value");
+        this.maxPerRoute.put(route, max);
+    }
+
+    public int getMaxPerRoute(T route) {
+        Args.notNull(route, "Route");
+        return getMax(route);
+    }
+
+    public PoolStats getTotalStats() {
+        return new PoolStats(
+                this.leasedCount.get(),
+                this.pendingCount.get(),
+                this.availableCount.get(),
+                this.maxTotal);
+    }
+
+    public PoolStats getStats(final T route) {
+        Args.notNull(route, "Route");
+        StripedRouteSpecificPool<T, C, E> pool = getPool(route);
+        ReentrantLock lock = pool.getLock();
+        lock.lock();
+        try {
+            return new PoolStats(
+                    pool.getLeasedCount(),
+                    pool.getPendingCount(),
+                    pool.getAvailableCount(),
+                    getMax(route));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Closes connections that have been idle longer than the given period
+     * of time and evicts them from the pool.
+     *
+     * @param idletime maximum idle time.
+     * @param tunit time unit.
+     */
+    public void closeIdle(long idletime, final TimeUnit tunit) {
+        Args.notNull(tunit, "Time unit");
+        long time = tunit.toMillis(idletime);
+        if (time < 0) {
+            time = 0;
+        }
+        long deadline = System.currentTimeMillis() - time;
+        for (StripedRouteSpecificPool<T, C, E> pool: this.routeToPool.values()) {
+            List<PoolEntryFuture<E>> futures = null;
+            ReentrantLock lock = pool.getLock();
+            lock.lock();
+            try {
+                int closed = pool.closeIdle(deadline);
+                futures = evicted(pool, closed);
+            } finally {
+                lock.unlock();
+            }
+            for (PoolEntryFuture<E> future: futures) {
+                wakeup(future);
+            }
+        }
+    }
+
+    /**
+     * Closes expired connections and evicts them from the pool.
+     */
+    public void closeExpired() {
+        long now = System.currentTimeMillis();
+        for (StripedRouteSpecificPool<T, C, E> pool: this.routeToPool.values()) {
+            List<PoolEntryFuture<E>> futures = null;
+            ReentrantLock lock = pool.getLock();
+            lock.lock();
+            try {
+                int closed = pool.closeExpired(now);
+                futures = evicted(pool, closed);
+            } finally {
+                lock.unlock();
+            }
+            for (PoolEntryFuture<E> future: futures) {
+                wakeup(future);
+            }
+        }
+    }
+
+    private List<PoolEntryFuture<E>> evicted(final StripedRouteSpecificPool<T, C, E> pool, int count) {
+        List<PoolEntryFuture<E>> futures = new ArrayList<PoolEntryFuture<E>>(count);
+        if (count > 0) {
+            this.availableCount.addAndGet(-count);
+            this.allocatedCount.addAndGet(-count);
+            for (int i = 0; i < count; i++) {
+                futures.add(pool.nextPending());
+            }
+        }
+        return futures;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder buffer = new StringBuilder();
+        buffer.append("[leased: ");
+        buffer.append(this.leasedCount.get());
+        buffer.append("][available: ");
+        buffer.append(this.availableCount.get());
+        buffer.append("][pending: ");
+        buffer.append(this.pendingCount.get());
+        buffer.append("]");
+        return buffer.toString();
+    }
+
+}
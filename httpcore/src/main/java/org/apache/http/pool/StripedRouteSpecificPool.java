@@ -0,0 +1,298 @@
+/*
+ * ====================================================================
+ *
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+
+package org.apache.http.pool;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.http.annotation.NotThreadSafe;
+import org.apache.http.util.Args;
+
+/**
+ * Route specific pool used by {@link AbstractStripedConnPool}. Instances
+ * of this class are not thread-safe. All methods must be called while
+ * holding the lock returned by {@link #getLock()}.
+ * <p/>
+ * Available entries are kept in a doubly linked list ordered from the most
+ * recently to the least recently used entry and indexed by entry, so that
+ * any available entry can be removed in constant time.
+ *
+ * @since 4.3
+ */
+@NotThreadSafe
+abstract class StripedRouteSpecificPool<T, C, E extends PoolEntry<T, C>> {
+
+    private final T route;
+    private final ReentrantLock lock;
+    private final Set<E> leased;
+    private final Map<E, Node<E>> available;
+    private final Node<E> head;
+    private final LinkedList<PoolEntryFuture<E>> pending;
+
+    private int reserved;
+
+    StripedRouteSpecificPool(final T route) {
+        super();
+        this.route = route;
+        this.lock = new ReentrantLock();
+        this.leased = new HashSet<E>();
+        this.available = new HashMap<E, Node<E>>();
+        this.head = new Node<E>(null);
+        this.head.next = this.head;
+        this.head.prev = this.head;
+        this.pending = new LinkedList<PoolEntryFuture<E>>();
+    }
+
+    protected abstract E createEntry(C conn);
+
+    public final T getRoute() {
+        return this.route;
+    }
+
+    public ReentrantLock getLock() {
+        return this.lock;
+    }
+
+    public int getLeasedCount() {
+        return this.leased.size();
+    }
+
+    public int getPendingCount() {
+        return this.pending.size();
+    }
+
+    public int getAvailableCount() {
+        return this.available.size();
+    }
+
+    public int getAllocatedCount() {
+        return this.available.size() + this.leased.size() + this.reserved;
+    }
+
+    public E getFree(final Object state) {
+        if (!this.available.isEmpty()) {
+            if (state != null) {
+                for (Node<E> node = this.head.next; node != this.head; node = node.next) {
+                    if (state.equals(node.entry.getState())) {
+                        return lease(node);
+                    }
+                }
+            }
+            for (Node<E> node = this.head.next; node != this.head; node = node.next) {
+                if (node.entry.getState() == null) {
+                    return lease(node);
+                }
+            }
+        }
+        return null;
+    }
+
+    private E lease(final Node<E> node) {
+        unlink(node);
+        this.available.remove(node.entry);
+        this.leased.add(node.entry);
+        return node.entry;
+    }
+
+    public E getLastUsed() {
+        Node<E> node = this.head.prev;
+        return node != this.head ? node.entry : null;
+    }
+
+    public boolean remove(final E entry) {
+        Args.notNull(entry, "Pool entry");
+        Node<E> node = this.available.remove(entry);
+        if (node != null) {
+            unlink(node);
+            return true;
+        }
+        return this.leased.remove(entry);
+    }
+
+    /**
+     * Returns a leased entry back to this pool.
+     *
+     * @return <code>false</code> if the entry has not been leased from this pool.
+     */
+    public boolean free(final E entry, boolean reusable) {
+        Args.notNull(entry, "Pool entry");
+        if (!this.leased.remove(entry)) {
+            return false;
+        }
+        if (reusable) {
+            Node<E> node = new Node<E>(entry);
+            node.prev = this.head;
+            node.next = this.head.next;
+            this.head.next.prev = node;
+            this.head.next = node;
+            this.available.put(entry, node);
+        }
+        return true;
+    }
+
+    /**
+     * Reserves a slot for a connection that is about to be created outside
+     * of the pool lock.
+     */
+    public void reserve() {
+        this.reserved++;
+    }
+
+    public void cancelReservation() {
+        this.reserved--;
+    }
+
+    public E add(final C conn) {
+        E entry = createEntry(conn);
+        this.reserved--;
+        this.leased.add(entry);
+        return entry;
+    }
+
+    /**
+     * Closes and removes available entries that have not been used since
+     * the given deadline.
+     *
+     * @return number of removed entries.
+     */
+    public int closeIdle(long deadline) {
+        int count = 0;
+        Node<E> node = this.head.next;
+        while (node != this.head) {
+            Node<E> next = node.next;
+            if (node.entry.getUpdated() <= deadline) {
+                node.entry.close();
+                unlink(node);
+                this.available.remove(node.entry);
+                count++;
+            }
+            node = next;
+        }
+        return count;
+    }
+
+    /**
+     * Closes and removes available entries that have expired.
+     *
+     * @return number of removed entries.
+     */
+    public int closeExpired(long now) {
+        int count = 0;
+        Node<E> node = this.head.next;
+        while (node != this.head) {
+            Node<E> next = node.next;
+            if (node.entry.isExpired(now)) {
+                node.entry.close();
+                unlink(node);
+                this.available.remove(node.entry);
+                count++;
+            }
+            node = next;
+        }
+        return count;
+    }
+
+    public void queue(final PoolEntryFuture<E> future) {
+        if (future == null) {
+            return;
+        }
+        this.pending.add(future);
+    }
+
+    public PoolEntryFuture<E> nextPending() {
+        return this.pending.poll();
+    }
+
+    public boolean unqueue(final PoolEntryFuture<E> future) {
+        if (future == null) {
+            return false;
+        }
+        return this.pending.remove(future);
+    }
+
+    /**
+     * Closes all entries and returns pending requests. Pending requests
+     * must be cancelled by the caller once the pool lock has been released.
+     */
+    public List<PoolEntryFuture<E>> shutdown() {
+        List<PoolEntryFuture<E>> futures = new ArrayList<PoolEntryFuture<E>>(this.pending);
+        this.pending.clear();
+        for (E entry: this.available.keySet()) {
+            entry.close();
+        }
+        this.available.clear();
+        this.head.next = this.head;
+        this.head.prev = this.head;
+        for (E entry: this.leased) {
+            entry.close();
+        }
+        this.leased.clear();
+        return futures;
+    }
+
+    private void unlink(final Node<E> node) {
+        node.prev.next = node.next;
+        node.next.prev = node.prev;
+        node.prev = null;
+        node.next = null;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder buffer = new StringBuilder();
+        buffer.append("[route: ");
+        buffer.append(this.route);
+        buffer.append("][leased: ");
+        buffer.append(this.leased.size());
+        buffer.append("][available: ");
+        buffer.append(this.available.size());
+        buffer.append("][pending: ");
+        buffer.append(this.pending.size());
+        buffer.append("]");
+        return buffer.toString();
+    }
+
+    static class Node<E> {
+
+        final E entry;
+        Node<E> prev;
+        Node<E> next;
+
+        Node(final E entry) {
+            super();
+            this.entry = entry;
+        }
+
+    }
+
+}
@@ -0,0 +1,189 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+
+package org.apache.http.protocol;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.http.annotation.Immutable;
+
+/**
+ * Immutable compiled form of a set of URI patterns as used by
+ * {@link UriPatternMatcher}. Exact patterns are kept in a hash map,
+ * <code>&lt;uri&gt;*</code> patterns in a trie walked from the start of
+ * the request path and <code>*&lt;uri&gt;</code> patterns in a trie walked
+ * from its end, so a lookup costs O(path length) regardless of the number
+ * of registered patterns.
+ * <p/>
+ * Best match rules are the same as those of
+ * {@link UriPatternMatcher#lookup(String)}: an exact match wins, otherwise
+ * the longest matching pattern, and a prefix pattern over a suffix pattern
+ * of the same length.
+ *
+ * @since 4.3
+ */
+@Immutable
+final class CompiledUriPatterns<T> {
+
+    private final Map<String, T> exact;
+    private final Node<T> prefixes;
+    private final Node<T> suffixes;
+
+    CompiledUriPatterns(final Map<String, T> map) {
+        super();
+        this.exact = new HashMap<String, T>(map);
+        final Builder<T> prefixBuilder = new Builder<T>();
+        final Builder<T> suffixBuilder = new Builder<T>();
+        for (final Map.Entry<String, T> entry: map.entrySet()) {
+            final String pattern = entry.getKey();
+            final T obj = entry.getValue();
+            if (pattern.endsWith("*")) {
+                prefixBuilder.add(pattern, 0, pattern.length() - 1, false, obj);
+            }
+            if (pattern.startsWith("*")) {
+                suffixBuilder.add(pattern, 1, pattern.length(), true, obj);
+            }
+        }
+        this.prefixes = prefixBuilder.isEmpty() ? null : prefixBuilder.build();
+        this.suffixes = suffixBuilder.isEmpty() ? null : suffixBuilder.build();
+    }
+
+    T lookup(final String path) {
+        final T obj = this.exact.get(path);
+        if (obj != null) {
+            return obj;
+        }
+        final int len = path.length();
+
+        // longest pattern of the form <uri>*
+        T prefixMatch = null;
+        int prefixLen = -1;
+        Node<T> node = this.prefixes;
+        for (int i = 0; node != null; i++) {
+            if (node.value != null) {
+                prefixMatch = node.value;
+                prefixLen = i;
+            }
+            node = i < len ? node.child(path.charAt(i)) : null;
+        }
+
+        // longest pattern of the form *<uri>
+        T suffixMatch = null;
+        int suffixLen = -1;
+        node = this.suffixes;
+        for (int i = 0; node != null; i++) {
+            if (node.value != null) {
+                suffixMatch = node.value;
+                suffixLen = i;
+            }
+            node = i < len ? node.child(path.charAt(len - 1 - i)) : null;
+        }
+
+        return prefixLen >= suffixLen ? prefixMatch : suffixMatch;
+    }
+
+    static final class Node<T> {
+
+        final char[] keys;
+        final Node<T>[] children;
+        final T value;
+
+        Node(final char[] keys, final Node<T>[] children, final T value) {
+            super();
+            this.keys = keys;
+            this.children = children;
+            this.value = value;
+        }
+
+        Node<T> child(final char ch) {
+            int low = 0;
+            int high = this.keys.length - 1;
+            while (low <= high) {
+                final int mid = (low + high) >>> 1;
+                final char key = this.keys[mid];
+                if (key < ch) {
+                    low = mid + 1;
+                } else if (key > ch) {
+                    high = mid - 1;
+                } else {
+                    return this.children[mid];
+                }
+            }
+            return null;
+        }
+
+    }
+
+    static final class Builder<T> {
+
+        private final Map<Character, Builder<T>> children;
+        private T value;
+
+        Builder() {
+            super();
+            this.children = new HashMap<Character, Builder<T>>();
+        }
+
+        void add(final String s, final int from, final int to, final boolean reverse, final T obj) {
+            Builder<T> current = this;
+            for (int i = from; i < to; i++) {
+                final Character ch = Character.valueOf(s.charAt(reverse ? to - 1 - (i - from) : i));
+                Builder<T> next = current.children.get(ch);
+                if (next == null) {
+                    next = new Builder<T>();
+                    current.children.put(ch, next);
+                }
+                current = next;
+            }
+            current.value = obj;
+        }
+
+        boolean isEmpty() {
+            return this.value == null && this.children.isEmpty();
+        }
+
+        @SuppressWarnings("unchecked")
+        Node<T> build() {
+            final List<Character> keys = new ArrayList<Character>(this.children.keySet());
+            Collections.sort(keys);
+            final char[] chars = new char[keys.size()];
+            final Node<T>[] nodes = new Node[keys.size()];
+            for (int i = 0; i < chars.length; i++) {
+                final Character ch = keys.get(i);
+                chars[i] = ch.charValue();
+                nodes[i] = this.children.get(ch).build();
+            }
+            return new Node<T>(chars, nodes, this.value);
+        }
+
+    }
+
+}
@@ -27,17 +27,23 @@
 
 package org.apache.http.protocol;
 
-import java.text.DateFormat;
-import java.text.SimpleDateFormat;
-import java.util.Date;
-import java.util.Locale;
 import java.util.TimeZone;
 
-import org.apache.http.annotation.GuardedBy;
+import org.apache.http.Header;
+import org.apache.http.annotation.Immutable;
 import org.apache.http.annotation.ThreadSafe;
+import org.apache.http.message.BufferedAsciiHeader;
+import org.apache.http.util.CharArrayBuffer;
 
 /**
  * Generates a date in the format required by the HTTP protocol.
+ * <p/>
+ * As of version 4.3 this class no longer synchronizes. The current date
+ * is formatted at most once per second without the use of
+ * {@link java.text.DateFormat} and published through a volatile reference
+ * to an immutable snapshot. Concurrent callers that cross a second
+ * boundary at the same time may each format the date once; the outcome
+ * is identical, so the race is benign.
  *
  * @since 4.0
  */
@@ -51,27 +57,143 @@ public class HttpDateGenerator {
     /** The time zone to use in the date header. */
     public static final TimeZone GMT = TimeZone.getTimeZone("GMT");
 
-    @GuardedBy("this")
-    private final DateFormat dateformat;
-    @GuardedBy("this")
-    private long dateAsLong = 0L;
-    @GuardedBy("this")
-    private String dateAsText = null;
+    /**
+     * Shared generator instance.
+     *
+     * @since 4.3
+     */
+    public static final HttpDateGenerator INSTANCE = new HttpDateGenerator();
+
+    /** Length of an RFC 1123 date such as <code>Sun, 06 Nov 1994 08:49:37 GMT</code>. */
+    static final int DATE_LEN = 29;
+
+    private static final char[][] DAYS = {
+        "Sun".toCharArray(), "Mon".toCharArray(), "Tue".toCharArray(),
+        "Wed".toCharArray(), "Thu".toCharArray(), "Fri".toCharArray(),
+        "Sat".toCharArray() };
+
+    private static final char[][] MONTHS = {
+        "Jan".toCharArray(), "Feb".toCharArray(), "Mar".toCharArray(),
+        "Apr".toCharArray(), "May".toCharArray(), "Jun".toCharArray(),
+        "Jul".toCharArray(), "Aug".toCharArray(), "Sep".toCharArray(),
+        "Oct".toCharArray(), "Nov".toCharArray(), "Dec".toCharArray() };
+
+    private volatile CachedDate cachedDate;
 
     public HttpDateGenerator() {
         super();
-        this.dateformat = new SimpleDateFormat(PATTERN_RFC1123, Locale.US);
-        this.dateformat.setTimeZone(GMT);
     }
 
-    public synchronized String getCurrentDate() {
-        long now = System.currentTimeMillis();
-        if (now - this.dateAsLong > 1000) {
-            // Generate new date string
-            this.dateAsText = this.dateformat.format(new Date(now));
-            this.dateAsLong = now;
+    public String getCurrentDate() {
+        return getCachedDate(System.currentTimeMillis()).text;
+    }
+
+    /**
+     * Returns a <code>Date</code> header carrying the current date. The
+     * header is shared by all callers within the same second and is backed
+     * by a pre-encoded header line that message writers can copy verbatim.
+     *
+     * @since 4.3
+     */
+    public Header getCurrentDateHeader() {
+        return getCachedDate(System.currentTimeMillis()).header;
+    }
+
+    CachedDate getCachedDate(final long now) {
+        final long second = now / 1000;
+        CachedDate cached = this.cachedDate;
+        if (cached == null || cached.second != second) {
+            cached = new CachedDate(second);
+            this.cachedDate = cached;
+        }
+        return cached;
+    }
+
+    /**
+     * Formats the given time (milliseconds since the epoch) as an RFC 1123
+     * date in GMT into <code>dst</code> starting at <code>off</code>.
+     * Exactly {@link #DATE_LEN} characters are written. Years are expected
+     * to fall within the range 0 to 9999.
+     */
+    static void formatDate(final long millis, final char[] dst, final int off) {
+        long days = millis / 86400000L;
+        long secs = (millis % 86400000L) / 1000L;
+        if (secs < 0) {
+            secs += 86400L;
+            days--;
         }
-        return this.dateAsText;
+        final int dow = (int) (((days + 4) % 7 + 7) % 7);
+
+        // Civil date from days since 1970-01-01 (proleptic Gregorian calendar)
+        final long z = days + 719468;
+        final long era = (z >= 0 ? z : z - 146096) / 146097;
+        final long doe = z - era * 146097;
+        final long yoe = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365;
+        final long doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+        final long mp = (5 * doy + 2) / 153;
+        final int day = (int) (doy - (153 * mp + 2) / 5 + 1);
+        final int month = (int) (mp < 10 ? mp + 3 : mp - 9);
+        final int year = (int) (yoe + era * 400 + (month <= 2 ? 1 : 0));
+
+        final int hour = (int) (secs / 3600);
+        final int minute = (int) ((secs / 60) % 60);
+        final int second = (int) (secs % 60);
+
+        int i = off;
+        final char[] d = DAYS[dow];
+        dst[i++] = d[0];
+        dst[i++] = d[1];
+        dst[i++] = d[2];
+        dst[i++] = ',';
+        dst[i++] = ' ';
+        i = append2(dst, i, day);
+        dst[i++] = ' ';
+        final char[] m = MONTHS[month - 1];
+        dst[i++] = m[0];
+        dst[i++] = m[1];
+        dst[i++] = m[2];
+        dst[i++] = ' ';
+        i = append2(dst, i, year / 100);
+        i = append2(dst, i, year % 100);
+        dst[i++] = ' ';
+        i = append2(dst, i, hour);
+        dst[i++] = ':';
+        i = append2(dst, i, minute);
+        dst[i++] = ':';
+        i = append2(dst, i, second);
+        dst[i++] = ' ';
+        dst[i++] = 'G';
+        dst[i++] = 'M';
+        dst[i] = 'T';
+    }
+
+    private static int append2(final char[] dst, final int off, final int value) {
+        dst[off] = (char) ('0' + value / 10);
+        dst[off + 1] = (char) ('0' + value % 10);
+        return off + 2;
+    }
+
+    @Immutable
+    static final class CachedDate {
+
+        final long second;
+        final String text;
+        final BufferedAsciiHeader header;
+
+        CachedDate(final long second) {
+            super();
+            this.second = second;
+            final String name = HTTP.DATE_HEADER;
+            final int nameLen = name.length();
+            final CharArrayBuffer buffer = new CharArrayBuffer(nameLen + 2 + DATE_LEN);
+            buffer.append(name);
+            buffer.append(": ");
+            buffer.setLength(nameLen + 2 + DATE_LEN);
+            formatDate(second * 1000, buffer.buffer(), nameLen + 2);
+            this.text = buffer.substring(nameLen + 2, buffer.length());
+            this.header = new BufferedAsciiHeader(buffer);
+        }
+
     }
 
 }
@@ -46,8 +46,6 @@ import org.apache.http.util.Args;
 @ThreadSafe
 public class RequestDate implements HttpRequestInterceptor {
 
-    private static final HttpDateGenerator DATE_GENERATOR = new HttpDateGenerator();
-
     public RequestDate() {
         super();
     }
@@ -57,8 +55,7 @@ public class RequestDate implements HttpRequestInterceptor {
         Args.notNull(request, "HTTP request");
         if ((request instanceof HttpEntityEnclosingRequest) &&
             !request.containsHeader(HTTP.DATE_HEADER)) {
-            String httpdate = DATE_GENERATOR.getCurrentDate();
-            request.setHeader(HTTP.DATE_HEADER, httpdate);
+            request.setHeader(HttpDateGenerator.INSTANCE.getCurrentDateHeader());
         }
     }
 
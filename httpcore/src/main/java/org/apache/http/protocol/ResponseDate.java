@@ -46,8 +46,6 @@ import org.apache.http.util.Args;
 @ThreadSafe
 public class ResponseDate implements HttpResponseInterceptor {
 
-    private static final HttpDateGenerator DATE_GENERATOR = new HttpDateGenerator();
-
     public ResponseDate() {
         super();
     }
@@ -58,8 +56,7 @@ public class ResponseDate implements HttpResponseInterceptor {
         int status = response.getStatusLine().getStatusCode();
         if ((status >= HttpStatus.SC_OK) &&
             !response.containsHeader(HTTP.DATE_HEADER)) {
-            String httpdate = DATE_GENERATOR.getCurrentDate();
-            response.setHeader(HTTP.DATE_HEADER, httpdate);
+            response.setHeader(HttpDateGenerator.INSTANCE.getCurrentDateHeader());
         }
     }
 
@@ -46,6 +46,14 @@ import org.apache.http.util.Args;
  * <br>
  * This class can be used to resolve an object matching a particular request
  * URI.
+ * <p/>
+ * As of version 4.3 registered patterns are compiled into an immutable
+ * structure that is republished on every change, so {@link #lookup(String)}
+ * does not lock and its cost does not depend on the number of registered
+ * patterns. Subclasses that override
+ * {@link #matchUriRequestPattern(String, String)}, as well as instances
+ * whose map has been exposed through the deprecated {@link #getObjects()},
+ * fall back to matching patterns one by one.
  *
  * @since 4.0
  */
@@ -54,10 +62,34 @@ public class UriPatternMatcher<T> {
 
     @GuardedBy("this")
     private final Map<String, T> map;
+    @GuardedBy("this")
+    private boolean compile;
+
+    private volatile CompiledUriPatterns<T> compiled;
 
     public UriPatternMatcher() {
         super();
         this.map = new HashMap<String, T>();
+        this.compile = !overridesMatching(getClass());
+        recompile();
+    }
+
+    private static boolean overridesMatching(final Class<?> clazz) {
+        for (Class<?> c = clazz; c != UriPatternMatcher.class; c = c.getSuperclass()) {
+            try {
+                c.getDeclaredMethod("matchUriRequestPattern", String.class, String.class);
+                return true;
+            } catch (NoSuchMethodException ex) {
+                // keep looking
+            } catch (SecurityException ex) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private synchronized void recompile() {
+        this.compiled = this.compile ? new CompiledUriPatterns<T>(this.map) : null;
     }
 
     /**
@@ -69,6 +101,7 @@ public class UriPatternMatcher<T> {
     public synchronized void register(final String pattern, final T obj) {
         Args.notNull(pattern, "URI request pattern");
         this.map.put(pattern, obj);
+        recompile();
     }
 
     /**
@@ -81,6 +114,7 @@ public class UriPatternMatcher<T> {
             return;
         }
         this.map.remove(pattern);
+        recompile();
     }
 
     /**
@@ -91,6 +125,7 @@ public class UriPatternMatcher<T> {
         Args.notNull(map, "Map of handlers");
         this.map.clear();
         this.map.putAll(map);
+        recompile();
     }
 
     /**
@@ -101,6 +136,7 @@ public class UriPatternMatcher<T> {
         Args.notNull(map, "Map of handlers");
         this.map.clear();
         this.map.putAll(map);
+        recompile();
     }
 
     /**
@@ -108,6 +144,9 @@ public class UriPatternMatcher<T> {
      */
     @Deprecated
     public synchronized Map<String, T> getObjects() {
+        // the map may be modified by the caller from now on
+        this.compile = false;
+        this.compiled = null;
         return this.map;
     }
 
@@ -117,8 +156,19 @@ public class UriPatternMatcher<T> {
      * @param path the request path
      * @return object or <code>null</code> if no match is found.
      */
-    public synchronized T lookup(final String path) {
+    public T lookup(final String path) {
         Args.notNull(path, "Request path");
+        final CompiledUriPatterns<T> patterns = this.compiled;
+        if (patterns != null) {
+            return patterns.lookup(path);
+        }
+        synchronized (this) {
+            return lookupPattern(path);
+        }
+    }
+
+    @GuardedBy("this")
+    private T lookupPattern(final String path) {
         // direct match?
         T obj = this.map.get(path);
         if (obj == null) {
@@ -0,0 +1,318 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+
+package org.apache.http.impl;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpVersion;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.FileEntity;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.protocol.HTTP;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for file content transfer by {@link BHttpConnectionBase}.
+ */
+public class TestBHttpFileTransfer {
+
+    private ServerSocketChannel serverChannel;
+    private Socket client;
+    private Socket server;
+    private File file;
+    private byte[] content;
+
+    @Before
+    public void setUp() throws Exception {
+        this.serverChannel = ServerSocketChannel.open();
+        this.serverChannel.socket().bind(new InetSocketAddress("localhost", 0));
+        this.client = new Socket("localhost", this.serverChannel.socket().getLocalPort());
+        SocketChannel channel = this.serverChannel.accept();
+        this.server = channel.socket();
+
+        this.content = new byte[100000];
+        for (int i = 0; i < this.content.length; i++) {
+            this.content[i] = (byte) ('a' + i % 26);
+        }
+        this.file = File.createTempFile("testfile", ".txt");
+        this.file.deleteOnExit();
+        OutputStream outstream = new FileOutputStream(this.file);
+        try {
+            outstream.write(this.content);
+        } finally {
+            outstream.close();
+        }
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        this.client.close();
+        this.server.close();
+        this.serverChannel.close();
+        this.file.delete();
+    }
+
+    private static byte[] readAll(final InputStream instream) throws Exception {
+        ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        byte[] tmp = new byte[4096];
+        int l;
+        while ((l = instream.read(tmp)) != -1) {
+            buf.write(tmp, 0, l);
+        }
+        return buf.toByteArray();
+    }
+
+    private byte[] receiveContent(final int headLen) throws Exception {
+        byte[] received = readAll(this.client.getInputStream());
+        Assert.assertTrue(received.length > headLen);
+        byte[] body = new byte[received.length - headLen];
+        System.arraycopy(received, headLen, body, 0, body.length);
+        return body;
+    }
+
+    static class CountingFileEntity extends FileEntity {
+
+        private int writeCount;
+
+        public CountingFileEntity(final File file) {
+            super(file, ContentType.TEXT_PLAIN);
+        }
+
+        @Override
+        public void writeTo(final OutputStream outstream) throws IOException {
+            this.writeCount++;
+            super.writeTo(outstream);
+        }
+
+    }
+
+    private int sendResponse(
+            final DefaultBHttpServerConnection conn,
+            final HttpResponse response) throws Exception {
+        conn.sendResponseHeader(response);
+        conn.flush();
+        long before = conn.getMetrics().getSentBytesCount();
+        conn.sendResponseEntity(response);
+        conn.flush();
+        conn.close();
+        return (int) before;
+    }
+
+    @Test
+    public void testFileTransferContentLength() throws Exception {
+        DefaultBHttpServerConnection conn = new DefaultBHttpServerConnection(1024);
+        conn.bind(this.server);
+
+        HttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, "OK");
+        response.addHeader(HTTP.CONTENT_LEN, Integer.toString(this.content.length));
+        response.setEntity(new FileEntity(this.file, ContentType.TEXT_PLAIN));
+        conn.sendResponseHeader(response);
+        conn.sendResponseEntity(response);
+        long sent = conn.getMetrics().getSentBytesCount();
+        conn.close();
+
+        byte[] received = readAll(this.client.getInputStream());
+        Assert.assertEquals(sent, received.length);
+        byte[] body = new byte[this.content.length];
+        System.arraycopy(received, received.length - body.length, body, 0, body.length);
+        Assert.assertArrayEquals(this.content, body);
+    }
+
+    @Test
+    public void testFileTransferIdentity() throws Exception {
+        DefaultBHttpServerConnection conn = new DefaultBHttpServerConnection(1024);
+        conn.bind(this.server);
+
+        HttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_0, 200, "OK");
+        response.setEntity(new FileEntity(this.file, ContentType.TEXT_PLAIN));
+        int headLen = sendResponse(conn, response);
+
+        Assert.assertArrayEquals(this.content, receiveContent(headLen));
+    }
+
+    @Test
+    public void testFileTransferContentLengthShorterThanFile() throws Exception {
+        DefaultBHttpServerConnection conn = new DefaultBHttpServerConnection(1024);
+        conn.bind(this.server);
+
+        HttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, "OK");
+        response.addHeader(HTTP.CONTENT_LEN, "1000");
+        response.setEntity(new FileEntity(this.file, ContentType.TEXT_PLAIN));
+        int headLen = sendResponse(conn, response);
+
+        byte[] expected = new byte[1000];
+        System.arraycopy(this.content, 0, expected, 0, expected.length);
+        Assert.assertArrayEquals(expected, receiveContent(headLen));
+    }
+
+    @Test
+    public void testFileShorterThanContentLength() throws Exception {
+        DefaultBHttpServerConnection conn = new DefaultBHttpServerConnection(1024);
+        conn.bind(this.server);
+
+        HttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, "OK");
+        response.addHeader(HTTP.CONTENT_LEN, Integer.toString(this.content.length + 10));
+        response.setEntity(new FileEntity(this.file, ContentType.TEXT_PLAIN));
+        conn.sendResponseHeader(response);
+        try {
+            conn.sendResponseEntity(response);
+            Assert.fail("IOException should have been thrown");
+        } catch (IOException expected) {
+        } finally {
+            conn.close();
+        }
+    }
+
+    @Test
+    public void testOverriddenSocketOutputStreamFallsBackToStream() throws Exception {
+        final ByteArrayOutputStream wirelog = new ByteArrayOutputStream();
+        DefaultBHttpServerConnection conn = new DefaultBHttpServerConnection(1024) {
+
+            @Override
+            protected OutputStream getSocketOutputStream(final Socket socket) throws IOException {
+                final OutputStream outstream = super.getSocketOutputStream(socket);
+                return new OutputStream() {
+
+                    @Override
+                    public void write(final int b) throws IOException {
+                        wirelog.write(b);
+                        outstream.write(b);
+                    }
+
+                    @Override
+                    public void write(final byte[] b, final int off, final int len) throws IOException {
+                        wirelog.write(b, off, len);
+                        outstream.write(b, off, len);
+                    }
+
+                    @Override
+                    public void flush() throws IOException {
+                        outstream.flush();
+                    }
+
+                    @Override
+                    public void close() throws IOException {
+                        outstream.close();
+                    }
+
+                };
+            }
+
+        };
+        conn.bind(this.server);
+
+        HttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, "OK");
+        response.addHeader(HTTP.CONTENT_LEN, Integer.toString(this.content.length));
+        FileEntity entity = new FileEntity(this.file, ContentType.TEXT_PLAIN);
+        response.setEntity(entity);
+        Assert.assertFalse(conn.transferFile(response, entity));
+        int headLen = sendResponse(conn, response);
+
+        Assert.assertArrayEquals(this.content, receiveContent(headLen));
+        Assert.assertEquals(headLen + this.content.length, wirelog.size());
+    }
+
+    @Test
+    public void testChunkedFallsBackToStream() throws Exception {
+        DefaultBHttpServerConnection conn = new DefaultBHttpServerConnection(1024);
+        conn.bind(this.server);
+
+        HttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, "OK");
+        response.addHeader(HTTP.TRANSFER_ENCODING, HTTP.CHUNK_CODING);
+        FileEntity entity = new FileEntity(this.file, ContentType.TEXT_PLAIN);
+        response.setEntity(entity);
+        Assert.assertFalse(conn.transferFile(response, entity));
+        conn.close();
+    }
+
+    @Test
+    public void testOverriddenWriteToFallsBackToStream() throws Exception {
+        DefaultBHttpServerConnection conn = new DefaultBHttpServerConnection(1024);
+        conn.bind(this.server);
+
+        HttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, "OK");
+        response.addHeader(HTTP.CONTENT_LEN, Integer.toString(this.content.length));
+        CountingFileEntity entity = new CountingFileEntity(this.file);
+        response.setEntity(entity);
+        int headLen = sendResponse(conn, response);
+
+        Assert.assertEquals(1, entity.writeCount);
+        Assert.assertArrayEquals(this.content, receiveContent(headLen));
+    }
+
+    @Test
+    public void testPlainSocketFallsBackToStream() throws Exception {
+        this.server.close();
+        ServerSocket serverSocket = new ServerSocket(0);
+        try {
+            Socket plainClient = new Socket("localhost", serverSocket.getLocalPort());
+            Socket plainServer = serverSocket.accept();
+            try {
+                Assert.assertNull(plainServer.getChannel());
+                DefaultBHttpServerConnection conn = new DefaultBHttpServerConnection(1024);
+                conn.bind(plainServer);
+
+                HttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, "OK");
+                response.addHeader(HTTP.CONTENT_LEN, Integer.toString(this.content.length));
+                FileEntity entity = new FileEntity(this.file, ContentType.TEXT_PLAIN);
+                response.setEntity(entity);
+                Assert.assertFalse(conn.transferFile(response, entity));
+                conn.sendResponseHeader(response);
+                conn.flush();
+                long headLen = conn.getMetrics().getSentBytesCount();
+                conn.sendResponseEntity(response);
+                conn.close();
+
+                byte[] received = readAll(plainClient.getInputStream());
+                byte[] body = new byte[received.length - (int) headLen];
+                System.arraycopy(received, (int) headLen, body, 0, body.length);
+                Assert.assertArrayEquals(this.content, body);
+            } finally {
+                plainClient.close();
+                plainServer.close();
+            }
+        } finally {
+            serverSocket.close();
+        }
+    }
+
+}
@@ -31,8 +31,11 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
 
 import org.apache.http.HeaderElement;
+import org.apache.http.ParseException;
+import org.apache.http.impl.SessionOutputBufferMock;
 import org.apache.http.util.CharArrayBuffer;
 import org.junit.Assert;
 import org.junit.Test;
@@ -108,5 +111,52 @@ public class TestBufferedHeader {
         Assert.assertEquals(orig.getValue(), clone.getValue());
     }
 
-}
+    @Test
+    public void testAsciiHeaderEncodedLine() throws Exception {
+        CharArrayBuffer buf = new CharArrayBuffer(32);
+        buf.append("name: value");
+        BufferedAsciiHeader header = new BufferedAsciiHeader(buf);
+        Assert.assertEquals("name", header.getName());
+        Assert.assertEquals("value", header.getValue());
+        ByteBuffer line = header.getEncodedLine();
+        Assert.assertTrue(line.isReadOnly());
+        byte[] b = new byte[line.remaining()];
+        line.get(b);
+        Assert.assertEquals("name: value\r\n", new String(b, "US-ASCII"));
+
+        SessionOutputBufferMock outbuffer = new SessionOutputBufferMock();
+        header.writeTo(outbuffer);
+        outbuffer.flush();
+        Assert.assertEquals("name: value\r\n", new String(outbuffer.getData(), "US-ASCII"));
+    }
+
+    @Test
+    public void testAsciiHeaderBufferNotShared() throws Exception {
+        CharArrayBuffer buf = new CharArrayBuffer(32);
+        buf.append("name: value");
+        BufferedAsciiHeader header = new BufferedAsciiHeader(buf);
+        CharArrayBuffer copy = header.getBuffer();
+        Assert.assertEquals("name: value", copy.toString());
+        copy.clear();
+        copy.append("name: other");
+        Assert.assertEquals("name: value", header.getBuffer().toString());
+        Assert.assertEquals("value", header.getValue());
+        ByteBuffer line = header.getEncodedLine();
+        byte[] b = new byte[line.remaining()];
+        line.get(b);
+        Assert.assertEquals("name: value\r\n", new String(b, "US-ASCII"));
+    }
 
+    @Test
+    public void testAsciiHeaderNonAsciiContent() {
+        CharArrayBuffer buf = new CharArrayBuffer(32);
+        buf.append("name: \u00e9t\u00e9");
+        try {
+            new BufferedAsciiHeader(buf);
+            Assert.fail("ParseException should have been thrown");
+        } catch (ParseException ex) {
+            //expected
+        }
+    }
+
+}
@@ -0,0 +1,174 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+
+package org.apache.http.message;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import org.apache.http.HeaderElement;
+import org.apache.http.ParseException;
+import org.apache.http.util.CharArrayBuffer;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link BufferedHeaderView}.
+ *
+ */
+public class TestBufferedHeaderView {
+
+    private static CharArrayBuffer createBuffer(final String s) {
+        CharArrayBuffer buf = new CharArrayBuffer(s.length());
+        buf.append(s);
+        return buf;
+    }
+
+    @Test
+    public void testBasicConstructor() {
+        CharArrayBuffer buf = createBuffer("name1: value1name2 :  value2 ");
+        BufferedHeaderView header1 = new BufferedHeaderView(buf, 0, 13);
+        BufferedHeaderView header2 = new BufferedHeaderView(buf, 13, buf.length());
+        Assert.assertEquals("name1", header1.getName());
+        Assert.assertEquals("value1", header1.getValue());
+        Assert.assertEquals(6, header1.getValuePos());
+        Assert.assertEquals("name1: value1", header1.getBuffer().toString());
+        Assert.assertEquals("name2", header2.getName());
+        Assert.assertEquals("value2", header2.getValue());
+        Assert.assertEquals(7, header2.getValuePos());
+        Assert.assertEquals("name2 :  value2 ", header2.getBuffer().toString());
+        Assert.assertSame(header2.getBuffer(), header2.getBuffer());
+        Assert.assertEquals("name2 :  value2 ", header2.toString());
+    }
+
+    @Test
+    public void testLazyExtraction() {
+        CharArrayBuffer buf = createBuffer("name: value");
+        BufferedHeaderView header = new BufferedHeaderView(buf, 0, buf.length());
+        Assert.assertSame(header.getName(), header.getName());
+        Assert.assertSame(header.getValue(), header.getValue());
+    }
+
+    @Test
+    public void testEmptyValue() {
+        CharArrayBuffer buf = createBuffer("name:");
+        BufferedHeaderView header = new BufferedHeaderView(buf, 0, buf.length());
+        Assert.assertEquals("name", header.getName());
+        Assert.assertEquals("", header.getValue());
+    }
+
+    @Test
+    public void testInvalidInput() {
+        try {
+            new BufferedHeaderView(null, 0, 0);
+            Assert.fail("IllegalArgumentException should have been thrown");
+        } catch (IllegalArgumentException ex) {
+            //expected
+        }
+        CharArrayBuffer buf = createBuffer("name: value");
+        try {
+            new BufferedHeaderView(buf, 5, 4);
+            Assert.fail("IllegalArgumentException should have been thrown");
+        } catch (IllegalArgumentException ex) {
+            //expected
+        }
+        try {
+            new BufferedHeaderView(buf, 0, buf.length() + 1);
+            Assert.fail("IllegalArgumentException should have been thrown");
+        } catch (IllegalArgumentException ex) {
+            //expected
+        }
+    }
+
+    @Test
+    public void testInvalidHeader() {
+        CharArrayBuffer buf = createBuffer("name: value  : valuestuff");
+        try {
+            // colon outside of the segment
+            new BufferedHeaderView(buf, 0, 4);
+            Assert.fail("ParseException should have been thrown");
+        } catch (ParseException ex) {
+            //expected
+        }
+        try {
+            // blank name
+            new BufferedHeaderView(buf, 11, 20);
+            Assert.fail("ParseException should have been thrown");
+        } catch (ParseException ex) {
+            //expected
+        }
+    }
+
+    @Test
+    public void testHeaderElements() {
+        CharArrayBuffer buf = createBuffer(
+                "other: stuffname: element1 = value1, element2; param1 = value1, element3more: stuff");
+        BufferedHeaderView header = new BufferedHeaderView(buf, 12, buf.length() - 11);
+        HeaderElement[] elements = header.getElements();
+        Assert.assertNotNull(elements);
+        Assert.assertEquals(3, elements.length);
+        Assert.assertEquals("element1", elements[0].getName());
+        Assert.assertEquals("value1", elements[0].getValue());
+        Assert.assertEquals("element2", elements[1].getName());
+        Assert.assertEquals(null, elements[1].getValue());
+        Assert.assertEquals("element3", elements[2].getName());
+        Assert.assertEquals(null, elements[2].getValue());
+        Assert.assertEquals(1, elements[1].getParameters().length);
+    }
+
+    @Test
+    public void testCloning() throws Exception {
+        CharArrayBuffer buf = createBuffer("name1: value1name2: value2");
+        BufferedHeaderView orig = new BufferedHeaderView(buf, 13, buf.length());
+        BufferedHeaderView clone = (BufferedHeaderView) orig.clone();
+        Assert.assertEquals(orig.getName(), clone.getName());
+        Assert.assertEquals(orig.getValue(), clone.getValue());
+    }
+
+    @Test
+    public void testSerialization() throws Exception {
+        CharArrayBuffer buf = createBuffer("name1: value1name2: value2");
+        BufferedHeaderView orig = new BufferedHeaderView(buf, 13, buf.length());
+        ByteArrayOutputStream outbuffer = new ByteArrayOutputStream();
+        ObjectOutputStream outstream = new ObjectOutputStream(outbuffer);
+        outstream.writeObject(orig);
+        outstream.close();
+        byte[] raw = outbuffer.toByteArray();
+        ByteArrayInputStream inbuffer = new ByteArrayInputStream(raw);
+        ObjectInputStream instream = new ObjectInputStream(inbuffer);
+        Object obj = instream.readObject();
+        // serialized as a standalone copy of the header line
+        Assert.assertTrue(obj instanceof BufferedHeader);
+        BufferedHeader clone = (BufferedHeader) obj;
+        Assert.assertEquals(orig.getName(), clone.getName());
+        Assert.assertEquals(orig.getValue(), clone.getValue());
+        Assert.assertEquals("name2: value2", clone.getBuffer().toString());
+    }
+
+}
@@ -34,6 +34,7 @@ import java.io.ObjectOutputStream;
 
 import org.apache.http.Header;
 import org.apache.http.HeaderIterator;
+import org.apache.http.HttpHeaders;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -211,6 +212,130 @@ public class TestHeaderGroup {
             Assert.assertEquals(headers1[i].getName(), headers2[i].getName());
             Assert.assertEquals(headers1[i].getValue(), headers2[i].getValue());
         }
+        Assert.assertEquals(3, clone.getHeaders("NAME").length);
+        Assert.assertEquals("value3", clone.getLastHeader("name").getValue());
+    }
+
+    @Test
+    public void testIndexMaintainedOnUpdates() {
+        HeaderGroup headergroup = new HeaderGroup();
+        Header header1 = new BasicHeader("name", "value1");
+        Header header2 = new BasicHeader("Name", "value2");
+        Header header3 = new BasicHeader("other", "value3");
+        headergroup.addHeader(header1);
+        Assert.assertSame(header1, headergroup.getFirstHeader("NAME"));
+        headergroup.addHeader(header2);
+        headergroup.addHeader(header3);
+        Assert.assertSame(header2, headergroup.getLastHeader("name"));
+        Assert.assertEquals(2, headergroup.getHeaders("nAmE").length);
+
+        Header header4 = new BasicHeader("NAME", "value4");
+        headergroup.updateHeader(header4);
+        Assert.assertSame(header4, headergroup.getFirstHeader("name"));
+        Assert.assertSame(header4, headergroup.getAllHeaders()[0]);
+        Assert.assertEquals(2, headergroup.getHeaders("name").length);
+
+        headergroup.removeHeader(header2);
+        Assert.assertEquals(1, headergroup.getHeaders("name").length);
+        headergroup.removeHeader(header4);
+        Assert.assertFalse(headergroup.containsHeader("name"));
+        Assert.assertEquals(0, headergroup.getHeaders("name").length);
+        Assert.assertNull(headergroup.getCondensedHeader("name"));
+        Assert.assertTrue(headergroup.containsHeader("OTHER"));
+
+        headergroup.clear();
+        Assert.assertFalse(headergroup.containsHeader("other"));
+        headergroup.addHeader(header1);
+        Assert.assertSame(header1, headergroup.getFirstHeader("name"));
+    }
+
+    @Test
+    public void testIndexMaintainedOnIteratorRemove() {
+        HeaderGroup headergroup = new HeaderGroup();
+        Header header1 = new BasicHeader("name", "value1");
+        Header header2 = new BasicHeader("name", "value2");
+        Header header3 = new BasicHeader("other", "value3");
+        headergroup.setHeaders(new Header[] { header1, header2, header3 });
+        Assert.assertTrue(headergroup.containsHeader("name"));
+        for (HeaderIterator i = headergroup.iterator("name"); i.hasNext(); ) {
+            i.nextHeader();
+            i.remove();
+        }
+        Assert.assertFalse(headergroup.containsHeader("name"));
+        Assert.assertNull(headergroup.getFirstHeader("name"));
+        Assert.assertSame(header3, headergroup.getFirstHeader("other"));
+        Assert.assertEquals(1, headergroup.getAllHeaders().length);
+    }
+
+    @Test
+    public void testNamedIterator() {
+        HeaderGroup headergroup = new HeaderGroup();
+        Header header1 = new BasicHeader("name", "value1");
+        Header header2 = new BasicHeader("other", "value2");
+        Header header3 = new BasicHeader("NAME", "value3");
+        Header header4 = new BasicHeader("name", "value4");
+        headergroup.setHeaders(new Header[] { header1, header2, header3, header4 });
+
+        Assert.assertFalse(headergroup.iterator("missing").hasNext());
+
+        HeaderIterator i = headergroup.iterator("Name");
+        Assert.assertSame(header1, i.nextHeader());
+        Assert.assertSame(header3, i.nextHeader());
+        i.remove();
+        Assert.assertTrue(i.hasNext());
+        Assert.assertSame(header4, i.nextHeader());
+        Assert.assertFalse(i.hasNext());
+
+        Assert.assertEquals(3, headergroup.getAllHeaders().length);
+        Assert.assertSame(header2, headergroup.getAllHeaders()[1]);
+        Assert.assertSame(header4, headergroup.getAllHeaders()[2]);
+        Assert.assertEquals(2, headergroup.getHeaders("name").length);
+    }
+
+    @Test
+    public void testCopyIsIndexed() {
+        HeaderGroup orig = new HeaderGroup();
+        Header header1 = new BasicHeader("name", "value1");
+        orig.addHeader(header1);
+        HeaderGroup copy = orig.copy();
+        Assert.assertSame(header1, copy.getFirstHeader("NAME"));
+        copy.removeHeader(header1);
+        Assert.assertFalse(copy.containsHeader("name"));
+        Assert.assertTrue(orig.containsHeader("name"));
+    }
+
+    @Test
+    public void testCloneIsIndependent() throws Exception {
+        HeaderGroup orig = new HeaderGroup();
+        orig.addHeader(new BasicHeader("name", "value1"));
+        Assert.assertTrue(orig.containsHeader("name"));
+        HeaderGroup clone = (HeaderGroup) orig.clone();
+        clone.removeHeader(clone.getFirstHeader("name"));
+        Assert.assertFalse(clone.containsHeader("name"));
+        Assert.assertTrue(orig.containsHeader("name"));
+        Assert.assertEquals(1, orig.getAllHeaders().length);
+    }
+
+    @Test
+    public void testManyNames() {
+        HeaderGroup headergroup = new HeaderGroup();
+        for (int i = 0; i < 100; i++) {
+            headergroup.addHeader(new BasicHeader("name-" + i, Integer.toString(i)));
+        }
+        for (int i = 0; i < 100; i++) {
+            Assert.assertEquals(Integer.toString(i), headergroup.getFirstHeader("NAME-" + i).getValue());
+        }
+        Assert.assertNull(headergroup.getFirstHeader("name-100"));
+    }
+
+    @Test
+    public void testWellKnownNamesInterned() {
+        String name = new String("content-LENGTH");
+        Assert.assertSame(HttpHeaders.CONTENT_LENGTH,
+                HeaderIndex.intern(name, HeaderIndex.hash(name)));
+        String unknown = "x-custom";
+        Assert.assertSame(unknown, HeaderIndex.intern(unknown, HeaderIndex.hash(unknown)));
+        Assert.assertEquals(HeaderIndex.hash("Content-Length"), HeaderIndex.hash("CONTENT-length"));
     }
 
 }
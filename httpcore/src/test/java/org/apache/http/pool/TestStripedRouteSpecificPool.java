@@ -0,0 +1,159 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.http.pool;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.Assert;
+
+import org.apache.http.HttpConnection;
+import org.apache.http.pool.TestRouteSpecificPool.LocalPoolEntry;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+public class TestStripedRouteSpecificPool {
+
+    private static final String ROUTE = "whatever";
+
+    static class LocalRoutePool extends StripedRouteSpecificPool<String, HttpConnection, LocalPoolEntry> {
+
+        public LocalRoutePool() {
+            super(ROUTE);
+        }
+
+        @Override
+        protected LocalPoolEntry createEntry(final HttpConnection conn) {
+            return new LocalPoolEntry(getRoute(), conn);
+        }
+
+    }
+
+    private static LocalPoolEntry add(final LocalRoutePool pool, final HttpConnection conn) {
+        pool.reserve();
+        return pool.add(conn);
+    }
+
+    @Test
+    public void testReservation() throws Exception {
+        LocalRoutePool pool = new LocalRoutePool();
+        pool.reserve();
+        pool.reserve();
+        Assert.assertEquals(2, pool.getAllocatedCount());
+        pool.cancelReservation();
+        LocalPoolEntry entry = pool.add(Mockito.mock(HttpConnection.class));
+        Assert.assertNotNull(entry);
+        Assert.assertEquals(1, pool.getAllocatedCount());
+        Assert.assertEquals(1, pool.getLeasedCount());
+    }
+
+    @Test
+    public void testAvailableOrdering() throws Exception {
+        LocalRoutePool pool = new LocalRoutePool();
+        LocalPoolEntry entry1 = add(pool, Mockito.mock(HttpConnection.class));
+        LocalPoolEntry entry2 = add(pool, Mockito.mock(HttpConnection.class));
+        LocalPoolEntry entry3 = add(pool, Mockito.mock(HttpConnection.class));
+
+        Assert.assertTrue(pool.free(entry1, true));
+        Assert.assertTrue(pool.free(entry2, true));
+        Assert.assertTrue(pool.free(entry3, true));
+        Assert.assertFalse(pool.free(entry3, true));
+        Assert.assertEquals(3, pool.getAvailableCount());
+
+        Assert.assertSame(entry1, pool.getLastUsed());
+        Assert.assertSame(entry3, pool.getFree(null));
+
+        Assert.assertTrue(pool.remove(entry1));
+        Assert.assertFalse(pool.remove(entry1));
+        Assert.assertSame(entry2, pool.getLastUsed());
+        Assert.assertSame(entry2, pool.getFree(null));
+        Assert.assertNull(pool.getFree(null));
+        Assert.assertNull(pool.getLastUsed());
+        Assert.assertEquals(2, pool.getLeasedCount());
+        Assert.assertEquals(0, pool.getAvailableCount());
+    }
+
+    @Test
+    public void testStatefulFree() throws Exception {
+        LocalRoutePool pool = new LocalRoutePool();
+        LocalPoolEntry entry1 = add(pool, Mockito.mock(HttpConnection.class));
+        LocalPoolEntry entry2 = add(pool, Mockito.mock(HttpConnection.class));
+        entry1.setState("some-state");
+        pool.free(entry1, true);
+        pool.free(entry2, true);
+
+        Assert.assertSame(entry1, pool.getFree("some-state"));
+        Assert.assertSame(entry2, pool.getFree("other-state"));
+        Assert.assertNull(pool.getFree(null));
+    }
+
+    @Test
+    public void testCloseIdle() throws Exception {
+        LocalRoutePool pool = new LocalRoutePool();
+        HttpConnection conn1 = Mockito.mock(HttpConnection.class);
+        HttpConnection conn2 = Mockito.mock(HttpConnection.class);
+        LocalPoolEntry entry1 = add(pool, conn1);
+        LocalPoolEntry entry2 = add(pool, conn2);
+        entry1.updateExpiry(0, TimeUnit.MILLISECONDS);
+        pool.free(entry1, true);
+        Thread.sleep(50);
+        long deadline = System.currentTimeMillis();
+        Thread.sleep(50);
+        entry2.updateExpiry(0, TimeUnit.MILLISECONDS);
+        pool.free(entry2, true);
+
+        Assert.assertEquals(1, pool.closeIdle(deadline));
+        Mockito.verify(conn1).close();
+        Mockito.verify(conn2, Mockito.never()).close();
+        Assert.assertEquals(1, pool.getAvailableCount());
+        Assert.assertSame(entry2, pool.getLastUsed());
+    }
+
+    @Test
+    public void testShutdown() throws Exception {
+        LocalRoutePool pool = new LocalRoutePool();
+        HttpConnection conn1 = Mockito.mock(HttpConnection.class);
+        HttpConnection conn2 = Mockito.mock(HttpConnection.class);
+        LocalPoolEntry entry1 = add(pool, conn1);
+        add(pool, conn2);
+        pool.free(entry1, true);
+        @SuppressWarnings("unchecked")
+        PoolEntryFuture<LocalPoolEntry> future = Mockito.mock(PoolEntryFuture.class);
+        pool.queue(future);
+
+        List<PoolEntryFuture<LocalPoolEntry>> futures = pool.shutdown();
+
+        Assert.assertEquals(1, futures.size());
+        Assert.assertSame(future, futures.get(0));
+        Mockito.verify(conn1).close();
+        Mockito.verify(conn2).close();
+        Assert.assertEquals(0, pool.getAllocatedCount());
+        Assert.assertEquals(0, pool.getPendingCount());
+        Assert.assertNull(pool.getLastUsed());
+    }
+
+}
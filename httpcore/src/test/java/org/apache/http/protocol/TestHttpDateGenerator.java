@@ -0,0 +1,127 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+
+package org.apache.http.protocol;
+
+import java.io.ByteArrayOutputStream;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.Random;
+
+import org.apache.http.Header;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.HttpVersion;
+import org.apache.http.impl.io.DefaultHttpResponseWriter;
+import org.apache.http.impl.io.HttpTransportMetricsImpl;
+import org.apache.http.impl.io.SessionOutputBufferImpl;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.message.BufferedAsciiHeader;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestHttpDateGenerator {
+
+    private static String format(final long millis) {
+        final char[] buf = new char[HttpDateGenerator.DATE_LEN];
+        HttpDateGenerator.formatDate(millis, buf, 0);
+        return new String(buf);
+    }
+
+    private static SimpleDateFormat createReferenceFormat() {
+        final SimpleDateFormat dateformat = new SimpleDateFormat(
+                HttpDateGenerator.PATTERN_RFC1123, Locale.US);
+        dateformat.setTimeZone(HttpDateGenerator.GMT);
+        return dateformat;
+    }
+
+    @Test
+    public void testFormatKnownDates() {
+        Assert.assertEquals("Thu, 01 Jan 1970 00:00:00 GMT", format(0L));
+        Assert.assertEquals("Sun, 06 Nov 1994 08:49:37 GMT", format(784111777000L));
+        Assert.assertEquals("Tue, 29 Feb 2000 23:59:59 GMT", format(951868799000L));
+        Assert.assertEquals("Wed, 01 Mar 2000 00:00:00 GMT", format(951868800000L));
+        Assert.assertEquals("Fri, 31 Dec 2100 12:00:00 GMT", format(4133937600000L));
+    }
+
+    @Test
+    public void testFormatMatchesDateFormat() {
+        final SimpleDateFormat dateformat = createReferenceFormat();
+        final Random rnd = new Random(1234L);
+        for (int i = 0; i < 10000; i++) {
+            // Anything between 1970 and roughly 2300
+            final long millis = (rnd.nextLong() >>> 1) % 10000000000000L;
+            Assert.assertEquals(dateformat.format(new Date(millis)), format(millis));
+        }
+    }
+
+    @Test
+    public void testCurrentDate() {
+        final HttpDateGenerator generator = new HttpDateGenerator();
+        final long before = System.currentTimeMillis() / 1000;
+        final String date = generator.getCurrentDate();
+        final long after = System.currentTimeMillis() / 1000;
+        final SimpleDateFormat dateformat = createReferenceFormat();
+        final String s1 = dateformat.format(new Date(before * 1000));
+        final String s2 = dateformat.format(new Date(after * 1000));
+        Assert.assertTrue(date, date.equals(s1) || date.equals(s2));
+    }
+
+    @Test
+    public void testCachedPerSecond() {
+        final HttpDateGenerator generator = new HttpDateGenerator();
+        final HttpDateGenerator.CachedDate d1 = generator.getCachedDate(784111777000L);
+        final HttpDateGenerator.CachedDate d2 = generator.getCachedDate(784111777999L);
+        final HttpDateGenerator.CachedDate d3 = generator.getCachedDate(784111778000L);
+        Assert.assertSame(d1, d2);
+        Assert.assertNotSame(d2, d3);
+        Assert.assertEquals("Sun, 06 Nov 1994 08:49:37 GMT", d1.text);
+        Assert.assertEquals("Sun, 06 Nov 1994 08:49:38 GMT", d3.text);
+        Assert.assertEquals(HTTP.DATE_HEADER, d1.header.getName());
+        Assert.assertEquals(d1.text, d1.header.getValue());
+    }
+
+    @Test
+    public void testDateHeaderWrittenVerbatim() throws Exception {
+        final Header header = HttpDateGenerator.INSTANCE.getCurrentDateHeader();
+        Assert.assertTrue(header instanceof BufferedAsciiHeader);
+
+        final HttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, HttpStatus.SC_OK, "OK");
+        response.setHeader(header);
+        final ByteArrayOutputStream outstream = new ByteArrayOutputStream();
+        final SessionOutputBufferImpl outbuffer = new SessionOutputBufferImpl(
+                new HttpTransportMetricsImpl(), 256, 0, null);
+        outbuffer.bind(outstream);
+        final DefaultHttpResponseWriter writer = new DefaultHttpResponseWriter(outbuffer);
+        writer.write(response);
+        outbuffer.flush();
+        Assert.assertEquals("HTTP/1.1 200 OK\r\nDate: " + header.getValue() + "\r\n\r\n",
+                new String(outstream.toByteArray(), "US-ASCII"));
+    }
+
+}
@@ -27,6 +27,9 @@
 
 package org.apache.http.protocol;
 
+import java.util.Map;
+import java.util.Random;
+
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -152,4 +155,60 @@ public class TestUriPatternMatcher {
         matcher.lookup(null);
     }
 
+    static class ScanningUriPatternMatcher<T> extends UriPatternMatcher<T> {
+
+        @Override
+        protected boolean matchUriRequestPattern(final String pattern, final String path) {
+            return super.matchUriRequestPattern(pattern, path);
+        }
+
+    }
+
+    @Test
+    public void testCompiledMatchingSameAsPatternScan() throws Exception {
+        String[] patterns = new String[] {
+                "*", "/*", "/a*", "/a/*", "/a/b*", "/a/b/c", "*.html", "*/c", "*b/c",
+                "/abc*", "*abc", "/a/bc/*", "*.do", "/a/b/c.html", "*c.html" };
+        String[] paths = new String[] {
+                "", "/", "/a", "/a/", "/a/b", "/a/b/c", "/a/b/c.html", "/abc", "/abc.html",
+                "/x/abc", "/x/y.do", "c", "/a/bc/d", "*c", "/a/b/c*", "/z" };
+        Random rnd = new Random(12345L);
+        for (int n = 0; n < 200; n++) {
+            UriPatternMatcher<String> matcher = new UriPatternMatcher<String>();
+            UriPatternMatcher<String> scanner = new ScanningUriPatternMatcher<String>();
+            for (String pattern: patterns) {
+                if (rnd.nextBoolean()) {
+                    matcher.register(pattern, pattern);
+                    scanner.register(pattern, pattern);
+                }
+            }
+            for (String path: paths) {
+                Assert.assertEquals(path, scanner.lookup(path), matcher.lookup(path));
+            }
+        }
+    }
+
+    @Test
+    public void testRegisterAfterLookup() throws Exception {
+        UriPatternMatcher<String> matcher = new UriPatternMatcher<String>();
+        Assert.assertNull(matcher.lookup("/a/b"));
+        matcher.register("/a/*", "h1");
+        Assert.assertEquals("h1", matcher.lookup("/a/b"));
+        matcher.register("/a/b*", "h2");
+        Assert.assertEquals("h2", matcher.lookup("/a/b"));
+        matcher.unregister("/a/b*");
+        Assert.assertEquals("h1", matcher.lookup("/a/b"));
+    }
+
+    @SuppressWarnings("deprecation")
+    @Test
+    public void testExposedMapModification() throws Exception {
+        UriPatternMatcher<String> matcher = new UriPatternMatcher<String>();
+        matcher.register("/a/*", "h1");
+        Assert.assertEquals("h1", matcher.lookup("/a/b"));
+        Map<String, String> map = matcher.getObjects();
+        map.put("/a/b*", "h2");
+        Assert.assertEquals("h2", matcher.lookup("/a/b"));
+    }
+
 }